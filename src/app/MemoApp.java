@@ -3,7 +3,11 @@ package app;
 import javax.swing.SwingUtilities;
 
 import memo.MemoManager;
-import storage.MemoRepository;
+import memo.ParallelMemoFilter;
+import memo.WriteBehindQueue;
+import metrics.Metrics;
+import storage.MemoStore;
+import ui.EdtMonitor;
 import ui.MemoGui;
 
 /**
@@ -19,18 +23,35 @@ public class MemoApp {
      */
     public static void main(String[] args) {
         try {
+            // 計測が有効な場合は JMX への登録と定期書き出しを開始
+            Metrics.startIfEnabled();
+
             // --- 依存関係の構築（Dependency Injection） ---
 
-            // 1. データ永続化層のインスタンスを生成
-            MemoRepository repository = new MemoRepository();
+            // 1. データ永続化層のインスタンスを生成（保存先は -Dhashmemo.store で選択、既定は SQLite）
+            MemoStore repository = MemoStore.open();
 
             // 2. ビジネスロジック層のインスタンスを生成し、リポジトリを注入
-            MemoManager manager = new MemoManager(repository);
+            //    -Dhashmemo.writeBehind=true の場合は、追加・更新・削除をキューに溜めてまとめて保存する
+            MemoManager manager = new MemoManager(repository, new ParallelMemoFilter(),
+                    WriteBehindQueue.fromSystemProperties(repository));
+
+            // ウィンドウを閉じて `System.exit` が呼ばれた際にも、溜めている書き込みを反映し、プール内の接続を確実に閉じる
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    manager.flush();
+                } catch (RuntimeException e) {
+                    System.err.println("終了時の書き込みの反映に失敗しました: " + e.getMessage());
+                } finally {
+                    repository.close();
+                }
+            }, "hashmemo-shutdown"));
 
             // --- GUIの起動 ---
             // Swingのコンポーネントはイベントディスパッチスレッド（EDT）で操作する必要があるため、
             // `SwingUtilities.invokeLater` を使用してGUIの生成と表示をスケジュールします。
             System.out.println("HashMemo GUI アプリケーションを起動します...");
+            EdtMonitor.installIfEnabled();
             SwingUtilities.invokeLater(() -> {
                 // 3. UI層のインスタンスを生成し、マネージャーを注入
                 MemoGui gui = new MemoGui(manager);
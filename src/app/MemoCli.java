@@ -0,0 +1,92 @@
+package app;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import memo.MemoManager;
+import metrics.Metrics;
+import storage.MemoStore;
+import transfer.MemoExporter;
+import transfer.MemoFormat;
+import transfer.MemoImporter;
+import transfer.TransferProgress;
+
+/**
+ * GUI を起動せずにメモのエクスポート・インポートを行うエントリーポイントです。
+ * アプリケーション本体（{@link MemoApp}）と同じデータベースを使用します。
+ *
+ * <pre>
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" app.MemoCli export memos.jsonl
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" app.MemoCli import memos.csv [batch=1000]
+ * </pre>
+ *
+ * ファイルの形式は拡張子（{@code .jsonl} / {@code .csv}）で判定します。進み具合は標準エラー出力に表示します。
+ */
+public class MemoCli {
+
+    /** 進み具合を表示する最短の間隔（ミリ秒）。 */
+    private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+
+    /**
+     * @param args {@code export <ファイル>} または {@code import <ファイル> [batch=件数]}。
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || !("export".equals(args[0]) || "import".equals(args[0]))) {
+            System.err.println("使い方: app.MemoCli export <ファイル.jsonl|.csv>");
+            System.err.println("        app.MemoCli import <ファイル.jsonl|.csv> [batch=件数]");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[1]);
+
+        Metrics.startIfEnabled();
+        try (MemoStore repository = MemoStore.open()) {
+            MemoManager manager = new MemoManager(repository);
+            MemoFormat format = MemoFormat.forFile(file);
+            long start = System.nanoTime();
+            long count;
+            if ("export".equals(args[0])) {
+                count = new MemoExporter(manager).export(file, format, new ConsoleProgress("件"));
+                System.err.println();
+                System.out.printf("%d 件を %s に書き出しました（%.1f 秒）%n", count, file, (System.nanoTime() - start) / 1e9);
+            } else {
+                int batchSize = MemoImporter.DEFAULT_BATCH_SIZE;
+                if (args.length > 2 && args[2].startsWith("batch=")) {
+                    batchSize = Integer.parseInt(args[2].substring("batch=".length()));
+                }
+                count = new MemoImporter(manager, batchSize).importFrom(file, format, new ConsoleProgress("バイト"));
+                System.err.println();
+                System.out.printf("%s から %d 件を取り込みました（%.1f 秒）%n", file, count, (System.nanoTime() - start) / 1e9);
+            }
+        } catch (Exception e) {
+            System.err.println();
+            System.err.println("処理に失敗しました: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 進み具合を標準エラー出力の1行に上書きしながら表示します。
+     */
+    private static final class ConsoleProgress implements TransferProgress {
+        private final String unit;
+        private long lastPrinted;
+
+        ConsoleProgress(String unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public void onProgress(long records, long done, long total) {
+            long now = System.currentTimeMillis();
+            if (now - lastPrinted < PROGRESS_INTERVAL_MILLIS && done != total) {
+                return;
+            }
+            lastPrinted = now;
+            if (total > 0) {
+                System.err.printf("\r%,d 件（%,d / %,d %s、%d%%）", records, done, total, unit, done * 100 / total);
+            } else {
+                System.err.printf("\r%,d 件", records);
+            }
+        }
+    }
+}
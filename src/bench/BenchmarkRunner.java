@@ -0,0 +1,198 @@
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ウォームアップと計測を繰り返してベンチマークを実行し、結果をJSONで出力するクラスです。
+ * 外部ライブラリ（JMHなど）を使わずに `javac` だけでビルドできるよう、最小限の機能だけを実装しています。
+ * 計測ごとの結果を時系列で比較できるよう、実行環境とパラメータも一緒に記録します。
+ */
+public class BenchmarkRunner {
+
+    /**
+     * 計測対象の処理です。戻り値はJITによる処理の削除を防ぐために集計されます。
+     */
+    @FunctionalInterface
+    public interface Operation {
+        long run() throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final Map<String, Object> parameters = new LinkedHashMap<>();
+    private final List<Result> results = new ArrayList<>();
+
+    /** 戻り値の集計先（最適化による処理の削除を防ぐ）。 */
+    private long sink;
+
+    /**
+     * @param warmupIterations   計測前に実行する回数。
+     * @param measuredIterations 計測する回数。
+     */
+    public BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+    }
+
+    /**
+     * 結果のJSONに記録するパラメータを追加します。
+     *
+     * @param name  パラメータ名。
+     * @param value 値（数値・文字列・真偽値）。
+     */
+    public void parameter(String name, Object value) {
+        parameters.put(name, value);
+    }
+
+    /**
+     * 処理をウォームアップした後に計測し、結果を標準出力に表示します。
+     *
+     * @param name      ベンチマーク名。
+     * @param operation 計測する処理（1回の呼び出しを1操作として計測します）。
+     * @return 計測結果。
+     * @throws Exception 処理が例外をスローした場合。
+     */
+    public Result run(String name, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            sink += operation.run();
+        }
+        long[] samples = new long[measuredIterations];
+        for (int i = 0; i < measuredIterations; i++) {
+            long start = System.nanoTime();
+            sink += operation.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Result result = new Result(name, samples);
+        results.add(result);
+        System.out.println(result);
+        return result;
+    }
+
+    /**
+     * これまでの計測結果をJSONファイルに書き出します。
+     *
+     * @param file 出力先のファイル。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    public void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("{\n");
+            out.write("  \"timestamp\": " + quote(Instant.now().toString()) + ",\n");
+            out.write("  \"environment\": {\n");
+            out.write("    \"java.version\": " + quote(System.getProperty("java.version")) + ",\n");
+            out.write("    \"os.name\": " + quote(System.getProperty("os.name")) + ",\n");
+            out.write("    \"os.arch\": " + quote(System.getProperty("os.arch")) + ",\n");
+            out.write("    \"availableProcessors\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+            out.write("    \"maxMemoryBytes\": " + Runtime.getRuntime().maxMemory() + "\n");
+            out.write("  },\n");
+            out.write("  \"parameters\": {");
+            int i = 0;
+            for (Map.Entry<String, Object> e : parameters.entrySet()) {
+                out.write((i++ == 0 ? "\n" : ",\n") + "    " + quote(e.getKey()) + ": " + jsonValue(e.getValue()));
+            }
+            out.write("\n  },\n");
+            out.write("  \"warmupIterations\": " + warmupIterations + ",\n");
+            out.write("  \"measuredIterations\": " + measuredIterations + ",\n");
+            out.write("  \"results\": [");
+            for (int r = 0; r < results.size(); r++) {
+                out.write((r == 0 ? "\n" : ",\n") + "    " + results.get(r).toJson());
+            }
+            out.write("\n  ]\n}\n");
+        }
+        System.out.println("結果を書き出しました: " + file.toAbsolutePath() + " (checksum " + sink + ")");
+    }
+
+    private static String jsonValue(Object value) {
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return quote(String.valueOf(value));
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * 1つのベンチマークの計測結果です。時間はすべてナノ秒単位です。
+     */
+    public static final class Result {
+        private final String name;
+        private final long[] sortedSamples;
+        private final double mean;
+
+        Result(String name, long[] samples) {
+            this.name = name;
+            this.sortedSamples = samples.clone();
+            Arrays.sort(sortedSamples);
+            this.mean = Arrays.stream(samples).average().orElse(0);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getMeanNanos() {
+            return mean;
+        }
+
+        public long percentileNanos(double percentile) {
+            if (sortedSamples.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+            return sortedSamples[Math.max(0, Math.min(index, sortedSamples.length - 1))];
+        }
+
+        String toJson() {
+            return "{\"name\": " + quote(name)
+                    + ", \"samples\": " + sortedSamples.length
+                    + ", \"meanNs\": " + Math.round(mean)
+                    + ", \"p50Ns\": " + percentileNanos(50)
+                    + ", \"p99Ns\": " + percentileNanos(99)
+                    + ", \"minNs\": " + (sortedSamples.length == 0 ? 0 : sortedSamples[0])
+                    + ", \"maxNs\": " + (sortedSamples.length == 0 ? 0 : sortedSamples[sortedSamples.length - 1])
+                    + ", \"opsPerSec\": " + (mean == 0 ? 0 : Math.round(1e9 / mean))
+                    + "}";
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-32s mean %10.3f ms  p50 %10.3f ms  p99 %10.3f ms",
+                    name, mean / 1e6, percentileNanos(50) / 1e6, percentileNanos(99) / 1e6);
+        }
+    }
+}
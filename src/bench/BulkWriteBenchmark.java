@@ -0,0 +1,61 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import memo.Memo;
+import storage.MemoRepository;
+
+/**
+ * 1件ずつの保存（{@link MemoRepository#save(Memo)}）と
+ * 一括保存（{@link MemoRepository#saveAll(java.util.Collection, int)}）のスループットを比較するベンチマークです。
+ * それぞれ一時ディレクトリに作成した空のデータベースに対して実行します。
+ *
+ * <pre>
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" bench.BulkWriteBenchmark [件数] [チャンクサイズ]
+ * </pre>
+ */
+public class BulkWriteBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : MemoRepository.DEFAULT_BATCH_SIZE;
+
+        List<Memo> memos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            memos.add(new Memo("タイトル " + i, "本文 " + i + " ".repeat(200), Arrays.asList("tag" + (i % 20), "bench")));
+        }
+
+        Path dir = Files.createTempDirectory("hashmemo-bench");
+        double perRow = measure(dir.resolve("per-row.db"), repository -> {
+            for (Memo memo : memos) {
+                repository.save(memo);
+            }
+        });
+        double batched = measure(dir.resolve("batched.db"), repository -> repository.saveAll(memos, chunkSize));
+
+        System.out.printf("件数: %d, チャンクサイズ: %d%n", count, chunkSize);
+        System.out.printf("1件ずつ保存: %,.0f 件/秒%n", count / perRow);
+        System.out.printf("一括保存    : %,.0f 件/秒 (%.1f 倍)%n", count / batched, perRow / batched);
+    }
+
+    /**
+     * 新しいデータベースに対して処理を1回実行し、経過時間（秒）を返します。
+     */
+    private static double measure(Path dbFile, WriteTask task) {
+        try (MemoRepository repository = new MemoRepository("jdbc:sqlite:" + dbFile)) {
+            long start = System.nanoTime();
+            task.run(repository);
+            return (System.nanoTime() - start) / 1e9;
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriteTask {
+        void run(MemoRepository repository);
+    }
+}
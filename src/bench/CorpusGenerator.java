@@ -0,0 +1,131 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import memo.Memo;
+
+/**
+ * ベンチマーク用の合成メモを生成するクラスです。
+ * 同じシード値と設定からは常に同じメモの並びが生成されるため、計測結果を実行間で比較できます。
+ * タグの出現頻度はZipf分布に従い、少数の人気タグと多数のまれなタグが混在する実データに近い偏りを再現します。
+ */
+public class CorpusGenerator {
+
+    /** 本文・タイトルの組み立てに使う語彙。日本語と英数字を混在させています。 */
+    static final String[] WORDS = {
+            "会議", "議事録", "買い物", "メモ", "アイデア", "予定", "旅行", "読書", "レシピ", "タスク",
+            "プロジェクト", "レビュー", "設計", "実装", "テスト", "リリース", "バグ", "改善", "調査", "連絡",
+            "java", "sqlite", "swing", "index", "cache", "query", "thread", "memory", "deploy", "release",
+            "東京", "大阪", "週末", "来週", "今日", "明日", "確認", "共有", "資料", "準備"
+    };
+
+    private final long seed;
+    private final int memoCount;
+    private final int bodySize;
+    private final int tagsPerMemo;
+    private final ZipfSampler tagSampler;
+
+    /**
+     * @param seed          乱数のシード値。
+     * @param memoCount     生成するメモの件数。
+     * @param bodySize      本文のおおよその文字数。
+     * @param tagVocabulary タグの種類数。
+     * @param zipfExponent  タグ頻度のZipf分布の指数（大きいほど上位のタグに偏ります）。
+     * @param tagsPerMemo   1件のメモに付ける最大タグ数。
+     */
+    public CorpusGenerator(long seed, int memoCount, int bodySize, int tagVocabulary, double zipfExponent, int tagsPerMemo) {
+        this.seed = seed;
+        this.memoCount = memoCount;
+        this.bodySize = bodySize;
+        this.tagsPerMemo = tagsPerMemo;
+        this.tagSampler = new ZipfSampler(tagVocabulary, zipfExponent);
+    }
+
+    /**
+     * 設定に従ってメモを生成します。
+     *
+     * @return 保存前（IDなし）のメモのリスト。
+     */
+    public List<Memo> generate() {
+        Random random = new Random(seed);
+        List<Memo> memos = new ArrayList<>(memoCount);
+        for (int i = 0; i < memoCount; i++) {
+            memos.add(generateOne(random, i));
+        }
+        return memos;
+    }
+
+    /**
+     * 1件のメモを生成します。保存処理の計測で、コーパスとは別のメモが必要な場合に使用します。
+     *
+     * @param random 乱数生成器。
+     * @param number メモの通し番号（タイトルに含めます）。
+     * @return 生成したメモ。
+     */
+    public Memo generateOne(Random random, int number) {
+        String title = word(random) + " " + word(random) + " #" + number;
+        StringBuilder body = new StringBuilder(bodySize + 16);
+        while (body.length() < bodySize) {
+            body.append(word(random)).append(random.nextInt(10) == 0 ? "。\n" : " ");
+        }
+        Set<String> tags = new LinkedHashSet<>();
+        int tagCount = 1 + random.nextInt(tagsPerMemo);
+        for (int t = 0; t < tagCount; t++) {
+            tags.add(sampleTag(random));
+        }
+        return new Memo(title, body.toString(), new ArrayList<>(tags));
+    }
+
+    /**
+     * Zipf分布に従ってタグを1つ選びます。検索対象のタグを実際の頻度どおりに選ぶ場合に使用します。
+     *
+     * @param random 乱数生成器。
+     * @return タグ名（"tag0" が最も頻出）。
+     */
+    public String sampleTag(Random random) {
+        return "tag" + tagSampler.sample(random);
+    }
+
+    /**
+     * 語彙から単語を1つ選びます。
+     *
+     * @param random 乱数生成器。
+     * @return 単語。
+     */
+    public static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    /**
+     * 1〜n の順位を、順位 k の確率が 1/k^s に比例するように選ぶサンプラーです。
+     * 累積分布を事前に計算し、二分探索で順位を求めます。
+     */
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int k = 1; k <= n; k++) {
+                sum += 1.0 / Math.pow(k, exponent);
+                cumulative[k - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        /**
+         * @return 0始まりの順位。
+         */
+        int sample(Random random) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(index < 0 ? -index - 1 : index, cumulative.length - 1);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import memo.Memo;
+import storage.LogMemoStore;
+
+/**
+ * {@link LogMemoStore} の書き込み・索引の再構築・圧縮の所要時間を計測し、異常終了からの復旧を確認するベンチマークです。
+ *
+ * <ol>
+ *   <li>{@code memos} 件を1件ずつ保存し、スループット（件/秒）を記録します。</li>
+ *   <li>全件の更新を {@code updates} 回繰り返して不要な記録を増やし、開き直したときの索引の再構築時間を計測します。</li>
+ *   <li>圧縮の所要時間と、圧縮前後のファイルの大きさ・不要な記録の大きさを記録します。圧縮の前後で内容が変わらないことも確認します。</li>
+ *   <li>最後の記録の書き込み途中で終了した状態（長さが未記入・本体が壊れている）を再現し、
+ *       開き直すとその記録だけが取り除かれ、続けて書き込めることを確認します。</li>
+ * </ol>
+ * 圧縮前の状態を計測するため、自動の圧縮は無効にしたストアを使用します（圧縮は {@link LogMemoStore#compact()} でだけ行います）。
+ *
+ * <pre>
+ * java bench.LogStoreBenchmark memos=20000 body=500 updates=3 out=bench-results/log-store.json
+ * </pre>
+ */
+public class LogStoreBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int memoCount = 20_000;
+        int bodySize = 500;
+        int updates = 3;
+        String out = "bench-results/log-store-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "body":
+                    bodySize = Integer.parseInt(kv[1]);
+                    break;
+                case "updates":
+                    updates = Integer.parseInt(kv[1]);
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(1, 5);
+        runner.parameter("memos", memoCount);
+        runner.parameter("bodySize", bodySize);
+        runner.parameter("updates", updates);
+
+        Path file = Files.createTempDirectory("hashmemo-log-bench").resolve("bench.log");
+        List<Memo> corpus = new CorpusGenerator(42, memoCount, bodySize, 200, 1.1, 3).generate();
+
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            long start = System.nanoTime();
+            for (Memo memo : corpus) {
+                store.save(memo);
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            runner.parameter("save.memosPerSec", Math.round(memoCount / seconds));
+            System.out.printf("1件ずつの保存: %,d 件/秒%n", Math.round(memoCount / seconds));
+
+            for (int round = 0; round < updates; round++) {
+                List<Memo> all = store.getAll();
+                for (Memo memo : all) {
+                    memo.setBody(memo.getBody() + " " + round);
+                }
+                store.updateAll(all);
+            }
+        }
+
+        runner.run("log.rebuildIndex(beforeCompaction)", () -> reopenCount(file));
+
+        List<String> before;
+        long sizeBefore;
+        long garbageBefore;
+        long sizeAfter;
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            before = snapshot(store);
+            sizeBefore = store.size();
+            garbageBefore = store.garbageBytes();
+            verify(garbageBefore > 0, "圧縮前に不要な記録がありません（updates を1以上にしてください）");
+            // 2回目以降は不要な記録がなく計測にならないため、1回だけ計測する
+            long start = System.nanoTime();
+            store.compact();
+            long compactMillis = (System.nanoTime() - start) / 1_000_000;
+            runner.parameter("compact.millis", compactMillis);
+            System.out.printf("圧縮: %,d ms%n", compactMillis);
+            sizeAfter = store.size();
+            verify(before.equals(snapshot(store)), "圧縮の前後で内容が一致しません");
+        }
+        runner.parameter("file.beforeCompaction.bytes", sizeBefore);
+        runner.parameter("file.beforeCompaction.garbageBytes", garbageBefore);
+        runner.parameter("file.afterCompaction.bytes", sizeAfter);
+        System.out.printf("ファイルの大きさ: 圧縮前 %,d bytes（うち不要な記録 %,d bytes）→ 圧縮後 %,d bytes%n",
+                sizeBefore, garbageBefore, sizeAfter);
+
+        runner.run("log.rebuildIndex(afterCompaction)", () -> reopenCount(file));
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            verify(before.equals(snapshot(store)), "圧縮後に開き直した内容が一致しません");
+        }
+
+        verifyTornWrite(file, memoCount, false);
+        verifyTornWrite(file, memoCount + 1, true);
+        System.out.println("書き込み途中の記録は取り除かれ、それより前の記録は残りました");
+
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 1件を書き込んだ後、その記録を書き込み途中の状態に戻してから開き直し、その記録だけが取り除かれることを確認します。
+     *
+     * @param expected      書き込み前の件数。
+     * @param corruptBody   true の場合は本体の1バイトを書き換え（CRC の不一致）、false の場合は長さを0に戻します（長さの書き込み前に終了）。
+     */
+    private static void verifyTornWrite(Path file, int expected, boolean corruptBody) throws IOException {
+        long recordStart;
+        int lastId;
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            verify(store.count() == expected, "件数が一致しません: " + store.count());
+            recordStart = store.size();
+            lastId = store.save(new Memo("torn", "書き込み途中で終了した記録", List.of("torn")));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            if (corruptBody) {
+                channel.write(ByteBuffer.wrap(new byte[] { 0x7f }), recordStart + 16);
+            } else {
+                channel.write(ByteBuffer.allocate(4), recordStart);
+            }
+        }
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            verify(store.count() == expected, "書き込み途中の記録が取り除かれていません: " + store.count());
+            verify(store.findById(lastId) == null, "書き込み途中の記録が読み込まれました");
+            verify(store.size() == recordStart, "ファイルの終わりが書き込み前の位置ではありません");
+            store.save(new Memo("after", "復旧後の書き込み", List.of()));
+        }
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            verify(store.count() == expected + 1, "復旧後に書き込んだ記録が読み込めません: " + store.count());
+        }
+    }
+
+    private static long reopenCount(Path file) {
+        try (LogMemoStore store = new LogMemoStore(file, false, false)) {
+            return store.count();
+        }
+    }
+
+    private static List<String> snapshot(LogMemoStore store) {
+        return store.getAll().stream()
+                .map(memo -> memo.getId() + "|" + memo.getUpdatedEpoch() + "|" + memo.getTitle() + "|"
+                        + memo.getBody() + "|" + memo.getTags())
+                .collect(Collectors.toList());
+    }
+
+    private static void verify(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
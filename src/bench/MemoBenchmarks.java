@@ -0,0 +1,142 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import memo.Memo;
+import memo.MemoManager;
+import storage.InMemoryMemoStore;
+import storage.LogMemoStore;
+import storage.MemoRepository;
+import storage.MemoStore;
+import storage.StatementCacheStats;
+
+/**
+ * リポジトリとビジネスロジック層の主要な処理を計測するベンチマークスイートです。
+ * 一時ディレクトリに新しいデータベースを作成し、{@link CorpusGenerator} で生成したメモを投入してから計測します。
+ * 結果は {@link BenchmarkRunner} によりJSONファイルへ書き出されるため、回帰の検出に利用できます。
+ * {@code store=memory} を指定すると {@link InMemoryMemoStore} で同じ処理を計測するため、
+ * SQLite の I/O を除いた処理時間と比較できます。{@code store=log} では {@link LogMemoStore} を計測します。
+ *
+ * <pre>
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" bench.MemoBenchmarks \
+ *     memos=10000 body=500 tags=200 zipf=1.1 seed=42 out=bench-results/latest.json
+ * </pre>
+ *
+ * 引数はすべて省略可能です（{@code キー=値} 形式）。
+ */
+public class MemoBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int memoCount = Integer.parseInt(options.getOrDefault("memos", "10000"));
+        int bodySize = Integer.parseInt(options.getOrDefault("body", "500"));
+        int tagVocabulary = Integer.parseInt(options.getOrDefault("tags", "200"));
+        double zipf = Double.parseDouble(options.getOrDefault("zipf", "1.1"));
+        int tagsPerMemo = Integer.parseInt(options.getOrDefault("tagsPerMemo", "3"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20"));
+        String store = options.getOrDefault("store", "sqlite");
+        Path out = Paths.get(options.getOrDefault("out", "bench-results/memo-benchmarks.json"));
+
+        CorpusGenerator generator = new CorpusGenerator(seed, memoCount, bodySize, tagVocabulary, zipf, tagsPerMemo);
+        BenchmarkRunner runner = new BenchmarkRunner(warmup, iterations);
+        runner.parameter("memos", memoCount);
+        runner.parameter("bodySize", bodySize);
+        runner.parameter("tagVocabulary", tagVocabulary);
+        runner.parameter("zipfExponent", zipf);
+        runner.parameter("tagsPerMemo", tagsPerMemo);
+        runner.parameter("seed", seed);
+        runner.parameter("store", store);
+
+        try (MemoStore repository = openStore(store)) {
+            System.out.printf("コーパスを生成しています（%d 件）...%n", memoCount);
+            repository.saveAll(generator.generate());
+            MemoManager manager = new MemoManager(repository);
+
+            Random random = new Random(seed + 1);
+            int[] counter = { 0 };
+
+            runner.run("repository.save", () -> repository.save(generator.generateOne(random, memoCount + counter[0]++)));
+            runner.run("repository.getAll", () -> repository.getAll().size());
+            runner.run("repository.findPage", () -> repository.findPage(null, 100).getMemos().size());
+            runner.run("repository.findSummaryPage", () -> repository.findSummaryPage(null, 100).getMemos().size());
+            runner.run("repository.findByKeyword", () -> repository.findByKeyword(keyword(random)).size());
+            runner.run("repository.findByTag", () -> repository.findByTag(generator.sampleTag(random)).size());
+            runner.run("repository.streamAll", () -> {
+                try (Stream<Memo> memos = repository.streamAll()) {
+                    return memos.count();
+                }
+            });
+
+            // キャッシュを読み込む前に、ストリームで必要な件数だけ照合する経路を計測する
+            runner.run("manager.filterMemos(keyword,limit=50,uncached)",
+                    () -> manager.filterMemos(keyword(random), "すべて表示", 50).size());
+
+            // 初回呼び出しでキャッシュを読み込ませ、以降はキャッシュ上の処理を計測する
+            manager.getAll();
+            runner.run("manager.filterMemos(keyword)", () -> manager.filterMemos(keyword(random), "すべて表示").size());
+            runner.run("manager.filterMemos(keyword+tag)",
+                    () -> manager.filterMemos(keyword(random), generator.sampleTag(random)).size());
+            runner.run("manager.getAllTags", () -> manager.getAllTags().size());
+
+            // 繰り返し実行した問い合わせが、解析済みのステートメントを再利用できているかを記録する
+            if (repository instanceof MemoRepository) {
+                StatementCacheStats statements = ((MemoRepository) repository).getStatementCacheStats();
+                System.out.println("ステートメントキャッシュ: " + statements);
+                runner.parameter("statementCache.hits", statements.getHits());
+                runner.parameter("statementCache.misses", statements.getMisses());
+                runner.parameter("statementCache.evictions", statements.getEvictions());
+            }
+        }
+
+        runner.writeJson(out);
+    }
+
+    /**
+     * 計測する保存先を開きます。SQLite とログファイルの場合は一時ディレクトリに新しいファイルを作成します。
+     */
+    static MemoStore openStore(String store) throws IOException {
+        switch (store) {
+            case "sqlite":
+                Path dbFile = Files.createTempDirectory("hashmemo-bench").resolve("bench.db");
+                return new MemoRepository("jdbc:sqlite:" + dbFile);
+            case "memory":
+                return new InMemoryMemoStore();
+            case "log":
+                return new LogMemoStore(Files.createTempDirectory("hashmemo-bench").resolve("bench.log"), false);
+            default:
+                throw new IllegalArgumentException("不明な保存先です（sqlite / memory / log）: " + store);
+        }
+    }
+
+    /**
+     * 検索キーワードを選びます。trigram 索引を使う長さになるよう、語彙から3文字以上の単語を選びます。
+     */
+    private static String keyword(Random random) {
+        String word;
+        do {
+            word = CorpusGenerator.word(random);
+        } while (word.length() < 3);
+        return word;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("引数は キー=値 の形式で指定してください: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,364 @@
+package bench;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import memo.Memo;
+import memo.MemoSummary;
+import storage.MemoPage;
+import storage.MemoStore;
+import storage.PageCursor;
+
+/**
+ * {@link MemoStore} の各実装が同じ振る舞いをすることを確かめる確認用のプログラムです。
+ * 同じ確認項目を、保存先ごとに新しく開いた空の保存先に対して実行し、項目ごとに結果を表示します。
+ * 1つでも失敗した場合は終了コード1で終了します。
+ *
+ * <pre>
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" bench.MemoStoreConformance store=sqlite,memory,log
+ * </pre>
+ *
+ * SQLite とログファイルの確認には一時ディレクトリに新しいファイルを作成するため、アプリ本体のデータには影響しません。
+ */
+public class MemoStoreConformance {
+
+    /** 1つの確認項目。失敗した場合は {@link AssertionError} をスローします。 */
+    private interface Check {
+        void run(MemoStore store) throws Exception;
+    }
+
+    /** 表示用の日時の文字列の形式（{@code yyyy-MM-dd HH:mm:ss}）。 */
+    private static final String LOCAL_DATE_TIME = "\\d{4}-\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}";
+
+    /** 日時が設定されていない場合に {@link MemoSummary} が返す文字列。 */
+    private static final String NOT_SET = "(未設定)";
+
+    private static final Map<String, Check> CHECKS = new LinkedHashMap<>();
+
+    static {
+        CHECKS.put("IDは1から採番し、削除したIDを再利用しない", MemoStoreConformance::checkIds);
+        CHECKS.put("保存時の日時", MemoStoreConformance::checkSaveTimestamps);
+        CHECKS.put("一覧は更新日時の降順、IDの降順", MemoStoreConformance::checkOrder);
+        CHECKS.put("存在しないメモの更新は何もしない", MemoStoreConformance::checkUpdateMissing);
+        CHECKS.put("タグの正規化と完全一致の検索", MemoStoreConformance::checkTags);
+        CHECKS.put("タグ一覧は昇順で、使われなくなったタグを含まない", MemoStoreConformance::checkAllTags);
+        CHECKS.put("キーワード検索は正規化した検索キーとの部分一致", MemoStoreConformance::checkKeyword);
+        CHECKS.put("ストリームは一覧と同じ内容・並び順", MemoStoreConformance::checkStreams);
+        CHECKS.put("ページ取得と位置の読み飛ばし", MemoStoreConformance::checkPaging);
+        CHECKS.put("取り込み時の日時", MemoStoreConformance::checkImportTimestamps);
+        CHECKS.put("期間と変更時刻による検索", MemoStoreConformance::checkDateQueries);
+        CHECKS.put("削除件数とID指定の取得", MemoStoreConformance::checkDelete);
+        CHECKS.put("読み込んだメモを変更しても保存内容は変わらない", MemoStoreConformance::checkCopies);
+        CHECKS.put("予約したIDは採番に使われない", MemoStoreConformance::checkReserveIds);
+        CHECKS.put("書き込みと削除のまとめての反映", MemoStoreConformance::checkApplyAll);
+        CHECKS.put("不正な件数は IllegalArgumentException", MemoStoreConformance::checkArguments);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> stores = Arrays.asList("sqlite", "memory", "log");
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            if (!"store".equals(kv[0]) || kv.length < 2) {
+                throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+            stores = Arrays.asList(kv[1].split(","));
+        }
+
+        int failures = 0;
+        for (String store : stores) {
+            System.out.printf("[%s]%n", store);
+            for (Map.Entry<String, Check> check : CHECKS.entrySet()) {
+                try (MemoStore target = MemoBenchmarks.openStore(store)) {
+                    check.getValue().run(target);
+                    System.out.printf("  OK   %s%n", check.getKey());
+                } catch (Exception | AssertionError e) {
+                    failures++;
+                    System.out.printf("  NG   %s: %s%n", check.getKey(), e);
+                }
+            }
+        }
+        System.out.printf("%d 件の確認に失敗しました%n", failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void checkIds(MemoStore store) {
+        int first = store.save(memo("a"));
+        int second = store.save(memo("b"));
+        List<Integer> bulk = store.saveAll(Arrays.asList(memo("c"), memo("d")));
+        assertEquals(Arrays.asList(1, 2, 3, 4), Arrays.asList(first, second, bulk.get(0), bulk.get(1)), "採番されたID");
+        store.deleteAll(Collections.singletonList(4));
+        assertEquals(5, store.save(memo("e")), "削除後に採番されたID");
+        assertEquals(4, store.count(), "件数");
+    }
+
+    private static void checkSaveTimestamps(MemoStore store) {
+        long before = System.currentTimeMillis();
+        Memo saved = store.findById(store.save(memo("a")));
+        long after = System.currentTimeMillis();
+        check(saved.getCreatedEpoch() >= before && saved.getCreatedEpoch() <= after, "作成日時が現在時刻ではありません");
+        assertEquals(saved.getCreatedEpoch(), saved.getUpdatedEpoch(), "未更新のメモの更新日時");
+        check(saved.getCreatedAt().matches(LOCAL_DATE_TIME),
+                "表示用の作成日時の形式: " + saved.getCreatedAt());
+        assertEquals(NOT_SET, saved.getUpdatedAt(), "未更新のメモの表示用の更新日時");
+    }
+
+    private static void checkOrder(MemoStore store) throws InterruptedException {
+        int a = store.save(memo("a"));
+        int b = store.save(memo("b"));
+        int c = store.save(memo("c"));
+        // 同じミリ秒に保存されたメモはIDの降順
+        assertEquals(Arrays.asList(c, b, a), ids(store.getAll()), "保存直後の並び順");
+
+        Thread.sleep(5);
+        Memo first = store.findById(a);
+        first.setTitle("a2");
+        store.update(first);
+        Memo updated = store.findById(a);
+        assertEquals(Arrays.asList(a, c, b), ids(store.getAll()), "更新後の並び順");
+        assertEquals("a2", updated.getTitle(), "更新後のタイトル");
+        check(updated.getUpdatedEpoch() > updated.getCreatedEpoch(), "更新日時が作成日時より後になっていません");
+        check(updated.getUpdatedAt().matches(LOCAL_DATE_TIME), "表示用の更新日時の形式: " + updated.getUpdatedAt());
+        assertEquals(first.getCreatedAt(), updated.getCreatedAt(), "更新後の表示用の作成日時");
+    }
+
+    private static void checkUpdateMissing(MemoStore store) {
+        store.save(memo("a"));
+        Memo missing = new Memo(99, "x", "x", Collections.emptyList(), null, null, 0, 0);
+        store.update(missing);
+        store.updateAll(Collections.singletonList(missing));
+        assertEquals(1, store.count(), "件数");
+        assertEquals(null, store.findById(99), "存在しないメモ");
+    }
+
+    private static void checkTags(MemoStore store) {
+        int id = store.save(new Memo("t", "b", Arrays.asList(" java ", "", "Java", "x,y")));
+        assertEquals(Arrays.asList("java", "Java", "x", "y"), store.findById(id).getTags(), "保存されたタグ");
+        assertEquals(Collections.singletonList(id), ids(store.findByTag("java")), "タグ java での検索");
+        assertEquals(Collections.singletonList(id), ids(store.findByTag("x")), "タグ x での検索");
+        assertEquals(Collections.emptyList(), ids(store.findByTag("JAVA")), "大文字のタグでの検索");
+        assertEquals(Collections.emptyList(), ids(store.findByTag(" java ")), "空白を含むタグでの検索");
+        assertEquals(Collections.emptyList(), ids(store.findByTag("")), "空のタグでの検索");
+    }
+
+    private static void checkAllTags(MemoStore store) {
+        int a = store.save(new Memo("a", "", Arrays.asList("b", "a")));
+        Memo b = store.findById(store.save(new Memo("b", "", Arrays.asList("a", "C"))));
+        assertEquals(Arrays.asList("C", "a", "b"), store.findAllTags(), "タグ一覧");
+        b.setTags(Collections.singletonList("a"));
+        store.update(b);
+        assertEquals(Arrays.asList("a", "b"), store.findAllTags(), "更新後のタグ一覧");
+        store.delete(store.findById(a));
+        assertEquals(Collections.singletonList("a"), store.findAllTags(), "削除後のタグ一覧");
+    }
+
+    private static void checkKeyword(MemoStore store) {
+        int wide = store.save(new Memo("Ｈｅｌｌｏ ワールド", "本文", Collections.emptyList()));
+        int percent = store.save(new Memo("割合", "100% 達成", Collections.emptyList()));
+        int underscore = store.save(new Memo("snake_case", "", Collections.emptyList()));
+        assertEquals(Collections.singletonList(wide), ids(store.findByKeyword("hello")), "全角英字のタイトル");
+        assertEquals(Collections.singletonList(wide), ids(store.findByKeyword("わーるど")), "カタカナのタイトル");
+        assertEquals(Collections.singletonList(percent), ids(store.findByKeyword("達成")), "2文字のキーワード");
+        assertEquals(Collections.singletonList(percent), ids(store.findByKeyword("%")), "% を含むキーワード");
+        assertEquals(Collections.singletonList(underscore), ids(store.findByKeyword("_")), "_ を含むキーワード");
+        assertEquals(Collections.emptyList(), ids(store.findByKeyword("存在しない語")), "一致しないキーワード");
+        assertEquals(Arrays.asList(underscore, percent, wide), ids(store.findByKeyword("  ")), "空のキーワード");
+    }
+
+    private static void checkStreams(MemoStore store) {
+        store.save(new Memo("apple pie", "", Collections.singletonList("food")));
+        store.save(new Memo("apple", "", Collections.singletonList("fruit")));
+        store.save(new Memo("banana", "", Collections.singletonList("fruit")));
+        try (Stream<Memo> memos = store.streamAll()) {
+            assertEquals(ids(store.getAll()), ids(memos.collect(Collectors.toList())), "streamAll");
+        }
+        try (Stream<Memo> memos = store.streamByKeyword("apple")) {
+            assertEquals(ids(store.findByKeyword("apple")), ids(memos.collect(Collectors.toList())), "streamByKeyword");
+        }
+        try (Stream<Memo> memos = store.streamByTag("fruit")) {
+            assertEquals(ids(store.findByTag("fruit")), ids(memos.collect(Collectors.toList())), "streamByTag");
+        }
+    }
+
+    private static void checkPaging(MemoStore store) {
+        for (int i = 0; i < 5; i++) {
+            store.save(memo("m" + i));
+        }
+        List<Integer> all = ids(store.getAll());
+        List<Integer> paged = new ArrayList<>();
+        PageCursor after = null;
+        int pages = 0;
+        do {
+            MemoPage<Memo> page = store.findPage(after, 2);
+            MemoPage<MemoSummary> summaries = store.findSummaryPage(after, 2);
+            assertEquals(ids(page.getMemos()), ids(summaries.getMemos()), "要約のページ");
+            assertEquals(String.valueOf(page.getNext()), String.valueOf(summaries.getNext()), "要約のページの次の位置");
+            paged.addAll(ids(page.getMemos()));
+            after = page.getNext();
+            pages++;
+        } while (after != null);
+        assertEquals(all, paged, "ページを連結した結果");
+        assertEquals(3, pages, "ページ数");
+
+        PageCursor second = store.findPage(null, 2).getNext();
+        assertEquals(String.valueOf(second), String.valueOf(store.skip(null, 2)), "2件読み飛ばした位置");
+        assertEquals(all.subList(4, 5), ids(store.findPage(store.skip(second, 2), 10).getMemos()), "読み飛ばした後のページ");
+        assertEquals(null, store.skip(null, 6), "件数より多く読み飛ばした位置");
+        check(store.findPage(store.skip(null, 5), 10).getMemos().isEmpty(), "最後の行の後ろのページが空ではありません");
+    }
+
+    private static void checkImportTimestamps(MemoStore store) {
+        long created = Instant.parse("2024-01-02T03:04:05Z").toEpochMilli();
+        long before = System.currentTimeMillis();
+        List<Integer> ids = store.importAll(Arrays.asList(
+                imported("unchanged", created, created),
+                imported("updated", created, created + 60_000),
+                imported("older", created, created - 60_000),
+                imported("unknown", 0, 0)), MemoStore.DEFAULT_BATCH_SIZE);
+
+        Memo unchanged = store.findById(ids.get(0));
+        assertEquals(created, unchanged.getCreatedEpoch(), "作成日時");
+        assertEquals(created, unchanged.getUpdatedEpoch(), "未更新のメモの更新日時");
+        assertEquals(NOT_SET, unchanged.getUpdatedAt(), "未更新のメモの表示用の更新日時");
+
+        Memo updated = store.findById(ids.get(1));
+        assertEquals(created + 60_000, updated.getUpdatedEpoch(), "更新日時");
+        check(updated.getUpdatedAt().matches(LOCAL_DATE_TIME), "表示用の更新日時の形式: " + updated.getUpdatedAt());
+
+        Memo older = store.findById(ids.get(2));
+        assertEquals(created, older.getUpdatedEpoch(), "作成日時より前の更新日時");
+        assertEquals(NOT_SET, older.getUpdatedAt(), "作成日時より前の表示用の更新日時");
+
+        Memo unknown = store.findById(ids.get(3));
+        check(unknown.getCreatedEpoch() >= before, "作成日時のないメモに現在時刻が設定されていません");
+        assertEquals(unknown.getCreatedEpoch(), unknown.getUpdatedEpoch(), "作成日時のないメモの更新日時");
+    }
+
+    private static void checkDateQueries(MemoStore store) {
+        List<Integer> ids = store.importAll(Arrays.asList(
+                imported("1", 1_000, 5_000),
+                imported("2", 2_000, 2_000),
+                imported("3", 3_000, 3_000)), MemoStore.DEFAULT_BATCH_SIZE);
+        assertEquals(Arrays.asList(ids.get(1), ids.get(0)),
+                ids(store.findByDateRange(Instant.ofEpochMilli(1_000), Instant.ofEpochMilli(3_000))), "期間での検索");
+        assertEquals(Collections.emptyList(),
+                ids(store.findByDateRange(Instant.ofEpochMilli(2_000), Instant.ofEpochMilli(2_000))), "空の期間での検索");
+        assertEquals(Arrays.asList(ids.get(0), ids.get(2)),
+                ids(store.findChangedSince(Instant.ofEpochMilli(2_000))), "変更時刻での検索");
+        expectIllegalArgument(() -> store.findByDateRange(Instant.ofEpochMilli(2), Instant.ofEpochMilli(1)),
+                "開始が終了より後の期間");
+    }
+
+    private static void checkDelete(MemoStore store) {
+        int a = store.save(memo("a"));
+        int b = store.save(memo("b"));
+        int c = store.save(memo("c"));
+        assertEquals(1, store.deleteAll(Arrays.asList(a, a, 99)), "一括削除した件数");
+        check(!store.delete(new Memo(99, "", "", Collections.emptyList(), null, null, 0, 0)),
+                "存在しないメモの削除がtrueを返しました");
+        check(store.delete(store.findById(b)), "メモを削除できませんでした");
+        assertEquals(Collections.singletonList(c), ids(store.findByIds(Arrays.asList(a, b, c, 99))), "ID指定の取得");
+        assertEquals(null, store.findBody(b), "削除したメモの本文");
+        assertEquals(1, store.count(), "件数");
+    }
+
+    private static void checkCopies(MemoStore store) {
+        int id = store.save(new Memo("title", "body", Collections.singletonList("tag")));
+        Memo loaded = store.getAll().get(0);
+        loaded.setTitle("changed");
+        loaded.setBody("changed");
+        loaded.setTags(Collections.singletonList("changed"));
+        Memo stored = store.findById(id);
+        assertEquals("title", stored.getTitle(), "タイトル");
+        assertEquals("body", store.findBody(id), "本文");
+        assertEquals(Collections.singletonList("tag"), stored.getTags(), "タグ");
+    }
+
+    private static void checkReserveIds(MemoStore store) {
+        assertEquals(1, store.save(memo("a")), "予約前に採番されたID");
+        assertEquals(2, store.reserveIds(3), "予約した最初のID");
+        assertEquals(5, store.save(memo("b")), "予約後に採番されたID");
+
+        Memo reserved = new Memo(3, "reserved", "body", Arrays.asList(" x ", ""), null, null, 1_000L, 1_000L);
+        store.applyAll(Collections.singletonList(reserved), Collections.emptyList());
+        Memo stored = store.findById(3);
+        assertEquals(1_000L, stored.getCreatedEpoch(), "書き込んだ作成日時");
+        assertEquals(1_000L, stored.getUpdatedEpoch(), "書き込んだ更新日時");
+        check(stored.getCreatedAt().matches(LOCAL_DATE_TIME), "表示用の作成日時の形式: " + stored.getCreatedAt());
+        assertEquals(NOT_SET, stored.getUpdatedAt(), "未更新のメモの表示用の更新日時");
+        assertEquals(Collections.singletonList("x"), stored.getTags(), "正規化したタグ");
+        assertEquals(Arrays.asList(5, 1, 3), ids(store.getAll()), "一覧の並び順");
+        assertEquals(6, store.save(memo("c")), "予約したIDを書き込んだ後に採番されたID");
+    }
+
+    private static void checkApplyAll(MemoStore store) {
+        int a = store.save(memo("a"));
+        int b = store.save(memo("b"));
+        Memo before = store.findById(a);
+        long updated = before.getCreatedEpoch() + 60_000;
+
+        Memo changed = new Memo(a, "a2", "changed", Collections.singletonList("t"), null, null, 1L, updated);
+        store.applyAll(Collections.singletonList(changed), Arrays.asList(b, 99));
+        Memo stored = store.findById(a);
+        assertEquals("a2", stored.getTitle(), "置き換えたタイトル");
+        assertEquals(before.getCreatedEpoch(), stored.getCreatedEpoch(), "置き換えても変わらない作成日時");
+        assertEquals(before.getCreatedAt(), stored.getCreatedAt(), "置き換えても変わらない表示用の作成日時");
+        assertEquals(updated, stored.getUpdatedEpoch(), "書き込んだ更新日時");
+        check(stored.getUpdatedAt().matches(LOCAL_DATE_TIME), "表示用の更新日時の形式: " + stored.getUpdatedAt());
+        assertEquals(Collections.singletonList(a), ids(store.findByTag("t")), "置き換えたタグでの検索");
+        assertEquals(Collections.singletonList(a), ids(store.findByKeyword("changed")), "置き換えた本文での検索");
+        check(store.findById(b) == null, "削除したメモが残っています");
+        assertEquals(1, store.count(), "件数");
+    }
+
+    private static void checkArguments(MemoStore store) {
+        expectIllegalArgument(() -> store.findPage(null, 0), "0件のページ");
+        expectIllegalArgument(() -> store.findSummaryPage(null, -1), "負の件数のページ");
+        expectIllegalArgument(() -> store.skip(null, 0), "0件の読み飛ばし");
+        expectIllegalArgument(() -> store.saveAll(Collections.singletonList(memo("a")), 0), "0件ずつの一括保存");
+        expectIllegalArgument(() -> store.reserveIds(0), "0個のIDの予約");
+        assertEquals(0, store.count(), "失敗した一括保存の後の件数");
+    }
+
+    private static Memo memo(String title) {
+        return new Memo(title, "body of " + title, Collections.emptyList());
+    }
+
+    private static Memo imported(String title, long createdEpoch, long updatedEpoch) {
+        return new Memo(0, title, "", Collections.emptyList(), null, null, createdEpoch, updatedEpoch);
+    }
+
+    private static List<Integer> ids(List<? extends MemoSummary> memos) {
+        return memos.stream().map(MemoSummary::getId).collect(Collectors.toList());
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    private static void assertEquals(Object expected, Object actual, String what) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(what + ": 期待値 " + expected + "、実際の値 " + actual);
+        }
+    }
+
+    private static void expectIllegalArgument(Runnable action, String what) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError(what + ": IllegalArgumentException がスローされませんでした");
+    }
+}
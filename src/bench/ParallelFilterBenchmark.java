@@ -0,0 +1,121 @@
+package bench;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import memo.Memo;
+import memo.ParallelMemoFilter;
+
+/**
+ * {@link ParallelMemoFilter} によるキーワード絞り込みの所要時間を、並列度ごとに計測するベンチマークです。
+ * 1 から {@code threads} までの各並列度で同じキーワードの列を照合し、順に絞り込んだ場合に対する速度比を記録します。
+ * 並列に絞り込んだ結果が、順に絞り込んだ結果と同じ内容・同じ並び順であることも確認します。
+ * データベースは使用せず、{@link CorpusGenerator} で生成したメモを絞り込みます。
+ *
+ * <pre>
+ * java bench.ParallelFilterBenchmark memos=200000 body=500 threads=8 out=bench-results/parallel-filter.json
+ * </pre>
+ */
+public class ParallelFilterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int memoCount = 200_000;
+        int bodySize = 500;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        String out = "bench-results/parallel-filter-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "body":
+                    bodySize = Integer.parseInt(kv[1]);
+                    break;
+                case "threads":
+                    maxThreads = Integer.parseInt(kv[1]);
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        System.out.printf("コーパスを生成しています（%d 件）...%n", memoCount);
+        List<Memo> memos = new CorpusGenerator(42, memoCount, bodySize, 200, 1.1, 3).generate();
+        // 検索キーは初回の照合時に求められるため、計測の前に求めておく
+        for (Memo memo : memos) {
+            memo.getTitleKey();
+            memo.getBodyKey();
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(5, 20);
+        runner.parameter("memos", memoCount);
+        runner.parameter("bodySize", bodySize);
+        runner.parameter("maxThreads", maxThreads);
+        runner.parameter("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+        ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        ParallelMemoFilter sequential = new ParallelMemoFilter(sequentialPool, Integer.MAX_VALUE);
+        double baseline = run(runner, "filter.sequential", sequential, memos).getMeanNanos();
+
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                // 件数によらず分割させるため閾値は1にする。並列度1の場合は順に絞り込む（分割しない）
+                ParallelMemoFilter parallel = new ParallelMemoFilter(pool, 1);
+                verifySameResult(sequential, parallel, memos);
+                String name = "filter.parallel.threads=" + threads;
+                double mean = run(runner, name, parallel, memos).getMeanNanos();
+                double speedup = baseline / mean;
+                runner.parameter("speedup.threads=" + threads, Math.round(speedup * 100) / 100.0);
+                System.out.printf("%-36s 順に絞り込んだ場合の %.2f 倍%n", name, speedup);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        sequentialPool.shutdown();
+
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 同じ乱数の種から選んだキーワードの列で、絞り込みを計測します。
+     */
+    private static BenchmarkRunner.Result run(BenchmarkRunner runner, String name, ParallelMemoFilter filter,
+            List<Memo> memos) throws Exception {
+        Random random = new Random(7);
+        return runner.run(name, () -> filter.filter(memos, keyword(random), "すべて表示").size());
+    }
+
+    /**
+     * 並列に絞り込んだ結果が、順に絞り込んだ結果と同じ内容・並び順であることを確認します。
+     */
+    private static void verifySameResult(ParallelMemoFilter expected, ParallelMemoFilter actual, List<Memo> memos) {
+        Random random = new Random(11);
+        for (int i = 0; i < 10; i++) {
+            String keyword = keyword(random);
+            List<Memo> a = expected.filter(memos, keyword, "すべて表示");
+            List<Memo> b = actual.filter(memos, keyword, "すべて表示");
+            if (!a.equals(b)) {
+                throw new IllegalStateException("並列の絞り込み結果が一致しません: keyword=" + keyword
+                        + " 順: " + a.size() + " 件, 並列: " + b.size() + " 件");
+            }
+        }
+    }
+
+    /**
+     * 検索キーワードを選びます。一致件数が極端にならないよう、語彙から3文字以上の単語を選びます。
+     */
+    private static String keyword(Random random) {
+        String word;
+        do {
+            word = CorpusGenerator.word(random);
+        } while (word.length() < 3);
+        return word;
+    }
+}
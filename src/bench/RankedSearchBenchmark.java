@@ -0,0 +1,156 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import memo.Memo;
+import memo.MemoManager;
+import memo.MemoRanker;
+import memo.ParallelMemoFilter;
+import memo.TextNormalizer;
+import storage.InMemoryMemoStore;
+
+/**
+ * 関連度の高い上位 K 件だけを求める {@link MemoManager#searchRanked(String, String, int)} を、
+ * 一致したメモをすべて返す {@link MemoManager#filterMemos(String, String)}、
+ * および一致したメモをすべてスコア順に並べてから先頭 K 件を取り出す方法と比較するベンチマークです。
+ *
+ * <p>{@code k} で指定した件数ごとに、1回の検索の所要時間と、検索1回あたりのメモリ割り当て量を記録します。
+ * 上位 K 件の結果が、すべてをスコア順に並べて先頭 K 件を取り出した結果と同じ内容・同じ並び順であることも確認します。
+ * 保存先は {@link InMemoryMemoStore} で、キャッシュを読み込んだ状態で計測します。
+ * 割り当て量を計測スレッドだけで数えるため、絞り込みは並列化しません。</p>
+ *
+ * <pre>
+ * java bench.RankedSearchBenchmark memos=200000 body=200 keyword=会議 k=10,100,1000 out=bench-results/ranked-search.json
+ * </pre>
+ */
+public class RankedSearchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int memoCount = 200_000;
+        int bodySize = 200;
+        String keyword = "会議";
+        int[] limits = { 10, 100, 1000 };
+        String out = "bench-results/ranked-search-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "body":
+                    bodySize = Integer.parseInt(kv[1]);
+                    break;
+                case "keyword":
+                    keyword = kv[1];
+                    break;
+                case "k":
+                    String[] values = kv[1].split(",");
+                    limits = new int[values.length];
+                    for (int i = 0; i < values.length; i++) {
+                        limits[i] = Integer.parseInt(values[i].trim());
+                    }
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        System.out.printf("コーパスを生成しています（%d 件）...%n", memoCount);
+        List<Memo> corpus = new CorpusGenerator(42, memoCount, bodySize, 200, 1.1, 3).generate();
+        InMemoryMemoStore store = new InMemoryMemoStore();
+        store.saveAll(corpus);
+        MemoManager manager = new MemoManager(store,
+                new ParallelMemoFilter(new ForkJoinPool(1), Integer.MAX_VALUE));
+        // キャッシュと検索キーは初回の照合時に作られるため、計測の前に作っておく
+        int matched = manager.filterMemos(keyword, "すべて表示").size();
+
+        BenchmarkRunner runner = new BenchmarkRunner(5, 20);
+        runner.parameter("memos", memoCount);
+        runner.parameter("bodySize", bodySize);
+        runner.parameter("keyword", keyword);
+        runner.parameter("matched", matched);
+        System.out.printf("キーワード「%s」に一致したメモ: %,d 件%n", keyword, matched);
+
+        String finalKeyword = keyword;
+        measure(runner, "filterMemos(all)", () -> manager.filterMemos(finalKeyword, "すべて表示").size());
+
+        MemoRanker ranker = new MemoRanker();
+        String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+        for (int k : limits) {
+            int limit = k;
+            measure(runner, "fullSort.k=" + k,
+                    () -> fullSort(ranker, manager.filterMemos(finalKeyword, "すべて表示"), normalizedKeyword, limit,
+                            System.currentTimeMillis()).size());
+            measure(runner, "searchRanked.k=" + k, () -> manager.searchRanked(finalKeyword, "すべて表示", limit).size());
+
+            long now = System.currentTimeMillis();
+            MemoRanker.TopK topK = ranker.topK(normalizedKeyword, limit, now);
+            manager.getAll().forEach(topK);
+            List<Memo> expected = fullSort(ranker, manager.getAll(), normalizedKeyword, limit, now);
+            verify(ids(topK.result()).equals(ids(expected)), "k=" + k + ": 上位 K 件が全件を並べた結果と一致しません");
+            verify(topK.matchedCount() == matched, "k=" + k + ": 一致した件数が filterMemos と一致しません");
+        }
+        System.out.println("上位 K 件は全件をスコア順に並べた結果と一致しました");
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 所要時間と、1回あたりのメモリ割り当て量（JIT の最適化が済んだ後に別途計測）を記録します。
+     */
+    private static void measure(BenchmarkRunner runner, String name, BenchmarkRunner.Operation operation)
+            throws Exception {
+        runner.run(name, operation);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        int repeats = 10;
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < repeats; i++) {
+            operation.run();
+        }
+        long allocated = (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / repeats;
+        runner.parameter(name + ".allocatedBytesPerQuery", allocated);
+        System.out.printf("%-32s 割り当て: %,d bytes/回%n", name, allocated);
+    }
+
+    /**
+     * 一致したメモをすべてスコア順に並べ、先頭 {@code limit} 件を返します（比較用）。
+     */
+    private static List<Memo> fullSort(MemoRanker ranker, List<Memo> candidates, String normalizedKeyword, int limit,
+            long now) {
+        Map<Memo, Double> scores = new HashMap<>();
+        for (Memo memo : candidates) {
+            double score = ranker.score(memo, normalizedKeyword, now);
+            if (score >= 0) {
+                scores.put(memo, score);
+            }
+        }
+        List<Memo> sorted = new ArrayList<>(scores.keySet());
+        sorted.sort(Comparator.comparingDouble((Memo memo) -> scores.get(memo)).reversed()
+                .thenComparing(Comparator.comparingLong(Memo::getUpdatedEpoch).reversed())
+                .thenComparing(Comparator.comparingInt(Memo::getId).reversed()));
+        return sorted.subList(0, Math.min(limit, sorted.size()));
+    }
+
+    private static List<Integer> ids(List<Memo> memos) {
+        List<Integer> ids = new ArrayList<>(memos.size());
+        for (Memo memo : memos) {
+            ids.add(memo.getId());
+        }
+        return ids;
+    }
+
+    private static void verify(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package bench;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.List;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+import javax.swing.SwingUtilities;
+import javax.swing.border.EmptyBorder;
+
+import memo.Memo;
+import memo.MemoSummary;
+import ui.MemoListCellRenderer;
+
+/**
+ * メモ一覧のスクロール時の描画性能を、セルレンダラーごとに比較するベンチマークです。
+ * 画面を表示せずに、一覧を1行ずつずらしながらオフスクリーン画像へ描画し、
+ * 1フレームあたりの描画時間とメモリ割り当て量を計測します。
+ *
+ * <p>比較対象として、以前の HTML ラベルによるレンダラーを {@link HtmlRenderer} として残しています。
+ * データベースは使用せず、{@link CorpusGenerator} で生成したメモを描画します。</p>
+ *
+ * <pre>
+ * java -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" bench.ScrollBenchmark memos=5000 frames=2000 out=bench-results/scroll.json
+ * </pre>
+ */
+public class ScrollBenchmark {
+
+    private static final int CELL_WIDTH = 500;
+    private static final int CELL_HEIGHT = 60;
+    private static final int VISIBLE_ROWS = 8;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+
+        int memoCount = 5000;
+        int frames = 2000;
+        String out = "bench-results/scroll-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "frames":
+                    frames = Integer.parseInt(kv[1]);
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        List<Memo> memos = new CorpusGenerator(42, memoCount, 200, 200, 1.1, 3).generate();
+        BenchmarkRunner runner = new BenchmarkRunner(frames / 4, frames);
+        runner.parameter("memos", memoCount);
+        runner.parameter("frames", frames);
+        runner.parameter("visibleRows", VISIBLE_ROWS);
+
+        int finalFrames = frames;
+        Exception[] failure = new Exception[1];
+        // Swing のコンポーネントは EDT で操作する
+        SwingUtilities.invokeAndWait(() -> {
+            try {
+                measure(runner, "scroll.htmlRenderer", memos, new HtmlRenderer(), finalFrames);
+                measure(runner, "scroll.memoListCellRenderer", memos, new MemoListCellRenderer(), finalFrames);
+            } catch (Exception e) {
+                failure[0] = e;
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 指定したレンダラーで一覧をスクロールしながら描画し、フレーム時間とメモリ割り当て量を計測します。
+     */
+    private static void measure(BenchmarkRunner runner, String name, List<Memo> memos,
+            ListCellRenderer<? super MemoSummary> renderer, int frames) throws Exception {
+        DefaultListModel<MemoSummary> model = new DefaultListModel<>();
+        model.addAll(memos);
+        JList<MemoSummary> list = new JList<>(model);
+        list.setCellRenderer(renderer);
+        list.setFixedCellHeight(CELL_HEIGHT);
+        list.setFixedCellWidth(CELL_WIDTH);
+        list.setSize(CELL_WIDTH, CELL_HEIGHT * memos.size());
+        list.setSelectionBackground(new Color(100, 100, 100));
+        list.setSelectionForeground(Color.WHITE);
+        list.setSelectedIndex(0);
+
+        BufferedImage image = new BufferedImage(CELL_WIDTH, CELL_HEIGHT * VISIBLE_ROWS, BufferedImage.TYPE_INT_RGB);
+        int maxTop = memos.size() - VISIBLE_ROWS;
+        int[] top = { 0 };
+        BenchmarkRunner.Operation frame = () -> {
+            top[0] = (top[0] + 1) % maxTop;
+            Graphics2D g = image.createGraphics();
+            try {
+                // 表示位置を1行ずらして、見えている範囲だけを描画する
+                g.translate(0, -top[0] * CELL_HEIGHT);
+                g.setClip(0, top[0] * CELL_HEIGHT, CELL_WIDTH, CELL_HEIGHT * VISIBLE_ROWS);
+                list.paint(g);
+            } finally {
+                g.dispose();
+            }
+            return image.getRGB(0, 0);
+        };
+
+        runner.run(name, frame);
+
+        // 割り当て量は JIT の最適化が済んだ状態で別途計測する
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long start = System.nanoTime();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < frames; i++) {
+            frame.run();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        runner.parameter(name + ".allocatedBytesPerFrame", allocated / frames);
+        runner.parameter(name + ".allocationRateMBPerSec", Math.round(allocated / seconds / 1e6 * 10) / 10.0);
+        System.out.printf("%-36s 割り当て: %,d bytes/frame (%.1f MB/s)%n",
+                name, allocated / frames, allocated / seconds / 1e6);
+    }
+
+    /**
+     * 以前のメモ一覧のレンダラーです（比較用）。
+     * 描画のたびに HTML 文字列と枠線を生成し、ラベルが HTML を解析して描画します。
+     */
+    private static class HtmlRenderer extends DefaultListCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+                boolean cellHasFocus) {
+            javax.swing.JLabel label = (javax.swing.JLabel) super.getListCellRendererComponent(list, value, index,
+                    isSelected, cellHasFocus);
+            if (value instanceof MemoSummary) {
+                MemoSummary memo = (MemoSummary) value;
+
+                String dateLabel = memo.getUpdatedAt() != null && !memo.getUpdatedAt().equals(memo.getCreatedAt())
+                        ? "最終更新日: " + memo.getUpdatedAt()
+                        : "作成日: " + memo.getCreatedAt();
+
+                label.setText("<html><b>" + memo.getTitle() + " </b><br><span style='color:gray'> "
+                        + String.join(", ", memo.getTags())
+                        + "  " + dateLabel + "</span></html>");
+
+                label.setBorder(new EmptyBorder(12, 10, 20, 8));
+            }
+            return label;
+        }
+    }
+}
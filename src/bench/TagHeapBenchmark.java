@@ -0,0 +1,171 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import memo.Memo;
+import memo.MemoSummary;
+import memo.TagDictionary;
+
+/**
+ * メモ1件あたりのヒープ使用量を、タグの保持方法ごとに比較するベンチマークです。
+ * データベースの {@code tags} 列と同じカンマ区切りの文字列から一覧用の {@link MemoSummary} を生成し、
+ * 生成した全件を保持した状態でのヒープ使用量の増分をメモ件数で割って求めます。
+ *
+ * <p>比較対象として、以前の表現（行ごとに {@code split} した文字列の {@code ArrayList} を防御的コピーして保持する）を
+ * {@link LegacySummary} として残しています。タイトルは両方で同じ文字列を共有するため、差はタグの保持方法と
+ * オブジェクト自体の大きさだけです。データベースは使用しません。</p>
+ *
+ * <pre>
+ * java bench.TagHeapBenchmark memos=100000 tags=200 tagsPerMemo=3 out=bench-results/tag-heap.json
+ * </pre>
+ */
+public class TagHeapBenchmark {
+
+    /** 計測中のオブジェクト。最適化で早く回収されないよう、static フィールドから参照します。 */
+    private static Object[] retained;
+
+    public static void main(String[] args) throws Exception {
+        int memoCount = 100_000;
+        int tagVocabulary = 200;
+        int tagsPerMemo = 3;
+        String out = "bench-results/tag-heap-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "tags":
+                    tagVocabulary = Integer.parseInt(kv[1]);
+                    break;
+                case "tagsPerMemo":
+                    tagsPerMemo = Integer.parseInt(kv[1]);
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        List<Memo> corpus = new CorpusGenerator(42, memoCount, 16, tagVocabulary, 1.1, tagsPerMemo).generate();
+        String[] titles = new String[memoCount];
+        String[] tagColumns = new String[memoCount];
+        for (int i = 0; i < memoCount; i++) {
+            titles[i] = corpus.get(i).getTitle();
+            tagColumns[i] = String.join(",", corpus.get(i).getTags());
+        }
+        corpus = null; // 比較に影響しないよう、生成元のメモは手放す
+
+        BenchmarkRunner runner = new BenchmarkRunner(5, 20);
+        runner.parameter("memos", memoCount);
+        runner.parameter("tagVocabulary", tagVocabulary);
+        runner.parameter("tagsPerMemo", tagsPerMemo);
+
+        runner.run("tags.parse.legacy", () -> {
+            long count = 0;
+            for (String column : tagColumns) {
+                count += legacyParseTags(column).size();
+            }
+            return count;
+        });
+        runner.run("tags.parse.dictionary", () -> {
+            long count = 0;
+            for (String column : tagColumns) {
+                count += TagDictionary.parse(column).size();
+            }
+            return count;
+        });
+
+        long legacy = retainedBytesPerMemo(memoCount, i -> new LegacySummary(i, titles[i],
+                legacyParseTags(tagColumns[i]), null, null, i, i));
+        long current = retainedBytesPerMemo(memoCount, i -> new MemoSummary(i, titles[i],
+                TagDictionary.parse(tagColumns[i]), null, null, i, i));
+        // 入力の配列が計測の途中で回収されると増分が小さく出るため、計測が終わるまで到達可能にしておく
+        Reference.reachabilityFence(titles);
+        Reference.reachabilityFence(tagColumns);
+
+        runner.parameter("heap.legacy.bytesPerMemo", legacy);
+        runner.parameter("heap.dictionary.bytesPerMemo", current);
+        runner.parameter("tagDictionary.size", TagDictionary.size());
+        System.out.printf("ヒープ使用量（メモ1件あたり）: 以前の表現 %,d bytes / タグ辞書 %,d bytes（辞書のタグ %,d 種類）%n",
+                legacy, current, TagDictionary.size());
+
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 指定した件数のオブジェクトを生成して保持し、GC 後のヒープ使用量の増分を1件あたりで返します。
+     */
+    private static long retainedBytesPerMemo(int count, IntFunction<Object> factory) throws InterruptedException {
+        retained = new Object[count];
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < count; i++) {
+            retained[i] = factory.apply(i);
+        }
+        long after = usedHeapAfterGc();
+        retained = null;
+        return (after - before) / count;
+    }
+
+    /**
+     * GC を数回実行し、その間のヒープ使用量の最小値を返します。
+     * 1回の GC では回収しきれないことがあるため、最小値を使います。
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+
+    /**
+     * 以前の {@code MemoRepository.parseTags} と同じ処理です（比較用）。
+     */
+    private static List<String> legacyParseTags(String tagsStr) {
+        if (tagsStr == null || tagsStr.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return Arrays.stream(tagsStr.split(","))
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 以前の {@link MemoSummary} と同じフィールド構成のクラスです（比較用）。
+     * タグは行ごとに生成された文字列のリストを、さらに防御的コピーして保持します。
+     */
+    @SuppressWarnings("unused")
+    private static final class LegacySummary {
+        private final int id;
+        private final String title;
+        private final List<String> tags;
+        private final String createdAt;
+        private final String updatedAt;
+        private final long createdEpoch;
+        private final long updatedEpoch;
+
+        LegacySummary(int id, String title, List<String> tags, String createdAt, String updatedAt,
+                long createdEpoch, long updatedEpoch) {
+            this.id = id;
+            this.title = title;
+            this.tags = new ArrayList<>(tags);
+            this.createdAt = createdAt;
+            this.updatedAt = updatedAt;
+            this.createdEpoch = createdEpoch;
+            this.updatedEpoch = updatedEpoch;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package bench;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import memo.Memo;
+import memo.MemoManager;
+import memo.ParallelMemoFilter;
+import memo.WriteBehindQueue;
+import metrics.Metrics;
+import metrics.OperationSnapshot;
+import storage.LogMemoStore;
+import storage.MemoStore;
+
+/**
+ * {@link MemoManager} の追加・更新・削除を、書き込みのたびに保存する場合と {@link WriteBehindQueue} に溜める場合で比較するベンチマークです。
+ *
+ * <p>{@code threads} 個のスレッドが、それぞれ {@code memos / threads} 件のメモを1件ずつ追加し、全件を1回ずつ更新し、半分を削除します。
+ * 書き込み方法ごとに次の値を記録します。</p>
+ * <ul>
+ *   <li>{@code callerOpsPerSec} … 最後の呼び出しが戻るまでの、呼び出し元から見た毎秒の操作数</li>
+ *   <li>{@code totalOpsPerSec} … {@link MemoManager#flush()} で保存先への反映が終わるまでを含めた毎秒の操作数</li>
+ *   <li>{@code add.p99Millis} … {@link MemoManager#add(Memo)} の呼び出し1回の所要時間の p99</li>
+ *   <li>{@code commits} / {@code opsPerCommit} … 保存先へのコミットの回数と、1回にまとめた操作数の平均</li>
+ * </ul>
+ * 最後に、キャッシュと保存先の内容が一致することを確認します。
+ *
+ * <p>{@code store=log sync=true} では書き込みごとにディスクへ同期する {@link LogMemoStore} を使用するため、
+ * コミットをまとめる効果を確認できます（SQLite では {@code store=sqlite}）。</p>
+ *
+ * <pre>
+ * java bench.WriteBehindBenchmark memos=20000 body=200 threads=4 store=log sync=true out=bench-results/write-behind.json
+ * </pre>
+ */
+public class WriteBehindBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int memoCount = 20_000;
+        int bodySize = 200;
+        int threads = 4;
+        String store = "log";
+        boolean sync = true;
+        int capacity = WriteBehindQueue.DEFAULT_CAPACITY;
+        int maxDelayMillis = WriteBehindQueue.DEFAULT_MAX_DELAY_MILLIS;
+        String out = "bench-results/write-behind-benchmark.json";
+        for (String arg : args) {
+            String[] kv = arg.split("=", 2);
+            switch (kv[0]) {
+                case "memos":
+                    memoCount = Integer.parseInt(kv[1]);
+                    break;
+                case "body":
+                    bodySize = Integer.parseInt(kv[1]);
+                    break;
+                case "threads":
+                    threads = Integer.parseInt(kv[1]);
+                    break;
+                case "store":
+                    store = kv[1];
+                    break;
+                case "sync":
+                    sync = Boolean.parseBoolean(kv[1]);
+                    break;
+                case "capacity":
+                    capacity = Integer.parseInt(kv[1]);
+                    break;
+                case "maxDelay":
+                    maxDelayMillis = Integer.parseInt(kv[1]);
+                    break;
+                case "out":
+                    out = kv[1];
+                    break;
+                default:
+                    throw new IllegalArgumentException("不明な引数です: " + arg);
+            }
+        }
+
+        BenchmarkRunner runner = new BenchmarkRunner(0, 1);
+        runner.parameter("memos", memoCount);
+        runner.parameter("bodySize", bodySize);
+        runner.parameter("threads", threads);
+        runner.parameter("store", store);
+        runner.parameter("sync", sync);
+        runner.parameter("capacity", capacity);
+        runner.parameter("maxDelayMillis", maxDelayMillis);
+
+        List<Memo> corpus = new CorpusGenerator(42, memoCount, bodySize, 200, 1.1, 3).generate();
+        Metrics.setEnabled(true);
+
+        for (String mode : new String[] { "direct", "async", "commit" }) {
+            try (MemoStore target = openStore(store, sync)) {
+                WriteBehindQueue queue = null;
+                if (!"direct".equals(mode)) {
+                    WriteBehindQueue.Durability durability = "async".equals(mode)
+                            ? WriteBehindQueue.Durability.ASYNC : WriteBehindQueue.Durability.COMMIT;
+                    queue = new WriteBehindQueue(target, capacity, MemoStore.DEFAULT_BATCH_SIZE, maxDelayMillis,
+                            durability);
+                }
+                MemoManager manager = new MemoManager(target, new ParallelMemoFilter(), queue);
+                manager.getAll(); // キャッシュを読み込んでおく（更新・削除はキャッシュ上のメモを使う）
+                Metrics.reset();
+
+                long start = System.nanoTime();
+                int ops = runWorkload(manager, corpus, threads);
+                long returned = System.nanoTime();
+                manager.flush();
+                long flushed = System.nanoTime();
+
+                double callerSeconds = (returned - start) / 1e9;
+                double totalSeconds = (flushed - start) / 1e9;
+                runner.parameter(mode + ".callerOpsPerSec", Math.round(ops / callerSeconds));
+                runner.parameter(mode + ".totalOpsPerSec", Math.round(ops / totalSeconds));
+                OperationSnapshot add = find("manager.add");
+                runner.parameter(mode + ".add.p99Millis", add != null ? add.getP99Millis() : 0);
+                OperationSnapshot commit = find(queue != null ? "writeBehind.commit" : "manager.add");
+                long commits = queue != null && commit != null ? commit.getCalls() : ops;
+                runner.parameter(mode + ".commits", commits);
+                runner.parameter(mode + ".opsPerCommit", commits > 0 ? (double) ops / commits : 0);
+                System.out.printf("%-6s 呼び出し %,8d 件/秒  反映まで %,8d 件/秒  add p99 %.3f ms  コミット %,d 回%n",
+                        mode, Math.round(ops / callerSeconds), Math.round(ops / totalSeconds),
+                        add != null ? add.getP99Millis() : 0, commits);
+
+                verify(snapshot(manager.getAll()).equals(snapshot(target.getAll())), mode + ": キャッシュと保存先の内容が一致しません");
+                int expected = memoCount - memoCount / threads / 2 * threads;
+                verify(target.count() == expected, mode + ": 件数が一致しません: " + target.count());
+                if (queue != null) {
+                    queue.close();
+                }
+            }
+        }
+        System.out.println("キャッシュと保存先の内容は一致しました");
+        runner.writeJson(Paths.get(out));
+    }
+
+    /**
+     * 各スレッドが受け持つメモを追加・更新し、半分を削除します。
+     *
+     * @return 実行した操作の件数。
+     */
+    private static int runWorkload(MemoManager manager, List<Memo> corpus, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int perThread = corpus.size() / threads;
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<Memo> part = corpus.subList(t * perThread, (t + 1) * perThread);
+                String marker = "w" + t + "-";
+                results.add(pool.submit(() -> {
+                    for (Memo memo : part) {
+                        manager.add(new Memo(marker + memo.getTitle(), memo.getBody(), memo.getTags()));
+                    }
+                    List<Memo> mine = manager.getAll().stream()
+                            .filter(memo -> memo.getTitle().startsWith(marker))
+                            .collect(Collectors.toList());
+                    for (Memo memo : mine) {
+                        memo.setBody(memo.getBody() + " updated");
+                        manager.update(memo);
+                    }
+                    for (int i = 0; i < mine.size() / 2; i++) {
+                        manager.delete(mine.get(i));
+                    }
+                    return part.size() + mine.size() + mine.size() / 2;
+                }));
+            }
+            int ops = 0;
+            for (Future<Integer> result : results) {
+                ops += result.get();
+            }
+            return ops;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static MemoStore openStore(String store, boolean sync) throws Exception {
+        if ("log".equals(store)) {
+            return new LogMemoStore(Files.createTempDirectory("hashmemo-write-behind").resolve("bench.log"), sync);
+        }
+        return MemoBenchmarks.openStore(store);
+    }
+
+    private static OperationSnapshot find(String name) {
+        return Metrics.snapshot().stream().filter(s -> s.getName().equals(name)).findFirst().orElse(null);
+    }
+
+    private static List<String> snapshot(List<Memo> memos) {
+        return memos.stream()
+                .map(memo -> memo.getId() + "|" + memo.getCreatedEpoch() + "|" + memo.getUpdatedEpoch() + "|"
+                        + memo.getCreatedAt() + "|" + memo.getUpdatedAt() + "|" + memo.getTitle() + "|"
+                        + memo.getBody() + "|" + memo.getTags())
+                .collect(Collectors.toList());
+    }
+
+    private static void verify(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalStateException(message);
+        }
+    }
+}
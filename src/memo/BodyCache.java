@@ -0,0 +1,100 @@
+package memo;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * メモの本文を、合計サイズの上限付きで保持する LRU キャッシュです。
+ * 一覧は本文を持たない {@link MemoSummary} で表示するため、詳細画面で開いた本文をここに保持し、
+ * 同じメモを再び開いたときにデータベースへ問い合わせずに済むようにします。
+ * 上限を超えた場合は、最後に参照された時期が古い本文から破棄します。
+ *
+ * <p>サイズは Java の文字列が1文字あたり最大2バイトを使うものとして見積もります。
+ * 複数のスレッドから呼び出されるため、各メソッドは同期化されています。</p>
+ */
+class BodyCache {
+
+    /** 本文1件あたりの管理領域（エントリや文字列オブジェクト）の見積もりバイト数。 */
+    private static final long ENTRY_OVERHEAD_BYTES = 64;
+
+    private final long maxBytes;
+
+    /** メモID → 本文。最近参照した順に並びます。 */
+    private final Map<Integer, String> bodies = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long currentBytes;
+
+    /**
+     * @param maxBytes 保持する本文の合計サイズの上限（バイト）。
+     */
+    BodyCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 指定したメモの本文を返します。
+     *
+     * @param id メモのID。
+     * @return 本文。保持していない場合はnull。
+     */
+    synchronized String get(int id) {
+        return bodies.get(id);
+    }
+
+    /**
+     * 本文を保持します。上限を超えた場合は古い本文から破棄します。
+     * 上限より大きい本文は保持しません。
+     *
+     * @param id   メモのID。
+     * @param body 本文。
+     */
+    synchronized void put(int id, String body) {
+        remove(id);
+        long size = sizeOf(body);
+        if (size > maxBytes) {
+            return;
+        }
+        bodies.put(id, body);
+        currentBytes += size;
+
+        Iterator<String> it = bodies.values().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= sizeOf(it.next());
+            it.remove();
+        }
+    }
+
+    /**
+     * 指定したメモの本文を破棄します。メモが更新・削除された場合に呼び出します。
+     *
+     * @param id メモのID。
+     */
+    synchronized void remove(int id) {
+        String removed = bodies.remove(id);
+        if (removed != null) {
+            currentBytes -= sizeOf(removed);
+        }
+    }
+
+    /**
+     * 保持しているすべての本文を破棄します。
+     */
+    synchronized void clear() {
+        bodies.clear();
+        currentBytes = 0;
+    }
+
+    /**
+     * 現在保持している本文の合計サイズ（見積もり）を返します。
+     *
+     * @return 合計サイズ（バイト）。
+     */
+    synchronized long currentBytes() {
+        return currentBytes;
+    }
+
+    private static long sizeOf(String body) {
+        return ENTRY_OVERHEAD_BYTES + 2L * body.length();
+    }
+}
@@ -1,23 +1,23 @@
 package memo;
 
-import java.util.ArrayList;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 /**
  * 1件のメモ情報を保持するデータクラス（POJO）です。
  * このクラスは、データベースの`memos`テーブルの1レコードに対応します。
- * メモのID、タイトル、本文、タグ、作成日時、更新日時を管理します。
+ * {@link MemoSummary} が持つID、タイトル、タグ、作成日時、更新日時に加えて、本文を管理します。
+ *
+ * <p>キーワード検索用に、タイトルと本文を {@link TextNormalizer} で正規化した検索キーを保持します。
+ * 検索キーはデータベースに保存されたものを読み込むか、初めて必要になったときに一度だけ求め、
+ * タイトルや本文が変更されるまで使い回します。</p>
  */
-public class Memo {
-    /**
-     * データベースで自動採番される一意のID。
-     */
-    private int id;
-
-    /**
-     * メモのタイトル。
-     */
-    private String title;
+public class Memo extends MemoSummary {
+    /** 表示用の日時の文字列の形式。SQLite の {@code datetime('now', 'localtime')} と同じ形式です。 */
+    private static final DateTimeFormatter LOCAL_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     /**
      * メモの本文。
@@ -25,19 +25,11 @@ public class Memo {
     private String body;
 
     /**
-     * メモに関連付けられたタグのリスト。
-     */
-    private List<String> tags;
-
-    /**
-     * メモの作成日時。データベースによって自動的に設定されます。
-     */
-    private String createdAt;
-
-    /**
-     * メモの最終更新日時。メモが更新されるたびに更新されます。
+     * タイトルと本文の検索キー。未計算の場合はnull。
+     * 同じ入力からは常に同じ値が求まるため、複数のスレッドから同時に計算されても問題ありません。
      */
-    private String updatedAt;
+    private String titleKey;
+    private String bodyKey;
 
     /**
      * データベースから取得したデータを使ってMemoオブジェクトを生成するコンストラクタです。
@@ -46,59 +38,72 @@ public class Memo {
      * @param title     メモのタイトル
      * @param body      メモの本文
      * @param tags      関連付けられたタグのリスト
-     * @param createdAt 作成日時
-     * @param updatedAt 最終更新日時
-     */
-    public Memo(int id, String title, String body, List<String> tags, String createdAt, String updatedAt) {
-        this.id = id;
-        this.title = title;
-        this.body = body;
-        this.tags = new ArrayList<>(tags); // 防御的コピー
-        this.createdAt = createdAt;
-        this.updatedAt = updatedAt;
+     * @param createdAt    作成日時
+     * @param updatedAt    最終更新日時
+     * @param createdEpoch 作成日時（エポックミリ秒）
+     * @param updatedEpoch 最終更新日時（エポックミリ秒）。未更新の場合は作成日時と同じ値
+     */
+    public Memo(int id, String title, String body, List<String> tags, String createdAt, String updatedAt,
+            long createdEpoch, long updatedEpoch) {
+        this(id, title, body, tags, createdAt, updatedAt, createdEpoch, updatedEpoch, null, null);
     }
 
     /**
-     * 新しいメモをアプリケーションで作成する際に使用するコンストラクタ。
-     * ID、作成日時、更新日時はデータベース側で設定されるため、ここでは初期化しません。
+     * データベースに保存された検索キーとともにMemoオブジェクトを生成するコンストラクタです。
+     * 検索キーを読み込み時に計算し直さずに済みます。
      *
-     * @param title メモのタイトル
-     * @param body  メモの本文
-     * @param tags  関連付けられたタグのリスト
-     */
-    public Memo(String title, String body, List<String> tags) {
-        this.title = title;
+     * @param id           メモのID
+     * @param title        メモのタイトル
+     * @param body         メモの本文
+     * @param tags         関連付けられたタグのリスト
+     * @param createdAt    作成日時
+     * @param updatedAt    最終更新日時
+     * @param createdEpoch 作成日時（エポックミリ秒）
+     * @param updatedEpoch 最終更新日時（エポックミリ秒）
+     * @param titleKey     タイトルの検索キー。nullの場合は必要になったときに求めます
+     * @param bodyKey      本文の検索キー。nullの場合は必要になったときに求めます
+     */
+    public Memo(int id, String title, String body, List<String> tags, String createdAt, String updatedAt,
+            long createdEpoch, long updatedEpoch, String titleKey, String bodyKey) {
+        super(id, title, tags, createdAt, updatedAt, createdEpoch, updatedEpoch);
         this.body = body;
-        this.tags = new ArrayList<>(tags); // 防御的コピー
+        // 正規化で変化しない文字列（多くの日本語の文章）は、同じ内容の文字列を二重に保持しない
+        this.titleKey = titleKey != null && titleKey.equals(title) ? title : titleKey;
+        this.bodyKey = bodyKey != null && bodyKey.equals(body) ? body : bodyKey;
     }
 
     /**
-     * このメモに関連付けられたタグのリストを返します。
-     * 外部からの変更を防ぐため、リストの防御的コピーを返します。
+     * 要約と本文からMemoオブジェクトを生成するコンストラクタです。
+     * 一覧で選択された要約に、後から読み込んだ本文を組み合わせる場合に使用します。
      *
-     * @return タグのリスト。
+     * @param summary メモの要約
+     * @param body    メモの本文
      */
-    public List<String> getTags() {
-        return new ArrayList<>(tags); // 防御的コピー
+    public Memo(MemoSummary summary, String body) {
+        this(summary.id, summary.title, body, summary.getTags(), summary.createdAt, summary.updatedAt,
+                summary.createdEpoch, summary.updatedEpoch);
     }
 
     /**
-     * このメモに新しいタグのリストを設定します。
-     * 外部の変更から影響を受けないよう、受け取ったリストの防御的コピーを格納します。
+     * 新しいメモをアプリケーションで作成する際に使用するコンストラクタ。
+     * ID、作成日時、更新日時はデータベース側で設定されるため、ここでは初期化しません。
      *
-     * @param tags 新しく設定するタグのリスト。
+     * @param title メモのタイトル
+     * @param body  メモの本文
+     * @param tags  関連付けられたタグのリスト
      */
-    public void setTags(List<String> tags) {
-        this.tags = new ArrayList<>(tags); // 防御的コピー
+    public Memo(String title, String body, List<String> tags) {
+        this(0, title, body, tags, null, null, 0, 0);
     }
 
     /**
-     * メモのタイトルを返します。
+     * このメモに新しいタグのリストを設定します。
+     * タグは {@link TagDictionary} のIDに変換して保持するため、受け取ったリストを後から変更しても影響しません。
      *
-     * @return メモのタイトル。
+     * @param tags 新しく設定するタグのリスト。
      */
-    public String getTitle() {
-        return title;
+    public void setTags(List<String> tags) {
+        this.tagIds = TagDictionary.idsOf(tags);
     }
 
     /**
@@ -108,6 +113,7 @@ public class Memo {
      */
     public void setTitle(String title) {
         this.title = title;
+        this.titleKey = null;
     }
 
     /**
@@ -126,33 +132,46 @@ public class Memo {
      */
     public void setBody(String body) {
         this.body = body;
+        this.bodyKey = null;
     }
 
     /**
-     * メモの一意なIDを返します。
+     * タイトルを {@link TextNormalizer} で正規化した検索キーを返します。
      *
-     * @return メモのID。
-     */
-    public int getId() {
-        return id;
+     * @return タイトルの検索キー。
+     */
+    public String getTitleKey() {
+        String key = titleKey;
+        if (key == null) {
+            key = TextNormalizer.normalize(title);
+            titleKey = key;
+        }
+        return key;
     }
 
     /**
-     * メモの作成日時を文字列として返します。
+     * 本文を {@link TextNormalizer} で正規化した検索キーを返します。
      *
-     * @return 作成日時。取得できない場合は"(未設定)"を返します。
-     */
-    public String getCreatedAt() {
-        return createdAt != null ? createdAt : "(未設定)";
+     * @return 本文の検索キー。
+     */
+    public String getBodyKey() {
+        String key = bodyKey;
+        if (key == null) {
+            key = TextNormalizer.normalize(body);
+            bodyKey = key;
+        }
+        return key;
     }
 
     /**
-     * メモの最終更新日時を文字列として返します。
+     * エポックミリ秒を、作成日時・更新日時の表示用の文字列（ローカル時刻）に変換します。
+     * どの保存先も、またライトビハインドで保存前に日時を決める場合も、この形式で日時の文字列を作ります。
      *
-     * @return 最終更新日時。取得できない場合は"(未設定)"を返します。
+     * @param epochMillis エポックミリ秒。
+     * @return {@code yyyy-MM-dd HH:mm:ss} 形式の文字列。
      */
-    public String getUpdatedAt() {
-        return updatedAt != null ? updatedAt : "(未設定)";
+    public static String formatLocal(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(LOCAL_DATE_TIME);
     }
 
     /**
@@ -162,7 +181,7 @@ public class Memo {
      */
     @Override
     public String toString() {
-        return "[タイトル] " + title + "\n[タグ] " + String.join(", ", tags) + "\n[本文] " + body +
+        return "[タイトル] " + title + "\n[タグ] " + String.join(", ", getTags()) + "\n[本文] " + body +
                 "\n[作成日時] " + getCreatedAt() + "\n[更新日時] " + getUpdatedAt();
     }
 }
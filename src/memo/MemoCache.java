@@ -0,0 +1,367 @@
+package memo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * データベース上の全メモをメモリ上に保持するライトスルーキャッシュです。
+ * 最初の参照時に一度だけ全件を読み込み、以降の追加・更新・削除はデータベースへの書き込みが
+ * 成功した後にこのキャッシュへ反映します（{@link MemoManager} から呼び出されます）。
+ *
+ * <p>キャッシュへの変更はすべて世代番号（generation）を1つ進めます。
+ * {@link #invalidate()} で無効化された場合は次回の参照時に読み込み直すため、
+ * 世代番号を比較することでキャッシュの内容が最新かどうかを確認できます。</p>
+ *
+ * <p>メモと同時に {@link TagIndex} も更新するため、タグ一覧・タグごとの件数・タグでの絞り込みは
+ * 全メモを走査せずに求められます。</p>
+ */
+class MemoCache {
+
+    /**
+     * リポジトリの `getAll` と同じ並び順（更新日時のエポックミリ秒の降順、次にIDの降順）です。
+     * 未更新のメモの更新日時は作成日時と同じ値のため、作成・更新の新しい順に並びます。
+     */
+    static final Comparator<Memo> DEFAULT_ORDER = Comparator
+            .<Memo>comparingLong(Memo::getUpdatedEpoch).reversed()
+            .thenComparing(Comparator.comparingInt(Memo::getId).reversed());
+
+    private final Supplier<List<Memo>> loader;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** {@link #DEFAULT_ORDER} の順に並んだメモ。 */
+    private final List<Memo> ordered = new ArrayList<>();
+    private final Map<Integer, Memo> byId = new HashMap<>();
+    private final TagIndex tagIndex = new TagIndex();
+
+    private long generation;
+    private boolean loaded;
+
+    /**
+     * @param loader キャッシュが空または無効化されているときに全件を読み込む処理。
+     */
+    MemoCache(Supplier<List<Memo>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * キャッシュされているすべてのメモを並び順どおりに返します。
+     * 必要であればこの時点でデータベースから読み込みます。
+     *
+     * @return メモ一覧のスナップショット（呼び出し元で変更しても構いません）。
+     */
+    List<Memo> snapshot() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(ordered);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * キャッシュされているメモ（タグを指定した場合はそのタグを持つメモ）を1件ずつ処理します。
+     * {@link #snapshot()} と異なり一覧を複製しないため、件数によらず追加のメモリを使いません。順序は保証しません。
+     * 処理の間は読み取りロックを保持するため、{@code action} の中でキャッシュを変更しないでください。
+     *
+     * @param tag    タグ（大文字・小文字を区別しない）。nullの場合はすべてのメモ。
+     * @param action 1件ごとの処理。
+     */
+    void forEach(String tag, Consumer<Memo> action) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            if (tag == null) {
+                ordered.forEach(action);
+            } else {
+                for (Integer id : tagIndex.idsWithTagIgnoreCase(tag)) {
+                    action.accept(byId.get(id));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 指定したIDのメモを返します。
+     *
+     * @param id メモのID。
+     * @return キャッシュされているメモ。存在しない場合はnull。
+     */
+    Memo get(int id) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 登録されているユニークなタグを昇順で返します。
+     *
+     * @return タグ集合のスナップショット。
+     */
+    Set<String> tags() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return new TreeSet<>(tagIndex.tags());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * タグごとのメモ件数を、タグの昇順で返します。
+     *
+     * @return タグ → 件数のマップ。
+     */
+    Map<String, Integer> tagCounts() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return tagIndex.counts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 指定したタグを持つメモを並び順どおりに返します。
+     * 転置インデックスから該当IDだけを取り出して並べ替えるため、処理量は該当件数にのみ依存します。
+     *
+     * @param tag        タグ。
+     * @param ignoreCase 大文字・小文字を区別せずに比較する場合はtrue。
+     * @return 該当するメモのリスト。
+     */
+    List<Memo> withTag(String tag, boolean ignoreCase) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            Set<Integer> ids = ignoreCase ? tagIndex.idsWithTagIgnoreCase(tag) : tagIndex.idsWithTag(tag);
+            List<Memo> memos = new ArrayList<>(ids.size());
+            for (Integer id : ids) {
+                memos.add(byId.get(id));
+            }
+            memos.sort(DEFAULT_ORDER);
+            return memos;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * メモを追加、または同じIDのメモを置き換えます。
+     * キャッシュが未読み込みの場合は何もしません（次回の読み込みで反映されるため）。
+     *
+     * @param memo データベースに書き込み済みのメモ。
+     */
+    void put(Memo memo) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            Memo previous = byId.put(memo.getId(), memo);
+            if (previous != null) {
+                ordered.remove(indexOf(previous));
+            }
+            int index = Collections.binarySearch(ordered, memo, DEFAULT_ORDER);
+            ordered.add(index < 0 ? -index - 1 : index, memo);
+            tagIndex.add(memo);
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 複数のメモをまとめて追加または置き換えます。
+     * 1件ずつ挿入位置を探す代わりに、最後に一度だけ並べ替えます。
+     *
+     * @param memos データベースに書き込み済みのメモ。
+     */
+    void putAll(Collection<Memo> memos) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded || memos.isEmpty()) {
+                return;
+            }
+            Set<Memo> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Memo memo : memos) {
+                Memo previous = byId.put(memo.getId(), memo);
+                if (previous != null) {
+                    replaced.add(previous);
+                }
+                tagIndex.add(memo);
+            }
+            if (!replaced.isEmpty()) {
+                ordered.removeIf(replaced::contains);
+            }
+            ordered.addAll(memos);
+            ordered.sort(DEFAULT_ORDER);
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 指定したIDのメモをまとめてキャッシュから取り除きます。
+     *
+     * @param ids 削除されたメモのID。
+     */
+    void removeAll(Collection<Integer> ids) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            Set<Memo> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Integer id : ids) {
+                Memo previous = byId.remove(id);
+                if (previous != null) {
+                    removed.add(previous);
+                    tagIndex.remove(id);
+                }
+            }
+            if (!removed.isEmpty()) {
+                ordered.removeIf(removed::contains);
+                generation++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 指定したIDのメモをキャッシュから取り除きます。
+     *
+     * @param id 削除されたメモのID。
+     */
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return;
+            }
+            Memo previous = byId.remove(id);
+            if (previous != null) {
+                ordered.remove(indexOf(previous));
+                tagIndex.remove(id);
+                generation++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * キャッシュを無効化します。次回の参照時にデータベースから全件を読み込み直します。
+     * データベースとの整合性が保証できなくなった場合（書き込みの失敗など）に呼び出します。
+     */
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            ordered.clear();
+            byId.clear();
+            tagIndex.clear();
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 全件の読み込みが完了しているかどうかを返します。
+     *
+     * @return 読み込み済みで、無効化されていない場合はtrue。
+     */
+    boolean isLoaded() {
+        lock.readLock().lock();
+        try {
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * キャッシュの世代番号を返します。キャッシュの内容が変わるたびに増加します。
+     *
+     * @return 現在の世代番号。
+     */
+    long generation() {
+        lock.readLock().lock();
+        try {
+            return generation;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        lock.readLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            List<Memo> all = new ArrayList<>(loader.get());
+            all.sort(DEFAULT_ORDER);
+            ordered.clear();
+            byId.clear();
+            tagIndex.clear();
+            ordered.addAll(all);
+            for (Memo memo : all) {
+                byId.put(memo.getId(), memo);
+                tagIndex.add(memo);
+            }
+            loaded = true;
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 並び順を利用して、キャッシュ内のメモの位置を求めます。
+     * 編集ダイアログがキャッシュ内のインスタンスを直接書き換えている可能性があるため、
+     * 見つからない場合は同一インスタンスを線形に探します。
+     */
+    private int indexOf(Memo memo) {
+        int index = Collections.binarySearch(ordered, memo, DEFAULT_ORDER);
+        if (index >= 0 && ordered.get(index) == memo) {
+            return index;
+        }
+        for (int i = 0; i < ordered.size(); i++) {
+            if (ordered.get(i) == memo) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("キャッシュの並び順が不整合です: id=" + memo.getId());
+    }
+}
@@ -0,0 +1,106 @@
+package memo;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * {@link MemoManager} がメモの書き込み後に通知する変更イベントです。
+ * 購読者（GUI など）はイベントの種類に応じて表示を部分的に更新できるため、
+ * 書き込みのたびに一覧やタグ一覧を全件読み込み直す必要がありません。
+ *
+ * <ul>
+ *   <li>{@link Type#CREATED} … メモが追加された。{@link #getMemo()} は保存後のメモ</li>
+ *   <li>{@link Type#UPDATED} … メモが更新された。{@link #getMemo()} は更新後のメモ</li>
+ *   <li>{@link Type#DELETED} … メモが削除された。{@link #getMemo()} はnull</li>
+ *   <li>{@link Type#TAGS_CHANGED} … 全メモのタグの種類が増減した。増えたタグと減ったタグを持つ</li>
+ *   <li>{@link Type#RELOADED} … 取り込みなどで多数のメモがまとめて変更された。個々のメモのイベントは通知されないため、
+ *       購読者は表示中の一覧とタグ一覧を読み込み直す</li>
+ * </ul>
+ */
+public final class MemoEvent {
+
+    /**
+     * 変更の種類。
+     */
+    public enum Type {
+        CREATED, UPDATED, DELETED, TAGS_CHANGED, RELOADED
+    }
+
+    private final Type type;
+    private final int memoId;
+    private final Memo memo;
+    private final Set<String> addedTags;
+    private final Set<String> removedTags;
+
+    private MemoEvent(Type type, int memoId, Memo memo, Set<String> addedTags, Set<String> removedTags) {
+        this.type = type;
+        this.memoId = memoId;
+        this.memo = memo;
+        this.addedTags = Collections.unmodifiableSet(new TreeSet<>(addedTags));
+        this.removedTags = Collections.unmodifiableSet(new TreeSet<>(removedTags));
+    }
+
+    static MemoEvent created(Memo memo) {
+        return new MemoEvent(Type.CREATED, memo.getId(), memo, Collections.emptySet(), Collections.emptySet());
+    }
+
+    static MemoEvent updated(Memo memo) {
+        return new MemoEvent(Type.UPDATED, memo.getId(), memo, Collections.emptySet(), Collections.emptySet());
+    }
+
+    static MemoEvent deleted(int id) {
+        return new MemoEvent(Type.DELETED, id, null, Collections.emptySet(), Collections.emptySet());
+    }
+
+    static MemoEvent tagsChanged(Set<String> addedTags, Set<String> removedTags) {
+        return new MemoEvent(Type.TAGS_CHANGED, 0, null, addedTags, removedTags);
+    }
+
+    static MemoEvent reloaded() {
+        return new MemoEvent(Type.RELOADED, 0, null, Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * @return 変更の種類。
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return 変更されたメモのID。{@link Type#TAGS_CHANGED}、{@link Type#RELOADED} の場合は0。
+     */
+    public int getMemoId() {
+        return memoId;
+    }
+
+    /**
+     * @return 追加・更新後のメモ。{@link Type#CREATED}、{@link Type#UPDATED} 以外の場合はnull。
+     */
+    public Memo getMemo() {
+        return memo;
+    }
+
+    /**
+     * @return 新たに使われるようになったタグ（昇順）。{@link Type#TAGS_CHANGED} 以外では空。
+     */
+    public Set<String> getAddedTags() {
+        return addedTags;
+    }
+
+    /**
+     * @return どのメモにも使われなくなったタグ（昇順）。{@link Type#TAGS_CHANGED} 以外では空。
+     */
+    public Set<String> getRemovedTags() {
+        return removedTags;
+    }
+
+    @Override
+    public String toString() {
+        if (type == Type.TAGS_CHANGED) {
+            return type + " +" + addedTags + " -" + removedTags;
+        }
+        return type == Type.RELOADED ? type.toString() : type + " id=" + memoId;
+    }
+}
@@ -0,0 +1,18 @@
+package memo;
+
+/**
+ * {@link MemoManager} からメモの変更イベントを受け取るリスナーです。
+ *
+ * <p>イベントは書き込みを行ったスレッドで、書き込みが成功した後に同期的に通知されます。
+ * Swing コンポーネントを更新する場合は、リスナー側でイベントディスパッチスレッドへ処理を移してください。</p>
+ */
+@FunctionalInterface
+public interface MemoListener {
+
+    /**
+     * メモが変更されたときに呼び出されます。
+     *
+     * @param event 変更の内容。
+     */
+    void memoChanged(MemoEvent event);
+}
@@ -1,39 +1,325 @@
 package memo;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import storage.MemoRepository;
+import metrics.Metrics;
+import storage.DataAccessException;
+import storage.MemoPage;
+import storage.MemoStore;
+import storage.PageCursor;
 
 /**
  * アプリケーションのビジネスロジックを担当するクラスです。
- * UI（GUI）とデータ永続化層（MemoRepository）の間に位置し、
+ * UI（GUI）とデータ永続化層（{@link MemoStore}）の間に位置し、
  * メモの追加、検索、更新、削除などの操作を調整します。
- * このクラスは特定のUI技術やデータ保存技術に依存しません。
+ * このクラスは特定のUI技術やデータ保存技術に依存しません（保存先は SQLite とメモリ上のどちらでも動作します）。
+ *
+ * <p>メモ一覧は {@link MemoCache} にキャッシュされ、一覧表示・絞り込み・タグ一覧は
+ * データベースに問い合わせずにメモリ上で処理します。書き込みは常にデータベースを先に更新し、
+ * 成功した場合のみキャッシュへ反映します。</p>
+ *
+ * <p>一覧表示用のページは本文を含まない {@link MemoSummary} で取得し、本文は詳細画面などで必要になったときに
+ * {@link #loadMemo(MemoSummary)} で読み込みます。読み込んだ本文はサイズ上限付きの {@link BodyCache} に保持します。</p>
+ *
+ * <p>書き込みが成功するたびに、登録された {@link MemoListener} へ {@link MemoEvent} を通知します。
+ * 全メモのタグの種類が増減した場合は、個々のメモのイベントの後に {@link MemoEvent.Type#TAGS_CHANGED} を通知します。</p>
+ *
+ * <p>{@link WriteBehindQueue} を渡した場合、{@link #add(Memo)} / {@link #update(Memo)} / {@link #delete(Memo)} は
+ * キャッシュへの反映とイベントの通知だけを行い、保存先への書き込みはキューに溜めてまとめて反映します。
+ * 保存先から読み込む操作（ページの取得・件数・検索など）と一括処理は、溜まっている書き込みを反映してから行います。
+ * 終了時は {@link #flush()} を呼び出してください。</p>
  */
 public class MemoManager {
 
-    private final MemoRepository repository;
+    /** 本文キャッシュの合計サイズの上限（バイト）。 */
+    private static final long BODY_CACHE_BYTES = 4L * 1024 * 1024;
+
+    private final MemoStore repository;
+    private final MemoCache cache;
+    private final BodyCache bodyCache = new BodyCache(BODY_CACHE_BYTES);
+    private final List<MemoListener> listeners = new CopyOnWriteArrayList<>();
+    private final ParallelMemoFilter filter;
+    private final WriteBehindQueue writeBehind;
+    private final MemoRanker ranker = new MemoRanker();
+
+    /**
+     * ライトビハインドの場合に、リスナーへ通知済みのタグの種類。{@link #tagLock} を保持して読み書きします。
+     * リスナーが登録されるまではnullです。
+     */
+    private Set<String> publishedTags;
+    private final ReentrantLock tagLock = new ReentrantLock();
+
+    /**
+     * 書き込みの反映後、{@link #tagLock} を取れずにタグの種類を比べられなかったことを示す印。
+     * ロックを外す前と外した後に確認し、立っていれば比べ直します（{@link #unlockTags()}）。
+     */
+    private final AtomicBoolean tagsDirty = new AtomicBoolean();
 
     /**
      * MemoManagerのコンストラクタです。
-     * 依存性の注入（DI）パターンに基づき、データアクセスを担当するリポジトリを受け取ります。
+     * 依存性の注入（DI）パターンに基づき、データアクセスを担当する保存先を受け取ります。
+     * 絞り込みには共通の ForkJoinPool を使用します。
+     *
+     * @param repository MemoStoreの実装インスタンス。
+     */
+    public MemoManager(MemoStore repository) {
+        this(repository, new ParallelMemoFilter());
+    }
+
+    /**
+     * 絞り込みに使用する {@link ParallelMemoFilter} を指定するコンストラクタです。
      *
-     * @param repository MemoRepositoryの実装インスタンス。
+     * @param repository MemoStoreの実装インスタンス。
+     * @param filter     キャッシュ上の絞り込みに使用するフィルター。
      */
-    public MemoManager(MemoRepository repository) {
+    public MemoManager(MemoStore repository, ParallelMemoFilter filter) {
+        this(repository, filter, null);
+    }
+
+    /**
+     * 追加・更新・削除を {@link WriteBehindQueue} に溜めてまとめて反映するコンストラクタです。
+     * キューの書き込みの反映に失敗した場合は、キャッシュを無効化して {@link MemoEvent.Type#RELOADED} を通知します。
+     *
+     * @param repository  MemoStoreの実装インスタンス。
+     * @param filter      キャッシュ上の絞り込みに使用するフィルター。
+     * @param writeBehind {@code repository} へ書き込むキュー。nullの場合は書き込みのたびに保存先を更新します。
+     */
+    public MemoManager(MemoStore repository, ParallelMemoFilter filter, WriteBehindQueue writeBehind) {
         this.repository = repository;
+        this.cache = new MemoCache(() -> {
+            awaitPending();
+            return repository.getAll();
+        });
+        this.filter = filter;
+        this.writeBehind = writeBehind;
+        if (writeBehind != null) {
+            writeBehind.onFailure(e -> {
+                System.err.println("溜めていた書き込みの反映に失敗しました: " + e.getMessage());
+                cache.invalidate();
+                bodyCache.clear();
+                publish(MemoEvent.reloaded());
+            });
+            writeBehind.onCommit(this::publishCommittedTagChanges);
+        }
+    }
+
+    /**
+     * メモの変更イベントを受け取るリスナーを登録します。
+     *
+     * @param listener 登録するリスナー。
+     */
+    public void addMemoListener(MemoListener listener) {
+        listeners.add(listener);
+        if (writeBehind != null) {
+            tagLock.lock();
+            try {
+                if (publishedTags == null) {
+                    publishedTags = getAllTags();
+                }
+            } finally {
+                unlockTags();
+            }
+        }
+    }
+
+    /**
+     * 登録済みのリスナーを解除します。
+     *
+     * @param listener 解除するリスナー。
+     */
+    public void removeMemoListener(MemoListener listener) {
+        listeners.remove(listener);
     }
 
     /**
      * 新しいメモを受け取り、リポジトリを介してデータベースに保存します。
+     * 保存後、採番されたIDと作成日時を含むメモをキャッシュに追加します。
+     * ライトビハインドの場合は、予約済みのIDを割り当ててキャッシュに追加し、保存はキューに溜めます。
      *
      * @param memo 保存する新しいMemoオブジェクト。
      */
     public void add(Memo memo) {
-        repository.save(memo);
+        try (Metrics.Timer timer = Metrics.begin("manager.add")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            Memo stored;
+            if (writeBehind != null) {
+                stored = writeBehind.save(memo);
+                cache.put(stored);
+            } else {
+                stored = refreshCached(repository.save(memo));
+            }
+            timer.success(1);
+            if (stored != null) {
+                publish(MemoEvent.created(stored));
+            }
+            publishTagChanges(tagsBefore);
+        }
+    }
+
+    /**
+     * 複数の新しいメモを1トランザクションでまとめて保存します。
+     * 大量のメモを取り込む場合は、{@link #add(Memo)} を繰り返すよりも大幅に高速です。
+     *
+     * @param memos 保存する新しいMemoオブジェクトのコレクション。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。
+     */
+    public List<Integer> saveAll(Collection<Memo> memos) {
+        return saveAll(memos, MemoStore.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 複数の新しいメモを1トランザクションでまとめて保存します。
+     *
+     * @param memos     保存する新しいMemoオブジェクトのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。
+     */
+    public List<Integer> saveAll(Collection<Memo> memos, int chunkSize) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.saveAll")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            List<Integer> ids = repository.saveAll(memos, chunkSize);
+            List<Memo> stored = repository.findByIds(ids);
+            cache.putAll(stored);
+            timer.success(ids.size());
+            stored.forEach(memo -> publish(MemoEvent.created(memo)));
+            publishTagChanges(tagsBefore);
+            return ids;
+        }
+    }
+
+    /**
+     * 複数の既存メモを1トランザクションでまとめて更新します。
+     *
+     * @param memos 更新情報を含むMemoオブジェクトのコレクション。
+     */
+    public void updateAll(Collection<Memo> memos) {
+        updateAll(memos, MemoStore.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 複数の既存メモを1トランザクションでまとめて更新します。
+     * 失敗した場合は {@link #update(Memo)} と同様にキャッシュを無効化してから例外を再スローします。
+     *
+     * @param memos     更新情報を含むMemoオブジェクトのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     */
+    public void updateAll(Collection<Memo> memos, int chunkSize) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.updateAll")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            memos.forEach(memo -> bodyCache.remove(memo.getId()));
+            try {
+                repository.updateAll(memos, chunkSize);
+            } catch (DataAccessException e) {
+                cache.invalidate();
+                throw e;
+            }
+            List<Memo> stored = repository.findByIds(memos.stream().map(Memo::getId).collect(Collectors.toList()));
+            cache.putAll(stored);
+            timer.success(memos.size());
+            stored.forEach(memo -> publish(MemoEvent.updated(memo)));
+            publishTagChanges(tagsBefore);
+        }
+    }
+
+    /**
+     * 指定したIDのメモを1トランザクションでまとめて削除します。
+     *
+     * @param ids 削除するメモのIDのコレクション。
+     * @return 実際に削除された件数。
+     */
+    public int deleteAll(Collection<Integer> ids) {
+        return deleteAll(ids, MemoStore.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 指定したIDのメモを1トランザクションでまとめて削除します。
+     *
+     * @param ids       削除するメモのIDのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @return 実際に削除された件数。
+     */
+    public int deleteAll(Collection<Integer> ids, int chunkSize) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.deleteAll")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            int deleted = repository.deleteAll(ids, chunkSize);
+            cache.removeAll(ids);
+            ids.forEach(bodyCache::remove);
+            timer.success(deleted);
+            if (deleted > 0) {
+                // 存在しなかったIDの削除イベントは、購読者側で何もしないだけなので区別しない
+                ids.forEach(id -> publish(MemoEvent.deleted(id)));
+            }
+            publishTagChanges(tagsBefore);
+            return deleted;
+        }
+    }
+
+    /**
+     * 外部から取り込むメモを、{@code batchSize} 件ずつ別々のトランザクションでデータベースへ保存します。
+     * メモは必要な分だけ {@code memos} から読み進めるため、取り込む件数によらずメモリ使用量は1バッチ分に収まります。
+     * 作成日時・更新日時は各メモの値を保ち、IDは新しく採番されます。
+     *
+     * <p>途中で失敗した場合、それまでにコミットしたバッチは保存されたまま例外を再スローします。
+     * 取り込み後（失敗時も含む）はメモキャッシュを無効化し、個々のメモのイベントの代わりに
+     * {@link MemoEvent.Type#RELOADED} を1回だけ通知します。</p>
+     *
+     * @param memos       取り込むメモ。
+     * @param batchSize   1トランザクションにまとめる件数。
+     * @param onCommitted バッチをコミットするたびに、それまでに保存した件数を受け取る処理。
+     * @return 保存した件数。
+     */
+    public long importAll(Iterator<Memo> memos, int batchSize, LongConsumer onCommitted) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("1以上の件数を指定してください: " + batchSize);
+        }
+        awaitPending();
+        long imported = 0;
+        try (Metrics.Timer timer = Metrics.begin("manager.importAll")) {
+            List<Memo> batch = new ArrayList<>(batchSize);
+            while (memos.hasNext()) {
+                batch.add(memos.next());
+                if (batch.size() == batchSize || !memos.hasNext()) {
+                    imported += repository.importAll(batch, Math.min(batchSize, MemoStore.DEFAULT_BATCH_SIZE)).size();
+                    batch.clear();
+                    onCommitted.accept(imported);
+                }
+            }
+            timer.success(imported);
+            return imported;
+        } finally {
+            if (imported > 0) {
+                // 取り込んだメモをキャッシュへ1件ずつ反映すると全件をメモリに保持することになるため、次回の参照時に読み込み直す
+                cache.invalidate();
+                publish(MemoEvent.reloaded());
+            }
+        }
+    }
+
+    /**
+     * すべてのメモを一覧の並び順で、1件ずつ読み込むストリームとして取得します。
+     * エクスポートなど全件を順に処理する場合に使用し、キャッシュには読み込みません。
+     * ストリームはデータベースの接続を占有するため、必ず try-with-resources で閉じてください。
+     *
+     * @return メモのストリーム。
+     */
+    public Stream<Memo> streamAll() {
+        awaitPending();
+        return repository.streamAll();
     }
 
     /**
@@ -42,17 +328,140 @@ public class MemoManager {
      * @return すべてのMemoオブジェクトを含むリスト。
      */
     public List<Memo> getAll() {
-        return repository.getAll();
+        try (Metrics.Timer timer = Metrics.begin("manager.getAll")) {
+            List<Memo> memos = cache.snapshot();
+            timer.success(memos.size());
+            return memos;
+        }
+    }
+
+    /**
+     * 一覧の並び順で、指定した位置の次から1ページ分のメモを取得します。
+     * 大量のメモを一度に読み込まずに一覧表示するために使用します。
+     * このメソッドはキャッシュを使わず、常にデータベースから取得します。
+     *
+     * @param after 直前のページの位置。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     */
+    public MemoPage<Memo> getPage(PageCursor after, int limit) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.getPage")) {
+            MemoPage<Memo> page = repository.findPage(after, limit);
+            timer.success(page.getMemos().size());
+            return page;
+        }
+    }
+
+    /**
+     * {@link #getPage(PageCursor, int)} と同じ並び順で、本文を除いたメモの要約を1ページ分取得します。
+     * 一覧表示にはこちらを使用し、本文は {@link #loadMemo(MemoSummary)} で必要なときだけ読み込みます。
+     *
+     * @param after 直前のページの位置。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     */
+    public MemoPage<MemoSummary> getSummaryPage(PageCursor after, int limit) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.getSummaryPage")) {
+            MemoPage<MemoSummary> page = repository.findSummaryPage(after, limit);
+            timer.success(page.getMemos().size());
+            return page;
+        }
+    }
+
+    /**
+     * メモの要約から、本文を含むメモを取得します。
+     * 要約がすでに本文を含む場合はそのまま返します。それ以外の場合は、メモキャッシュ・本文キャッシュ・
+     * データベースの順に本文を探します。
+     *
+     * @param summary 一覧で選択されたメモの要約。
+     * @return 本文を含むMemoオブジェクト。メモが削除されていた場合はnull。
+     */
+    public Memo loadMemo(MemoSummary summary) {
+        if (summary instanceof Memo) {
+            return (Memo) summary;
+        }
+        try (Metrics.Timer timer = Metrics.begin("manager.loadMemo")) {
+            Memo memo = cache.isLoaded() ? cache.get(summary.getId()) : null;
+            if (memo == null) {
+                String body = bodyCache.get(summary.getId());
+                if (body == null) {
+                    // ライトビハインドの場合は、反映前の書き込みを含めた内容を反映を待たずに取得する
+                    body = writeBehind != null ? writeBehind.findBody(summary.getId())
+                            : repository.findBody(summary.getId());
+                    if (body != null) {
+                        bodyCache.put(summary.getId(), body);
+                    }
+                }
+                memo = body != null ? new Memo(summary, body) : null;
+            }
+            timer.success(memo != null ? 1 : 0);
+            return memo;
+        }
+    }
+
+    /**
+     * 指定した位置から {@code rows} 件進んだ位置を求めます。
+     * 途中のメモ本体は読み込まないため、離れたページへ移動する際に使用します。
+     *
+     * @param after 起点となる位置。先頭から数える場合はnull。
+     * @param rows  進める件数。
+     * @return 進んだ先の位置。行数が足りない場合はnull。
+     */
+    public PageCursor skip(PageCursor after, int rows) {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.skip")) {
+            PageCursor cursor = repository.skip(after, rows);
+            timer.success();
+            return cursor;
+        }
+    }
+
+    /**
+     * データベースに保存されているメモの件数を取得します。
+     *
+     * @return メモの件数。
+     */
+    public int count() {
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.count")) {
+            int count = repository.count();
+            timer.success();
+            return count;
+        }
     }
 
     /**
      * 指定されたメモをデータベースから削除します。
+     * ライトビハインドの場合は、メモが存在すれば削除をキューに溜めます。
      *
      * @param memo 削除するMemoオブジェクト。
      * @return 削除が成功した場合はtrue、失敗した場合はfalse。
      */
     public boolean delete(Memo memo) {
-        return repository.delete(memo);
+        try (Metrics.Timer timer = Metrics.begin("manager.delete")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            boolean deleted;
+            if (writeBehind != null) {
+                deleted = currentMemo(memo.getId()) != null;
+                if (deleted) {
+                    writeBehind.delete(memo.getId());
+                }
+            } else {
+                deleted = repository.delete(memo);
+            }
+            if (deleted) {
+                cache.remove(memo.getId());
+                bodyCache.remove(memo.getId());
+            }
+            timer.success(deleted ? 1 : 0);
+            if (deleted) {
+                publish(MemoEvent.deleted(memo.getId()));
+                publishTagChanges(tagsBefore);
+            }
+            return deleted;
+        }
     }
 
     /**
@@ -63,68 +472,454 @@ public class MemoManager {
      * @return 検索条件に一致したMemoオブジェクトのリスト。
      */
     public List<Memo> search(String keyword) {
-        return repository.findByKeyword(keyword);
+        awaitPending();
+        try (Metrics.Timer timer = Metrics.begin("manager.search")) {
+            List<Memo> memos = repository.findByKeyword(keyword);
+            timer.success(memos.size());
+            return memos;
+        }
     }
 
     /**
      * 指定されたタグを持つメモを検索します。
-     * タグの正規化（`#`の削除、空白のトリム）を行った後、リポジトリに検索を委譲します。
+     * タグの正規化（`#`の削除、空白のトリム）を行った後、タグの転置インデックスから該当するメモを取得します。
      *
      * @param tag 検索するタグ文字列。
      * @return 検索条件に一致したMemoオブジェクトのリスト。
      */
     public List<Memo> searchByTag(String tag) {
-        String normalizedTag = tag.replaceFirst("^#", "").trim();
-        return repository.findByTag(normalizedTag);
+        try (Metrics.Timer timer = Metrics.begin("manager.searchByTag")) {
+            String normalizedTag = tag.replaceFirst("^#", "").trim();
+            List<Memo> memos = cache.withTag(normalizedTag, false);
+            timer.success(memos.size());
+            return memos;
+        }
     }
 
     /**
      * データベース内のすべてのメモから、ユニークなタグの一覧を取得。
      * 結果はアルファベット順にソートされた状態で返されます。
      *
+     * キャッシュが未読み込みの場合は、全メモを読み込む代わりにデータベースのタグ索引から取得します。
+     * ライトビハインドの場合は反映を待たず、反映前の追加・更新のタグを加えて返します
+     * （反映前の削除・更新で使われなくなったタグは、反映後に結果から消えます）。
+     *
      * @return すべてのユニークなタグを含むSet。
      */
     public Set<String> getAllTags() {
-        return repository.getAll().stream()
-                .flatMap(memo -> memo.getTags().stream())
-                .filter(tag -> tag != null && !tag.isEmpty())
-                .collect(Collectors.toCollection(TreeSet::new));
+        try (Metrics.Timer timer = Metrics.begin("manager.getAllTags")) {
+            Set<String> tags;
+            if (cache.isLoaded()) {
+                tags = cache.tags();
+            } else {
+                tags = storedAndPendingTags();
+            }
+            timer.success(tags.size());
+            return tags;
+        }
+    }
+
+    /**
+     * タグごとに、そのタグが付いたメモの件数を取得します。
+     * 件数はタグの転置インデックスで管理されているため、メモの総数によらず求められます。
+     *
+     * @return タグ（アルファベット順）→ メモ件数のマップ。
+     */
+    public Map<String, Integer> getTagCounts() {
+        try (Metrics.Timer timer = Metrics.begin("manager.getTagCounts")) {
+            Map<String, Integer> counts = cache.tagCounts();
+            timer.success(counts.size());
+            return counts;
+        }
     }
 
     /**
      * 既存のメモの内容を更新します。
+     * 更新に失敗した場合、呼び出し元がキャッシュ内のメモを直接書き換えている可能性があるため、
+     * キャッシュを無効化してから例外を再スローします。
+     * ライトビハインドの場合は、更新後のメモをキャッシュに反映し、更新はキューに溜めます。
+     * メモがすでに削除されていた場合は何もせず、変更イベントも通知しません。
      *
      * @param memo 更新情報を含むMemoオブジェクト。
      */
     public void update(Memo memo) {
-        repository.update(memo);
+        try (Metrics.Timer timer = Metrics.begin("manager.update")) {
+            Set<String> tagsBefore = tagsBeforeWrite();
+            bodyCache.remove(memo.getId());
+            Memo stored;
+            if (writeBehind != null) {
+                Memo current = currentMemo(memo.getId());
+                stored = current != null ? writeBehind.update(memo, current) : null;
+                if (stored != null) {
+                    cache.put(stored);
+                }
+            } else {
+                try {
+                    repository.update(memo);
+                } catch (DataAccessException e) {
+                    cache.invalidate();
+                    throw e;
+                }
+                stored = refreshCached(memo.getId());
+            }
+            timer.success(stored != null ? 1 : 0);
+            // メモがすでに削除されていた場合は何も更新していない（削除はその時点で通知済み）ため、一覧への変更は通知しない
+            if (stored != null) {
+                publish(MemoEvent.updated(stored));
+            }
+            publishTagChanges(tagsBefore);
+        }
+    }
+
+    /**
+     * ライトビハインドで、保存先へ反映していない書き込みがあるかどうかを返します。
+     * ある場合、保存先から読み込むメソッド（{@link #getSummaryPage(PageCursor, int)} や {@link #skip(PageCursor, int)} など）は
+     * 反映を待つため、画面の描画中（EDT）には呼び出さないでください。
+     *
+     * @return 反映していない書き込みがある場合はtrue。ライトビハインドでない場合は常にfalse。
+     */
+    public boolean hasPendingWrites() {
+        return writeBehind != null && writeBehind.pendingCount() > 0;
+    }
+
+    /**
+     * ライトビハインドで溜めている書き込みを、すべて保存先へ反映し終えるまで待ちます。
+     * アプリケーションの終了時に、保存先を閉じる前に呼び出してください。ライトビハインドでない場合は何もしません。
+     *
+     * @throws DataAccessException 溜めていた書き込みの反映に失敗していた場合。
+     */
+    public void flush() {
+        awaitPending();
     }
 
     /**
      * キーワードとタグに基づいてメモ一覧をフィルタリングします。
      * UI層からビジネスロジックを分離するために、このメソッドで絞り込み処理を一元管理します。
+     * 絞り込みはキャッシュ上で行うため、データベースへの問い合わせは発生しません。
+     * タグが指定されている場合は、タグの転置インデックスで候補を絞ってからキーワードを照合します。
+     * キーワードは {@link TextNormalizer} で正規化し、全角・半角、大文字・小文字、カタカナ・ひらがなを区別せずに
+     * 各メモの検索キーと照合します。
+     * 候補が多い場合は {@link ParallelMemoFilter} で並列に照合します。結果の並び順は変わりません。
      *
      * @param keyword     検索キーワード。空の場合はキーワードでの絞り込みは行いません。
      * @param selectedTag 選択されたタグ。「すべて表示」が選択されている場合はタグでの絞り込みは行いません。
      * @return フィルタリングされたMemoオブジェクトのリスト。
      */
     public List<Memo> filterMemos(String keyword, String selectedTag) {
-        String normalizedKeyword = keyword.trim().toLowerCase();
+        try (Metrics.Timer timer = Metrics.begin("manager.filterMemos")) {
+            String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+            boolean isTagFiltered = selectedTag != null && !"すべて表示".equals(selectedTag);
+
+            // 選択されたタグに一致するメモだけを候補にする
+            List<Memo> candidates = isTagFiltered ? cache.withTag(selectedTag, true) : cache.snapshot();
+
+            // キーワードに一致するかどうか（件数が多い場合は並列に照合する）
+            List<Memo> result = normalizedKeyword.isEmpty() ? candidates
+                    : filter.filter(candidates, memo -> matchesKeyword(memo, normalizedKeyword));
+            timer.success(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * {@link #filterMemos(String, String)} と同じ条件と並び順で、先頭から最大 {@code limit} 件だけを取得します。
+     * 件数が揃った時点で照合を打ち切ります。
+     *
+     * <p>キャッシュが読み込み済みの場合はキャッシュ上で絞り込みます。未読み込みの場合は全件をキャッシュに読み込まず、
+     * リポジトリのストリーム（{@link MemoStore#streamByKeyword(String)}）で1件ずつ読みながら照合するため、
+     * メモの件数によらずメモリ使用量は取得件数程度に収まります。</p>
+     *
+     * @param keyword     検索キーワード。空の場合はキーワードでの絞り込みは行いません。
+     * @param selectedTag 選択されたタグ。「すべて表示」が選択されている場合はタグでの絞り込みは行いません。
+     * @param limit       取得する最大件数。
+     * @return フィルタリングされたMemoオブジェクトのリスト（最大 {@code limit} 件）。
+     */
+    public List<Memo> filterMemos(String keyword, String selectedTag, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("1以上の件数を指定してください: " + limit);
+        }
+        try (Metrics.Timer timer = Metrics.begin("manager.filterMemos.limit")) {
+            String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+            List<Memo> result;
+            if (cache.isLoaded()) {
+                boolean isTagFiltered = selectedTag != null && !"すべて表示".equals(selectedTag);
+                List<Memo> candidates = isTagFiltered ? cache.withTag(selectedTag, true) : cache.snapshot();
+                result = candidates.stream()
+                        .filter(memo -> normalizedKeyword.isEmpty() || matchesKeyword(memo, normalizedKeyword))
+                        .limit(limit)
+                        .collect(Collectors.toList());
+            } else {
+                // 索引で候補を絞れるキーワードで問い合わせ、タグと照合の細部はキャッシュ上と同じ判定で確認する
+                awaitPending();
+                try (Stream<Memo> candidates = repository.streamByKeyword(normalizedKeyword)) {
+                    result = candidates
+                            .filter(memo -> matches(memo, normalizedKeyword, selectedTag))
+                            .limit(limit)
+                            .collect(Collectors.toList());
+                }
+            }
+            timer.success(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * キーワードとタグで絞り込んだメモを関連度の高い順に並べ、上位 {@code limit} 件だけを返します。
+     * 関連度はキーワードの出現回数（タイトルでの一致を本文より重く数える）と更新日時の新しさから求めます（{@link MemoRanker}）。
+     * 候補を1件ずつ大きさ {@code limit} のヒープに通して上位だけを残すため、一致した件数が多くても
+     * 保持するのは {@code limit} 件だけです。キャッシュが未読み込みの場合は、データベースから1件ずつ読み込みながら求めます。
+     *
+     * <p>一致の判定は {@link #filterMemos(String, String)} と同じです。キーワードが空の場合は更新日時の新しい順になります。</p>
+     *
+     * @param keyword     検索キーワード。
+     * @param selectedTag 選択されたタグ。「すべて表示」またはnullの場合はタグでの絞り込みは行いません。
+     * @param limit       返す最大件数（1以上）。
+     * @return 関連度の高い順に並べたメモのリスト。
+     */
+    public List<Memo> searchRanked(String keyword, String selectedTag, int limit) {
+        try (Metrics.Timer timer = Metrics.begin("manager.searchRanked")) {
+            String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+            MemoRanker.TopK topK = ranker.topK(normalizedKeyword, limit, System.currentTimeMillis());
+            boolean isTagFiltered = selectedTag != null && !"すべて表示".equals(selectedTag);
+            if (cache.isLoaded()) {
+                cache.forEach(isTagFiltered ? selectedTag : null, topK);
+            } else {
+                awaitPending();
+                try (Stream<Memo> candidates = repository.streamByKeyword(normalizedKeyword)) {
+                    candidates.filter(memo -> !isTagFiltered || memo.hasTagIgnoreCase(selectedTag)).forEach(topK);
+                }
+            }
+            List<Memo> result = topK.result();
+            timer.success(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * 前回の {@link #searchRanked(String, String, int)} の結果を、より長いキーワードで絞り込み、並べ直します。
+     * 前回の結果が上限で打ち切られていない場合に限り、全件から求めた場合と同じ結果になります（入力中の逐次検索で使用します）。
+     *
+     * @param previous 前回の結果。
+     * @param keyword  新しい検索キーワード。
+     * @param limit    返す最大件数（1以上）。
+     * @return 関連度の高い順に並べたメモのリスト。
+     */
+    public List<Memo> refineRanked(List<Memo> previous, String keyword, int limit) {
+        try (Metrics.Timer timer = Metrics.begin("manager.refineRanked")) {
+            MemoRanker.TopK topK = ranker.topK(TextNormalizer.normalize(keyword.trim()), limit,
+                    System.currentTimeMillis());
+            previous.forEach(topK);
+            List<Memo> result = topK.result();
+            timer.success(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * 前回の絞り込み結果を、より長いキーワードでさらに絞り込みます。
+     * 新しいキーワードが前回のキーワードを含む場合、一致するメモは必ず前回の結果に含まれるため、
+     * 全件ではなく前回の結果だけを照合すれば済みます（入力中の逐次検索で使用します）。
+     *
+     * @param previous 前回の {@link #filterMemos(String, String)} の結果。
+     * @param keyword  新しい検索キーワード。
+     * @return 絞り込まれたMemoオブジェクトのリスト。
+     */
+    public List<Memo> refineMemos(List<Memo> previous, String keyword) {
+        try (Metrics.Timer timer = Metrics.begin("manager.refineMemos")) {
+            String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+            List<Memo> result = normalizedKeyword.isEmpty() ? previous
+                    : filter.filter(previous, memo -> matchesKeyword(memo, normalizedKeyword));
+            timer.success(result.size());
+            return result;
+        }
+    }
+
+    /**
+     * メモが {@link #filterMemos(String, String)} と同じ条件に一致するかどうかを判定します。
+     * 変更イベントで受け取ったメモを、表示中の絞り込み結果に含めるかどうかの判定に使用します。
+     *
+     * @param memo        判定するメモ（本文を含むこと）。
+     * @param keyword     検索キーワード。空の場合はキーワードでの絞り込みは行いません。
+     * @param selectedTag 選択されたタグ。「すべて表示」またはnullの場合はタグでの絞り込みは行いません。
+     * @return 条件に一致する場合はtrue。
+     */
+    public boolean matchesFilter(Memo memo, String keyword, String selectedTag) {
+        return matches(memo, TextNormalizer.normalize(keyword.trim()), selectedTag);
+    }
+
+    /**
+     * メモキャッシュの世代番号を返します。
+     * キャッシュの内容が変わるたびに増加するため、前回取得した値と比較することで
+     * 一覧の再取得が必要かどうかを判定できます。
+     *
+     * @return 現在の世代番号。
+     */
+    public long getCacheGeneration() {
+        return cache.generation();
+    }
+
+    /**
+     * メモが、正規化済みのキーワードと選択されたタグの条件に一致するかどうかを判定します。
+     */
+    static boolean matches(Memo memo, String normalizedKeyword, String selectedTag) {
         boolean isTagFiltered = selectedTag != null && !"すべて表示".equals(selectedTag);
+        if (isTagFiltered && !memo.hasTagIgnoreCase(selectedTag)) {
+            return false;
+        }
+        return normalizedKeyword.isEmpty() || matchesKeyword(memo, normalizedKeyword);
+    }
+
+    /**
+     * タイトルまたは本文が、正規化済みのキーワードを含むかどうかを判定します。
+     * メモ側は保持している検索キーと比較するため、メモごとの文字列変換は行いません。
+     */
+    private static boolean matchesKeyword(Memo memo, String normalizedKeyword) {
+        return memo.getTitleKey().contains(normalizedKeyword) ||
+                memo.getBodyKey().contains(normalizedKeyword);
+    }
+
+    /**
+     * 書き込み後のメモをデータベースから読み直し、キャッシュへ反映します。
+     * 採番されたIDや日時はデータベース側で決まるため、書き込んだオブジェクトをそのまま使わずに読み直します。
+     *
+     * @param id 書き込んだメモのID。
+     * @return 読み直したメモ。削除されていた場合はnull。
+     */
+    private Memo refreshCached(int id) {
+        Memo stored = repository.findById(id);
+        if (stored != null) {
+            cache.put(stored);
+        } else {
+            cache.remove(id);
+        }
+        return stored;
+    }
+
+    /**
+     * ライトビハインドで書き込む前に、対象のメモの現在の内容を取得します。
+     * キャッシュを読み込んでいない場合は、全件を読み込まずにそのメモだけを取得します
+     * （反映前の書き込みがあればその内容、なければ保存先の内容）。
+     */
+    private Memo currentMemo(int id) {
+        return cache.isLoaded() ? cache.get(id) : writeBehind.findById(id);
+    }
+
+    /**
+     * ライトビハインドの場合、保存先から読み込む前に、溜まっている書き込みを反映させます。
+     */
+    private void awaitPending() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
 
-        return getAll().stream()
-                .filter(memo -> {
-                    // キーワードに一致するかどうか
-                    boolean matchKeyword = normalizedKeyword.isEmpty() ||
-                            memo.getTitle().toLowerCase().contains(normalizedKeyword) ||
-                            memo.getBody().toLowerCase().contains(normalizedKeyword);
+    /**
+     * 書き込み前のタグの種類を記録します。リスナーが登録されていない場合は取得を省略します。
+     *
+     * @return 書き込み前のタグの集合。リスナーがいない場合はnull。
+     */
+    private Set<String> tagsBeforeWrite() {
+        // ライトビハインドの場合は、書き込み前ではなく通知済みのタグの種類と比べる
+        return listeners.isEmpty() || writeBehind != null ? null : getAllTags();
+    }
+
+    /**
+     * 書き込み前後でタグの種類が増減していれば、{@link MemoEvent.Type#TAGS_CHANGED} を通知します。
+     * ライトビハインドの場合は、通知済みのタグの種類と比べます。
+     *
+     * @param before {@link #tagsBeforeWrite()} の結果。
+     */
+    private void publishTagChanges(Set<String> before) {
+        if (writeBehind != null) {
+            tagLock.lock();
+            try {
+                if (publishedTags != null) {
+                    Set<String> after = getAllTags();
+                    publishTagDiff(publishedTags, after);
+                    publishedTags = after;
+                }
+            } finally {
+                unlockTags();
+            }
+            return;
+        }
+        if (before == null) {
+            return;
+        }
+        publishTagDiff(before, getAllTags());
+    }
+
+    /**
+     * ライトビハインドの書き込みの反映後に、書き込み用のスレッドで呼び出されます。
+     * 反映前の削除・更新で使われなくなったタグは、反映されるまで {@link #getAllTags()} に残るため、ここで通知します。
+     * キャッシュを読み込んでいる場合は、書き込みの時点で正しく求められているため何もしません。
+     */
+    private void publishCommittedTagChanges() {
+        if (cache.isLoaded()) {
+            return;
+        }
+        // 書き込み用のスレッドを待たせないよう、他のスレッドが通知中の場合は印だけ付け、そのスレッドに比べ直させる
+        tagsDirty.set(true);
+        if (tagLock.tryLock()) {
+            unlockTags();
+        }
+    }
+
+    /**
+     * {@link #tagLock} を外します。反映後の比較を任された印（{@link #tagsDirty}）が立っていれば、外す前に比べ直します。
+     * 外した直後に印が付けられた場合は、ロックを取り直して比べます（印を付けたスレッドがロックを取れなかった場合の取りこぼしを防ぐ）。
+     */
+    private void unlockTags() {
+        do {
+            try {
+                while (tagsDirty.getAndSet(false)) {
+                    if (publishedTags != null && !cache.isLoaded()) {
+                        Set<String> after = storedAndPendingTags();
+                        publishTagDiff(publishedTags, after);
+                        publishedTags = after;
+                    }
+                }
+            } finally {
+                tagLock.unlock();
+            }
+        } while (tagsDirty.get() && tagLock.tryLock());
+    }
+
+    /**
+     * 保存先のタグの種類に、反映前の追加・更新のタグを加えて返します。反映を待ちません。
+     */
+    private Set<String> storedAndPendingTags() {
+        if (writeBehind == null) {
+            return new TreeSet<>(repository.findAllTags());
+        }
+        // 先に反映前のタグを取得する（間に反映された書き込みのタグは、保存先から取得できる）
+        Set<String> pending = writeBehind.pendingTags();
+        Set<String> tags = new TreeSet<>(repository.findAllTags());
+        tags.addAll(pending);
+        return tags;
+    }
 
-                    // 選択されたタグに一致するかどうか
-                    boolean matchTag = !isTagFiltered ||
-                            memo.getTags().stream().anyMatch(t -> t.equalsIgnoreCase(selectedTag));
+    private void publishTagDiff(Set<String> before, Set<String> after) {
+        Set<String> added = new TreeSet<>(after);
+        added.removeAll(before);
+        Set<String> removed = new TreeSet<>(before);
+        removed.removeAll(after);
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            publish(MemoEvent.tagsChanged(added, removed));
+        }
+    }
 
-                    return matchKeyword && matchTag;
-                })
-                .collect(Collectors.toList());
+    /**
+     * 登録済みのリスナーへイベントを通知します。
+     * 書き込みはすでに成功しているため、リスナーで発生した例外は書き込み元へ伝えずに出力するだけにします。
+     */
+    private void publish(MemoEvent event) {
+        for (MemoListener listener : listeners) {
+            try {
+                listener.memoChanged(event);
+            } catch (RuntimeException e) {
+                System.err.println("メモの変更通知に失敗しました: " + event + " (" + e.getMessage() + ")");
+            }
+        }
     }
 }
@@ -0,0 +1,214 @@
+package memo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * キーワードに一致したメモに関連度のスコアを付け、スコアの高い上位 K 件だけを求めるクラスです。
+ *
+ * <p>スコアは次の要素から求めます。キーワードは {@link TextNormalizer} で正規化したものを使い、
+ * 一致の判定は {@link MemoManager#filterMemos(String, String)} と同じ（タイトルまたは本文の検索キーに含まれるかどうか）です。</p>
+ * <ul>
+ *   <li>出現回数 … タイトルと本文それぞれの検索キーにキーワードが現れる回数。回数が増えるほど伸びが小さくなるよう飽和させます
+ *       （{@code tf * (k1 + 1) / (tf + k1)}、BM25 と同じ形）</li>
+ *   <li>タイトルと本文の重み … タイトルでの一致を本文での一致より重く数えます（既定は 3 : 1）</li>
+ *   <li>新しさ … 更新日時からの経過時間で半減する係数（既定の半減期は30日）を、出現回数によるスコアに掛け合わせます</li>
+ * </ul>
+ * キーワードが空の場合は、すべての候補が新しさだけで並びます（一覧と同じ、更新日時の新しい順）。
+ * スコアが同じ場合は一覧と同じ並び順（更新日時の降順、IDの降順）です。
+ *
+ * <p>上位 K 件は、候補を1件ずつ受け取りながら大きさ K のヒープ（スコアの最も低いものが先頭）に保持して求めます。
+ * 一致した件数が多くても、保持するのは K 件だけで、処理時間は候補数 × log K です。</p>
+ */
+public final class MemoRanker {
+
+    /** タイトルでの一致の重みの既定値。 */
+    public static final double DEFAULT_TITLE_WEIGHT = 3.0;
+
+    /** 本文での一致の重みの既定値。 */
+    public static final double DEFAULT_BODY_WEIGHT = 1.0;
+
+    /** 新しさの重みの既定値。更新した直後のメモは、出現回数によるスコアが (1 + この値) 倍になります。 */
+    public static final double DEFAULT_RECENCY_WEIGHT = 0.5;
+
+    /** 新しさの係数が半分になるまでの経過時間の既定値（ミリ秒）。 */
+    public static final long DEFAULT_HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    /** 出現回数の飽和の度合い（BM25 の k1）。 */
+    private static final double K1 = 1.2;
+
+    /**
+     * 数える出現回数の上限。飽和により、これ以上数えてもスコアはほとんど変わらないため、長い本文を最後まで探しません。
+     */
+    private static final int MAX_TERM_FREQUENCY = 16;
+
+    /** 結果の並び順（スコアの降順、次に一覧と同じ並び順）。 */
+    private static final Comparator<Scored> BEST_FIRST = Comparator
+            .comparingDouble((Scored scored) -> scored.score).reversed()
+            .thenComparing(scored -> scored.memo, MemoCache.DEFAULT_ORDER);
+
+    private final double titleWeight;
+    private final double bodyWeight;
+    private final double recencyWeight;
+    private final long halfLifeMillis;
+
+    /**
+     * 既定の重み（タイトル {@value #DEFAULT_TITLE_WEIGHT}、本文 {@value #DEFAULT_BODY_WEIGHT}、
+     * 新しさ {@value #DEFAULT_RECENCY_WEIGHT}、半減期30日）を使用します。
+     */
+    public MemoRanker() {
+        this(DEFAULT_TITLE_WEIGHT, DEFAULT_BODY_WEIGHT, DEFAULT_RECENCY_WEIGHT, DEFAULT_HALF_LIFE_MILLIS);
+    }
+
+    /**
+     * @param titleWeight    タイトルでの一致の重み。
+     * @param bodyWeight     本文での一致の重み。
+     * @param recencyWeight  新しさの重み。0の場合は新しさを考慮しません。
+     * @param halfLifeMillis 新しさの係数が半分になるまでの経過時間（ミリ秒）。
+     */
+    public MemoRanker(double titleWeight, double bodyWeight, double recencyWeight, long halfLifeMillis) {
+        if (titleWeight < 0 || bodyWeight < 0 || recencyWeight < 0 || halfLifeMillis <= 0) {
+            throw new IllegalArgumentException("重みは0以上、半減期は1以上を指定してください");
+        }
+        this.titleWeight = titleWeight;
+        this.bodyWeight = bodyWeight;
+        this.recencyWeight = recencyWeight;
+        this.halfLifeMillis = halfLifeMillis;
+    }
+
+    /**
+     * メモのスコアを求めます。
+     *
+     * @param memo              対象のメモ。
+     * @param normalizedKeyword {@link TextNormalizer} で正規化したキーワード。
+     * @param now               新しさの基準となる現在時刻（エポックミリ秒）。
+     * @return スコア。キーワードに一致しない場合は負の値。
+     */
+    public double score(Memo memo, String normalizedKeyword, long now) {
+        long age = Math.max(0, now - memo.getUpdatedEpoch());
+        double recency = recencyWeight * Math.pow(0.5, (double) age / halfLifeMillis);
+        if (normalizedKeyword.isEmpty()) {
+            return recency;
+        }
+        int inTitle = termFrequency(memo.getTitleKey(), normalizedKeyword);
+        int inBody = termFrequency(memo.getBodyKey(), normalizedKeyword);
+        if (inTitle == 0 && inBody == 0) {
+            return -1;
+        }
+        double text = titleWeight * saturate(inTitle) + bodyWeight * saturate(inBody);
+        return text * (1 + recency);
+    }
+
+    /**
+     * 上位 {@code limit} 件を求める集計を開始します。候補を {@link TopK#accept(Memo)} に渡し、{@link TopK#result()} で結果を取得します。
+     *
+     * @param normalizedKeyword {@link TextNormalizer} で正規化したキーワード。
+     * @param limit             求める件数（1以上）。
+     * @param now               新しさの基準となる現在時刻（エポックミリ秒）。
+     * @return 集計。
+     */
+    public TopK topK(String normalizedKeyword, int limit, long now) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("1以上の件数を指定してください: " + limit);
+        }
+        return new TopK(normalizedKeyword, limit, now);
+    }
+
+    /**
+     * キーワードの出現回数を数えます（重ならない出現のみ、{@value #MAX_TERM_FREQUENCY} 回まで）。
+     */
+    private static int termFrequency(String text, String keyword) {
+        int count = 0;
+        int from = text.indexOf(keyword);
+        while (from >= 0 && count < MAX_TERM_FREQUENCY) {
+            count++;
+            from = text.indexOf(keyword, from + keyword.length());
+        }
+        return count;
+    }
+
+    private static double saturate(int termFrequency) {
+        return termFrequency * (K1 + 1) / (termFrequency + K1);
+    }
+
+    /**
+     * スコアの高い上位 K 件の集計です。ヒープの先頭にはスコアの最も低いメモがあり、
+     * それより高いメモを受け取った場合だけ入れ替えます。1つのスレッドから使用してください。
+     */
+    public final class TopK implements Consumer<Memo> {
+        private final String normalizedKeyword;
+        private final int limit;
+        private final long now;
+        private final PriorityQueue<Scored> heap;
+        private long matched;
+
+        private TopK(String normalizedKeyword, int limit, long now) {
+            this.normalizedKeyword = normalizedKeyword;
+            this.limit = limit;
+            this.now = now;
+            // 上限まで使うとは限らないため、初期容量は小さめにしておく
+            this.heap = new PriorityQueue<>(Math.min(limit, 64), BEST_FIRST.reversed());
+        }
+
+        /**
+         * 候補のメモを1件受け取ります。キーワードに一致しない場合は無視します。
+         *
+         * @param memo 候補のメモ。
+         */
+        @Override
+        public void accept(Memo memo) {
+            double score = score(memo, normalizedKeyword, now);
+            if (score < 0) {
+                return;
+            }
+            matched++;
+            if (heap.size() == limit) {
+                // 上位に入らない大半の候補では、オブジェクトを作らずに比較だけで済ませる
+                Scored lowest = heap.peek();
+                if (score < lowest.score
+                        || (score == lowest.score && MemoCache.DEFAULT_ORDER.compare(memo, lowest.memo) >= 0)) {
+                    return;
+                }
+                heap.poll();
+            }
+            heap.add(new Scored(memo, score));
+        }
+
+        /**
+         * @return これまでに受け取った候補のうち、キーワードに一致した件数（上位 K 件に残らなかったものも含む）。
+         */
+        public long matchedCount() {
+            return matched;
+        }
+
+        /**
+         * @return スコアの高い順に並べた上位 K 件（一致した件数が K 件未満の場合はすべて）。
+         */
+        public List<Memo> result() {
+            List<Scored> sorted = new ArrayList<>(heap);
+            sorted.sort(BEST_FIRST);
+            List<Memo> memos = new ArrayList<>(sorted.size());
+            for (Scored scored : sorted) {
+                memos.add(scored.memo);
+            }
+            return memos;
+        }
+    }
+
+    /**
+     * スコアを付けたメモです。
+     */
+    private static final class Scored {
+        final Memo memo;
+        final double score;
+
+        Scored(Memo memo, double score) {
+            this.memo = memo;
+            this.score = score;
+        }
+    }
+}
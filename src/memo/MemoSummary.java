@@ -0,0 +1,162 @@
+package memo;
+
+import java.util.List;
+
+/**
+ * 一覧表示に必要な項目だけを持つ、メモの要約を表すデータクラスです。
+ * ID、タイトル、タグ、作成日時、更新日時を保持し、本文は持ちません。
+ * 本文を含む {@link Memo} はこのクラスを継承しているため、一覧ではどちらも同じように扱えます。
+ *
+ * <p>本文は数キロバイトになることもあるため、一覧表示ではこのクラスだけを読み込み、
+ * 本文は詳細画面や編集画面を開いたときに {@link MemoManager#loadMemo(MemoSummary)} で取得します。</p>
+ */
+public class MemoSummary {
+    /**
+     * データベースで自動採番される一意のID。
+     */
+    int id;
+
+    /**
+     * メモのタイトル。
+     */
+    String title;
+
+    /**
+     * メモに関連付けられたタグ（{@link TagDictionary} のID）。
+     * 配列の中身は変更せず、タグを変更する場合は配列ごと置き換えます。
+     */
+    int[] tagIds;
+
+    /**
+     * メモの作成日時。データベースによって自動的に設定されます。
+     */
+    String createdAt;
+
+    /**
+     * メモの最終更新日時。メモが更新されるたびに更新されます。
+     */
+    String updatedAt;
+
+    /**
+     * メモの作成日時（エポックミリ秒）。
+     */
+    long createdEpoch;
+
+    /**
+     * メモの最終更新日時（エポックミリ秒）。一度も更新されていないメモでは作成日時と同じ値です。
+     * 一覧の並び順に使用します。
+     */
+    long updatedEpoch;
+
+    /**
+     * データベースから取得したデータを使ってMemoSummaryオブジェクトを生成するコンストラクタです。
+     *
+     * @param id        メモのID
+     * @param title     メモのタイトル
+     * @param tags      関連付けられたタグのリスト
+     * @param createdAt    作成日時
+     * @param updatedAt    最終更新日時
+     * @param createdEpoch 作成日時（エポックミリ秒）
+     * @param updatedEpoch 最終更新日時（エポックミリ秒）。未更新の場合は作成日時と同じ値
+     */
+    public MemoSummary(int id, String title, List<String> tags, String createdAt, String updatedAt,
+            long createdEpoch, long updatedEpoch) {
+        this.id = id;
+        this.title = title;
+        this.tagIds = TagDictionary.idsOf(tags);
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.createdEpoch = createdEpoch;
+        this.updatedEpoch = updatedEpoch;
+    }
+
+    /**
+     * このメモに関連付けられたタグのリストを返します。
+     * コピーは作らず、タグの辞書を参照する読み取り専用のビューを返します。
+     *
+     * @return 読み取り専用のタグのリスト。
+     */
+    public List<String> getTags() {
+        return TagDictionary.view(tagIds);
+    }
+
+    /**
+     * 指定したタグ（大文字・小文字を区別しない）を持つかどうかを返します。
+     *
+     * @param tag タグ。
+     * @return 持つ場合はtrue。
+     */
+    boolean hasTagIgnoreCase(String tag) {
+        for (int id : tagIds) {
+            if (TagDictionary.nameOf(id).equalsIgnoreCase(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * メモのタイトルを返します。
+     *
+     * @return メモのタイトル。
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * メモの一意なIDを返します。
+     *
+     * @return メモのID。
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * メモの作成日時を文字列として返します。
+     *
+     * @return 作成日時。取得できない場合は"(未設定)"を返します。
+     */
+    public String getCreatedAt() {
+        return createdAt != null ? createdAt : "(未設定)";
+    }
+
+    /**
+     * メモの最終更新日時を文字列として返します。
+     *
+     * @return 最終更新日時。取得できない場合は"(未設定)"を返します。
+     */
+    public String getUpdatedAt() {
+        return updatedAt != null ? updatedAt : "(未設定)";
+    }
+
+    /**
+     * メモの作成日時をエポックミリ秒で返します。
+     *
+     * @return 作成日時（1970-01-01T00:00:00Z からのミリ秒）。保存前のメモでは0。
+     */
+    public long getCreatedEpoch() {
+        return createdEpoch;
+    }
+
+    /**
+     * メモの最終更新日時をエポックミリ秒で返します。一覧の並び順はこの値の降順です。
+     *
+     * @return 最終更新日時（1970-01-01T00:00:00Z からのミリ秒）。未更新の場合は作成日時と同じ値、保存前のメモでは0。
+     */
+    public long getUpdatedEpoch() {
+        return updatedEpoch;
+    }
+
+    /**
+     * メモの要約を文字列として返します。デバッグやログ出力に利用できます。
+     *
+     * @return メモのタイトル、タグ、作成・更新日時を含む文字列
+     */
+    @Override
+    public String toString() {
+        return "[タイトル] " + title + "\n[タグ] " + String.join(", ", getTags()) +
+                "\n[作成日時] " + getCreatedAt() + "\n[更新日時] " + getUpdatedAt();
+    }
+}
@@ -0,0 +1,159 @@
+package memo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Predicate;
+
+/**
+ * メモの一覧を分割し、ForkJoinPool 上で並列に絞り込むクラスです。
+ * 一覧を一定の件数ごとの区間に分け、各区間の一致したメモを区間の順に連結するため、
+ * 結果の並び順は入力と同じ（キャッシュの並び順である更新日時の降順）に保たれます。
+ *
+ * <p>件数が閾値未満の場合や、プールの並列度が1の場合は、タスクの分割にかかる時間の方が大きいため
+ * 呼び出し元のスレッドで順に絞り込みます。閾値は {@code -Dhashmemo.parallelFilterThreshold} で変更でき、
+ * 並列度は共通プールの設定（{@code -Djava.util.concurrent.ForkJoinPool.common.parallelism}）に従います。</p>
+ */
+public final class ParallelMemoFilter {
+
+    /** 閾値を指定するシステムプロパティ名。 */
+    public static final String THRESHOLD_PROPERTY = "hashmemo.parallelFilterThreshold";
+
+    /** 並列に絞り込む最小の件数の既定値。 */
+    public static final int DEFAULT_THRESHOLD = 20_000;
+
+    /** 1つのタスクが受け持つ最小の件数。これより細かく分けても速くならない。 */
+    private static final int MIN_CHUNK_SIZE = 2_048;
+
+    /** 並列度あたりの区間の数。処理時間のばらつきをならすため、並列度より多めに分ける。 */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+
+    /**
+     * 共通プールと、システムプロパティで指定された閾値（既定 {@value #DEFAULT_THRESHOLD} 件）を使用します。
+     */
+    public ParallelMemoFilter() {
+        this(ForkJoinPool.commonPool(), Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD));
+    }
+
+    /**
+     * @param pool      絞り込みを実行するプール。
+     * @param threshold 並列に絞り込む最小の件数。これ未満の場合は呼び出し元のスレッドで絞り込みます。
+     */
+    public ParallelMemoFilter(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("1以上の閾値を指定してください: " + threshold);
+        }
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /**
+     * @return 絞り込みを実行するプールの並列度。
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return 並列に絞り込む最小の件数。
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * {@link MemoManager#filterMemos(String, String)} と同じ条件でメモを絞り込みます。
+     *
+     * @param memos       絞り込むメモ（並び順は結果に保たれます）。
+     * @param keyword     検索キーワード。空の場合はキーワードでの絞り込みは行いません。
+     * @param selectedTag 選択されたタグ。「すべて表示」またはnullの場合はタグでの絞り込みは行いません。
+     * @return 一致したメモのリスト。
+     */
+    public List<Memo> filter(List<Memo> memos, String keyword, String selectedTag) {
+        String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+        return filter(memos, memo -> MemoManager.matches(memo, normalizedKeyword, selectedTag));
+    }
+
+    /**
+     * 条件に一致するメモを、入力の並び順のまま返します。
+     *
+     * @param memos     絞り込むメモ。
+     * @param predicate 条件。複数のスレッドから同時に呼び出されます。
+     * @return 一致したメモのリスト。
+     */
+    List<Memo> filter(List<Memo> memos, Predicate<? super Memo> predicate) {
+        int size = memos.size();
+        if (size < threshold || pool.getParallelism() <= 1) {
+            return filterRange(memos, 0, size, predicate);
+        }
+        List<Memo> source = memos instanceof RandomAccess ? memos : new ArrayList<>(memos);
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+        int chunkCount = (size + chunkSize - 1) / chunkSize;
+        // 各区間の結果を区間の位置に格納する（異なる位置への set は互いに干渉しない）
+        List<List<Memo>> chunks = new ArrayList<>(Collections.nCopies(chunkCount, null));
+        pool.invoke(new ChunkTask(source, predicate, chunkSize, chunks, 0, chunkCount));
+
+        // 区間の順に連結するため、並び順は入力と同じになる
+        int total = 0;
+        for (List<Memo> chunk : chunks) {
+            total += chunk.size();
+        }
+        List<Memo> result = new ArrayList<>(total);
+        for (List<Memo> chunk : chunks) {
+            result.addAll(chunk);
+        }
+        return result;
+    }
+
+    private static List<Memo> filterRange(List<Memo> memos, int from, int to, Predicate<? super Memo> predicate) {
+        List<Memo> result = new ArrayList<>();
+        for (Memo memo : memos.subList(from, to)) {
+            if (predicate.test(memo)) {
+                result.add(memo);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 区間 [{@code first}, {@code last}) を半分ずつに分け、1区間になったら絞り込んで、結果のリストの区間の位置に格納するタスクです。
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Memo> memos;
+        private final Predicate<? super Memo> predicate;
+        private final int chunkSize;
+        private final List<List<Memo>> chunks;
+        private final int first;
+        private final int last;
+
+        ChunkTask(List<Memo> memos, Predicate<? super Memo> predicate, int chunkSize, List<List<Memo>> chunks,
+                int first, int last) {
+            this.memos = memos;
+            this.predicate = predicate;
+            this.chunkSize = chunkSize;
+            this.chunks = chunks;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (last - first == 1) {
+                int from = first * chunkSize;
+                chunks.set(first, filterRange(memos, from, Math.min(from + chunkSize, memos.size()), predicate));
+                return;
+            }
+            int middle = (first + last) >>> 1;
+            invokeAll(new ChunkTask(memos, predicate, chunkSize, chunks, first, middle),
+                    new ChunkTask(memos, predicate, chunkSize, chunks, middle, last));
+        }
+    }
+}
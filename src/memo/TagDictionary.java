@@ -0,0 +1,169 @@
+package memo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * タグ名を整数IDに対応付ける、アプリケーション全体で共有の辞書です。
+ * 各メモはタグを文字列のリストではなく、この辞書のIDの配列（{@code int[]}）として保持します。
+ * 同じタグの文字列は辞書に1つだけ保持されるため、10万件のメモが同じタグを持っていても
+ * タグ名の文字列やリストがメモごとに作られることはありません。
+ *
+ * <p>IDは登録順に0から採番し、一度登録したタグは削除しません（タグの種類はメモの件数に比べて十分少ないため）。
+ * 登録はロックで直列化し、参照はロックを取らずに行えます。</p>
+ */
+public final class TagDictionary {
+
+    /** タグを持たないメモで共有する空の配列。 */
+    static final int[] NO_TAGS = new int[0];
+
+    private static final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    /**
+     * ID → タグ名。要素の書き込み後に volatile フィールドへ代入し直すことで、参照側に公開します。
+     */
+    private static volatile String[] names = new String[64];
+
+    /** 登録済みのタグの数。{@code TagDictionary.class} のロック内でのみ更新します。 */
+    private static int size;
+
+    private TagDictionary() {
+    }
+
+    /**
+     * カンマ区切りのタグ文字列（データベースの {@code tags} 列の形式）を解析します。
+     * 前後の空白を取り除き、空のタグは無視します。
+     *
+     * @param tagsStr カンマ区切りのタグ文字列。
+     * @return 辞書のIDで保持する読み取り専用のタグのリスト。nullまたは空の場合は空のリスト。
+     */
+    public static List<String> parse(String tagsStr) {
+        if (tagsStr == null || tagsStr.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int[] tagIds = new int[4];
+        int count = 0;
+        int start = 0;
+        while (start <= tagsStr.length()) {
+            int end = tagsStr.indexOf(',', start);
+            if (end < 0) {
+                end = tagsStr.length();
+            }
+            String tag = tagsStr.substring(start, end).trim();
+            if (!tag.isEmpty()) {
+                if (count == tagIds.length) {
+                    tagIds = Arrays.copyOf(tagIds, count * 2);
+                }
+                tagIds[count++] = idOf(tag);
+            }
+            start = end + 1;
+        }
+        return view(count == 0 ? NO_TAGS : count == tagIds.length ? tagIds : Arrays.copyOf(tagIds, count));
+    }
+
+    /**
+     * 登録されているタグの種類数を返します。削除されたメモのタグも含みます。
+     *
+     * @return 辞書の大きさ。
+     */
+    public static int size() {
+        synchronized (TagDictionary.class) {
+            return size;
+        }
+    }
+
+    /**
+     * タグのリストをIDの配列に変換します。順序と重複はそのまま保持します。
+     * {@link #parse(String)} や {@link MemoSummary#getTags()} が返したリストの場合は、その配列をそのまま共有します。
+     *
+     * @param tags タグのリスト。
+     * @return IDの配列（変更しないでください）。
+     */
+    static int[] idsOf(Collection<String> tags) {
+        if (tags instanceof TagList) {
+            return ((TagList) tags).tagIds;
+        }
+        if (tags.isEmpty()) {
+            return NO_TAGS;
+        }
+        int[] tagIds = new int[tags.size()];
+        int i = 0;
+        for (String tag : tags) {
+            tagIds[i++] = idOf(tag);
+        }
+        return tagIds;
+    }
+
+    /**
+     * IDの配列を、タグ名の読み取り専用のリストとして参照します。配列はコピーしません。
+     *
+     * @param tagIds IDの配列。
+     * @return 読み取り専用のタグのリスト。
+     */
+    static List<String> view(int[] tagIds) {
+        return new TagList(tagIds);
+    }
+
+    /**
+     * IDに対応するタグ名を返します。
+     *
+     * @param id {@link #idOf(String)} で得たID。
+     * @return タグ名。
+     */
+    static String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * タグ名に対応するIDを返します。未登録の場合は登録します。
+     *
+     * @param tag タグ名。
+     * @return タグのID。
+     */
+    static int idOf(String tag) {
+        Integer id = ids.get(tag);
+        if (id != null) {
+            return id;
+        }
+        synchronized (TagDictionary.class) {
+            id = ids.get(tag);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = tag;
+            names = current; // ID を公開する前に名前を書き込んでおく
+            ids.put(tag, size);
+            return size++;
+        }
+    }
+
+    /**
+     * IDの配列をタグ名のリストとして見せる読み取り専用のビューです。
+     */
+    private static final class TagList extends AbstractList<String> implements RandomAccess {
+        private final int[] tagIds;
+
+        TagList(int[] tagIds) {
+            this.tagIds = tagIds;
+        }
+
+        @Override
+        public String get(int index) {
+            return nameOf(tagIds[index]);
+        }
+
+        @Override
+        public int size() {
+            return tagIds.length;
+        }
+    }
+}
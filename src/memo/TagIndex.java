@@ -0,0 +1,154 @@
+package memo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * タグからメモIDの集合を引くための転置インデックスです。
+ * メモの追加・更新・削除のたびに差分だけを反映するため、タグ一覧やタグごとの件数を
+ * 全メモを走査せずに返すことができます。
+ *
+ * <p>このクラスはスレッドセーフではありません。{@link MemoCache} のロック内から操作してください。</p>
+ */
+class TagIndex {
+
+    /** タグ（大文字・小文字を区別）→ そのタグを持つメモIDの集合。 */
+    private final TreeMap<String, Set<Integer>> idsByTag = new TreeMap<>();
+
+    /** タグ（大文字・小文字を区別しない）→ そのタグを持つメモIDの集合。絞り込み検索で使用します。 */
+    private final TreeMap<String, Set<Integer>> idsByFoldedTag = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * メモID → 登録済みのタグ（{@link TagDictionary} のID、重複と空のタグを除いたもの）。
+     * 呼び出し元がメモのインスタンスを直接書き換えても、削除すべき古いタグが分かるように保持します。
+     */
+    private final Map<Integer, int[]> tagsById = new HashMap<>();
+
+    /**
+     * メモのタグを登録します。同じIDのメモが登録済みの場合は置き換えます。
+     *
+     * @param memo 登録するメモ。
+     */
+    void add(Memo memo) {
+        remove(memo.getId());
+        int[] tagIds = distinctTagIds(memo.tagIds);
+        if (tagIds.length == 0) {
+            return;
+        }
+        tagsById.put(memo.getId(), tagIds);
+        for (int tagId : tagIds) {
+            String tag = TagDictionary.nameOf(tagId);
+            idsByTag.computeIfAbsent(tag, t -> new HashSet<>()).add(memo.getId());
+            idsByFoldedTag.computeIfAbsent(tag, t -> new HashSet<>()).add(memo.getId());
+        }
+    }
+
+    /**
+     * メモのタグをインデックスから取り除きます。
+     *
+     * @param id 取り除くメモのID。
+     */
+    void remove(int id) {
+        int[] tagIds = tagsById.remove(id);
+        if (tagIds == null) {
+            return;
+        }
+        for (int tagId : tagIds) {
+            String tag = TagDictionary.nameOf(tagId);
+            removeId(idsByTag, tag, id);
+            removeId(idsByFoldedTag, tag, id);
+        }
+    }
+
+    /**
+     * インデックスを空にします。
+     */
+    void clear() {
+        idsByTag.clear();
+        idsByFoldedTag.clear();
+        tagsById.clear();
+    }
+
+    /**
+     * 登録されているユニークなタグを昇順で返します。
+     *
+     * @return 読み取り専用のタグ集合。
+     */
+    NavigableSet<String> tags() {
+        return Collections.unmodifiableNavigableSet(idsByTag.navigableKeySet());
+    }
+
+    /**
+     * タグごとのメモ件数を、タグの昇順で返します。
+     *
+     * @return タグ → 件数のマップ。
+     */
+    Map<String, Integer> counts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        idsByTag.forEach((tag, ids) -> counts.put(tag, ids.size()));
+        return counts;
+    }
+
+    /**
+     * 指定したタグ（大文字・小文字を区別する）を持つメモIDを返します。
+     *
+     * @param tag タグ。
+     * @return 読み取り専用のメモID集合。該当がなければ空集合。
+     */
+    Set<Integer> idsWithTag(String tag) {
+        return Collections.unmodifiableSet(idsByTag.getOrDefault(tag, Collections.emptySet()));
+    }
+
+    /**
+     * 指定したタグ（大文字・小文字を区別しない）を持つメモIDを返します。
+     *
+     * @param tag タグ。
+     * @return 読み取り専用のメモID集合。該当がなければ空集合。
+     */
+    Set<Integer> idsWithTagIgnoreCase(String tag) {
+        return Collections.unmodifiableSet(idsByFoldedTag.getOrDefault(tag, Collections.emptySet()));
+    }
+
+    /**
+     * 重複と空のタグを除いたIDの配列を返します。該当するものがなければ、受け取った配列をそのまま返します。
+     * メモのタグは数個程度のため、集合を使わずに線形に比較します。
+     */
+    private static int[] distinctTagIds(int[] tagIds) {
+        int[] result = tagIds;
+        int count = 0;
+        for (int i = 0; i < tagIds.length; i++) {
+            int tagId = tagIds[i];
+            boolean keep = !TagDictionary.nameOf(tagId).isEmpty();
+            for (int j = 0; j < count && keep; j++) {
+                keep = result[j] != tagId;
+            }
+            if (keep) {
+                if (result != tagIds) {
+                    result[count] = tagId;
+                }
+                count++;
+            } else if (result == tagIds) {
+                result = Arrays.copyOf(tagIds, tagIds.length);
+            }
+        }
+        return count == tagIds.length ? tagIds : Arrays.copyOf(result, count);
+    }
+
+    private static void removeId(Map<String, Set<Integer>> index, String tag, int id) {
+        Set<Integer> ids = index.get(tag);
+        if (ids == null) {
+            return;
+        }
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            index.remove(tag);
+        }
+    }
+}
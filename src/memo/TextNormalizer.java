@@ -0,0 +1,59 @@
+package memo;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * 検索用に文字列を正規化するユーティリティクラスです。
+ * 次の順に変換し、表記の揺れがあっても同じ文字列になるようにします。
+ *
+ * <ol>
+ *   <li>NFKC 正規化（全角英数字・半角カタカナなどを標準的な形にそろえる）</li>
+ *   <li>大文字・小文字の統一（ロケールに依存しない小文字化）</li>
+ *   <li>カタカナをひらがなに変換</li>
+ * </ol>
+ *
+ * <p>メモのタイトルと本文の検索キーは書き込み時にこのクラスで求めて保存し、
+ * 検索時はキーワードだけを正規化して比較します。</p>
+ */
+public final class TextNormalizer {
+
+    /** ひらがなに対応するカタカナの範囲（ァ〜ヶ）。 */
+    private static final char KATAKANA_FIRST = 'ァ';
+    private static final char KATAKANA_LAST = 'ヶ';
+    /** カタカナの繰り返し記号（ヽ・ヾ）。 */
+    private static final char KATAKANA_ITERATION_FIRST = 'ヽ';
+    private static final char KATAKANA_ITERATION_LAST = 'ヾ';
+    /** カタカナとひらがなのコードポイントの差。 */
+    private static final int KANA_OFFSET = 0x60;
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * 文字列を検索用に正規化します。
+     * 変換の必要がない場合は、新しい文字列を作らずに引数をそのまま返します。
+     *
+     * @param text 正規化する文字列。
+     * @return 正規化した文字列。引数がnullの場合は空文字列。
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        char[] chars = null;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if ((c >= KATAKANA_FIRST && c <= KATAKANA_LAST)
+                    || (c >= KATAKANA_ITERATION_FIRST && c <= KATAKANA_ITERATION_LAST)) {
+                if (chars == null) {
+                    chars = folded.toCharArray();
+                }
+                chars[i] = (char) (c - KANA_OFFSET);
+            }
+        }
+        String normalized = chars != null ? new String(chars) : folded;
+        return normalized.equals(text) ? text : normalized;
+    }
+}
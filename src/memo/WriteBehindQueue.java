@@ -0,0 +1,586 @@
+package memo;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import metrics.Metrics;
+import storage.DataAccessException;
+import storage.MemoStore;
+
+/**
+ * メモの書き込みを溜めておき、専用のスレッドでまとめて保存先へ反映する（ライトビハインド）キューです。
+ * {@link MemoManager} に渡すと、追加・更新・削除はキャッシュへすぐに反映され、保存先へのコミットを待たずに戻ります。
+ *
+ * <p>書き込み用のスレッドは、キューの先頭の書き込みから最大 {@code maxDelayMillis} ミリ秒待つか、
+ * {@code maxBatch} 件たまった時点で、それまでの書き込みを {@link MemoStore#applyAll(java.util.Collection, java.util.Collection)}
+ * の1回（SQLite では1トランザクション）で反映します（グループコミット）。同じメモへの複数の書き込みは最後のものだけを反映します。</p>
+ *
+ * <p>新しいメモのIDは {@link MemoStore#reserveIds(int)} で {@value #ID_BLOCK_SIZE} 個ずつ予約しておき、呼び出し元のスレッドで割り当てます。
+ * 作成日時・更新日時も呼び出し時に決め、保存先にはその値のまま書き込むため、キャッシュと保存先の内容は一致します。</p>
+ *
+ * <p>キューが上限（{@code capacity} 件）に達すると、空きができるまで呼び出し元を待たせます（バックプレッシャー）。
+ * 終了時は {@link #flush()} または {@link #close()} で、溜まっている書き込みをすべて反映してください。</p>
+ *
+ * <p>書き込みの反映に失敗した場合は、{@link #onFailure(Consumer)} で登録した処理へ通知します（{@link MemoManager} はキャッシュを無効化します）。
+ * {@link Durability#ASYNC} では、失敗は次の {@link #flush()} の例外としても伝えます。</p>
+ */
+public class WriteBehindQueue implements AutoCloseable {
+
+    /** ライトビハインドを有効にするシステムプロパティ名（{@code true} で有効）。 */
+    public static final String ENABLED_PROPERTY = "hashmemo.writeBehind";
+
+    /** 書き込みの待ち方を指定するシステムプロパティ名（{@code async} / {@code commit}）。 */
+    public static final String DURABILITY_PROPERTY = "hashmemo.writeBehind.durability";
+
+    /** キューの上限を指定するシステムプロパティ名。 */
+    public static final String CAPACITY_PROPERTY = "hashmemo.writeBehind.capacity";
+
+    /** 1回にまとめる最大件数を指定するシステムプロパティ名。 */
+    public static final String MAX_BATCH_PROPERTY = "hashmemo.writeBehind.maxBatch";
+
+    /** まとめるために待つ最大時間（ミリ秒）を指定するシステムプロパティ名。 */
+    public static final String MAX_DELAY_PROPERTY = "hashmemo.writeBehind.maxDelayMillis";
+
+    /** キューの上限の既定値。 */
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /** まとめるために待つ最大時間の既定値（ミリ秒）。 */
+    public static final int DEFAULT_MAX_DELAY_MILLIS = 20;
+
+    /** 一度に予約するIDの個数。予約のたびに保存先へ書き込むため、まとめて予約します。 */
+    static final int ID_BLOCK_SIZE = 256;
+
+    /**
+     * 書き込みを呼び出したスレッドが、保存先へのコミットを待つかどうかです。
+     */
+    public enum Durability {
+        /**
+         * コミットを待たずに戻ります。異常終了した場合、反映前の書き込み（最大でおよそ {@code maxDelayMillis} ミリ秒分と
+         * コミット中の1回分）は失われます。
+         */
+        ASYNC,
+
+        /**
+         * 自分の書き込みを含むグループのコミットまで待ちます。複数のスレッドの書き込みは1回のコミットにまとまります。
+         * 待っている呼び出し元がいるため、{@code maxDelayMillis} は待たずにその時点でたまっている分をコミットします。
+         */
+        COMMIT
+    }
+
+    /** {@link #flush()} が書き込み用のスレッドを起こすための目印。 */
+    private static final Op FLUSH = new Op(null, 0, 0, null);
+
+    /** {@link #close()} が書き込み用のスレッドを止めるための目印。 */
+    private static final Op STOP = new Op(null, 0, 0, null);
+
+    private final MemoStore store;
+    private final BlockingQueue<Op> queue;
+    /** キューに入れられる書き込みの残り件数（{@code capacity} 件まで）。目印はこの件数に含めません。 */
+    private final Semaphore space;
+    private final int maxBatch;
+    private final long maxDelayNanos;
+    private final Durability durability;
+    private final Thread writer;
+
+    /**
+     * キューへ入れ終えた書き込みの通し番号の最大値。{@link #enqueueLock} を保持して更新し、読み取りはロックなしで行います。
+     * 通し番号の割り当てとキューへの追加は同じロックの中で行うため、キューの中の書き込みは通し番号の順に並びます。
+     */
+    private volatile long enqueued;
+
+    /** 反映し終えた（失敗も含む）書き込みの通し番号の最大値。{@link #committedLock} で待ち合わせます。 */
+    private volatile long committed;
+
+    private final Object enqueueLock = new Object();
+    private final Object committedLock = new Object();
+
+    /**
+     * 反映前の書き込みがあるメモの、最後の書き込み（メモのID → 書き込み）。
+     * キャッシュを読み込まずに1件だけ参照する場合（{@link #findById(int)}）に、保存先より新しい内容として使います。
+     * 反映し終えた書き込みは、それより後の書き込みに置き換えられていなければ取り除きます。
+     */
+    private final Map<Integer, Op> latest = new ConcurrentHashMap<>();
+
+    /** {@link #flush()} で伝えていない、最初の反映の失敗。 */
+    private final AtomicReference<DataAccessException> failure = new AtomicReference<>();
+
+    private volatile Consumer<DataAccessException> failureHandler = e -> { };
+
+    private volatile Runnable commitHandler = () -> { };
+
+    /** 予約済みで未使用のIDの範囲（{@code nextId} 以上 {@code idLimit} 未満）。 */
+    private int nextId;
+    private int idLimit;
+
+    private boolean closed;
+
+    /**
+     * システムプロパティ {@value #ENABLED_PROPERTY} が {@code true} の場合に、他のプロパティで設定したキューを生成します。
+     *
+     * @param store 書き込みを反映する保存先。
+     * @return 生成したキュー。ライトビハインドが無効な場合はnull。
+     * @throws IllegalArgumentException 不明な {@value #DURABILITY_PROPERTY} が指定された場合。
+     */
+    public static WriteBehindQueue fromSystemProperties(MemoStore store) {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return null;
+        }
+        String durability = System.getProperty(DURABILITY_PROPERTY, "async");
+        Durability mode;
+        switch (durability) {
+            case "async":
+                mode = Durability.ASYNC;
+                break;
+            case "commit":
+                mode = Durability.COMMIT;
+                break;
+            default:
+                throw new IllegalArgumentException("不明な書き込みの待ち方です（async / commit）: " + durability);
+        }
+        return new WriteBehindQueue(store, Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY),
+                Integer.getInteger(MAX_BATCH_PROPERTY, MemoStore.DEFAULT_BATCH_SIZE),
+                Integer.getInteger(MAX_DELAY_PROPERTY, DEFAULT_MAX_DELAY_MILLIS), mode);
+    }
+
+    /**
+     * キューを生成し、書き込み用のスレッドを開始します。
+     *
+     * @param store          書き込みを反映する保存先。
+     * @param capacity       溜めておける書き込みの上限。超えると呼び出し元を待たせます。
+     * @param maxBatch       1回のコミットにまとめる最大件数。
+     * @param maxDelayMillis 先頭の書き込みから、後続の書き込みを待つ最大時間（ミリ秒）。0の場合は待ちません。
+     * @param durability     呼び出し元がコミットを待つかどうか。
+     */
+    public WriteBehindQueue(MemoStore store, int capacity, int maxBatch, long maxDelayMillis, Durability durability) {
+        if (capacity < 1 || maxBatch < 1 || maxDelayMillis < 0) {
+            throw new IllegalArgumentException("キューの上限・最大件数は1以上、待ち時間は0以上を指定してください: capacity="
+                    + capacity + ", maxBatch=" + maxBatch + ", maxDelayMillis=" + maxDelayMillis);
+        }
+        this.store = store;
+        // 上限は space で数えるため、キュー自体は目印を入れても待たないよう上限なしにする
+        this.queue = new LinkedBlockingQueue<>();
+        this.space = new Semaphore(capacity);
+        this.maxBatch = maxBatch;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.durability = durability;
+        this.writer = new Thread(this::runWriter, "hashmemo-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return 呼び出し元がコミットを待つかどうか。
+     */
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * @return まだ反映していない書き込みの件数。
+     */
+    public long pendingCount() {
+        // 書き込み中のスレッドがキューの空きを待っていても、ロックなしで読み取れる
+        long last = enqueued;
+        return last - committed;
+    }
+
+    /**
+     * 書き込みの反映に失敗したときに呼び出す処理を登録します。処理は書き込み用のスレッドで呼び出されます。
+     *
+     * @param handler 失敗した例外を受け取る処理。
+     */
+    void onFailure(Consumer<DataAccessException> handler) {
+        this.failureHandler = handler;
+    }
+
+    /**
+     * 書き込みの反映に成功したときに呼び出す処理を登録します。処理は書き込み用のスレッドで呼び出されます。
+     * 処理の中で {@link #flush()} を呼び出さないでください（書き込み用のスレッドが自身を待ち続けます）。
+     *
+     * @param handler 反映のたびに呼び出す処理。
+     */
+    void onCommit(Runnable handler) {
+        this.commitHandler = handler;
+    }
+
+    /**
+     * 反映前の追加・更新に含まれるタグを返します。保存先のタグ一覧と合わせて、反映を待たずにタグの種類を求めるために使います。
+     *
+     * @return タグの集合。
+     */
+    Set<String> pendingTags() {
+        Set<String> tags = new LinkedHashSet<>();
+        for (Op op : latest.values()) {
+            if (op.put != null) {
+                tags.addAll(op.put.getTags());
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * 新しいメモにIDと作成日時を割り当て、保存を溜めます。
+     *
+     * @param memo 保存する新しいメモ。
+     * @return 保存される内容のメモ（キャッシュに反映する新しいインスタンス）。
+     */
+    Memo save(Memo memo) {
+        long now = System.currentTimeMillis();
+        Memo stored = stored(nextId(), memo, Memo.formatLocal(now), null, now, now);
+        enqueue(copyOf(stored), 0);
+        return stored;
+    }
+
+    /**
+     * 既存のメモの更新を溜めます。更新日時は現在時刻になります。
+     *
+     * @param memo    更新情報を含むメモ。
+     * @param current キャッシュにある更新前のメモ。作成日時を引き継ぎます。
+     * @return 更新後の内容のメモ（キャッシュに反映する新しいインスタンス）。
+     */
+    Memo update(Memo memo, Memo current) {
+        long now = System.currentTimeMillis();
+        Memo stored = stored(current.getId(), memo, current.getCreatedAt(), Memo.formatLocal(now),
+                current.getCreatedEpoch(), now);
+        enqueue(copyOf(stored), 0);
+        return stored;
+    }
+
+    /**
+     * メモの削除を溜めます。
+     *
+     * @param id 削除するメモのID。
+     */
+    void delete(int id) {
+        enqueue(null, id);
+    }
+
+    /**
+     * 反映前の書き込みを含めた、現在の内容のメモを1件取得します。
+     * 反映前の書き込みがあればその内容を、なければ保存先の内容を返すため、{@link #flush()} で待つ必要はありません。
+     *
+     * @param id メモのID。
+     * @return 現在の内容のメモ（新しいインスタンス）。存在しない場合、または削除を溜めている場合はnull。
+     */
+    Memo findById(int id) {
+        Op op = latest.get(id);
+        if (op == null) {
+            // 取得の間に反映された場合も、反映後に取り除くため保存先には書き込まれている
+            return store.findById(id);
+        }
+        return op.put != null ? copyOf(op.put) : null;
+    }
+
+    /**
+     * 反映前の書き込みを含めた、現在の内容のメモの本文を取得します。
+     *
+     * @param id メモのID。
+     * @return 本文。存在しない場合、または削除を溜めている場合はnull。
+     */
+    String findBody(int id) {
+        Op op = latest.get(id);
+        if (op == null) {
+            return store.findBody(id);
+        }
+        return op.put != null ? op.put.getBody() : null;
+    }
+
+    /**
+     * 呼び出し時点までに溜めた書き込みを、すべて保存先へ反映し終えるまで待ちます。
+     * 溜まっている書き込みがない場合はすぐに戻ります。
+     *
+     * @throws DataAccessException 前回の呼び出し以降に、書き込みの反映に失敗していた場合。
+     */
+    public void flush() {
+        long target = enqueued;
+        try (Metrics.Timer timer = Metrics.begin("writeBehind.flush")) {
+            if (!isCommitted(target)) {
+                // 書き込み用のスレッドが後続の書き込みを待っている場合は、待たずにコミットさせる
+                put(FLUSH);
+                synchronized (committedLock) {
+                    while (committed < target) {
+                        committedLock.wait();
+                    }
+                }
+            }
+            timer.success();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("書き込みの反映を待っている間に割り込まれました", e);
+        }
+        DataAccessException e = failure.getAndSet(null);
+        if (e != null) {
+            throw new DataAccessException("溜めていた書き込みの反映に失敗しました", e);
+        }
+    }
+
+    /**
+     * 溜まっている書き込みをすべて反映してから、書き込み用のスレッドを止めます。
+     * 保存先は閉じません。閉じた後の書き込みは {@link IllegalStateException} になります。
+     *
+     * @throws DataAccessException 書き込みの反映に失敗していた場合。
+     */
+    @Override
+    public void close() {
+        synchronized (enqueueLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            flush();
+        } finally {
+            try {
+                put(STOP);
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 書き込みに通し番号を付けてキューへ入れます。{@link Durability#COMMIT} の場合はコミットまで待ちます。
+     *
+     * @param put      書き込むメモ。削除の場合はnull。
+     * @param deleteId 削除するメモのID（{@code put} がnullの場合）。
+     */
+    private void enqueue(Memo put, int deleteId) {
+        CompletableFuture<Void> done = durability == Durability.COMMIT ? new CompletableFuture<>() : null;
+        try (Metrics.Timer timer = Metrics.begin("writeBehind.enqueue")) {
+            // キューが満杯の場合はここで待つ（待ち時間も計測に含まれる）。ロックの外で待つため、
+            // pendingCount() や flush() は待たされない
+            space.acquire();
+            synchronized (enqueueLock) {
+                if (closed) {
+                    space.release();
+                    throw new IllegalStateException("ライトビハインドのキューは閉じられています");
+                }
+                Op op = new Op(put, deleteId, enqueued + 1, done);
+                // 書き込み用のスレッドが反映後に取り除けるよう、キューへ入れる前に登録する。
+                // 空きは確保済みで、キューには上限がないため、ここでは待たない
+                latest.put(op.id(), op);
+                queue.add(op);
+                enqueued = op.sequence;
+            }
+            timer.success(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("書き込みを溜める間に割り込まれました", e);
+        }
+        if (done != null) {
+            awaitCommit(done);
+        }
+    }
+
+    private void put(Op op) throws InterruptedException {
+        queue.put(op);
+    }
+
+    private static void awaitCommit(CompletableFuture<Void> done) {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("コミットを待っている間に割り込まれました", e);
+        } catch (ExecutionException e) {
+            throw (DataAccessException) e.getCause();
+        }
+    }
+
+    private boolean isCommitted(long sequence) {
+        return committed >= sequence;
+    }
+
+    /**
+     * 予約済みのIDを1つ割り当てます。使い切った場合は保存先で次の {@value #ID_BLOCK_SIZE} 個を予約します。
+     */
+    private synchronized int nextId() {
+        if (nextId == idLimit) {
+            nextId = store.reserveIds(ID_BLOCK_SIZE);
+            idLimit = nextId + ID_BLOCK_SIZE;
+        }
+        return nextId++;
+    }
+
+    /**
+     * 書き込み用のスレッドの処理です。書き込みをグループにまとめて反映することを、停止の目印を受け取るまで繰り返します。
+     */
+    private void runWriter() {
+        List<Op> group = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+                collect(group);
+            } catch (InterruptedException e) {
+                // 割り込まれても、受け取った分を反映してから続ける（止めるのは停止の目印だけ）
+            }
+            stopping = group.contains(STOP);
+            commit(group);
+            group.clear();
+        }
+    }
+
+    /**
+     * 先頭の書き込みに続けて、最大件数に達するか待ち時間が過ぎるまで書き込みを受け取ります。
+     * {@link Durability#COMMIT} の場合と、目印（{@link #FLUSH} / {@link #STOP}）を受け取った場合は待ちません。
+     */
+    private void collect(List<Op> group) throws InterruptedException {
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (group.size() < maxBatch) {
+            queue.drainTo(group, maxBatch - group.size());
+            if (group.size() >= maxBatch || durability == Durability.COMMIT || group.contains(FLUSH)
+                    || group.contains(STOP)) {
+                return;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            Op next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    /**
+     * グループの書き込みを、メモごとに最後の書き込みだけにまとめてから1回で反映します。
+     */
+    private void commit(List<Op> group) {
+        Map<Integer, Memo> puts = new LinkedHashMap<>();
+        Set<Integer> deletes = new LinkedHashSet<>();
+        long last = 0;
+        int count = 0;
+        for (Op op : group) {
+            if (op.sequence == 0) {
+                continue;
+            }
+            if (op.put != null) {
+                if (!deletes.contains(op.put.getId())) {
+                    puts.put(op.put.getId(), op.put);
+                }
+            } else {
+                puts.remove(op.deleteId);
+                deletes.add(op.deleteId);
+            }
+            last = op.sequence;
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        // キューから取り出した分の空きを、書き込みを待っている呼び出し元へ返す
+        space.release(count);
+
+        DataAccessException error = null;
+        try (Metrics.Timer timer = Metrics.begin("writeBehind.commit")) {
+            store.applyAll(puts.values(), deletes);
+            timer.success(count);
+        } catch (DataAccessException e) {
+            error = e;
+        } catch (RuntimeException e) {
+            error = new DataAccessException("書き込みの反映に失敗しました", e);
+        }
+        if (error != null) {
+            failure.compareAndSet(null, error);
+        }
+
+        // 失敗した場合も取り除く（キャッシュと同じく、保存先の内容を読み込み直す）
+        for (Op op : group) {
+            if (op.sequence != 0) {
+                latest.remove(op.id(), op);
+            }
+        }
+        synchronized (committedLock) {
+            committed = last;
+            committedLock.notifyAll();
+        }
+        for (Op op : group) {
+            if (op.done != null) {
+                if (error != null) {
+                    op.done.completeExceptionally(error);
+                } else {
+                    op.done.complete(null);
+                }
+            }
+        }
+        // 待っているスレッドを先に進めてから通知する。キャッシュの読み込み中に flush() を待っているスレッドは
+        // キャッシュのロックを保持しているため、先に通知するとキャッシュの無効化と互いに待ち続けてしまう
+        if (error != null) {
+            try {
+                failureHandler.accept(error);
+            } catch (RuntimeException e) {
+                System.err.println("書き込みの失敗の通知に失敗しました: " + e.getMessage());
+            }
+        } else {
+            try {
+                commitHandler.run();
+            } catch (RuntimeException e) {
+                System.err.println("書き込みの反映の通知に失敗しました: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 保存する内容のメモを生成します。タグは保存先に保存して読み込んだ場合と同じになるよう正規化します。
+     */
+    private static Memo stored(int id, Memo memo, String createdAt, String updatedAt, long createdEpoch,
+            long updatedEpoch) {
+        List<String> tags = TagDictionary.parse(String.join(",", memo.getTags()));
+        return new Memo(id, memo.getTitle(), memo.getBody(), tags, createdAt, updatedAt, createdEpoch, updatedEpoch,
+                memo.getTitleKey(), memo.getBodyKey());
+    }
+
+    /**
+     * キューに入れる複製を生成します。キャッシュのメモが呼び出し元から書き換えられても、反映する内容は変わりません。
+     */
+    private static Memo copyOf(Memo memo) {
+        return new Memo(memo.getId(), memo.getTitle(), memo.getBody(), memo.getTags(), memo.getCreatedAt(),
+                memo.getUpdatedAt(), memo.getCreatedEpoch(), memo.getUpdatedEpoch(), memo.getTitleKey(),
+                memo.getBodyKey());
+    }
+
+    /**
+     * キューに溜めた1件の書き込みです。
+     */
+    private static final class Op {
+        /** 書き込むメモ。削除の場合はnull。 */
+        final Memo put;
+        final int deleteId;
+        /** 通し番号。目印の場合は0。 */
+        final long sequence;
+        /** {@link Durability#COMMIT} の場合にコミットを伝える。それ以外はnull。 */
+        final CompletableFuture<Void> done;
+
+        Op(Memo put, int deleteId, long sequence, CompletableFuture<Void> done) {
+            this.put = put;
+            this.deleteId = deleteId;
+            this.sequence = sequence;
+            this.done = done;
+        }
+
+        /**
+         * @return 書き込むメモ、または削除するメモのID。
+         */
+        int id() {
+            return put != null ? put.getId() : deleteId;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 処理時間の分布を記録するロックフリーのヒストグラムです。
+ * 1マイクロ秒から約1時間までを、2のべき乗ごとに4分割した対数スケールのバケットで数えます
+ * （相対誤差はおよそ 19% 以内）。記録はバケットのカウンタを1つ増やすだけなので、
+ * 複数スレッドから同時に呼び出しても競合はほとんど発生しません。
+ */
+public class LatencyHistogram {
+
+    /** 2のべき乗1区間あたりのバケット数。 */
+    private static final int SUB_BUCKETS = 4;
+
+    /** 記録する最大値の指数（2^32 マイクロ秒 ≒ 71 分）。 */
+    private static final int MAX_EXPONENT = 32;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(MAX_EXPONENT * SUB_BUCKETS + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 1回分の処理時間を記録します。
+     *
+     * @param nanos 処理時間（ナノ秒）。
+     */
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1_000);
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * 記録した回数を返します。
+     *
+     * @return 記録回数。
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 記録した処理時間の平均を返します。
+     *
+     * @return 平均（ナノ秒）。記録がない場合は0。
+     */
+    public double meanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) totalNanos.sum() / n;
+    }
+
+    /**
+     * 記録した処理時間の最大値を返します。
+     *
+     * @return 最大値（ナノ秒）。
+     */
+    public long maxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * 指定したパーセンタイルの処理時間を返します。
+     * 該当するバケットの上限値を返すため、実際の値よりやや大きめになります。
+     *
+     * @param percentile 0〜100 のパーセンタイル。
+     * @return 処理時間（ナノ秒）。記録がない場合は0。
+     */
+    public long percentileNanos(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[buckets.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundMicros(i) * 1_000, maxNanos());
+            }
+        }
+        return maxNanos();
+    }
+
+    /**
+     * 記録をすべて消去します。
+     */
+    public void reset() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+
+    private static int bucketOf(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent >= MAX_EXPONENT) {
+            return MAX_EXPONENT * SUB_BUCKETS;
+        }
+        // 2^exponent 〜 2^(exponent+1) の区間を SUB_BUCKETS 等分したどこに入るか
+        int sub = exponent < 2 ? 0 : (int) ((micros >>> (exponent - 2)) & (SUB_BUCKETS - 1));
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBoundMicros(int bucket) {
+        int exponent = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        long base = 1L << exponent;
+        if (exponent < 2) {
+            // 1〜3 µs は区間を等分できず、すべて先頭の小区間に入るため、区間全体の上限を返す
+            return base * 2;
+        }
+        return base + (base * (sub + 1)) / SUB_BUCKETS;
+    }
+}
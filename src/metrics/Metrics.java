@@ -0,0 +1,250 @@
+package metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * リポジトリやビジネスロジックの各処理の処理時間・呼び出し回数・件数・エラー数を計測するクラスです。
+ * 計測値は JMX（{@link MetricsMXBean}）から参照でき、指定したファイルへ定期的に書き出すこともできます。
+ *
+ * <p>計測はシステムプロパティ {@code hashmemo.metrics=true} を指定した場合のみ有効です。
+ * 無効な場合、{@link #begin(String)} は何もしない共有のオブジェクトを返すため、オーバーヘッドはほぼありません。</p>
+ *
+ * <pre>
+ * try (Metrics.Timer timer = Metrics.begin("repository.getAll")) {
+ *     List&lt;Memo&gt; list = ...;
+ *     timer.success(list.size());
+ *     return list;
+ * }
+ * </pre>
+ *
+ * {@link Timer#success(long)} を呼ばずに {@link Timer#close()} された場合（例外で抜けた場合）はエラーとして数えます。
+ */
+public final class Metrics {
+
+    /** 計測を有効にするシステムプロパティ名。 */
+    public static final String ENABLED_PROPERTY = "hashmemo.metrics";
+
+    /** 計測値の定期書き出し先ファイルを指定するシステムプロパティ名。 */
+    public static final String DUMP_FILE_PROPERTY = "hashmemo.metrics.file";
+
+    /** 定期書き出しの間隔（秒）を指定するシステムプロパティ名。 */
+    public static final String DUMP_INTERVAL_PROPERTY = "hashmemo.metrics.intervalSec";
+
+    private static final Map<String, OperationStats> OPERATIONS = new ConcurrentHashMap<>();
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private Metrics() {
+    }
+
+    /**
+     * 処理の計測を開始します。
+     *
+     * @param operation 処理名（例: {@code repository.save}）。
+     * @return 計測を終了するためのタイマー。計測が無効な場合は何もしないタイマー。
+     */
+    public static Timer begin(String operation) {
+        if (!enabled) {
+            return Timer.NOOP;
+        }
+        return new Timer(OPERATIONS.computeIfAbsent(operation, OperationStats::new));
+    }
+
+    /**
+     * 計測が有効かどうかを返します。
+     *
+     * @return 有効な場合はtrue。
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 計測の有効・無効を切り替えます。
+     *
+     * @param value 有効にする場合はtrue。
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * 処理ごとの集計値を処理名の昇順で返します。
+     *
+     * @return 集計値のリスト。
+     */
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> list = new ArrayList<>();
+        for (OperationStats stats : OPERATIONS.values()) {
+            list.add(stats.snapshot());
+        }
+        list.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return list;
+    }
+
+    /**
+     * 処理ごとの集計値をテキストで返します。
+     *
+     * @return 1行に1処理の集計値を並べたテキスト。
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        for (OperationSnapshot s : snapshot()) {
+            sb.append(s).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * これまでの集計値をすべて消去します。
+     */
+    public static void reset() {
+        OPERATIONS.values().forEach(OperationStats::reset);
+    }
+
+    /**
+     * 計測が有効な場合に、JMX への登録と定期書き出しを開始します。
+     * アプリケーションの起動時に一度だけ呼び出してください。
+     */
+    public static void startIfEnabled() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                    .registerMBean(new MetricsBean(), new ObjectName("hashmemo:type=Metrics"));
+        } catch (JMException e) {
+            System.err.println("計測値の JMX 登録に失敗しました: " + e.getMessage());
+        }
+
+        String file = System.getProperty(DUMP_FILE_PROPERTY);
+        if (file != null && !file.isEmpty()) {
+            long interval = Long.getLong(DUMP_INTERVAL_PROPERTY, 60);
+            if (interval <= 0) {
+                System.err.println("計測値の書き出し間隔は1秒以上を指定してください（60秒で書き出します）: " + interval);
+                interval = 60;
+            }
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "hashmemo-metrics-dump");
+                t.setDaemon(true);
+                return t;
+            });
+            Path path = Paths.get(file);
+            scheduler.scheduleAtFixedRate(() -> writeDump(path), interval, interval, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> writeDump(path), "hashmemo-metrics-final-dump"));
+        }
+    }
+
+    /**
+     * 集計値をファイルへ書き出します。書き出し途中のファイルを読まれないよう、一時ファイルを経由して置き換えます。
+     */
+    private static void writeDump(Path path) {
+        try {
+            Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+            String content = "# " + LocalDateTime.now() + "\n" + dump();
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("計測値の書き出しに失敗しました: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 1回の処理の計測を表すタイマーです。try-with-resources で使用してください。
+     */
+    public static class Timer implements AutoCloseable {
+
+        /** 計測が無効な場合に使用する、何もしないタイマー。 */
+        static final Timer NOOP = new Timer(null);
+
+        private final OperationStats stats;
+        private final long start;
+        private long rows;
+        private boolean succeeded;
+
+        private Timer(OperationStats stats) {
+            this.stats = stats;
+            this.start = stats == null ? 0 : System.nanoTime();
+        }
+
+        /**
+         * 処理が成功したことを記録します。
+         */
+        public void success() {
+            if (stats == null) {
+                return; // 共有の NOOP には書き込まない（複数のスレッドから同時に使われるため）
+            }
+            succeeded = true;
+        }
+
+        /**
+         * 処理が成功したことを、読み書きした行数とともに記録します。
+         *
+         * @param rowCount 読み書きした行（メモ）数。
+         */
+        public void success(long rowCount) {
+            if (stats == null) {
+                return;
+            }
+            rows = rowCount;
+            succeeded = true;
+        }
+
+        /**
+         * 計測を終了し、集計に反映します。
+         */
+        @Override
+        public void close() {
+            if (stats != null) {
+                stats.record(System.nanoTime() - start, rows, succeeded);
+            }
+        }
+    }
+
+    /**
+     * {@link MetricsMXBean} の実装です。
+     */
+    private static class MetricsBean implements MetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return Metrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean value) {
+            Metrics.setEnabled(value);
+        }
+
+        @Override
+        public List<OperationSnapshot> getOperations() {
+            return Metrics.snapshot();
+        }
+
+        @Override
+        public String dump() {
+            return Metrics.dump();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * JMX から計測値を参照・操作するためのインタフェースです。
+ * JConsole などで {@code hashmemo:type=Metrics} として表示されます。
+ */
+public interface MetricsMXBean {
+
+    /** @return 計測が有効な場合はtrue。 */
+    boolean isEnabled();
+
+    /** @param enabled 計測の有効・無効。 */
+    void setEnabled(boolean enabled);
+
+    /** @return 処理ごとの集計値（処理名の昇順）。 */
+    List<OperationSnapshot> getOperations();
+
+    /** @return 処理ごとの集計値を1行ずつ並べたテキスト。 */
+    String dump();
+
+    /** これまでの集計値をすべて消去します。 */
+    void reset();
+}
@@ -0,0 +1,78 @@
+package metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * ある時点での1種類の処理の集計値です。JMX（MXBean）から参照できるよう、不変のJavaBeanとして定義しています。
+ * 時間はすべてミリ秒単位です。
+ */
+public class OperationSnapshot {
+
+    private final String name;
+    private final long calls;
+    private final long errors;
+    private final long rows;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double maxMillis;
+
+    @ConstructorProperties({ "name", "calls", "errors", "rows", "meanMillis", "p50Millis", "p99Millis", "maxMillis" })
+    public OperationSnapshot(String name, long calls, long errors, long rows,
+            double meanMillis, double p50Millis, double p99Millis, double maxMillis) {
+        this.name = name;
+        this.calls = calls;
+        this.errors = errors;
+        this.rows = rows;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+        this.maxMillis = maxMillis;
+    }
+
+    /** @return 処理名。 */
+    public String getName() {
+        return name;
+    }
+
+    /** @return 呼び出し回数。 */
+    public long getCalls() {
+        return calls;
+    }
+
+    /** @return 例外で終了した回数。 */
+    public long getErrors() {
+        return errors;
+    }
+
+    /** @return 読み書きした行（メモ）数の合計。 */
+    public long getRows() {
+        return rows;
+    }
+
+    /** @return 平均処理時間。 */
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    /** @return 処理時間の中央値。 */
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    /** @return 処理時間の 99 パーセンタイル。 */
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    /** @return 最大処理時間。 */
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-36s calls=%d errors=%d rows=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                name, calls, errors, rows, meanMillis, p50Millis, p99Millis, maxMillis);
+    }
+}
@@ -0,0 +1,50 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1種類の処理（例: {@code repository.getAll}）について、呼び出し回数・処理時間・件数・エラー数を集計するクラスです。
+ */
+public class OperationStats {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, long rowCount, boolean succeeded) {
+        calls.increment();
+        latency.record(nanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        if (!succeeded) {
+            errors.increment();
+        }
+    }
+
+    void reset() {
+        latency.reset();
+        calls.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+    /**
+     * 現時点の集計値を取得します。
+     *
+     * @return 集計値のスナップショット。
+     */
+    public OperationSnapshot snapshot() {
+        return new OperationSnapshot(name, calls.sum(), errors.sum(), rows.sum(),
+                latency.meanNanos() / 1e6,
+                latency.percentileNanos(50) / 1e6,
+                latency.percentileNanos(99) / 1e6,
+                latency.maxNanos() / 1e6);
+    }
+}
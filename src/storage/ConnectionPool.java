@@ -0,0 +1,240 @@
+package storage;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLiteデータベースへの接続を使い回すためのコネクションプールです。
+ * 書き込み用の接続を1本、読み取り専用の接続を複数本保持し、起動時に一度だけPRAGMAを設定します。
+ * WAL（Write-Ahead Logging）モードでは読み取りが書き込みをブロックしないため、
+ * 読み取り側は書き込み中でも待たずに専用の接続で処理を進められます。
+ *
+ * <p>各接続にはプールと同じ寿命の {@link StatementCache} が結び付いており、
+ * 貸し出された接続の {@link PooledConnection#prepare(String)} で準備済みのステートメントを再利用できます。</p>
+ */
+class ConnectionPool implements AutoCloseable {
+
+    /** 読み取り専用接続の最大本数。 */
+    private static final int DEFAULT_READER_COUNT = 4;
+
+    /** 接続の貸し出しを待つ最大時間（ミリ秒）。 */
+    private static final long ACQUIRE_TIMEOUT_MILLIS = 10_000;
+
+    /** ロック競合時にSQLiteがリトライを続ける時間（ミリ秒）。 */
+    private static final int BUSY_TIMEOUT_MILLIS = 5_000;
+
+    /** メモリマップドI/Oに使用する最大サイズ（バイト）。 */
+    private static final long MMAP_SIZE_BYTES = 256L * 1024 * 1024;
+
+    /** 接続1本あたりにキャッシュするステートメントの上限数。 */
+    private static final int STATEMENT_CACHE_CAPACITY = 64;
+
+    private final String url;
+    private final int readerCount;
+
+    private final Connection writer;
+    private final ReentrantLock writerLock = new ReentrantLock();
+
+    private final BlockingQueue<Connection> idleReaders;
+    private final List<Connection> allReaders = new ArrayList<>();
+
+    private final StatementCache.Stats statementStats = new StatementCache.Stats();
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    /**
+     * 指定したURLのデータベースに対するプールを生成します。
+     * 書き込み用の接続はこの時点で確立し、WALモードへの切り替えを行います。
+     *
+     * @param url JDBC接続URL。
+     * @throws SQLException 接続の確立または設定に失敗した場合。
+     */
+    ConnectionPool(String url) throws SQLException {
+        this(url, DEFAULT_READER_COUNT);
+    }
+
+    /**
+     * 読み取り専用接続の本数を指定してプールを生成します。
+     *
+     * @param url         JDBC接続URL。
+     * @param readerCount 読み取り専用接続の最大本数。
+     * @throws SQLException 接続の確立または設定に失敗した場合。
+     */
+    ConnectionPool(String url, int readerCount) throws SQLException {
+        this.url = url;
+        this.readerCount = readerCount;
+        this.idleReaders = new ArrayBlockingQueue<>(readerCount);
+
+        this.writer = DriverManager.getConnection(url);
+        try (Statement stmt = writer.createStatement()) {
+            // journal_mode はデータベースファイルに永続化されるため、書き込み接続で一度だけ設定する
+            stmt.execute("PRAGMA journal_mode = WAL");
+        }
+        configure(writer, false);
+        statementCaches.put(writer, new StatementCache(writer, STATEMENT_CACHE_CAPACITY, statementStats));
+    }
+
+    /**
+     * 書き込み用の接続を借ります。
+     * SQLiteは同時に1つの書き込みしか受け付けないため、呼び出し元は返却まで排他的に接続を使用します。
+     *
+     * @return 書き込み用の接続。クローズするとプールに返却されます。
+     * @throws SQLException プールが閉じられている場合、または待機がタイムアウトした場合。
+     */
+    PooledConnection acquireWriter() throws SQLException {
+        ensureOpen();
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("書き込み用接続の取得がタイムアウトしました");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("書き込み用接続の取得中に割り込まれました", e);
+        }
+        return new PooledConnection(writer, statementCaches.get(writer), this::releaseWriter);
+    }
+
+    /**
+     * 読み取り専用の接続を借ります。
+     * 空きがなければ上限本数まで新しく接続を確立し、上限に達している場合は返却を待ちます。
+     *
+     * @return 読み取り専用の接続。クローズするとプールに返却されます。
+     * @throws SQLException プールが閉じられている場合、接続に失敗した場合、または待機がタイムアウトした場合。
+     */
+    PooledConnection acquireReader() throws SQLException {
+        ensureOpen();
+        Connection conn = idleReaders.poll();
+        if (conn == null) {
+            conn = openReaderIfAvailable();
+        }
+        if (conn == null) {
+            try {
+                conn = idleReaders.poll(ACQUIRE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("読み取り用接続の取得中に割り込まれました", e);
+            }
+            if (conn == null) {
+                throw new SQLException("読み取り用接続の取得がタイムアウトしました");
+            }
+        }
+        return new PooledConnection(conn, statementCaches.get(conn), this::releaseReader);
+    }
+
+    /**
+     * プール内のすべての接続のステートメントキャッシュを合計した統計値を返します。
+     *
+     * @return ステートメントキャッシュの統計値。
+     */
+    StatementCacheStats statementCacheStats() {
+        return statementStats.snapshot();
+    }
+
+    /**
+     * プールが保持するすべての接続を閉じます。
+     * 以降の貸し出し要求はSQLExceptionで失敗します。
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Connection conn : allReaders) {
+            statementCaches.remove(conn).close();
+            closeQuietly(conn);
+        }
+        allReaders.clear();
+        idleReaders.clear();
+
+        writerLock.lock();
+        try {
+            statementCaches.remove(writer).close();
+            closeQuietly(writer);
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private synchronized Connection openReaderIfAvailable() throws SQLException {
+        if (allReaders.size() >= readerCount) {
+            return null;
+        }
+        Connection conn = DriverManager.getConnection(url);
+        try {
+            configure(conn, true);
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            throw e;
+        }
+        statementCaches.put(conn, new StatementCache(conn, STATEMENT_CACHE_CAPACITY, statementStats));
+        allReaders.add(conn);
+        return conn;
+    }
+
+    /**
+     * 接続単位のPRAGMAを設定します。
+     *
+     * @param conn     設定対象の接続。
+     * @param readOnly 読み取り専用として扱う場合はtrue。
+     * @throws SQLException PRAGMAの実行に失敗した場合。
+     */
+    private void configure(Connection conn, boolean readOnly) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            stmt.execute("PRAGMA mmap_size = " + MMAP_SIZE_BYTES);
+            stmt.execute("PRAGMA foreign_keys = ON");
+            if (readOnly) {
+                stmt.execute("PRAGMA query_only = ON");
+            }
+        }
+    }
+
+    private void releaseWriter(Connection conn) {
+        try {
+            if (!closed && !conn.getAutoCommit()) {
+                // 呼び出し元がトランザクションを閉じ忘れた場合でも、次の利用者に持ち越さない
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            System.err.println("書き込み用接続の後始末に失敗しました: " + e.getMessage());
+        } finally {
+            writerLock.unlock();
+        }
+    }
+
+    private void releaseReader(Connection conn) {
+        if (closed) {
+            closeQuietly(conn);
+            return;
+        }
+        idleReaders.offer(conn);
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) {
+            throw new SQLException("コネクションプールは既に閉じられています");
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            System.err.println("接続のクローズに失敗しました: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package storage;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import memo.Memo;
+import memo.MemoSummary;
+import memo.TagDictionary;
+import memo.TextNormalizer;
+
+/**
+ * メモをメモリ上だけに保持する {@link MemoStore} の実装です。
+ * アプリケーションを終了すると内容は失われます。
+ * SQLite のファイル I/O を除いた処理時間の計測や、データベースを用意できない環境での動作確認に使用します。
+ *
+ * <p>並び順・タグの扱い・日時の設定は {@link MemoRepository} と同じです。
+ * メモは一覧の並び順（更新日時の降順、IDの降順）のキーで並べた木構造に保持するため、
+ * ページの取得は SQLite の索引と同じく、直前の位置から読み進めるだけで済みます。</p>
+ *
+ * <p>読み取りは複数のスレッドから同時に行えます。書き込みは1件ずつ（一括処理は1回分まとめて）排他的に行います。</p>
+ */
+public class InMemoryMemoStore implements MemoStore {
+
+    /** {@link #findByDateRange(Instant, Instant)} の並び順（作成日時の降順、IDの降順）。 */
+    private static final Comparator<Memo> CREATED_ORDER = Comparator
+            .comparingLong(Memo::getCreatedEpoch).reversed()
+            .thenComparing(Comparator.comparingInt(Memo::getId).reversed());
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 一覧の並び順に並べたメモ。 */
+    private final NavigableMap<PageCursor, Memo> memos = new TreeMap<>(PageCursor.RECENT_ORDER);
+
+    /** IDからメモへの対応。 */
+    private final Map<Integer, Memo> byId = new HashMap<>();
+
+    /** タグごとの、そのタグを持つメモの件数。タグ一覧に使います。 */
+    private final NavigableMap<String, Integer> tagCounts = new TreeMap<>();
+
+    /** 最後に採番したID。削除したIDは再利用しません（SQLite の AUTOINCREMENT と同じ）。 */
+    private int lastId;
+
+    @Override
+    public int save(Memo memo) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            return insert(memo, now, now, Memo.formatLocal(now), null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Memo memo) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            replace(memo, now);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Memo> memos) {
+        return saveAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Memo> memos, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        long now = System.currentTimeMillis();
+        String createdAt = Memo.formatLocal(now);
+        List<Integer> ids = new ArrayList<>(memos.size());
+        lock.writeLock().lock();
+        try {
+            for (Memo memo : memos) {
+                ids.add(insert(memo, now, now, createdAt, null));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Integer> importAll(Collection<Memo> memos, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        long now = System.currentTimeMillis();
+        List<Integer> ids = new ArrayList<>(memos.size());
+        lock.writeLock().lock();
+        try {
+            for (Memo memo : memos) {
+                long created = memo.getCreatedEpoch() > 0 ? memo.getCreatedEpoch() : now;
+                long updated = Math.max(memo.getUpdatedEpoch(), created);
+                ids.add(insert(memo, created, updated, Memo.formatLocal(created),
+                        updated == created ? null : Memo.formatLocal(updated)));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return ids;
+    }
+
+    @Override
+    public void updateAll(Collection<Memo> memos) {
+        updateAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public void updateAll(Collection<Memo> memos, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            for (Memo memo : memos) {
+                replace(memo, now);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return deleteAll(ids, DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        lock.writeLock().lock();
+        try {
+            int affected = 0;
+            for (int id : ids) {
+                if (remove(id)) {
+                    affected++;
+                }
+            }
+            return affected;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(Memo memo) {
+        lock.writeLock().lock();
+        try {
+            return remove(memo.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int reserveIds(int count) {
+        MemoRepository.requirePositive(count);
+        lock.writeLock().lock();
+        try {
+            int first = lastId + 1;
+            lastId += count;
+            return first;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void applyAll(Collection<Memo> puts, Collection<Integer> deletes) {
+        lock.writeLock().lock();
+        try {
+            for (Memo memo : puts) {
+                Memo current = byId.get(memo.getId());
+                long created = current != null ? current.getCreatedEpoch() : memo.getCreatedEpoch();
+                long updated = memo.getUpdatedEpoch();
+                if (current != null) {
+                    remove(current.getId());
+                }
+                put(stored(memo.getId(), memo, Memo.formatLocal(created),
+                        updated == created ? null : Memo.formatLocal(updated), created, updated));
+                lastId = Math.max(lastId, memo.getId());
+            }
+            for (int id : deletes) {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Memo> findByIds(Collection<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            List<Memo> list = new ArrayList<>(ids.size());
+            for (int id : new LinkedHashSet<>(ids)) {
+                Memo memo = byId.get(id);
+                if (memo != null) {
+                    list.add(copyOf(memo));
+                }
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Memo> getAll() {
+        return select(memo -> true);
+    }
+
+    @Override
+    public Memo findById(int id) {
+        lock.readLock().lock();
+        try {
+            Memo memo = byId.get(id);
+            return memo != null ? copyOf(memo) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MemoPage<Memo> findPage(PageCursor after, int limit) {
+        MemoRepository.requirePositive(limit);
+        lock.readLock().lock();
+        try {
+            List<Memo> page = new ArrayList<>(limit);
+            for (Memo memo : rowsAfter(after).values()) {
+                if (page.size() == limit) {
+                    return new MemoPage<>(page, cursorOf(page.get(limit - 1)));
+                }
+                page.add(copyOf(memo));
+            }
+            return new MemoPage<>(page, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MemoPage<MemoSummary> findSummaryPage(PageCursor after, int limit) {
+        MemoRepository.requirePositive(limit);
+        lock.readLock().lock();
+        try {
+            List<MemoSummary> page = new ArrayList<>(limit);
+            for (Memo memo : rowsAfter(after).values()) {
+                if (page.size() == limit) {
+                    return new MemoPage<>(page, cursorOf(page.get(limit - 1)));
+                }
+                page.add(new MemoSummary(memo.getId(), memo.getTitle(), memo.getTags(), memo.getCreatedAt(),
+                        memo.getUpdatedAt(), memo.getCreatedEpoch(), memo.getUpdatedEpoch()));
+            }
+            return new MemoPage<>(page, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String findBody(int id) {
+        lock.readLock().lock();
+        try {
+            Memo memo = byId.get(id);
+            return memo != null ? memo.getBody() : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PageCursor skip(PageCursor after, int rows) {
+        MemoRepository.requirePositive(rows);
+        lock.readLock().lock();
+        try {
+            int remaining = rows;
+            for (PageCursor cursor : rowsAfter(after).keySet()) {
+                if (--remaining == 0) {
+                    return cursor;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * タイトルまたは本文にキーワードを含むメモを検索します。
+     * {@link MemoRepository#findByKeyword(String)} と同じく、正規化したキーワードを保存済みの検索キーと照合します。
+     */
+    @Override
+    public List<Memo> findByKeyword(String keyword) {
+        String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+        if (normalizedKeyword.isEmpty()) {
+            return getAll();
+        }
+        return select(memo -> memo.getTitleKey().contains(normalizedKeyword)
+                || memo.getBodyKey().contains(normalizedKeyword));
+    }
+
+    @Override
+    public List<Memo> findByTag(String tag) {
+        return select(memo -> memo.getTags().contains(tag));
+    }
+
+    /**
+     * すべてのメモのストリームを取得します。
+     * 呼び出した時点の内容を読み込んでから返すため、ストリームの読み込み中に書き込みを待たせることはありません。
+     */
+    @Override
+    public Stream<Memo> streamAll() {
+        return getAll().stream();
+    }
+
+    @Override
+    public Stream<Memo> streamByKeyword(String keyword) {
+        return findByKeyword(keyword).stream();
+    }
+
+    @Override
+    public Stream<Memo> streamByTag(String tag) {
+        return findByTag(tag).stream();
+    }
+
+    @Override
+    public List<Memo> findByDateRange(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("期間の開始が終了より後になっています: " + from + " > " + to);
+        }
+        long fromEpoch = from.toEpochMilli();
+        long toEpoch = to.toEpochMilli();
+        List<Memo> list = select(memo -> memo.getCreatedEpoch() >= fromEpoch && memo.getCreatedEpoch() < toEpoch);
+        list.sort(CREATED_ORDER);
+        return list;
+    }
+
+    @Override
+    public List<Memo> findChangedSince(Instant since) {
+        long sinceEpoch = since.toEpochMilli();
+        lock.readLock().lock();
+        try {
+            // 更新日時の降順に並んでいるため、基準の時刻に達した時点で読み込みを終える
+            List<Memo> list = new ArrayList<>();
+            for (Memo memo : memos.values()) {
+                if (memo.getUpdatedEpoch() <= sinceEpoch) {
+                    break;
+                }
+                list.add(copyOf(memo));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findAllTags() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(tagCounts.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 保持しているメモは破棄しません（同じインスタンスを閉じた後も読み書きできます）。
+     */
+    @Override
+    public void close() {
+        // 解放する資源はない
+    }
+
+    /**
+     * 新しいIDを採番してメモを登録します。書き込みロックを保持した状態で呼び出してください。
+     */
+    private int insert(Memo memo, long createdEpoch, long updatedEpoch, String createdAt, String updatedAt) {
+        int id = ++lastId;
+        put(stored(id, memo, createdAt, updatedAt, createdEpoch, updatedEpoch));
+        return id;
+    }
+
+    /**
+     * 既存のメモのタイトル・本文・タグを置き換え、更新日時を設定します。該当するメモがない場合は何もしません。
+     * 書き込みロックを保持した状態で呼び出してください。
+     */
+    private void replace(Memo memo, long now) {
+        Memo current = byId.get(memo.getId());
+        if (current == null) {
+            return;
+        }
+        remove(current.getId());
+        put(stored(current.getId(), memo, current.getCreatedAt(), Memo.formatLocal(now),
+                current.getCreatedEpoch(), now));
+    }
+
+    private void put(Memo memo) {
+        memos.put(cursorOf(memo), memo);
+        byId.put(memo.getId(), memo);
+        for (String tag : new LinkedHashSet<>(memo.getTags())) {
+            tagCounts.merge(tag, 1, Integer::sum);
+        }
+    }
+
+    private boolean remove(int id) {
+        Memo memo = byId.remove(id);
+        if (memo == null) {
+            return false;
+        }
+        memos.remove(cursorOf(memo));
+        for (String tag : new LinkedHashSet<>(memo.getTags())) {
+            tagCounts.computeIfPresent(tag, (key, count) -> count == 1 ? null : count - 1);
+        }
+        return true;
+    }
+
+    /**
+     * 条件に一致するメモの複製を、一覧の並び順で返します。
+     */
+    private List<Memo> select(Predicate<Memo> predicate) {
+        lock.readLock().lock();
+        try {
+            List<Memo> list = new ArrayList<>();
+            for (Memo memo : memos.values()) {
+                if (predicate.test(memo)) {
+                    list.add(copyOf(memo));
+                }
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 指定した位置より後ろのメモを返します。読み取りロックを保持した状態で呼び出してください。
+     */
+    private NavigableMap<PageCursor, Memo> rowsAfter(PageCursor after) {
+        return after == null ? memos : memos.tailMap(after, false);
+    }
+
+    /**
+     * 保存用のメモを生成します。
+     * タグは SQLite の {@code tags} 列に保存して読み込んだ場合と同じになるよう、カンマ区切りで連結してから解析し直します
+     * （前後の空白は除かれ、空のタグは保存されません）。
+     */
+    private static Memo stored(int id, Memo memo, String createdAt, String updatedAt, long createdEpoch,
+            long updatedEpoch) {
+        List<String> tags = TagDictionary.parse(String.join(",", memo.getTags()));
+        return new Memo(id, memo.getTitle(), memo.getBody(), tags, createdAt, updatedAt, createdEpoch, updatedEpoch,
+                memo.getTitleKey(), memo.getBodyKey());
+    }
+
+    /**
+     * 呼び出し元へ返す複製を生成します。保存しているメモは呼び出し元から変更されません。
+     */
+    private static Memo copyOf(Memo memo) {
+        return new Memo(memo.getId(), memo.getTitle(), memo.getBody(), memo.getTags(), memo.getCreatedAt(),
+                memo.getUpdatedAt(), memo.getCreatedEpoch(), memo.getUpdatedEpoch(), memo.getTitleKey(),
+                memo.getBodyKey());
+    }
+
+    private static PageCursor cursorOf(MemoSummary memo) {
+        return new PageCursor(memo.getUpdatedEpoch(), memo.getId());
+    }
+}
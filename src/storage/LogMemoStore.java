@@ -0,0 +1,1257 @@
+package storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import memo.Memo;
+import memo.MemoSummary;
+import memo.TagDictionary;
+import memo.TextNormalizer;
+import metrics.Metrics;
+
+/**
+ * メモをメモリマップしたログファイルへ追記していく {@link MemoStore} の実装です。
+ * 書き込みはファイルの末尾への追記だけで、既存の記録を書き換えないため、書き込みの多い用途で SQLite より軽く動作します。
+ *
+ * <h2>ファイルの形式</h2>
+ * <p>先頭の {@value #HEADER_SIZE} バイトのヘッダーに続いて、次の形式の記録が並びます。
+ * 1回の書き込み（一括処理は1回分）が1つの記録になり、記録単位で反映されるかされないかのどちらかになります。</p>
+ * <pre>
+ * [本体の長さ int][本体の CRC32 int][本体: 操作 ...]
+ * 操作: PUT（メモの全項目） / DELETE（ID） / SEQUENCE（最後に採番したID）
+ * </pre>
+ *
+ * <h2>索引</h2>
+ * <p>メモリ上にはIDごとの記録の位置と日時だけを保持し、タイトルや本文は必要になったときにマップした領域から読み込みます。
+ * 起動時はファイルを先頭から一度だけ読んで索引を作り直します。本文などの文字列は長さを読んで読み飛ばすため、
+ * メモの件数に比例した短い時間で済みます。</p>
+ *
+ * <h2>異常終了への備え</h2>
+ * <p>記録は本体と CRC を書いた後で最後に長さを書きます。書き込みの途中で終了した記録や、CRC が一致しない記録が見つかった場合は、
+ * そこをファイルの終わりとみなし、それ以降を0で埋めてから使用します（それより前の記録はそのまま使えます）。
+ * 既定では書き込みごとの {@code fsync} は行わず、プロセスが異常終了しても書き込み済みの記録は失われません。
+ * OS の停止や電源断にも備える場合は {@value #SYNC_PROPERTY} を true にしてください。</p>
+ *
+ * <h2>圧縮</h2>
+ * <p>更新・削除で不要になった記録の合計が、有効な記録の合計と {@value #COMPACTION_MIN_GARBAGE_BYTES} バイトの両方を超えると、
+ * バックグラウンドのスレッドで有効な記録だけを新しいファイルに書き出し、元のファイルと置き換えます。
+ * 書き出しの間も読み書きは続けられ、その間に追記された記録は置き換えの直前に新しいファイルへ写します。
+ * 置き換えはファイル名の変更で行うため、途中で終了しても元のファイルはそのまま残ります。</p>
+ *
+ * <p>並び順・タグの扱い・日時の設定は {@link MemoRepository} と同じです。ファイルの大きさの上限は 2GB です。</p>
+ */
+public class LogMemoStore implements MemoStore {
+
+    /** ログファイルのパスを指定するシステムプロパティ名。 */
+    public static final String PATH_PROPERTY = "hashmemo.logPath";
+
+    /** 書き込みごとにディスクへ同期するかを指定するシステムプロパティ名（既定は false）。 */
+    public static final String SYNC_PROPERTY = "hashmemo.logSync";
+
+    private static final String DEFAULT_PATH = "storage/hashmemo.log";
+
+    /** ファイルの先頭の識別子（"HMEMOLOG"）。 */
+    private static final long MAGIC = 0x484D454D4F4C4F47L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    /** 記録の長さと CRC の大きさ。 */
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_SEQUENCE = 3;
+
+    /** 文字列の長さの代わりに書き込み、検索キーが元の文字列（タイトル・本文）と同じであることを表す値。-1 はnullを表します。 */
+    private static final int SAME_AS_SOURCE = -2;
+
+    /** PUT の固定長部分（種類・ID・作成日時・更新日時）の大きさ。この後に文字列が続きます。 */
+    private static final int PUT_FIXED_SIZE = 1 + 4 + 8 + 8;
+
+    /** 最初にマップする大きさ。足りなくなるたびに倍に広げます。 */
+    private static final int INITIAL_CAPACITY = 1 << 20;
+
+    /** 圧縮を始める不要な記録の最小の合計（バイト）。 */
+    private static final long COMPACTION_MIN_GARBAGE_BYTES = 4L << 20;
+
+    /** 圧縮で書き出す1つの記録の大きさの目安（バイト）。 */
+    private static final int COMPACTION_RECORD_BYTES = 1 << 20;
+
+    /** {@link #findByDateRange(Instant, Instant)} の並び順（作成日時の降順、IDの降順）。 */
+    private static final Comparator<Entry> CREATED_ORDER = Comparator
+            .comparingLong((Entry entry) -> entry.createdEpoch).reversed()
+            .thenComparing(Comparator.comparingInt((Entry entry) -> entry.id).reversed());
+
+    private final Path file;
+    private final boolean forceOnWrite;
+    private final boolean autoCompact;
+
+    /** 索引・マップした領域・ファイルの終わりを保護するロック。 */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** 圧縮を同時に1つだけ実行するためのロック。 */
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hashmemo-log-compaction");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /** 有効な記録の終わり（次に追記する位置）。 */
+    private int end;
+
+    /** 一覧の並び順に並べた有効なメモの位置。 */
+    private final NavigableMap<PageCursor, Entry> ordered = new TreeMap<>(PageCursor.RECENT_ORDER);
+    private final Map<Integer, Entry> byId = new HashMap<>();
+
+    /** タグごとの、そのタグを持つメモの件数。 */
+    private final NavigableMap<String, Integer> tagCounts = new TreeMap<>();
+
+    /** 有効なメモの PUT の大きさの合計。 */
+    private long liveBytes;
+
+    /** 最後に採番したID。削除したIDは再利用しません。 */
+    private int lastId;
+
+    private boolean closed;
+
+    /**
+     * システムプロパティ（{@value #PATH_PROPERTY} / {@value #SYNC_PROPERTY}）で指定されたログファイルを開きます。
+     * 指定がない場合は {@code storage/hashmemo.log} です。
+     *
+     * @throws DataAccessException ログファイルを開けなかった場合。
+     */
+    public LogMemoStore() {
+        this(Paths.get(System.getProperty(PATH_PROPERTY, DEFAULT_PATH)), Boolean.getBoolean(SYNC_PROPERTY));
+    }
+
+    /**
+     * ログファイルを開き、索引を作り直します。ファイルがない場合は新しく作成します。
+     *
+     * @param file         ログファイルのパス。
+     * @param forceOnWrite 書き込みごとにディスクへ同期する場合はtrue。
+     * @throws DataAccessException ログファイルを開けなかった場合、またはログファイルの形式でない場合。
+     */
+    public LogMemoStore(Path file, boolean forceOnWrite) {
+        this(file, forceOnWrite, true);
+    }
+
+    /**
+     * ログファイルを開き、索引を作り直します。ファイルがない場合は新しく作成します。
+     *
+     * @param file         ログファイルのパス。
+     * @param forceOnWrite 書き込みごとにディスクへ同期する場合はtrue。
+     * @param autoCompact  不要な記録が増えたときに自動で圧縮する場合はtrue。falseの場合は {@link #compact()} を呼んだときだけ圧縮します
+     *                     （圧縮前の状態を計測するベンチマーク用）。
+     * @throws DataAccessException ログファイルを開けなかった場合、またはログファイルの形式でない場合。
+     */
+    public LogMemoStore(Path file, boolean forceOnWrite, boolean autoCompact) {
+        this.file = file;
+        this.forceOnWrite = forceOnWrite;
+        this.autoCompact = autoCompact;
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            // 圧縮の途中で終了した場合の書きかけのファイルは使わない
+            Files.deleteIfExists(compactionFile());
+            open();
+        } catch (IOException e) {
+            throw new DataAccessException("ログファイルを開けませんでした: " + file, e);
+        }
+    }
+
+    @Override
+    public int save(Memo memo) {
+        long now = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            RecordBuilder record = new RecordBuilder();
+            int id = lastId + 1;
+            record.put(id, memo, now, now, Memo.formatLocal(now), null);
+            append(record, 1);
+            return id;
+        } catch (IOException e) {
+            throw new DataAccessException("メモの保存に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void update(Memo memo) {
+        updateAll(Collections.singletonList(memo));
+    }
+
+    @Override
+    public List<Integer> saveAll(Collection<Memo> memos) {
+        return saveAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * すべてのメモを1つの記録として追記するため、{@code chunkSize} は検証のみに使用します。
+     */
+    @Override
+    public List<Integer> saveAll(Collection<Memo> memos, int chunkSize) {
+        return insertAll(memos, chunkSize, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     * すべてのメモを1つの記録として追記するため、{@code chunkSize} は検証のみに使用します。
+     */
+    @Override
+    public List<Integer> importAll(Collection<Memo> memos, int chunkSize) {
+        return insertAll(memos, chunkSize, true);
+    }
+
+    private List<Integer> insertAll(Collection<Memo> memos, int chunkSize, boolean keepTimestamps) {
+        MemoRepository.requirePositive(chunkSize);
+        List<Integer> ids = new ArrayList<>(memos.size());
+        if (memos.isEmpty()) {
+            return ids;
+        }
+        long now = System.currentTimeMillis();
+        String nowText = Memo.formatLocal(now);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            RecordBuilder record = new RecordBuilder();
+            int id = lastId;
+            for (Memo memo : memos) {
+                ids.add(++id);
+                if (keepTimestamps) {
+                    long created = memo.getCreatedEpoch() > 0 ? memo.getCreatedEpoch() : now;
+                    long updated = Math.max(memo.getUpdatedEpoch(), created);
+                    record.put(id, memo, created, updated, Memo.formatLocal(created),
+                            updated == created ? null : Memo.formatLocal(updated));
+                } else {
+                    record.put(id, memo, now, now, nowText, null);
+                }
+            }
+            append(record, ids.size());
+            return ids;
+        } catch (IOException e) {
+            throw new DataAccessException("メモの一括保存に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateAll(Collection<Memo> memos) {
+        updateAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * すべての更新を1つの記録として追記するため、{@code chunkSize} は検証のみに使用します。
+     * 存在しないメモは無視します。
+     */
+    @Override
+    public void updateAll(Collection<Memo> memos, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        long now = System.currentTimeMillis();
+        String nowText = Memo.formatLocal(now);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            RecordBuilder record = new RecordBuilder();
+            int count = 0;
+            for (Memo memo : memos) {
+                Entry current = byId.get(memo.getId());
+                if (current != null) {
+                    record.put(current.id, memo, current.createdEpoch, now, readCreatedAt(current), nowText);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                append(record, count);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("メモの更新に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int deleteAll(Collection<Integer> ids) {
+        return deleteAll(ids, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * {@inheritDoc}
+     * すべての削除を1つの記録として追記するため、{@code chunkSize} は検証のみに使用します。
+     */
+    @Override
+    public int deleteAll(Collection<Integer> ids, int chunkSize) {
+        MemoRepository.requirePositive(chunkSize);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            RecordBuilder record = new RecordBuilder();
+            int count = 0;
+            for (int id : new LinkedHashSet<>(ids)) {
+                if (byId.containsKey(id)) {
+                    record.delete(id);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                append(record, count);
+            }
+            return count;
+        } catch (IOException e) {
+            throw new DataAccessException("メモの削除に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(Memo memo) {
+        return deleteAll(Collections.singletonList(memo.getId())) > 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * 予約後の最後のIDを SEQUENCE として追記するため、開き直しても予約したIDは再利用されません。
+     */
+    @Override
+    public int reserveIds(int count) {
+        MemoRepository.requirePositive(count);
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            int first = lastId + 1;
+            RecordBuilder record = new RecordBuilder();
+            record.sequence(lastId + count);
+            append(record, count);
+            return first;
+        } catch (IOException e) {
+            throw new DataAccessException("IDの予約に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * すべての書き込みと削除を1つの記録として追記します。
+     */
+    @Override
+    public void applyAll(Collection<Memo> puts, Collection<Integer> deletes) {
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            RecordBuilder record = new RecordBuilder();
+            int count = 0;
+            for (Memo memo : puts) {
+                Entry current = byId.get(memo.getId());
+                long created = current != null ? current.createdEpoch : memo.getCreatedEpoch();
+                long updated = memo.getUpdatedEpoch();
+                record.put(memo.getId(), memo, created, updated, Memo.formatLocal(created),
+                        updated == created ? null : Memo.formatLocal(updated));
+                count++;
+            }
+            for (int id : new LinkedHashSet<>(deletes)) {
+                if (byId.containsKey(id)) {
+                    record.delete(id);
+                    count++;
+                }
+            }
+            if (count > 0) {
+                append(record, count);
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("メモの書き込みの反映に失敗しました", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Memo> findByIds(Collection<Integer> ids) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Memo> list = new ArrayList<>(ids.size());
+            for (int id : new LinkedHashSet<>(ids)) {
+                Entry entry = byId.get(id);
+                if (entry != null) {
+                    list.add(readMemo(entry));
+                }
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Memo> getAll() {
+        return select(entry -> true);
+    }
+
+    @Override
+    public Memo findById(int id) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Entry entry = byId.get(id);
+            return entry != null ? readMemo(entry) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MemoPage<Memo> findPage(PageCursor after, int limit) {
+        MemoRepository.requirePositive(limit);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Memo> page = new ArrayList<>(limit);
+            for (Entry entry : rowsAfter(after).values()) {
+                if (page.size() == limit) {
+                    return new MemoPage<>(page, cursorOf(page.get(limit - 1)));
+                }
+                page.add(readMemo(entry));
+            }
+            return new MemoPage<>(page, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 本文は読み込まずに読み飛ばします。
+     */
+    @Override
+    public MemoPage<MemoSummary> findSummaryPage(PageCursor after, int limit) {
+        MemoRepository.requirePositive(limit);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<MemoSummary> page = new ArrayList<>(limit);
+            for (Entry entry : rowsAfter(after).values()) {
+                if (page.size() == limit) {
+                    return new MemoPage<>(page, cursorOf(page.get(limit - 1)));
+                }
+                page.add(readSummary(entry));
+            }
+            return new MemoPage<>(page, null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String findBody(int id) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            Entry entry = byId.get(id);
+            if (entry == null) {
+                return null;
+            }
+            ByteBuffer in = fieldsOf(entry);
+            skipStrings(in, 5); // タグ・作成日時・更新日時・タイトル・タイトルの検索キー
+            return readString(in);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PageCursor skip(PageCursor after, int rows) {
+        MemoRepository.requirePositive(rows);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            int remaining = rows;
+            for (PageCursor cursor : rowsAfter(after).keySet()) {
+                if (--remaining == 0) {
+                    return cursor;
+                }
+            }
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int count() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 各メモの検索キーだけを読んで照合し、一致したメモだけを読み込みます。
+     */
+    @Override
+    public List<Memo> findByKeyword(String keyword) {
+        String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+        if (normalizedKeyword.isEmpty()) {
+            return getAll();
+        }
+        return select(entry -> containsKeyword(buffer, entry, normalizedKeyword));
+    }
+
+    @Override
+    public List<Memo> findByTag(String tag) {
+        return select(entry -> readTags(entry).contains(tag));
+    }
+
+    /**
+     * {@inheritDoc}
+     * 呼び出した時点の索引（記録の位置の一覧）とマップした領域を写し取り、メモは読み進めるたびにその領域から1件ずつ読み込みます。
+     * 記録は追記のみで書き換えられないため、読み込み中に書き込みや圧縮を待たせることはなく、呼び出した時点の内容を返します。
+     */
+    @Override
+    public Stream<Memo> streamAll() {
+        return stream((source, entry) -> true);
+    }
+
+    /**
+     * {@inheritDoc}
+     * {@link #streamAll()} と同じく、一致したメモを読み進めるたびに1件ずつ読み込みます。
+     */
+    @Override
+    public Stream<Memo> streamByKeyword(String keyword) {
+        String normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+        if (normalizedKeyword.isEmpty()) {
+            return streamAll();
+        }
+        return stream((source, entry) -> containsKeyword(source, entry, normalizedKeyword));
+    }
+
+    /**
+     * {@inheritDoc}
+     * {@link #streamAll()} と同じく、一致したメモを読み進めるたびに1件ずつ読み込みます。
+     */
+    @Override
+    public Stream<Memo> streamByTag(String tag) {
+        return stream((source, entry) -> readTags(source, entry).contains(tag));
+    }
+
+    @Override
+    public List<Memo> findByDateRange(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("期間の開始が終了より後になっています: " + from + " > " + to);
+        }
+        long fromEpoch = from.toEpochMilli();
+        long toEpoch = to.toEpochMilli();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Entry> entries = new ArrayList<>();
+            for (Entry entry : byId.values()) {
+                if (entry.createdEpoch >= fromEpoch && entry.createdEpoch < toEpoch) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort(CREATED_ORDER);
+            List<Memo> list = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                list.add(readMemo(entry));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Memo> findChangedSince(Instant since) {
+        long sinceEpoch = since.toEpochMilli();
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            // 更新日時の降順に並んでいるため、基準の時刻に達した時点で読み込みを終える
+            List<Memo> list = new ArrayList<>();
+            for (Entry entry : ordered.values()) {
+                if (entry.updatedEpoch <= sinceEpoch) {
+                    break;
+                }
+                list.add(readMemo(entry));
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> findAllTags() {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            return new ArrayList<>(tagCounts.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * ログファイルの大きさ（有効な記録の終わりまで）を返します。
+     *
+     * @return バイト数。
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 更新・削除で不要になった記録の合計を返します。圧縮で取り除かれる大きさの目安です。
+     *
+     * @return バイト数。
+     */
+    public long garbageBytes() {
+        lock.readLock().lock();
+        try {
+            return end - HEADER_SIZE - liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 有効な記録だけを新しいファイルに書き出し、元のファイルと置き換えます。
+     * 通常は不要な記録が増えたときに自動で実行されます。書き出しの間も、他のスレッドからの読み書きは続けられます。
+     *
+     * @throws DataAccessException 書き出しまたは置き換えに失敗した場合。この場合、元のファイルはそのまま使用されます。
+     */
+    public void compact() {
+        compactionLock.lock();
+        try (Metrics.Timer timer = Metrics.begin("log.compact")) {
+            List<Entry> live;
+            ByteBuffer source;
+            int snapshotEnd;
+            int sequence;
+            lock.readLock().lock();
+            try {
+                ensureOpen();
+                live = new ArrayList<>(byId.values());
+                source = buffer.duplicate();
+                snapshotEnd = end;
+                sequence = lastId;
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            // 1. 有効な記録をファイル上の順に書き出す。追記は既存の領域を書き換えないため、ロックは不要
+            Path target = compactionFile();
+            live.sort(Comparator.comparingInt((Entry entry) -> entry.offset));
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                out.write(header());
+                RecordBuilder record = new RecordBuilder();
+                record.sequence(sequence);
+                for (Entry entry : live) {
+                    if (record.size() >= COMPACTION_RECORD_BYTES) {
+                        out.write(record.toRecord());
+                        record = new RecordBuilder();
+                    }
+                    record.copy(source, entry.offset, entry.length);
+                }
+                out.write(record.toRecord());
+            }
+
+            // 2. 書き出しの間に追記された記録を写してから置き換え、索引を作り直す
+            lock.writeLock().lock();
+            try {
+                ensureOpen();
+                try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    ByteBuffer tail = buffer.duplicate();
+                    tail.position(snapshotEnd).limit(end);
+                    while (tail.hasRemaining()) {
+                        out.write(tail);
+                    }
+                    out.force(true);
+                }
+                Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                forceDirectory();
+                channel.close();
+                open();
+                timer.success(live.size());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("ログファイルの圧縮に失敗しました: " + file, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * 実行中の圧縮の完了を待ってから、マップした内容をディスクへ書き出し、ファイルを閉じます。
+     */
+    @Override
+    public void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            throw new DataAccessException("ログファイルのクローズに失敗しました: " + file, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ファイルをマップし、索引を作り直します。書き込みロックを保持した状態（またはコンストラクタ）で呼び出してください。
+     */
+    private void open() throws IOException {
+        try (Metrics.Timer timer = Metrics.begin("log.rebuildIndex")) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long fileSize = channel.size();
+            if (fileSize > Integer.MAX_VALUE) {
+                throw new IOException("ログファイルが上限（2GB）を超えています: " + fileSize + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(fileSize, INITIAL_CAPACITY));
+            if (buffer.getLong(0) == 0) {
+                buffer.put(0, header(), 0, HEADER_SIZE);
+            } else if (buffer.getLong(0) != MAGIC || buffer.getInt(8) != VERSION) {
+                channel.close();
+                throw new IOException("ログファイルの形式ではありません");
+            }
+            rebuildIndex((int) fileSize);
+            timer.success(byId.size());
+        }
+    }
+
+    /**
+     * ファイルを先頭から読み、索引を作り直します。
+     * 書きかけの記録や壊れた記録が見つかった場合は、そこを終わりとして以降を0で埋めます。
+     */
+    private void rebuildIndex(int fileSize) throws IOException {
+        ordered.clear();
+        byId.clear();
+        tagCounts.clear();
+        liveBytes = 0;
+        lastId = 0;
+
+        int position = HEADER_SIZE;
+        int limit = buffer.capacity();
+        while (position + RECORD_HEADER_SIZE <= limit) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || length > limit - position - RECORD_HEADER_SIZE
+                    || crc(buffer, position + RECORD_HEADER_SIZE, length) != buffer.getInt(position + 4)) {
+                break;
+            }
+            applyRecord(position + RECORD_HEADER_SIZE, length, false);
+            position += RECORD_HEADER_SIZE + length;
+        }
+        end = position;
+        // 書きかけの記録の残りが後の追記の後ろに残らないよう、終わりより後ろを0で埋める
+        if (!isZero(end, fileSize)) {
+            System.err.println("ログファイルの末尾の壊れた記録を取り除きました: " + file + "（位置 " + end + "）");
+            for (int i = end; i < fileSize; i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+        // タグ一覧は最後に残った記録からだけ求める（上書きされた記録のタグは読まない）
+        for (Entry entry : byId.values()) {
+            addTags(entry);
+        }
+    }
+
+    /**
+     * 指定した範囲がすべて0かどうかを返します。
+     */
+    private boolean isZero(int from, int to) {
+        int i = from;
+        for (; i + 8 <= to; i += 8) {
+            if (buffer.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 記録を末尾に追記し、索引に反映します。書き込みロックを保持した状態で呼び出してください。
+     * 本体と CRC を書いた後で長さを書くため、途中で終了しても長さが0の（存在しない）記録として扱われます。
+     */
+    private void append(RecordBuilder record, int count) throws IOException {
+        try (Metrics.Timer timer = Metrics.begin("log.append")) {
+            byte[] body = record.toByteArray();
+            int size = RECORD_HEADER_SIZE + body.length;
+            ensureCapacity(size);
+            int start = end;
+            buffer.put(start + RECORD_HEADER_SIZE, body);
+            buffer.putInt(start + 4, crc(buffer, start + RECORD_HEADER_SIZE, body.length));
+            buffer.putInt(start, body.length);
+            if (forceOnWrite) {
+                buffer.force(start, size);
+            }
+            end = start + size;
+            applyRecord(start + RECORD_HEADER_SIZE, body.length, true);
+            timer.success(count);
+        }
+        scheduleCompactionIfNeeded();
+    }
+
+    /**
+     * 記録の本体に含まれる操作を順に索引へ反映します。
+     *
+     * @param trackTags タグ一覧も更新する場合はtrue。起動時はすべて読み終えてからまとめて求めるためfalse。
+     */
+    private void applyRecord(int start, int length, boolean trackTags) throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        in.position(start).limit(start + length);
+        while (in.hasRemaining()) {
+            int offset = in.position();
+            byte type = in.get();
+            switch (type) {
+                case OP_PUT: {
+                    int id = in.getInt();
+                    long createdEpoch = in.getLong();
+                    long updatedEpoch = in.getLong();
+                    skipStrings(in, 7);
+                    Entry entry = new Entry(id, offset, in.position() - offset, createdEpoch, updatedEpoch);
+                    removeEntry(id, trackTags);
+                    byId.put(id, entry);
+                    ordered.put(entry.cursor(), entry);
+                    liveBytes += entry.length;
+                    if (trackTags) {
+                        addTags(entry);
+                    }
+                    lastId = Math.max(lastId, id);
+                    break;
+                }
+                case OP_DELETE: {
+                    int id = in.getInt();
+                    removeEntry(id, trackTags);
+                    lastId = Math.max(lastId, id);
+                    break;
+                }
+                case OP_SEQUENCE:
+                    lastId = Math.max(lastId, in.getInt());
+                    break;
+                default:
+                    throw new IOException("不明な操作の種類です: " + type + "（位置 " + offset + "）");
+            }
+        }
+    }
+
+    private void removeEntry(int id, boolean trackTags) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+        ordered.remove(entry.cursor());
+        liveBytes -= entry.length;
+        if (trackTags) {
+            for (String tag : new LinkedHashSet<>(readTags(entry))) {
+                tagCounts.computeIfPresent(tag, (key, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    private void addTags(Entry entry) {
+        for (String tag : new LinkedHashSet<>(readTags(entry))) {
+            tagCounts.merge(tag, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * 追記する領域が足りない場合に、マップする範囲を広げます。
+     */
+    private void ensureCapacity(int size) throws IOException {
+        long required = (long) end + size;
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long capacity = Math.min(Math.max((long) buffer.capacity() * 2, required), Integer.MAX_VALUE);
+        if (required > capacity) {
+            throw new IOException("ログファイルが上限（2GB）を超えます");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void scheduleCompactionIfNeeded() {
+        long garbage = end - HEADER_SIZE - liveBytes;
+        if (!autoCompact || garbage < COMPACTION_MIN_GARBAGE_BYTES || garbage < liveBytes
+                || !compactionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        compactor.execute(() -> {
+            try {
+                compact();
+            } catch (RuntimeException e) {
+                System.err.println("ログファイルの圧縮に失敗しました: " + e.getMessage());
+            } finally {
+                compactionScheduled.set(false);
+            }
+        });
+    }
+
+    /**
+     * ファイル名の変更をディスクへ反映します。対応していないファイルシステムでは何もしません。
+     */
+    private void forceDirectory() {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            // ディレクトリを開けない環境（Windows など）ではファイル名の変更の同期を省略する
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("ログファイルは閉じられています: " + file);
+        }
+    }
+
+    private Path compactionFile() {
+        return file.resolveSibling(file.getFileName() + ".compact");
+    }
+
+    /**
+     * 条件に一致するメモを、一覧の並び順で読み込みます。
+     */
+    private List<Memo> select(Predicate<Entry> predicate) {
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            List<Memo> list = new ArrayList<>();
+            for (Entry entry : ordered.values()) {
+                if (predicate.test(entry)) {
+                    list.add(readMemo(entry));
+                }
+            }
+            return list;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 一覧の並び順で、条件に一致するメモを1件ずつ読み込むストリームを返します。
+     * ロックを保持するのは索引とマップした領域を写し取る間だけで、メモの読み込みはストリームを読み進めたときに行います。
+     */
+    private Stream<Memo> stream(BiPredicate<ByteBuffer, Entry> predicate) {
+        List<Entry> entries;
+        ByteBuffer source;
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            entries = new ArrayList<>(ordered.values());
+            // 圧縮や領域の拡張で buffer が置き換えられても、写し取った領域は元のファイルの内容を指したまま使える
+            source = buffer.duplicate();
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entries.stream()
+                .filter(entry -> predicate.test(source, entry))
+                .map(entry -> readMemo(source, entry));
+    }
+
+    /**
+     * タイトルまたは本文の検索キーがキーワードを含むかを、検索キーだけを読んで判定します。
+     */
+    private static boolean containsKeyword(ByteBuffer source, Entry entry, String normalizedKeyword) {
+        ByteBuffer in = fieldsOf(source, entry);
+        skipStrings(in, 3); // タグ・作成日時・更新日時
+        String title = readString(in);
+        if (readKey(in, title).contains(normalizedKeyword)) {
+            return true;
+        }
+        String body = readString(in);
+        return readKey(in, body).contains(normalizedKeyword);
+    }
+
+    private NavigableMap<PageCursor, Entry> rowsAfter(PageCursor after) {
+        return after == null ? ordered : ordered.tailMap(after, false);
+    }
+
+    /**
+     * PUT の文字列の並び（タグ・作成日時・更新日時・タイトル・タイトルの検索キー・本文・本文の検索キー）の先頭を指すバッファを返します。
+     */
+    private ByteBuffer fieldsOf(Entry entry) {
+        return fieldsOf(buffer, entry);
+    }
+
+    private static ByteBuffer fieldsOf(ByteBuffer source, Entry entry) {
+        ByteBuffer in = source.duplicate();
+        in.position(entry.offset + PUT_FIXED_SIZE);
+        return in;
+    }
+
+    private Memo readMemo(Entry entry) {
+        return readMemo(buffer, entry);
+    }
+
+    private static Memo readMemo(ByteBuffer source, Entry entry) {
+        ByteBuffer in = fieldsOf(source, entry);
+        List<String> tags = TagDictionary.parse(readString(in));
+        String createdAt = readString(in);
+        String updatedAt = readString(in);
+        String title = readString(in);
+        String titleKey = readKey(in, title);
+        String body = readString(in);
+        String bodyKey = readKey(in, body);
+        return new Memo(entry.id, title, body, tags, createdAt, updatedAt, entry.createdEpoch, entry.updatedEpoch,
+                titleKey, bodyKey);
+    }
+
+    private MemoSummary readSummary(Entry entry) {
+        ByteBuffer in = fieldsOf(entry);
+        List<String> tags = TagDictionary.parse(readString(in));
+        String createdAt = readString(in);
+        String updatedAt = readString(in);
+        String title = readString(in);
+        return new MemoSummary(entry.id, title, tags, createdAt, updatedAt, entry.createdEpoch, entry.updatedEpoch);
+    }
+
+    private List<String> readTags(Entry entry) {
+        return readTags(buffer, entry);
+    }
+
+    private static List<String> readTags(ByteBuffer source, Entry entry) {
+        return TagDictionary.parse(readString(fieldsOf(source, entry)));
+    }
+
+    private String readCreatedAt(Entry entry) {
+        ByteBuffer in = fieldsOf(entry);
+        skipStrings(in, 1);
+        return readString(in);
+    }
+
+    private static PageCursor cursorOf(MemoSummary memo) {
+        return new PageCursor(memo.getUpdatedEpoch(), memo.getId());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 検索キーを読み込みます。元の文字列と同じ場合は、直前に読み込んだ元の文字列を返します。
+     */
+    private static String readKey(ByteBuffer in, String source) {
+        if (in.getInt(in.position()) == SAME_AS_SOURCE) {
+            in.getInt();
+            return source;
+        }
+        return readString(in);
+    }
+
+    private static void skipStrings(ByteBuffer in, int count) {
+        for (int i = 0; i < count; i++) {
+            int length = in.getInt();
+            if (length > 0) {
+                in.position(in.position() + length);
+            }
+        }
+    }
+
+    private static int crc(ByteBuffer source, int start, int length) {
+        ByteBuffer slice = source.duplicate();
+        slice.position(start).limit(start + length);
+        CRC32 crc = new CRC32();
+        crc.update(slice);
+        return (int) crc.getValue();
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putLong(MAGIC).putInt(VERSION).putInt(0);
+        header.flip();
+        return header;
+    }
+
+    /**
+     * 有効なメモ1件の記録の位置と、並べ替えに使う日時です。
+     */
+    private static final class Entry {
+        final int id;
+        /** PUT の先頭（種類）の位置。 */
+        final int offset;
+        /** PUT の大きさ。 */
+        final int length;
+        final long createdEpoch;
+        final long updatedEpoch;
+
+        Entry(int id, int offset, int length, long createdEpoch, long updatedEpoch) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.createdEpoch = createdEpoch;
+            this.updatedEpoch = updatedEpoch;
+        }
+
+        PageCursor cursor() {
+            return new PageCursor(updatedEpoch, id);
+        }
+    }
+
+    /**
+     * 1つの記録の本体（操作の並び）を組み立てます。
+     */
+    private static final class RecordBuilder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        /**
+         * メモの全項目を書き込む PUT を追加します。
+         * タグは SQLite の {@code tags} 列に保存して読み込んだ場合と同じになるよう、解析し直してから保存します。
+         */
+        void put(int id, Memo memo, long createdEpoch, long updatedEpoch, String createdAt, String updatedAt)
+                throws IOException {
+            out.writeByte(OP_PUT);
+            out.writeInt(id);
+            out.writeLong(createdEpoch);
+            out.writeLong(updatedEpoch);
+            writeString(String.join(",", TagDictionary.parse(String.join(",", memo.getTags()))));
+            writeString(createdAt);
+            writeString(updatedAt);
+            writeString(memo.getTitle());
+            writeKey(memo.getTitleKey(), memo.getTitle());
+            writeString(memo.getBody());
+            writeKey(memo.getBodyKey(), memo.getBody());
+        }
+
+        void delete(int id) throws IOException {
+            out.writeByte(OP_DELETE);
+            out.writeInt(id);
+        }
+
+        void sequence(int id) throws IOException {
+            out.writeByte(OP_SEQUENCE);
+            out.writeInt(id);
+        }
+
+        /**
+         * 既存の記録の操作をそのまま写します（圧縮用）。
+         */
+        void copy(ByteBuffer source, int offset, int length) {
+            byte[] op = new byte[length];
+            source.get(offset, op);
+            bytes.write(op, 0, length);
+        }
+
+        int size() {
+            return bytes.size();
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+
+        /**
+         * 長さと CRC を付けた記録全体を返します。
+         */
+        ByteBuffer toRecord() {
+            byte[] body = toByteArray();
+            ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + body.length);
+            record.putInt(body.length);
+            record.putInt(crc(ByteBuffer.wrap(body), 0, body.length));
+            record.put(body);
+            record.flip();
+            return record;
+        }
+
+        /**
+         * 検索キーを書き込みます。正規化で変化しない文字列（多くの日本語の文章）は、同じ内容を二重に保存しない。
+         */
+        private void writeKey(String key, String source) throws IOException {
+            if (key != null && key.equals(source)) {
+                out.writeInt(SAME_AS_SOURCE);
+            } else {
+                writeString(key);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(encoded.length);
+            out.write(encoded);
+        }
+    }
+}
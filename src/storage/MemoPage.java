@@ -0,0 +1,54 @@
+package storage;
+
+import java.util.Collections;
+import java.util.List;
+
+import memo.MemoSummary;
+
+/**
+ * キーセットページネーションで取得した1ページ分のメモです。
+ * 本文を含むメモ（{@code Memo}）と、一覧表示用の要約（{@link MemoSummary}）のどちらのページにも使用します。
+ *
+ * @param <T> ページに含まれるメモの型。
+ */
+public final class MemoPage<T extends MemoSummary> {
+
+    private final List<T> memos;
+    private final PageCursor next;
+
+    /**
+     * @param memos このページのメモ。
+     * @param next  次のページを読み込むための位置。最後のページの場合はnull。
+     */
+    MemoPage(List<T> memos, PageCursor next) {
+        this.memos = Collections.unmodifiableList(memos);
+        this.next = next;
+    }
+
+    /**
+     * このページのメモを並び順どおりに返します。
+     *
+     * @return 読み取り専用のメモのリスト。
+     */
+    public List<T> getMemos() {
+        return memos;
+    }
+
+    /**
+     * 次のページを読み込むための位置を返します。
+     *
+     * @return 次のページの位置。これが最後のページの場合はnull。
+     */
+    public PageCursor getNext() {
+        return next;
+    }
+
+    /**
+     * これが最後のページかどうかを返します。
+     *
+     * @return 後続のページが存在しない場合はtrue。
+     */
+    public boolean isLast() {
+        return next == null;
+    }
+}
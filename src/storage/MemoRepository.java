@@ -1,53 +1,172 @@
 package storage;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import memo.Memo;
+import memo.MemoSummary;
+import memo.TagDictionary;
+import memo.TextNormalizer;
+import metrics.Metrics;
 
 /**
  * メモデータの永続化を担当するリポジトリクラスです。
  * SQLiteデータベースと直接やり取りを行い、メモのCRUD（作成、読み取り、更新、削除）処理を実装します。
  * アプリケーションの初回起動時には、データベースファイルとテーブルの初期化も行います。
+ * 接続は {@link ConnectionPool} で使い回すため、不要になったら {@link #close()} を呼び出してください。
+ * 繰り返し実行するSQLは、接続ごとのステートメントキャッシュ（{@link PooledConnection#prepare(String)}）で
+ * 一度だけ解析して再利用します。
+ *
+ * <p>接続先は既定では {@code storage/hashmemo.db} です。システムプロパティ {@value #DB_URL_PROPERTY}（JDBC URL）または
+ * {@value #DB_PATH_PROPERTY}（データベースファイルのパス）で変更できます。</p>
  */
-public class MemoRepository {
+public class MemoRepository implements MemoStore {
 
-    private static final String DB_URL = "jdbc:sqlite:storage/hashmemo.db";
+    /** 接続先の JDBC URL を指定するシステムプロパティ名。 */
+    public static final String DB_URL_PROPERTY = "hashmemo.dbUrl";
+
+    /** データベースファイルのパスを指定するシステムプロパティ名。{@value #DB_URL_PROPERTY} が優先されます。 */
+    public static final String DB_PATH_PROPERTY = "hashmemo.dbPath";
+
+    private static final String DEFAULT_DB_PATH = "storage/hashmemo.db";
+
+    /**
+     * メモを1件登録するSQL。作成日時の文字列はテーブルの既定値、エポックミリ秒と検索キーはアプリケーション側で設定します。
+     */
+    private static final String INSERT_MEMO_SQL = "INSERT INTO memos"
+            + " (title, body, tags, created_epoch, updated_epoch, title_key, body_key) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /** 作成日時・更新日時を指定してメモを1件登録するSQL。取り込み（インポート）で使用します。 */
+    private static final String IMPORT_MEMO_SQL = "INSERT INTO memos (title, body, tags, created_epoch, updated_epoch,"
+            + " created_at, updated_at, title_key, body_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * ID・日時を指定してメモを1件書き込むSQL。同じIDのメモがあれば置き換えます（{@link #applyAll(Collection, Collection)} で使用）。
+     * 置き換えでは作成日時を変更しません。
+     */
+    private static final String UPSERT_MEMO_SQL = "INSERT INTO memos (id, title, body, tags, created_epoch, updated_epoch,"
+            + " created_at, updated_at, title_key, body_key) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT(id) DO UPDATE SET title = excluded.title, body = excluded.body, tags = excluded.tags,"
+            + " updated_epoch = excluded.updated_epoch, updated_at = excluded.updated_at,"
+            + " title_key = excluded.title_key, body_key = excluded.body_key";
+
+    /**
+     * AUTOINCREMENT の採番位置を進めてIDを予約するSQL。採番位置は既存の最大のIDを下回らないようにします。
+     */
+    private static final String RESERVE_IDS_SQL = "UPDATE sqlite_sequence"
+            + " SET seq = MAX(seq, (SELECT IFNULL(MAX(id), 0) FROM memos)) + ? WHERE name = 'memos'";
+
+    /** まだ1件も登録されていない場合に、採番位置の行を作成するSQL。 */
+    private static final String INSERT_SEQUENCE_SQL = "INSERT INTO sqlite_sequence (name, seq)"
+            + " VALUES ('memos', (SELECT IFNULL(MAX(id), 0) FROM memos) + ?)";
+
+    private static final String SELECT_SEQUENCE_SQL = "SELECT seq FROM sqlite_sequence WHERE name = 'memos'";
+
+    /** メモを1件更新するSQL。 */
+    private static final String UPDATE_MEMO_SQL = "UPDATE memos SET title = ?, body = ?, tags = ?,"
+            + " updated_at = datetime('now', 'localtime'), updated_epoch = ?, title_key = ?, body_key = ? WHERE id = ?";
+
+    /** メモ本体の取得に使う列。 */
+    private static final String MEMO_COLUMNS =
+            "id, title, body, tags, created_at, updated_at, created_epoch, updated_epoch, title_key, body_key";
+
+    /** 一覧の並び順（更新日時の降順、IDの降順）。`idx_memos_updated_epoch` 索引の順序と一致します。 */
+    private static final String RECENT_ORDER = " ORDER BY updated_epoch DESC, id DESC";
+
+    /** `memo_tags` テーブルへ1件のタグを登録するSQL。重複したタグは無視します。 */
+    static final String INSERT_TAG_SQL = "INSERT OR IGNORE INTO memo_tags (memo_id, tag) VALUES (?, ?)";
+
+    private static final String DELETE_TAGS_SQL = "DELETE FROM memo_tags WHERE memo_id = ?";
+
+    /** 同じ接続で直前に採番されたIDを取得するSQL。 */
+    private static final String LAST_INSERT_ID_SQL = "SELECT last_insert_rowid()";
+
+    /** trigram 索引で検索できるキーワードの最小文字数。 */
+    private static final int MIN_FTS_KEYWORD_LENGTH = 3;
+
+    /** ストリームで取得する際に、1回の読み込みで取得する既定の行数。 */
+    public static final int DEFAULT_FETCH_SIZE = 200;
+
+    /** 全メモを一覧の並び順で取得するSQL。 */
+    private static final String ALL_MEMOS_SQL = "SELECT " + MEMO_COLUMNS + " FROM memos" + RECENT_ORDER;
+
+    /** 全文検索索引でキーワードに一致するメモを取得するSQL。 */
+    private static final String KEYWORD_FTS_SQL = "SELECT " + MEMO_COLUMNS + " FROM memos"
+            + " WHERE id IN (SELECT rowid FROM memos_fts WHERE memos_fts MATCH ?)" + RECENT_ORDER;
+
+    /** 索引を使えない短いキーワードに一致するメモを取得するSQL。キーワード中の `%` と `_` は通常の文字として扱います。 */
+    private static final String KEYWORD_LIKE_SQL = "SELECT " + MEMO_COLUMNS + " FROM memos"
+            + " WHERE title_key LIKE ? ESCAPE '\\' OR body_key LIKE ? ESCAPE '\\'" + RECENT_ORDER;
+
+    /** 指定したタグを持つメモを取得するSQL。 */
+    private static final String TAG_SQL = "SELECT m.id, m.title, m.body, m.tags, m.created_at, m.updated_at,"
+            + " m.created_epoch, m.updated_epoch, m.title_key, m.body_key FROM memos m"
+            + " JOIN memo_tags t ON t.memo_id = m.id"
+            + " WHERE t.tag = ?"
+            + " ORDER BY m.updated_epoch DESC, m.id DESC";
+
+    private final ConnectionPool pool;
 
     /**
      * MemoRepositoryのコンストラクタです。
-     * データベースとテーブルが正しくセットアップされていることを保証します。
+     * コネクションプールを生成し、データベースとテーブルが正しくセットアップされていることを保証します。
+     * 接続先はシステムプロパティ（{@value #DB_URL_PROPERTY} / {@value #DB_PATH_PROPERTY}）で指定でき、
+     * 指定がない場合は {@code storage/hashmemo.db} です。
+     *
+     * @throws DataAccessException データベースへの接続または初期化に失敗した場合。
      */
     public MemoRepository() {
+        this(configuredUrl());
+    }
+
+    /**
+     * 接続先のデータベースを指定してMemoRepositoryを生成します。
+     * ベンチマークなど、アプリケーション本体とは別のデータベースファイルを使う場合に利用します。
+     *
+     * @param dbUrl JDBC接続URL（例: {@code jdbc:sqlite:/tmp/bench.db}）。
+     * @throws DataAccessException データベースへの接続または初期化に失敗した場合。
+     */
+    public MemoRepository(String dbUrl) {
+        try {
+            this.pool = new ConnectionPool(dbUrl);
+        } catch (SQLException e) {
+            throw new DataAccessException("データベースへの接続に失敗しました", e);
+        }
         initializeDatabase();
     }
 
+    /**
+     * システムプロパティで指定された接続先の JDBC URL を返します。
+     */
+    private static String configuredUrl() {
+        String url = System.getProperty(DB_URL_PROPERTY);
+        if (url != null && !url.isEmpty()) {
+            return url;
+        }
+        return "jdbc:sqlite:" + System.getProperty(DB_PATH_PROPERTY, DEFAULT_DB_PATH);
+    }
+
     /**
      * データベースファイルとテーブルが存在しない場合に、それらを初期化。
+     * 既存のデータベースに対しては、未適用のスキーマ移行を行います。
      */
     private void initializeDatabase() {
-        // `memos` テーブルが存在しない場合に作成するSQL
-        // `created_at` にはデフォルトで現在時刻が設定される
-        String sql = "CREATE TABLE IF NOT EXISTS memos ("
-                + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
-                + "title TEXT NOT NULL,"
-                + "body TEXT NOT NULL,"
-                + "tags TEXT,"
-                + "created_at TEXT NOT NULL DEFAULT (datetime('now', 'localtime')),"
-                + "updated_at TEXT"
-                + ");";
-
-        try (Connection conn = connect();
-                Statement stmt = conn.createStatement()) {
-            stmt.execute(sql);
+        try (PooledConnection conn = pool.acquireWriter()) {
+            SchemaMigrator.migrate(conn.connection());
         } catch (SQLException e) {
             throw new DataAccessException("データベースの初期化に失敗しました", e);
         }
@@ -56,22 +175,50 @@ public class MemoRepository {
     /**
      * 新しいメモをデータベースに保存します（INSERT）。
      * 作成日時はテーブルのデフォルト値として自動的に設定されます。
+     * メモ本体とタグ索引（`memo_tags`）は同一トランザクションで書き込まれます。
      *
      * @param memo 保存するMemoオブジェクト。
+     * @return データベースで採番されたメモのID。
      * @throws DataAccessException データベースへの保存に失敗した場合。
      */
-    public void save(Memo memo) {
-        String sql = "INSERT INTO memos (title, body, tags) VALUES (?, ?, ?)";
+    public int save(Memo memo) {
+        String sql = INSERT_MEMO_SQL;
 
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Metrics.Timer timer = Metrics.begin("repository.save");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
 
-            pstmt.setString(1, memo.getTitle());
-            pstmt.setString(2, memo.getBody());
-            pstmt.setString(3, String.join(",", memo.getTags()));
+                long now = System.currentTimeMillis();
+                pstmt.setString(1, memo.getTitle());
+                pstmt.setString(2, memo.getBody());
+                pstmt.setString(3, String.join(",", memo.getTags()));
+                pstmt.setLong(4, now);
+                pstmt.setLong(5, now);
+                pstmt.setString(6, memo.getTitleKey());
+                pstmt.setString(7, memo.getBodyKey());
 
-            pstmt.executeUpdate();
+                pstmt.executeUpdate();
 
+                int id;
+                try (ResultSet keys = conn.prepare(LAST_INSERT_ID_SQL).executeQuery()) {
+                    if (!keys.next()) {
+                        throw new SQLException("採番されたIDを取得できませんでした");
+                    }
+                    id = keys.getInt(1);
+                }
+                insertTags(conn, id, memo.getTags());
+                c.commit();
+                timer.success(1);
+                return id;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("メモの保存に失敗しました", e);
         }
@@ -80,28 +227,311 @@ public class MemoRepository {
     /**
      * 既存のメモをデータベースで更新します（UPDATE）。
      * 更新日時もデータベース側で自動的に現在の時刻に設定されます。
+     * タグ索引（`memo_tags`）は置き換えられます。
      *
      * @param memo 更新するMemoオブジェクト。IDが必須です。
      * @throws DataAccessException データベースの更新に失敗した場合。
      */
     public void update(Memo memo) {
-        String sql = "UPDATE memos SET title = ?, body = ?, tags = ?, updated_at = datetime('now', 'localtime') WHERE id = ?";
+        String sql = UPDATE_MEMO_SQL;
 
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Metrics.Timer timer = Metrics.begin("repository.update");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
 
-            pstmt.setString(1, memo.getTitle());
-            pstmt.setString(2, memo.getBody());
-            pstmt.setString(3, String.join(",", memo.getTags()));
-            pstmt.setInt(4, memo.getId());
+                pstmt.setString(1, memo.getTitle());
+                pstmt.setString(2, memo.getBody());
+                pstmt.setString(3, String.join(",", memo.getTags()));
+                pstmt.setLong(4, System.currentTimeMillis());
+                pstmt.setString(5, memo.getTitleKey());
+                pstmt.setString(6, memo.getBodyKey());
+                pstmt.setInt(7, memo.getId());
 
-            pstmt.executeUpdate();
+                pstmt.executeUpdate();
 
+                deleteTags(conn, memo.getId());
+                insertTags(conn, memo.getId(), memo.getTags());
+                c.commit();
+                timer.success(1);
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("メモの更新に失敗しました", e);
         }
     }
 
+    /**
+     * 複数の新しいメモを1トランザクションでまとめて保存します（一括INSERT）。
+     * {@link #DEFAULT_BATCH_SIZE} 件ごとに JDBC のバッチ実行を行い、コミット（fsync）は最後の1回だけです。
+     *
+     * @param memos 保存するMemoオブジェクトのコレクション。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。
+     * @throws DataAccessException 保存に失敗した場合。この場合、1件も保存されません。
+     */
+    public List<Integer> saveAll(Collection<Memo> memos) {
+        return saveAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 複数の新しいメモを1トランザクションでまとめて保存します（一括INSERT）。
+     *
+     * @param memos     保存するMemoオブジェクトのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。
+     * @throws DataAccessException 保存に失敗した場合。この場合、1件も保存されません。
+     */
+    public List<Integer> saveAll(Collection<Memo> memos, int chunkSize) {
+        return insertAll(memos, chunkSize, false, "repository.saveAll");
+    }
+
+    /**
+     * 他のデータベースから取り込んだメモを、作成日時・更新日時を保ったまま1トランザクションでまとめて保存します。
+     * メモのIDは無視され、新しく採番されます。
+     * エポックミリ秒が0のメモには現在時刻を設定し、表示用の日時の文字列はエポックミリ秒からローカル時刻で求めます。
+     * 作成日時と更新日時が等しいメモは、未更新（`updated_at` がNULL）として保存します。
+     *
+     * @param memos     保存するMemoオブジェクトのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。
+     * @throws DataAccessException 保存に失敗した場合。この場合、1件も保存されません。
+     */
+    public List<Integer> importAll(Collection<Memo> memos, int chunkSize) {
+        return insertAll(memos, chunkSize, true, "repository.importAll");
+    }
+
+    /**
+     * {@link #saveAll(Collection, int)} と {@link #importAll(Collection, int)} の共通処理です。
+     *
+     * @param keepTimestamps メモが持つ作成日時・更新日時で保存する場合はtrue、現在時刻で保存する場合はfalse。
+     */
+    private List<Integer> insertAll(Collection<Memo> memos, int chunkSize, boolean keepTimestamps, String metric) {
+        requirePositive(chunkSize);
+        List<Integer> ids = new ArrayList<>(memos.size());
+        if (memos.isEmpty()) {
+            return ids;
+        }
+        String sql = keepTimestamps ? IMPORT_MEMO_SQL : INSERT_MEMO_SQL;
+
+        try (Metrics.Timer timer = Metrics.begin(metric);
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
+                PreparedStatement lastId = conn.prepare(LAST_INSERT_ID_SQL);
+                long now = System.currentTimeMillis();
+
+                for (List<Memo> chunk : chunks(memos, chunkSize)) {
+                    for (Memo memo : chunk) {
+                        pstmt.setString(1, memo.getTitle());
+                        pstmt.setString(2, memo.getBody());
+                        pstmt.setString(3, String.join(",", memo.getTags()));
+                        if (keepTimestamps) {
+                            bindImportedTimestamps(pstmt, memo, now);
+                        } else {
+                            pstmt.setLong(4, now);
+                            pstmt.setLong(5, now);
+                            pstmt.setString(6, memo.getTitleKey());
+                            pstmt.setString(7, memo.getBodyKey());
+                        }
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+
+                    // 書き込みロックを保持した1トランザクション内では AUTOINCREMENT の採番は連続するため、
+                    // 最後に採番されたIDから各行のIDを逆算できる
+                    int last;
+                    try (ResultSet rs = lastId.executeQuery()) {
+                        rs.next();
+                        last = rs.getInt(1);
+                    }
+                    int first = last - chunk.size() + 1;
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ids.add(first + i);
+                    }
+                    insertTags(conn, chunk, ids.subList(ids.size() - chunk.size(), ids.size()));
+                }
+                c.commit();
+                timer.success(ids.size());
+                return ids;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの一括保存に失敗しました", e);
+        }
+    }
+
+    /**
+     * 複数の既存メモを1トランザクションでまとめて更新します（一括UPDATE）。
+     *
+     * @param memos 更新するMemoオブジェクトのコレクション。IDが必須です。
+     * @throws DataAccessException 更新に失敗した場合。この場合、1件も更新されません。
+     */
+    public void updateAll(Collection<Memo> memos) {
+        updateAll(memos, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 複数の既存メモを1トランザクションでまとめて更新します（一括UPDATE）。
+     *
+     * @param memos     更新するMemoオブジェクトのコレクション。IDが必須です。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @throws DataAccessException 更新に失敗した場合。この場合、1件も更新されません。
+     */
+    public void updateAll(Collection<Memo> memos, int chunkSize) {
+        requirePositive(chunkSize);
+        if (memos.isEmpty()) {
+            return;
+        }
+        String sql = UPDATE_MEMO_SQL;
+
+        try (Metrics.Timer timer = Metrics.begin("repository.updateAll");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
+                PreparedStatement deleteTags = conn.prepare(DELETE_TAGS_SQL);
+                long now = System.currentTimeMillis();
+
+                for (List<Memo> chunk : chunks(memos, chunkSize)) {
+                    List<Integer> ids = new ArrayList<>(chunk.size());
+                    for (Memo memo : chunk) {
+                        pstmt.setString(1, memo.getTitle());
+                        pstmt.setString(2, memo.getBody());
+                        pstmt.setString(3, String.join(",", memo.getTags()));
+                        pstmt.setLong(4, now);
+                        pstmt.setString(5, memo.getTitleKey());
+                        pstmt.setString(6, memo.getBodyKey());
+                        pstmt.setInt(7, memo.getId());
+                        pstmt.addBatch();
+
+                        deleteTags.setInt(1, memo.getId());
+                        deleteTags.addBatch();
+                        ids.add(memo.getId());
+                    }
+                    pstmt.executeBatch();
+                    deleteTags.executeBatch();
+                    insertTags(conn, chunk, ids);
+                }
+                c.commit();
+                timer.success(memos.size());
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの一括更新に失敗しました", e);
+        }
+    }
+
+    /**
+     * 指定したIDのメモを1トランザクションでまとめて削除します（一括DELETE）。
+     *
+     * @param ids 削除するメモのIDのコレクション。
+     * @return 実際に削除された件数。
+     * @throws DataAccessException 削除に失敗した場合。この場合、1件も削除されません。
+     */
+    public int deleteAll(Collection<Integer> ids) {
+        return deleteAll(ids, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 指定したIDのメモを1トランザクションでまとめて削除します（一括DELETE）。
+     *
+     * @param ids       削除するメモのIDのコレクション。
+     * @param chunkSize 1回のバッチ実行にまとめる件数。
+     * @return 実際に削除された件数。
+     * @throws DataAccessException 削除に失敗した場合。この場合、1件も削除されません。
+     */
+    public int deleteAll(Collection<Integer> ids, int chunkSize) {
+        requirePositive(chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String sql = "DELETE FROM memos WHERE id = ?";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.deleteAll");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
+                PreparedStatement deleteTags = conn.prepare(DELETE_TAGS_SQL);
+
+                int affected = 0;
+                for (List<Integer> chunk : chunks(ids, chunkSize)) {
+                    for (int id : chunk) {
+                        deleteTags.setInt(1, id);
+                        deleteTags.addBatch();
+                        pstmt.setInt(1, id);
+                        pstmt.addBatch();
+                    }
+                    deleteTags.executeBatch();
+                    for (int count : pstmt.executeBatch()) {
+                        affected += Math.max(count, 0);
+                    }
+                }
+                c.commit();
+                timer.success(affected);
+                return affected;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの一括削除に失敗しました", e);
+        }
+    }
+
+    /**
+     * 指定したIDのメモをまとめて取得します。
+     *
+     * @param ids 取得するメモのIDのコレクション。
+     * @return 該当するMemoオブジェクトのリスト（並び順は保証しません）。存在しないIDは無視されます。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public List<Memo> findByIds(Collection<Integer> ids) {
+        List<Memo> list = new ArrayList<>(ids.size());
+        try (Metrics.Timer timer = Metrics.begin("repository.findByIds");
+                PooledConnection conn = pool.acquireReader()) {
+            for (List<Integer> chunk : chunks(ids, DEFAULT_BATCH_SIZE)) {
+                String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT " + MEMO_COLUMNS + " FROM memos WHERE id IN (" + placeholders + ")";
+                // IN 句の長さで SQL が変わるため、ステートメントキャッシュは使わない
+                try (PreparedStatement pstmt = conn.connection().prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        pstmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            list.add(createMemoFromResultSet(rs));
+                        }
+                    }
+                }
+            }
+            timer.success(list.size());
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの取得に失敗しました", e);
+        }
+        return list;
+    }
+
     /**
      * データベースからすべてのメモを取得します。
      *
@@ -110,15 +540,15 @@ public class MemoRepository {
      */
     public List<Memo> getAll() {
         List<Memo> list = new ArrayList<>();
-        String sql = "SELECT id, title, body, tags, created_at, updated_at FROM memos ORDER BY updated_at DESC, created_at DESC";
 
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql);
-                ResultSet rs = pstmt.executeQuery()) {
+        try (Metrics.Timer timer = Metrics.begin("repository.getAll");
+                PooledConnection conn = pool.acquireReader();
+                ResultSet rs = conn.prepare(ALL_MEMOS_SQL).executeQuery()) {
 
             while (rs.next()) {
                 list.add(createMemoFromResultSet(rs));
             }
+            timer.success(list.size());
 
         } catch (SQLException e) {
             throw new DataAccessException("メモ一覧の取得に失敗しました", e);
@@ -126,28 +556,210 @@ public class MemoRepository {
         return list;
     }
 
+    /**
+     * 指定したIDのメモを1件取得します。
+     *
+     * @param id 取得するメモのID。
+     * @return 該当するMemoオブジェクト。存在しない場合はnull。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public Memo findById(int id) {
+        String sql = "SELECT " + MEMO_COLUMNS + " FROM memos WHERE id = ?";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.findById");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Memo memo = rs.next() ? createMemoFromResultSet(rs) : null;
+                timer.success(memo != null ? 1 : 0);
+                return memo;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの取得に失敗しました", e);
+        }
+    }
+
+    /**
+     * 一覧の並び順（更新日時の降順、IDの降順）で、指定した位置の次から1ページ分のメモを取得します。
+     * キーセットページネーションを使用するため、何ページ目であっても索引を先頭から読み飛ばすことはありません。
+     *
+     * @param after 直前のページの {@link MemoPage#getNext()}。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public MemoPage<Memo> findPage(PageCursor after, int limit) {
+        return findPage(after, limit, MEMO_COLUMNS,
+                this::createMemoFromResultSet, "repository.findPage");
+    }
+
+    /**
+     * {@link #findPage(PageCursor, int)} と同じ並び順で、本文を除いたメモの要約を1ページ分取得します。
+     * 一覧表示では本文を使わないため、本文の読み込みとメモリ消費を省けます。
+     *
+     * @param after 直前のページの {@link MemoPage#getNext()}。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public MemoPage<MemoSummary> findSummaryPage(PageCursor after, int limit) {
+        return findPage(after, limit, "id, title, tags, created_at, updated_at, created_epoch, updated_epoch",
+                this::createSummaryFromResultSet, "repository.findSummaryPage");
+    }
+
+    /**
+     * 指定したIDのメモの本文だけを取得します。
+     *
+     * @param id メモのID。
+     * @return 本文。メモが存在しない場合はnull。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public String findBody(int id) {
+        String sql = "SELECT body FROM memos WHERE id = ?";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.findBody");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                String body = rs.next() ? rs.getString("body") : null;
+                timer.success(body != null ? 1 : 0);
+                return body;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモ本文の取得に失敗しました", e);
+        }
+    }
+
+    /**
+     * キーセットページネーションで1ページ分の行を取得し、指定した方法でオブジェクトに変換します。
+     *
+     * @param after   直前のページの位置。先頭ページを取得する場合はnull。
+     * @param limit   1ページの最大件数。
+     * @param columns 取得する列。
+     * @param mapper  1行をオブジェクトに変換する処理。
+     * @param metric  計測に使用する処理名。
+     */
+    private <T extends MemoSummary> MemoPage<T> findPage(PageCursor after, int limit, String columns,
+            RowMapper<T> mapper, String metric) {
+        requirePositive(limit);
+        String sql = "SELECT " + columns + " FROM memos"
+                + keysetCondition(after)
+                + RECENT_ORDER + " LIMIT ?";
+
+        try (Metrics.Timer timer = Metrics.begin(metric);
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            int index = bindKeyset(pstmt, after);
+            // 次のページが存在するかを判定するため、1件多く取得する
+            pstmt.setInt(index, limit + 1);
+
+            List<T> memos = new ArrayList<>(limit);
+            PageCursor next = null;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (memos.size() == limit) {
+                        T last = memos.get(memos.size() - 1);
+                        next = new PageCursor(last.getUpdatedEpoch(), last.getId());
+                        break;
+                    }
+                    memos.add(mapper.map(rs));
+                }
+            }
+            timer.success(memos.size());
+            return new MemoPage<>(memos, next);
+        } catch (SQLException e) {
+            throw new DataAccessException("メモ一覧のページ取得に失敗しました", e);
+        }
+    }
+
+    /**
+     * 指定した位置から {@code rows} 件進んだ位置を求めます。
+     * 行のキー（更新日時とID）だけを索引から読むため、メモ本体は読み込みません。
+     * 離れたページへ移動する際に、途中のページを読み込まずに位置を求めるために使用します。
+     *
+     * @param after 起点となる位置。先頭から数える場合はnull。
+     * @param rows  進める件数（1以上）。
+     * @return {@code rows} 件目の行の直後を表す位置。行数が足りない場合はnull。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public PageCursor skip(PageCursor after, int rows) {
+        requirePositive(rows);
+        String sql = "SELECT updated_epoch, id FROM memos"
+                + keysetCondition(after)
+                + RECENT_ORDER + " LIMIT 1 OFFSET ?";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.skip");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            int index = bindKeyset(pstmt, after);
+            pstmt.setInt(index, rows - 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                PageCursor cursor = rs.next() ? new PageCursor(rs.getLong("updated_epoch"), rs.getInt("id")) : null;
+                timer.success();
+                return cursor;
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモ一覧の位置の取得に失敗しました", e);
+        }
+    }
+
+    /**
+     * データベースに保存されているメモの件数を取得します。
+     *
+     * @return メモの件数。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public int count() {
+        String sql = "SELECT COUNT(*) FROM memos";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.count");
+                PooledConnection conn = pool.acquireReader();
+                ResultSet rs = conn.prepare(sql).executeQuery()) {
+            int count = rs.next() ? rs.getInt(1) : 0;
+            timer.success();
+            return count;
+        } catch (SQLException e) {
+            throw new DataAccessException("メモ件数の取得に失敗しました", e);
+        }
+    }
+
     /**
      * タイトルまたは本文に指定されたキーワードが含まれるメモを検索します。
-     * あいまい検索（LIKE句）を使用します。
+     * 3文字以上のキーワードは FTS5（trigram）の全文検索索引を使って検索するため、
+     * メモの件数が増えても検索時間はほぼ一定に保たれます。
+     * trigram 索引は2文字以下の語を扱えないため、短いキーワードのみあいまい検索（LIKE句）で検索します。
+     * どちらの場合も、キーワードを {@link TextNormalizer} で正規化し、保存済みの検索キー（`title_key` / `body_key`）と照合します。
      *
-     * @param keyword 検索キーワード。
+     * @param keyword 検索キーワード。空の場合はすべてのメモを返します。
      * @return 条件に一致したMemoオブジェクトのリスト。
      * @throws DataAccessException 検索処理に失敗した場合。
      */
     public List<Memo> findByKeyword(String keyword) {
-        List<Memo> list = new ArrayList<>();
-        String sql = "SELECT id, title, body, tags, created_at, updated_at FROM memos WHERE title LIKE ? OR body LIKE ?";
+        String trimmed = TextNormalizer.normalize(keyword.trim());
+        if (trimmed.isEmpty()) {
+            return getAll();
+        }
 
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        List<Memo> list = new ArrayList<>();
+        boolean useIndex = usesFullTextIndex(trimmed);
 
-            pstmt.setString(1, "%" + keyword + "%");
-            pstmt.setString(2, "%" + keyword + "%");
-            ResultSet rs = pstmt.executeQuery();
+        try (Metrics.Timer timer = Metrics.begin(useIndex ? "repository.findByKeyword.fts" : "repository.findByKeyword.like");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(useIndex ? KEYWORD_FTS_SQL : KEYWORD_LIKE_SQL);
 
-            while (rs.next()) {
-                list.add(createMemoFromResultSet(rs));
+            bindKeyword(pstmt, trimmed, useIndex);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(createMemoFromResultSet(rs));
+                }
             }
+            timer.success(list.size());
 
         } catch (SQLException e) {
             throw new DataAccessException("キーワード検索に失敗しました", e);
@@ -157,39 +769,206 @@ public class MemoRepository {
 
     /**
      * 指定されたタグを持つメモを検索します。
-     * まずLIKE句でDB上の候補を絞り込み、その後Java側で厳密なタグの一致を確認します。
-     * この二段階のフィルタリングは、カンマ区切りの文字列としてタグを保存しているための設計です。
+     * `memo_tags` テーブルのタグ索引を使って一致するメモだけを取得するため、全件走査は行いません。
      *
-     * @param tag 検索するタグ。
+     * @param tag 検索するタグ。大文字・小文字を区別して完全一致で比較します。
      * @return 条件に一致したMemoオブジェクトのリスト。
      * @throws DataAccessException 検索処理に失敗した場合。
      */
     public List<Memo> findByTag(String tag) {
         List<Memo> list = new ArrayList<>();
-        String sql = "SELECT id, title, body, tags, created_at, updated_at FROM memos WHERE tags LIKE ?";
 
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (Metrics.Timer timer = Metrics.begin("repository.findByTag");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(TAG_SQL);
 
-            pstmt.setString(1, "%" + tag + "%");
-            ResultSet rs = pstmt.executeQuery();
+            pstmt.setString(1, tag);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(createMemoFromResultSet(rs));
+                }
+            }
+            timer.success(list.size());
+        } catch (SQLException e) {
+            throw new DataAccessException("タグでの検索に失敗しました", e);
+        }
+        return list;
+    }
 
-            while (rs.next()) {
-                String tagsStr = rs.getString("tags");
-                List<String> tags = parseTags(tagsStr);
+    /**
+     * すべてのメモを一覧の並び順で、1件ずつ読み込むストリームとして取得します。
+     * {@link #getAll()} と異なり結果をリストに溜めないため、エクスポートや一括処理で全件を扱う場合でも
+     * メモリ使用量は読み込み単位（{@link #DEFAULT_FETCH_SIZE} 件）程度に収まります。
+     *
+     * <p>ストリームは読み取り用の接続を占有するため、必ず try-with-resources で閉じてください。
+     * 最後まで読み終えた時点でも接続は返却されます。</p>
+     *
+     * @return メモのストリーム。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。読み込み中の失敗はストリームの操作時に送出されます。
+     */
+    public Stream<Memo> streamAll() {
+        return streamAll(DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * すべてのメモを一覧の並び順で、1件ずつ読み込むストリームとして取得します。
+     *
+     * @param fetchSize 1回の読み込みでデータベースから取得する行数の目安。
+     * @return メモのストリーム。閉じると接続がプールへ返却されます。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。
+     */
+    public Stream<Memo> streamAll(int fetchSize) {
+        return stream(ALL_MEMOS_SQL, pstmt -> { }, fetchSize, "repository.streamAll", "メモ一覧の取得に失敗しました");
+    }
+
+    /**
+     * {@link #findByKeyword(String)} と同じ条件・並び順で、一致するメモを1件ずつ読み込むストリームとして取得します。
+     *
+     * @param keyword 検索キーワード。空の場合はすべてのメモを返します。
+     * @return メモのストリーム。閉じると接続がプールへ返却されます。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。
+     */
+    public Stream<Memo> streamByKeyword(String keyword) {
+        return streamByKeyword(keyword, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * {@link #findByKeyword(String)} と同じ条件・並び順で、一致するメモを1件ずつ読み込むストリームとして取得します。
+     *
+     * @param keyword   検索キーワード。空の場合はすべてのメモを返します。
+     * @param fetchSize 1回の読み込みでデータベースから取得する行数の目安。
+     * @return メモのストリーム。閉じると接続がプールへ返却されます。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。
+     */
+    public Stream<Memo> streamByKeyword(String keyword, int fetchSize) {
+        String trimmed = TextNormalizer.normalize(keyword.trim());
+        if (trimmed.isEmpty()) {
+            return streamAll(fetchSize);
+        }
+        boolean useIndex = usesFullTextIndex(trimmed);
+        return stream(useIndex ? KEYWORD_FTS_SQL : KEYWORD_LIKE_SQL, pstmt -> bindKeyword(pstmt, trimmed, useIndex),
+                fetchSize, useIndex ? "repository.streamByKeyword.fts" : "repository.streamByKeyword.like",
+                "キーワード検索に失敗しました");
+    }
 
-                if (tags.contains(tag)) {
+    /**
+     * {@link #findByTag(String)} と同じ条件・並び順で、一致するメモを1件ずつ読み込むストリームとして取得します。
+     *
+     * @param tag 検索するタグ。大文字・小文字を区別して完全一致で比較します。
+     * @return メモのストリーム。閉じると接続がプールへ返却されます。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。
+     */
+    public Stream<Memo> streamByTag(String tag) {
+        return streamByTag(tag, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * {@link #findByTag(String)} と同じ条件・並び順で、一致するメモを1件ずつ読み込むストリームとして取得します。
+     *
+     * @param tag       検索するタグ。大文字・小文字を区別して完全一致で比較します。
+     * @param fetchSize 1回の読み込みでデータベースから取得する行数の目安。
+     * @return メモのストリーム。閉じると接続がプールへ返却されます。
+     * @throws DataAccessException 問い合わせの実行に失敗した場合。
+     */
+    public Stream<Memo> streamByTag(String tag, int fetchSize) {
+        return stream(TAG_SQL, pstmt -> pstmt.setString(1, tag), fetchSize, "repository.streamByTag",
+                "タグでの検索に失敗しました");
+    }
+
+    /**
+     * 指定した期間に作成されたメモを、作成日時の新しい順に取得します。
+     * `idx_memos_created_epoch` 索引の範囲検索で取得するため、全件の並べ替えは行いません。
+     *
+     * @param from 期間の開始（この時刻を含む）。
+     * @param to   期間の終了（この時刻を含まない）。
+     * @return 期間内に作成されたMemoオブジェクトのリスト。
+     * @throws IllegalArgumentException 開始が終了より後の場合。
+     * @throws DataAccessException      取得処理に失敗した場合。
+     */
+    public List<Memo> findByDateRange(Instant from, Instant to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("期間の開始が終了より後になっています: " + from + " > " + to);
+        }
+        List<Memo> list = new ArrayList<>();
+        String sql = "SELECT " + MEMO_COLUMNS + " FROM memos"
+                + " WHERE created_epoch >= ? AND created_epoch < ?"
+                + " ORDER BY created_epoch DESC, id DESC";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.findByDateRange");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            pstmt.setLong(1, from.toEpochMilli());
+            pstmt.setLong(2, to.toEpochMilli());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
                     list.add(createMemoFromResultSet(rs));
                 }
             }
+            timer.success(list.size());
         } catch (SQLException e) {
-            throw new DataAccessException("タグでの検索に失敗しました", e);
+            throw new DataAccessException("期間を指定した検索に失敗しました", e);
+        }
+        return list;
+    }
+
+    /**
+     * 指定した時刻より後に作成または更新されたメモを、更新日時の新しい順に取得します。
+     * 一覧と同じ `idx_memos_updated_epoch` 索引を先頭から読み、指定時刻に達した時点で読み込みを終えます。
+     *
+     * @param since 基準の時刻（この時刻ちょうどの変更は含みません）。
+     * @return 基準の時刻より後に変更されたMemoオブジェクトのリスト。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public List<Memo> findChangedSince(Instant since) {
+        List<Memo> list = new ArrayList<>();
+        String sql = "SELECT " + MEMO_COLUMNS + " FROM memos WHERE updated_epoch > ?" + RECENT_ORDER;
+
+        try (Metrics.Timer timer = Metrics.begin("repository.findChangedSince");
+                PooledConnection conn = pool.acquireReader()) {
+            PreparedStatement pstmt = conn.prepare(sql);
+
+            pstmt.setLong(1, since.toEpochMilli());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    list.add(createMemoFromResultSet(rs));
+                }
+            }
+            timer.success(list.size());
+        } catch (SQLException e) {
+            throw new DataAccessException("更新されたメモの取得に失敗しました", e);
+        }
+        return list;
+    }
+
+    /**
+     * データベースに登録されているユニークなタグの一覧を取得します。
+     * `memo_tags` のタグ索引だけを読むため、メモ本体のテーブルは走査しません。
+     *
+     * @return 昇順に並んだタグのリスト。
+     * @throws DataAccessException 取得処理に失敗した場合。
+     */
+    public List<String> findAllTags() {
+        List<String> list = new ArrayList<>();
+        String sql = "SELECT DISTINCT tag FROM memo_tags ORDER BY tag";
+
+        try (Metrics.Timer timer = Metrics.begin("repository.findAllTags");
+                PooledConnection conn = pool.acquireReader();
+                ResultSet rs = conn.prepare(sql).executeQuery()) {
+
+            while (rs.next()) {
+                list.add(rs.getString("tag"));
+            }
+            timer.success(list.size());
+        } catch (SQLException e) {
+            throw new DataAccessException("タグ一覧の取得に失敗しました", e);
         }
         return list;
     }
 
     /**
      * 指定されたメモをデータベースから削除します（DELETE）。
+     * 関連するタグ索引も同一トランザクションで削除されます。
      *
      * @param memo 削除するMemoオブジェクト。IDが使用されます。
      * @return 削除が成功した場合はtrue、そうでなければfalse。
@@ -197,26 +976,442 @@ public class MemoRepository {
      */
     public boolean delete(Memo memo) {
         String sql = "DELETE FROM memos WHERE id = ?";
-        try (Connection conn = connect();
-                PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            pstmt.setInt(1, memo.getId());
-            int affected = pstmt.executeUpdate();
-            return affected > 0;
+        try (Metrics.Timer timer = Metrics.begin("repository.delete");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = conn.prepare(sql);
 
+                deleteTags(conn, memo.getId());
+                pstmt.setInt(1, memo.getId());
+                int affected = pstmt.executeUpdate();
+                c.commit();
+                timer.success(affected);
+                return affected > 0;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             throw new DataAccessException("メモの削除に失敗しました", e);
         }
     }
 
     /**
-     * SQLiteデータベースへの接続を確立します。
+     * {@code count} 個のIDを予約します。AUTOINCREMENT の採番位置（`sqlite_sequence`）を進めるため、
+     * 予約したIDは INSERT の採番では使われず、保存しないまま終了しても再利用されません。
+     *
+     * @param count 予約する個数。
+     * @return 予約した最初のID（{@code count} 個のIDは連続します）。
+     * @throws DataAccessException 予約に失敗した場合。
+     */
+    public int reserveIds(int count) {
+        requirePositive(count);
+        try (Metrics.Timer timer = Metrics.begin("repository.reserveIds");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement update = conn.prepare(RESERVE_IDS_SQL);
+                update.setInt(1, count);
+                if (update.executeUpdate() == 0) {
+                    PreparedStatement insert = conn.prepare(INSERT_SEQUENCE_SQL);
+                    insert.setInt(1, count);
+                    insert.executeUpdate();
+                }
+                int last;
+                try (ResultSet rs = conn.prepare(SELECT_SEQUENCE_SQL).executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("採番位置を取得できませんでした");
+                    }
+                    last = rs.getInt(1);
+                }
+                c.commit();
+                timer.success(count);
+                return last - count + 1;
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("IDの予約に失敗しました", e);
+        }
+    }
+
+    /**
+     * メモの書き込みと削除を1トランザクションでまとめて反映します（UPSERT と DELETE）。
+     * {@code puts} のメモは ID・作成日時・更新日時を含めて渡された内容のまま書き込み、同じIDの行があれば置き換えます。
+     * タグ索引（`memo_tags`）も同じトランザクションで置き換え、コミット（fsync）は最後の1回だけです。
+     *
+     * @param puts    書き込むメモ。新しいメモのIDは {@link #reserveIds(int)} で予約したもの。
+     * @param deletes 削除するメモのID。
+     * @throws DataAccessException 反映に失敗した場合。この場合、1件も反映されません。
+     */
+    public void applyAll(Collection<Memo> puts, Collection<Integer> deletes) {
+        if (puts.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+        try (Metrics.Timer timer = Metrics.begin("repository.applyAll");
+                PooledConnection conn = pool.acquireWriter()) {
+            Connection c = conn.connection();
+            c.setAutoCommit(false);
+            try {
+                PreparedStatement upsert = conn.prepare(UPSERT_MEMO_SQL);
+                PreparedStatement delete = conn.prepare("DELETE FROM memos WHERE id = ?");
+                PreparedStatement deleteTags = conn.prepare(DELETE_TAGS_SQL);
+
+                for (List<Memo> chunk : chunks(puts, DEFAULT_BATCH_SIZE)) {
+                    List<Integer> ids = new ArrayList<>(chunk.size());
+                    for (Memo memo : chunk) {
+                        upsert.setInt(1, memo.getId());
+                        upsert.setString(2, memo.getTitle());
+                        upsert.setString(3, memo.getBody());
+                        upsert.setString(4, String.join(",", memo.getTags()));
+                        upsert.setLong(5, memo.getCreatedEpoch());
+                        upsert.setLong(6, memo.getUpdatedEpoch());
+                        upsert.setString(7, Memo.formatLocal(memo.getCreatedEpoch()));
+                        upsert.setString(8, memo.getUpdatedEpoch() == memo.getCreatedEpoch()
+                                ? null : Memo.formatLocal(memo.getUpdatedEpoch()));
+                        upsert.setString(9, memo.getTitleKey());
+                        upsert.setString(10, memo.getBodyKey());
+                        upsert.addBatch();
+
+                        deleteTags.setInt(1, memo.getId());
+                        deleteTags.addBatch();
+                        ids.add(memo.getId());
+                    }
+                    upsert.executeBatch();
+                    deleteTags.executeBatch();
+                    insertTags(conn, chunk, ids);
+                }
+                for (List<Integer> chunk : chunks(deletes, DEFAULT_BATCH_SIZE)) {
+                    for (int id : chunk) {
+                        deleteTags.setInt(1, id);
+                        deleteTags.addBatch();
+                        delete.setInt(1, id);
+                        delete.addBatch();
+                    }
+                    deleteTags.executeBatch();
+                    delete.executeBatch();
+                }
+                c.commit();
+                timer.success(puts.size() + deletes.size());
+            } catch (SQLException e) {
+                c.rollback();
+                throw e;
+            } finally {
+                c.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("メモの書き込みの反映に失敗しました", e);
+        }
+    }
+
+    /**
+     * ステートメントキャッシュのヒット数・ミス数などの統計値を返します。
+     * よく使う問い合わせでヒット率が十分に高ければ、SQL の解析が繰り返されていないことを確認できます。
+     *
+     * @return プール内のすべての接続を合計した統計値。
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        return pool.statementCacheStats();
+    }
+
+    /**
+     * コネクションプールが保持するすべての接続を閉じます。
+     * アプリケーションの終了時に呼び出してください。
+     */
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    /**
+     * 指定したメモのタグを `memo_tags` テーブルに登録します。
+     *
+     * @param conn   トランザクション中の書き込み用接続（プールから借りたもの）。
+     * @param memoId タグを関連付けるメモのID。
+     * @param tags   登録するタグのリスト。
+     * @throws SQLException 登録に失敗した場合。
+     */
+    private void insertTags(PooledConnection conn, int memoId, List<String> tags) throws SQLException {
+        Set<String> uniqueTags = storedTags(tags);
+        if (uniqueTags.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = conn.prepare(INSERT_TAG_SQL);
+        for (String tag : uniqueTags) {
+            pstmt.setInt(1, memoId);
+            pstmt.setString(2, tag);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+
+    /**
+     * 指定したメモのタグをすべて `memo_tags` テーブルから削除します。
+     *
+     * @param conn   トランザクション中の書き込み用接続（プールから借りたもの）。
+     * @param memoId 対象メモのID。
+     * @throws SQLException 削除に失敗した場合。
+     */
+    private void deleteTags(PooledConnection conn, int memoId) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(DELETE_TAGS_SQL);
+        pstmt.setInt(1, memoId);
+        pstmt.executeUpdate();
+    }
+
+    /**
+     * 複数のメモのタグを `memo_tags` テーブルにまとめて登録します。
+     *
+     * @param conn  トランザクション中の書き込み用接続（プールから借りたもの）。
+     * @param memos タグを登録するメモ。
+     * @param ids   各メモのID（memosと同じ順序）。
+     * @throws SQLException 登録に失敗した場合。
+     */
+    private void insertTags(PooledConnection conn, List<Memo> memos, List<Integer> ids) throws SQLException {
+        PreparedStatement pstmt = conn.prepare(INSERT_TAG_SQL);
+        boolean hasTags = false;
+        for (int i = 0; i < memos.size(); i++) {
+            for (String tag : storedTags(memos.get(i).getTags())) {
+                pstmt.setInt(1, ids.get(i));
+                pstmt.setString(2, tag);
+                pstmt.addBatch();
+                hasTags = true;
+            }
+        }
+        if (hasTags) {
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * `memo_tags` に登録するタグを返します。
+     * `tags` 列から読み込んだときと同じタグになるよう、カンマ区切りで連結してから解析し直し、重複を除きます
+     * （前後の空白は除かれ、空のタグとカンマは登録されません）。
+     */
+    private static Set<String> storedTags(List<String> tags) {
+        return new LinkedHashSet<>(parseTags(String.join(",", tags)));
+    }
+
+    /**
+     * {@link #IMPORT_MEMO_SQL} の日時と検索キーのパラメータを設定します。
+     */
+    private static void bindImportedTimestamps(PreparedStatement pstmt, Memo memo, long now) throws SQLException {
+        long created = memo.getCreatedEpoch() > 0 ? memo.getCreatedEpoch() : now;
+        long updated = Math.max(memo.getUpdatedEpoch(), created);
+        pstmt.setLong(4, created);
+        pstmt.setLong(5, updated);
+        pstmt.setString(6, Memo.formatLocal(created));
+        pstmt.setString(7, updated == created ? null : Memo.formatLocal(updated));
+        pstmt.setString(8, memo.getTitleKey());
+        pstmt.setString(9, memo.getBodyKey());
+    }
+
+    /**
+     * キーセットページネーションの WHERE 句を組み立てます。
+     * 条件は `idx_memos_updated_epoch` 索引の範囲検索になるため、読み飛ばす行を走査することはありません。
+     *
+     * @param after 直前の位置。nullの場合は条件なし。
+     * @return 先頭に空白を含む WHERE 句。条件がない場合は空文字列。
+     */
+    private static String keysetCondition(PageCursor after) {
+        if (after == null) {
+            return "";
+        }
+        return " WHERE (updated_epoch < ? OR (updated_epoch = ? AND id < ?))";
+    }
+
+    /**
+     * {@link #keysetCondition(PageCursor)} のバインド変数を設定します。
+     *
+     * @return 次に設定するバインド変数の位置。
+     */
+    private static int bindKeyset(PreparedStatement pstmt, PageCursor after) throws SQLException {
+        int index = 1;
+        if (after == null) {
+            return index;
+        }
+        pstmt.setLong(index++, after.getUpdatedEpoch());
+        pstmt.setLong(index++, after.getUpdatedEpoch());
+        pstmt.setInt(index++, after.getId());
+        return index;
+    }
+
+    /**
+     * コレクションを指定した件数ごとのリストに分割します。
+     */
+    private static <T> List<List<T>> chunks(Collection<T> items, int chunkSize) {
+        List<T> all = new ArrayList<>(items);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += chunkSize) {
+            chunks.add(all.subList(from, Math.min(from + chunkSize, all.size())));
+        }
+        return chunks;
+    }
+
+    static void requirePositive(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("1以上の件数を指定してください: " + count);
+        }
+    }
+
+    /**
+     * 問い合わせを実行し、結果を1行ずつメモに変換するストリームを返します。
+     * ストリームが閉じられるか最後まで読み終えた時点で、ResultSet・ステートメント・接続を解放します。
+     * ステートメントはストリームの間だけ使うため、キャッシュせずに作成します。
+     *
+     * @param sql          実行するSQL。
+     * @param binder       パラメータを設定する処理。
+     * @param fetchSize    1回の読み込みで取得する行数の目安。
+     * @param metric       計測に使う操作名。
+     * @param errorMessage 失敗時の例外メッセージ。
+     * @return メモのストリーム。
+     */
+    private Stream<Memo> stream(String sql, StatementBinder binder, int fetchSize, String metric, String errorMessage) {
+        requirePositive(fetchSize);
+        Metrics.Timer timer = Metrics.begin(metric);
+        PooledConnection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs;
+        try {
+            conn = pool.acquireReader();
+            pstmt = conn.connection().prepareStatement(sql);
+            pstmt.setFetchSize(fetchSize);
+            binder.bind(pstmt);
+            rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(pstmt);
+            if (conn != null) {
+                conn.close();
+            }
+            timer.close();
+            throw new DataAccessException(errorMessage, e);
+        }
+
+        MemoCursor cursor = new MemoCursor(conn, pstmt, rs, timer, errorMessage);
+        return StreamSupport.stream(cursor, false).onClose(cursor::release);
+    }
+
+    /**
+     * 開いている ResultSet を1行ずつ読み進める Spliterator です。
+     * 読み込んだ行数を数え、解放時に計測結果として記録します。
+     */
+    private final class MemoCursor extends Spliterators.AbstractSpliterator<Memo> {
+        private final PooledConnection conn;
+        private final PreparedStatement pstmt;
+        private final ResultSet rs;
+        private final Metrics.Timer timer;
+        private final String errorMessage;
+        private long rows;
+        private boolean failed;
+        private boolean released;
+
+        MemoCursor(PooledConnection conn, PreparedStatement pstmt, ResultSet rs, Metrics.Timer timer, String errorMessage) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.pstmt = pstmt;
+            this.rs = rs;
+            this.timer = timer;
+            this.errorMessage = errorMessage;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Memo> action) {
+            if (released) {
+                return false;
+            }
+            Memo memo;
+            try {
+                if (!rs.next()) {
+                    release(); // 最後まで読んだ時点で接続を返却する
+                    return false;
+                }
+                memo = createMemoFromResultSet(rs);
+            } catch (SQLException e) {
+                failed = true;
+                release();
+                throw new DataAccessException(errorMessage, e);
+            }
+            rows++;
+            action.accept(memo);
+            return true;
+        }
+
+        /**
+         * ResultSet・ステートメント・接続を解放します。複数回呼び出しても一度だけ解放されます。
+         */
+        void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                closeQuietly(rs);
+                closeQuietly(pstmt);
+            } finally {
+                conn.close();
+                if (!failed) {
+                    timer.success(rows);
+                }
+                timer.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            // 解放時の失敗は、読み込んだ結果の正しさに影響しないため無視する
+        }
+    }
+
+    /**
+     * キーワードが trigram 索引で検索できる長さかどうかを判定します。
+     */
+    private static boolean usesFullTextIndex(String normalizedKeyword) {
+        return normalizedKeyword.codePointCount(0, normalizedKeyword.length()) >= MIN_FTS_KEYWORD_LENGTH;
+    }
+
+    /**
+     * {@link #KEYWORD_FTS_SQL} または {@link #KEYWORD_LIKE_SQL} にキーワードを設定します。
+     */
+    private static void bindKeyword(PreparedStatement pstmt, String normalizedKeyword, boolean useIndex)
+            throws SQLException {
+        if (useIndex) {
+            pstmt.setString(1, toPhraseQuery(normalizedKeyword));
+        } else {
+            String pattern = "%" + escapeLike(normalizedKeyword) + "%";
+            pstmt.setString(1, pattern);
+            pstmt.setString(2, pattern);
+        }
+    }
+
+    /**
+     * LIKE 句のワイルドカード（`%` と `_`）とエスケープ文字をエスケープします。
+     */
+    private static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * キーワードを FTS5 のフレーズ検索クエリに変換します。
+     * 二重引用符で囲むことで、`AND` や `*` などの演算子も通常の文字として扱われます。
      *
-     * @return データベース接続を表すConnectionオブジェクト。
-     * @throws SQLException 接続に失敗した場合。
+     * @param keyword 検索キーワード。
+     * @return MATCH 句に渡すクエリ文字列。
      */
-    private Connection connect() throws SQLException {
-        return DriverManager.getConnection(DB_URL);
+    private static String toPhraseQuery(String keyword) {
+        return "\"" + keyword.replace("\"", "\"\"") + "\"";
     }
 
     /**
@@ -234,25 +1429,55 @@ public class MemoRepository {
         String tagsStr = rs.getString("tags");
         String createdAt = rs.getString("created_at");
         String updatedAt = rs.getString("updated_at");
+        long createdEpoch = rs.getLong("created_epoch");
+        long updatedEpoch = rs.getLong("updated_epoch");
+        String titleKey = rs.getString("title_key");
+        String bodyKey = rs.getString("body_key");
 
         List<String> tags = parseTags(tagsStr);
 
-        return new Memo(id, title, body, tags, createdAt, updatedAt);
+        return new Memo(id, title, body, tags, createdAt, updatedAt, createdEpoch, updatedEpoch, titleKey, bodyKey);
+    }
+
+    /**
+     * ResultSetから本文を含まないMemoSummaryオブジェクトを生成するヘルパーメソッドです。
+     *
+     * @param rs 本文以外のMemoデータを含むResultSetオブジェクト。
+     * @return 生成されたMemoSummaryオブジェクト。
+     * @throws SQLException ResultSetからのデータ取得に失敗した場合。
+     */
+    private MemoSummary createSummaryFromResultSet(ResultSet rs) throws SQLException {
+        return new MemoSummary(rs.getInt("id"), rs.getString("title"), parseTags(rs.getString("tags")),
+                rs.getString("created_at"), rs.getString("updated_at"),
+                rs.getLong("created_epoch"), rs.getLong("updated_epoch"));
     }
 
     /**
      * カンマ区切りのタグ文字列を文字列のリストに変換します。
+     * タグは {@link TagDictionary} に登録され、メモはそのIDだけを保持するため、行ごとにタグの文字列は残りません。
      *
      * @param tagsStr データベースから取得したカンマ区切りのタグ文字列。
-     * @return タグのリスト。tagsStrがnullまたは空の場合は空のリストを返します。
+     * @return 読み取り専用のタグのリスト。tagsStrがnullまたは空の場合は空のリストを返します。
      */
-    private List<String> parseTags(String tagsStr) {
-        if (tagsStr == null || tagsStr.isEmpty()) {
-            return new ArrayList<>();
-        }
-        return Arrays.stream(tagsStr.split(","))
-                .map(String::trim)
-                .filter(t -> !t.isEmpty())
-                .collect(Collectors.toList());
+    static List<String> parseTags(String tagsStr) {
+        return TagDictionary.parse(tagsStr);
+    }
+
+    /**
+     * ResultSetの1行をオブジェクトに変換する処理です。
+     *
+     * @param <T> 変換後の型。
+     */
+    @FunctionalInterface
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * プリペアドステートメントにパラメータを設定する処理です。
+     */
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
     }
 }
@@ -0,0 +1,306 @@
+package storage;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import memo.Memo;
+import memo.MemoSummary;
+
+/**
+ * メモの保存先（ストレージ）を表すインターフェースです。
+ * {@link memo.MemoManager} はこのインターフェースだけに依存するため、保存先を差し替えられます。
+ *
+ * <ul>
+ *   <li>{@link MemoRepository} … SQLite に保存します（アプリケーションの既定）</li>
+ *   <li>{@link InMemoryMemoStore} … メモリ上だけに保持します（ファイル I/O を除いた計測や動作確認用）</li>
+ *   <li>{@link LogMemoStore} … メモリマップした追記専用のログファイルに保存します（書き込みの多い用途向け）</li>
+ * </ul>
+ *
+ * <p>どの実装も次の振る舞いをそろえます（{@code bench.MemoStoreConformance} で確認できます）。</p>
+ * <ul>
+ *   <li>IDは1から順に採番し、削除したIDを再利用しない</li>
+ *   <li>一覧の並び順は更新日時（エポックミリ秒）の降順、次にIDの降順。未更新のメモの更新日時は作成日時と同じ</li>
+ *   <li>タグは前後の空白を除いて保存し、空のタグは保存しない。タグでの検索は大文字・小文字を区別した完全一致</li>
+ *   <li>キーワード検索は {@link memo.TextNormalizer} で正規化したキーワードを、タイトルまたは本文の検索キーが含むかどうかで判定する</li>
+ *   <li>表示用の日時の文字列（{@code createdAt} / {@code updatedAt}）はローカル時刻の {@code yyyy-MM-dd HH:mm:ss}。
+ *       未更新のメモの {@code updatedAt} はnull</li>
+ *   <li>読み込んだメモは呼び出しごとに新しいインスタンスで、変更しても保存内容には影響しない</li>
+ * </ul>
+ *
+ * <p>失敗した場合は {@link DataAccessException} をスローします。</p>
+ */
+public interface MemoStore extends AutoCloseable {
+
+    /** 保存先を選ぶシステムプロパティ名（{@code sqlite} / {@code memory} / {@code log}）。 */
+    String STORE_PROPERTY = "hashmemo.store";
+
+    /** 一括処理で1回にまとめる既定の件数。 */
+    int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * システムプロパティ {@value #STORE_PROPERTY} で指定された保存先を開きます。
+     * 指定がない場合は SQLite（{@link MemoRepository#MemoRepository()}）を使用します。
+     *
+     * @return 保存先。
+     * @throws IllegalArgumentException 不明な保存先が指定された場合。
+     * @throws DataAccessException      保存先を開けなかった場合。
+     */
+    static MemoStore open() {
+        String store = System.getProperty(STORE_PROPERTY, "sqlite");
+        switch (store) {
+            case "sqlite":
+                return new MemoRepository();
+            case "memory":
+                return new InMemoryMemoStore();
+            case "log":
+                return new LogMemoStore();
+            default:
+                throw new IllegalArgumentException("不明な保存先です（sqlite / memory / log）: " + store);
+        }
+    }
+
+    /**
+     * 新しいメモを保存します。作成日時と更新日時は現在時刻になります。
+     *
+     * @param memo 保存するメモ。
+     * @return 採番されたメモのID。
+     */
+    int save(Memo memo);
+
+    /**
+     * 既存のメモのタイトル・本文・タグを更新します。更新日時は現在時刻になります。
+     * 該当するメモがない場合は何もしません。
+     *
+     * @param memo 更新するメモ。IDが必須です。
+     */
+    void update(Memo memo);
+
+    /**
+     * 複数の新しいメモをまとめて保存します（{@link #DEFAULT_BATCH_SIZE} 件ずつ）。
+     *
+     * @param memos 保存するメモ。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。失敗した場合は1件も保存されません。
+     */
+    List<Integer> saveAll(Collection<Memo> memos);
+
+    /**
+     * 複数の新しいメモをまとめて保存します。
+     *
+     * @param memos     保存するメモ。
+     * @param chunkSize 1回にまとめる件数。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。失敗した場合は1件も保存されません。
+     */
+    List<Integer> saveAll(Collection<Memo> memos, int chunkSize);
+
+    /**
+     * 取り込んだメモを、作成日時・更新日時を保ったまままとめて保存します。IDは新しく採番します。
+     * 作成日時が0のメモには現在時刻を設定し、更新日時が作成日時より前のメモは作成日時と同じ（未更新）として保存します。
+     *
+     * @param memos     保存するメモ。
+     * @param chunkSize 1回にまとめる件数。
+     * @return 採番されたIDのリスト（引数の順序と対応します）。失敗した場合は1件も保存されません。
+     */
+    List<Integer> importAll(Collection<Memo> memos, int chunkSize);
+
+    /**
+     * 複数の既存メモをまとめて更新します（{@link #DEFAULT_BATCH_SIZE} 件ずつ）。
+     *
+     * @param memos 更新するメモ。IDが必須です。
+     */
+    void updateAll(Collection<Memo> memos);
+
+    /**
+     * 複数の既存メモをまとめて更新します。
+     *
+     * @param memos     更新するメモ。IDが必須です。
+     * @param chunkSize 1回にまとめる件数。
+     */
+    void updateAll(Collection<Memo> memos, int chunkSize);
+
+    /**
+     * 指定したIDのメモをまとめて削除します（{@link #DEFAULT_BATCH_SIZE} 件ずつ）。
+     *
+     * @param ids 削除するメモのID。
+     * @return 実際に削除された件数。
+     */
+    int deleteAll(Collection<Integer> ids);
+
+    /**
+     * 指定したIDのメモをまとめて削除します。
+     *
+     * @param ids       削除するメモのID。
+     * @param chunkSize 1回にまとめる件数。
+     * @return 実際に削除された件数。
+     */
+    int deleteAll(Collection<Integer> ids, int chunkSize);
+
+    /**
+     * メモを1件削除します。
+     *
+     * @param memo 削除するメモ。IDが使用されます。
+     * @return 削除した場合はtrue。該当するメモがなかった場合はfalse。
+     */
+    boolean delete(Memo memo);
+
+    /**
+     * {@code count} 個のIDを予約します。予約したIDは {@link #save(Memo)} などの採番では使われず、
+     * 保存しないまま終了しても再利用されません。{@link #applyAll(Collection, Collection)} で保存するメモのIDに使います。
+     *
+     * @param count 予約する個数。
+     * @return 予約した最初のID（{@code count} 個のIDは連続します）。
+     */
+    int reserveIds(int count);
+
+    /**
+     * メモの書き込みと削除を1回（SQLite では1トランザクション）でまとめて反映します。
+     * {@code puts} のメモは、ID・作成日時・更新日時（エポックミリ秒）を含めて渡された内容のまま書き込み、
+     * 同じIDのメモがなければ追加、あれば置き換えます（置き換える場合、作成日時は変更しません）。
+     * 表示用の日時の文字列はエポックミリ秒から求め、更新日時が作成日時と同じ場合は未更新として扱います。
+     * 新しいメモのIDは {@link #reserveIds(int)} で予約したものを使います。
+     * 同じIDを {@code puts} と {@code deletes} の両方に含めないでください。
+     *
+     * <p>書き込みを溜めてまとめて反映する {@link memo.WriteBehindQueue} が使用します。</p>
+     *
+     * @param puts    書き込むメモ。
+     * @param deletes 削除するメモのID。存在しないIDは無視されます。
+     */
+    void applyAll(Collection<Memo> puts, Collection<Integer> deletes);
+
+    /**
+     * 指定したIDのメモをまとめて取得します。
+     *
+     * @param ids 取得するメモのID。
+     * @return 該当するメモ（並び順は保証しません）。存在しないIDは無視されます。
+     */
+    List<Memo> findByIds(Collection<Integer> ids);
+
+    /**
+     * すべてのメモを一覧の並び順で取得します。
+     *
+     * @return 全メモのリスト。
+     */
+    List<Memo> getAll();
+
+    /**
+     * 指定したIDのメモを取得します。
+     *
+     * @param id メモのID。
+     * @return 該当するメモ。存在しない場合はnull。
+     */
+    Memo findById(int id);
+
+    /**
+     * 一覧の並び順で、指定した位置の次から1ページ分のメモを取得します。
+     *
+     * @param after 直前のページの {@link MemoPage#getNext()}。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     */
+    MemoPage<Memo> findPage(PageCursor after, int limit);
+
+    /**
+     * {@link #findPage(PageCursor, int)} と同じ並び順で、本文を除いたメモの要約を1ページ分取得します。
+     *
+     * @param after 直前のページの {@link MemoPage#getNext()}。先頭ページを取得する場合はnull。
+     * @param limit 1ページの最大件数。
+     * @return 取得したページ。
+     */
+    MemoPage<MemoSummary> findSummaryPage(PageCursor after, int limit);
+
+    /**
+     * 指定したIDのメモの本文だけを取得します。
+     *
+     * @param id メモのID。
+     * @return 本文。メモが存在しない場合はnull。
+     */
+    String findBody(int id);
+
+    /**
+     * 指定した位置から {@code rows} 件進んだ位置を求めます。
+     *
+     * @param after 起点となる位置。先頭から数える場合はnull。
+     * @param rows  進める件数（1以上）。
+     * @return {@code rows} 件目の行の直後を表す位置。行数が足りない場合はnull。
+     */
+    PageCursor skip(PageCursor after, int rows);
+
+    /**
+     * 保存されているメモの件数を取得します。
+     *
+     * @return メモの件数。
+     */
+    int count();
+
+    /**
+     * タイトルまたは本文にキーワードを含むメモを、一覧の並び順で取得します。
+     *
+     * @param keyword 検索キーワード。空の場合はすべてのメモを返します。
+     * @return 一致したメモのリスト。
+     */
+    List<Memo> findByKeyword(String keyword);
+
+    /**
+     * 指定したタグを持つメモを、一覧の並び順で取得します。
+     *
+     * @param tag タグ。大文字・小文字を区別して完全一致で比較します。
+     * @return 一致したメモのリスト。
+     */
+    List<Memo> findByTag(String tag);
+
+    /**
+     * すべてのメモを一覧の並び順で、1件ずつ読み込むストリームとして取得します。
+     * 使用後は必ず閉じてください。
+     *
+     * @return メモのストリーム。
+     */
+    Stream<Memo> streamAll();
+
+    /**
+     * {@link #findByKeyword(String)} と同じ条件・並び順のストリームを取得します。使用後は必ず閉じてください。
+     *
+     * @param keyword 検索キーワード。空の場合はすべてのメモを返します。
+     * @return メモのストリーム。
+     */
+    Stream<Memo> streamByKeyword(String keyword);
+
+    /**
+     * {@link #findByTag(String)} と同じ条件・並び順のストリームを取得します。使用後は必ず閉じてください。
+     *
+     * @param tag タグ。大文字・小文字を区別して完全一致で比較します。
+     * @return メモのストリーム。
+     */
+    Stream<Memo> streamByTag(String tag);
+
+    /**
+     * 指定した期間に作成されたメモを、作成日時の新しい順（同じ場合はIDの降順）に取得します。
+     *
+     * @param from 期間の開始（この時刻を含む）。
+     * @param to   期間の終了（この時刻を含まない）。
+     * @return 期間内に作成されたメモのリスト。
+     * @throws IllegalArgumentException 開始が終了より後の場合。
+     */
+    List<Memo> findByDateRange(Instant from, Instant to);
+
+    /**
+     * 指定した時刻より後に作成または更新されたメモを、一覧の並び順で取得します。
+     *
+     * @param since 基準の時刻（この時刻ちょうどの変更は含みません）。
+     * @return 変更されたメモのリスト。
+     */
+    List<Memo> findChangedSince(Instant since);
+
+    /**
+     * 使われているユニークなタグを昇順で取得します。
+     *
+     * @return タグのリスト。
+     */
+    List<String> findAllTags();
+
+    /**
+     * 保存先が保持する資源（接続など）を解放します。
+     */
+    @Override
+    void close();
+}
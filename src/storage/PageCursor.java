@@ -0,0 +1,52 @@
+package storage;
+
+import java.util.Comparator;
+
+/**
+ * キーセットページネーションで「どこまで読んだか」を表す位置情報です。
+ * 一覧の並び順（更新日時の降順、IDの降順）における直前の行のキーを保持し、
+ * 次のページはこのキーより後ろの行から読み込みます。
+ * OFFSET による読み飛ばしと異なり、ページが深くなっても読み込みコストは増えません。
+ */
+public final class PageCursor {
+
+    /** 一覧の並び順（更新日時の降順、IDの降順）。メモリ上で一覧を保持する保存先が使用します。 */
+    static final Comparator<PageCursor> RECENT_ORDER = Comparator
+            .comparingLong(PageCursor::getUpdatedEpoch).reversed()
+            .thenComparing(Comparator.comparingInt(PageCursor::getId).reversed());
+
+    private final long updatedEpoch;
+    private final int id;
+
+    /**
+     * @param updatedEpoch 直前の行の更新日時（エポックミリ秒）。
+     * @param id           直前の行のID。
+     */
+    PageCursor(long updatedEpoch, int id) {
+        this.updatedEpoch = updatedEpoch;
+        this.id = id;
+    }
+
+    /**
+     * 直前の行の更新日時を返します。
+     *
+     * @return 更新日時（エポックミリ秒）。
+     */
+    long getUpdatedEpoch() {
+        return updatedEpoch;
+    }
+
+    /**
+     * 直前の行のIDを返します。
+     *
+     * @return メモのID。
+     */
+    int getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor[updatedEpoch=" + updatedEpoch + ", id=" + id + "]";
+    }
+}
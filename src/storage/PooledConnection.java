@@ -0,0 +1,64 @@
+package storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * コネクションプールから貸し出された接続を表すクラスです。
+ * try-with-resources でクローズすると、実際の接続は閉じずにプールへ返却されます。
+ */
+class PooledConnection implements AutoCloseable {
+
+    private final Connection connection;
+    private final StatementCache statements;
+    private final Consumer<Connection> releaser;
+    private boolean released;
+
+    /**
+     * @param connection 貸し出す接続。
+     * @param statements 接続に結び付いたステートメントキャッシュ。
+     * @param releaser   返却時に呼び出される処理。
+     */
+    PooledConnection(Connection connection, StatementCache statements, Consumer<Connection> releaser) {
+        this.connection = connection;
+        this.statements = statements;
+        this.releaser = releaser;
+    }
+
+    /**
+     * 貸し出された接続を返します。
+     * 返された接続を直接クローズしてはいけません。
+     *
+     * @return JDBC接続。
+     */
+    Connection connection() {
+        return connection;
+    }
+
+    /**
+     * 指定したSQLのステートメントを、接続のステートメントキャッシュから取得します。
+     * 返されたステートメントは使い回されるため、閉じてはいけません（ResultSet は閉じてください）。
+     * 一度しか実行しないSQLや、可変長のIN句のように文字列が毎回変わるSQLには
+     * {@link #connection()} の {@code prepareStatement} を使用してください。
+     *
+     * @param sql SQL文字列。
+     * @return プリペアドステートメント。
+     * @throws SQLException ステートメントの準備に失敗した場合。
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        return statements.prepare(sql);
+    }
+
+    /**
+     * 接続をプールへ返却します。複数回呼び出しても一度だけ返却されます。
+     */
+    @Override
+    public void close() {
+        if (!released) {
+            released = true;
+            releaser.accept(connection);
+        }
+    }
+}
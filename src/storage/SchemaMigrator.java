@@ -0,0 +1,247 @@
+package storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import memo.TextNormalizer;
+
+/**
+ * データベーススキーマの作成とバージョンアップ（マイグレーション）を担当するクラスです。
+ * 現在のスキーマバージョンは SQLite の {@code PRAGMA user_version} に記録し、
+ * 起動時に未適用のマイグレーションだけを順番に、それぞれ1トランザクションで適用します。
+ */
+class SchemaMigrator {
+
+    /** このバージョンのアプリケーションが想定するスキーマバージョン。 */
+    static final int CURRENT_VERSION = 5;
+
+    private SchemaMigrator() {
+    }
+
+    /**
+     * テーブルを作成し、未適用のマイグレーションをすべて適用します。
+     *
+     * @param conn 書き込み用の接続。
+     * @throws SQLException スキーマの作成または移行に失敗した場合。
+     */
+    static void migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // `memos` テーブルが存在しない場合に作成するSQL
+            // `created_at` にはデフォルトで現在時刻が設定される
+            stmt.execute("CREATE TABLE IF NOT EXISTS memos ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "title TEXT NOT NULL,"
+                    + "body TEXT NOT NULL,"
+                    + "tags TEXT,"
+                    + "created_at TEXT NOT NULL DEFAULT (datetime('now', 'localtime')),"
+                    + "updated_at TEXT"
+                    + ");");
+        }
+
+        int version = readVersion(conn);
+        while (version < CURRENT_VERSION) {
+            int next = version + 1;
+            conn.setAutoCommit(false);
+            try {
+                apply(conn, next);
+                writeVersion(conn, next);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+            version = next;
+        }
+    }
+
+    /**
+     * 指定したバージョンへのマイグレーションを1つ適用します。
+     *
+     * @param conn    書き込み用の接続（トランザクション中）。
+     * @param version 適用後のスキーマバージョン。
+     * @throws SQLException SQLの実行に失敗した場合。
+     */
+    private static void apply(Connection conn, int version) throws SQLException {
+        switch (version) {
+            case 1:
+                createTagTable(conn);
+                break;
+            case 2:
+                createFullTextIndex(conn);
+                break;
+            case 3:
+                createRecentOrderIndex(conn);
+                break;
+            case 4:
+                addEpochColumns(conn);
+                break;
+            case 5:
+                addSearchKeyColumns(conn);
+                break;
+            default:
+                throw new SQLException("未知のスキーマバージョンです: " + version);
+        }
+    }
+
+    /**
+     * v1: タグを1行1タグで保持する `memo_tags` テーブルを作成し、既存メモのタグを移行します。
+     * `memos.tags` のカンマ区切り文字列は表示用として引き続き保持します。
+     */
+    private static void createTagTable(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS memo_tags ("
+                    + "memo_id INTEGER NOT NULL REFERENCES memos(id) ON DELETE CASCADE,"
+                    + "tag TEXT NOT NULL,"
+                    + "PRIMARY KEY (memo_id, tag)"
+                    + ") WITHOUT ROWID;");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_memo_tags_tag ON memo_tags (tag, memo_id);");
+        }
+
+        String select = "SELECT id, tags FROM memos WHERE tags IS NOT NULL AND tags <> ''";
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery(select);
+                PreparedStatement insert = conn.prepareStatement(MemoRepository.INSERT_TAG_SQL)) {
+            while (rs.next()) {
+                int memoId = rs.getInt("id");
+                for (String tag : MemoRepository.parseTags(rs.getString("tags"))) {
+                    insert.setInt(1, memoId);
+                    insert.setString(2, tag);
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * v2: タイトルと本文の全文検索用に FTS5 仮想テーブル `memos_fts` を作成します。
+     * 日本語のように単語の区切りがない文章でも部分一致検索できるよう、trigram トークナイザを使用します。
+     * `memos` を外部コンテンツとし、トリガーで索引を同期するため本文は二重に保存されません。
+     */
+    private static void createFullTextIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS memos_fts USING fts5("
+                    + "title, body,"
+                    + "content='memos', content_rowid='id',"
+                    + "tokenize='trigram'"
+                    + ");");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS memos_fts_ai AFTER INSERT ON memos BEGIN "
+                    + "INSERT INTO memos_fts (rowid, title, body) VALUES (new.id, new.title, new.body); "
+                    + "END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS memos_fts_ad AFTER DELETE ON memos BEGIN "
+                    + "INSERT INTO memos_fts (memos_fts, rowid, title, body) VALUES ('delete', old.id, old.title, old.body); "
+                    + "END;");
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS memos_fts_au AFTER UPDATE OF title, body ON memos BEGIN "
+                    + "INSERT INTO memos_fts (memos_fts, rowid, title, body) VALUES ('delete', old.id, old.title, old.body); "
+                    + "INSERT INTO memos_fts (rowid, title, body) VALUES (new.id, new.title, new.body); "
+                    + "END;");
+            // 既存のメモから索引を作り直す
+            stmt.execute("INSERT INTO memos_fts (memos_fts) VALUES ('rebuild');");
+        }
+    }
+
+    /**
+     * v3: 一覧の並び順（更新日時の降順、IDの降順）に沿った索引を作成します。
+     * キーセットページネーションで並べ替えを行わずに、索引を順に読むだけでページを取得できます。
+     */
+    private static void createRecentOrderIndex(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_memos_updated ON memos (updated_at DESC, id DESC);");
+        }
+    }
+
+    /**
+     * v4: 作成日時・更新日時を整数（エポックミリ秒）で保持する `created_epoch` / `updated_epoch` 列を追加し、
+     * 既存のメモは文字列の日時（ローカル時刻）から値を移行します。
+     * 未更新のメモの `updated_epoch` には作成日時を設定するため、NULL による並び順の偏りはなくなります。
+     * 一覧の並び順と期間指定の検索に使う索引を作成し、文字列の日時に対する v3 の索引は削除します。
+     */
+    private static void addEpochColumns(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE memos ADD COLUMN created_epoch INTEGER NOT NULL DEFAULT 0;");
+            stmt.execute("ALTER TABLE memos ADD COLUMN updated_epoch INTEGER NOT NULL DEFAULT 0;");
+            // 'utc' 修飾子でローカル時刻を UTC に変換してからエポック秒を求める
+            stmt.execute("UPDATE memos SET created_epoch = CAST(strftime('%s', created_at, 'utc') AS INTEGER) * 1000;");
+            stmt.execute("UPDATE memos SET updated_epoch = COALESCE("
+                    + "CAST(strftime('%s', updated_at, 'utc') AS INTEGER) * 1000, created_epoch);");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_memos_updated_epoch ON memos (updated_epoch DESC, id DESC);");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_memos_created_epoch ON memos (created_epoch DESC, id DESC);");
+            stmt.execute("DROP INDEX IF EXISTS idx_memos_updated;");
+        }
+    }
+
+    /**
+     * v5: タイトルと本文を {@link TextNormalizer} で正規化した検索キーの列 `title_key` / `body_key` を追加し、
+     * 既存のメモの値を求めて設定します。正規化は SQL では行えないため、アプリケーション側で計算します。
+     * 全文検索索引 `memos_fts` は検索キーの列を対象に作り直し、全角・半角や大文字・小文字、
+     * カタカナ・ひらがなの違いを区別せずに検索できるようにします。
+     */
+    private static void addSearchKeyColumns(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE memos ADD COLUMN title_key TEXT NOT NULL DEFAULT '';");
+            stmt.execute("ALTER TABLE memos ADD COLUMN body_key TEXT NOT NULL DEFAULT '';");
+        }
+
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT id, title, body FROM memos");
+                PreparedStatement update = conn.prepareStatement(
+                        "UPDATE memos SET title_key = ?, body_key = ? WHERE id = ?")) {
+            int pending = 0;
+            while (rs.next()) {
+                update.setString(1, TextNormalizer.normalize(rs.getString("title")));
+                update.setString(2, TextNormalizer.normalize(rs.getString("body")));
+                update.setInt(3, rs.getInt("id"));
+                update.addBatch();
+                if (++pending == MemoRepository.DEFAULT_BATCH_SIZE) {
+                    update.executeBatch();
+                    pending = 0;
+                }
+            }
+            update.executeBatch();
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TRIGGER IF EXISTS memos_fts_ai;");
+            stmt.execute("DROP TRIGGER IF EXISTS memos_fts_ad;");
+            stmt.execute("DROP TRIGGER IF EXISTS memos_fts_au;");
+            stmt.execute("DROP TABLE IF EXISTS memos_fts;");
+            stmt.execute("CREATE VIRTUAL TABLE memos_fts USING fts5("
+                    + "title_key, body_key,"
+                    + "content='memos', content_rowid='id',"
+                    + "tokenize='trigram'"
+                    + ");");
+            stmt.execute("CREATE TRIGGER memos_fts_ai AFTER INSERT ON memos BEGIN "
+                    + "INSERT INTO memos_fts (rowid, title_key, body_key) VALUES (new.id, new.title_key, new.body_key); "
+                    + "END;");
+            stmt.execute("CREATE TRIGGER memos_fts_ad AFTER DELETE ON memos BEGIN "
+                    + "INSERT INTO memos_fts (memos_fts, rowid, title_key, body_key)"
+                    + " VALUES ('delete', old.id, old.title_key, old.body_key); "
+                    + "END;");
+            stmt.execute("CREATE TRIGGER memos_fts_au AFTER UPDATE OF title_key, body_key ON memos BEGIN "
+                    + "INSERT INTO memos_fts (memos_fts, rowid, title_key, body_key)"
+                    + " VALUES ('delete', old.id, old.title_key, old.body_key); "
+                    + "INSERT INTO memos_fts (rowid, title_key, body_key) VALUES (new.id, new.title_key, new.body_key); "
+                    + "END;");
+            stmt.execute("INSERT INTO memos_fts (memos_fts) VALUES ('rebuild');");
+        }
+    }
+
+    private static int readVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void writeVersion(Connection conn, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // PRAGMA はバインド変数を受け付けないため、整数値を直接埋め込む
+            stmt.execute("PRAGMA user_version = " + version);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1本の接続に結び付いた、SQL文字列をキーとするプリペアドステートメントのキャッシュです。
+ * SQLite は {@code prepareStatement} のたびに SQL を解析して実行計画を作るため、
+ * 繰り返し実行する問い合わせはここで一度だけ準備し、以降は同じステートメントを使い回します。
+ * 上限を超えた場合は、最後に使われた時期が古いステートメントから閉じて破棄します。
+ *
+ * <p>接続はプールから一度に1つのスレッドにしか貸し出されないため、このクラスは同期化していません。
+ * 統計値（ヒット数・ミス数）はプール内のすべてのキャッシュで共有されます。</p>
+ */
+class StatementCache implements AutoCloseable {
+
+    private final Connection connection;
+    private final int capacity;
+    private final Stats stats;
+
+    /** SQL → ステートメント。最近使った順に並びます。 */
+    private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(32, 0.75f, true);
+
+    /**
+     * @param connection ステートメントを準備する接続。
+     * @param capacity   保持するステートメントの上限数。
+     * @param stats      ヒット数・ミス数の集計先。
+     */
+    StatementCache(Connection connection, int capacity, Stats stats) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.stats = stats;
+    }
+
+    /**
+     * 指定したSQLのステートメントを返します。キャッシュにない場合は準備して追加します。
+     * 返すステートメントのパラメータとバッチはクリア済みです。
+     * 返されたステートメントは使い回されるため、呼び出し元で閉じてはいけません。
+     *
+     * @param sql SQL文字列。
+     * @return プリペアドステートメント。
+     * @throws SQLException ステートメントの準備に失敗した場合。
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt != null && !stmt.isClosed()) {
+            stats.hits.increment();
+            // 前回の利用者が例外で抜けた場合に備え、残ったパラメータとバッチを消しておく
+            stmt.clearParameters();
+            stmt.clearBatch();
+            return stmt;
+        }
+        stats.misses.increment();
+        stmt = connection.prepareStatement(sql);
+        statements.put(sql, stmt);
+        evictOverflow();
+        return stmt;
+    }
+
+    /**
+     * 保持しているすべてのステートメントを閉じます。接続を閉じる前に呼び出します。
+     */
+    @Override
+    public void close() {
+        for (PreparedStatement stmt : statements.values()) {
+            closeQuietly(stmt);
+        }
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<PreparedStatement> it = statements.values().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            closeQuietly(it.next());
+            it.remove();
+            stats.evictions.increment();
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            System.err.println("ステートメントのクローズに失敗しました: " + e.getMessage());
+        }
+    }
+
+    /**
+     * プール内のステートメントキャッシュに共通の統計値です。
+     */
+    static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        StatementCacheStats snapshot() {
+            return new StatementCacheStats(hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+}
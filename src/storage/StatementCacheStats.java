@@ -0,0 +1,60 @@
+package storage;
+
+/**
+ * ステートメントキャッシュのヒット数・ミス数などの統計値です。
+ * キャッシュが負荷のもとで有効に働いているか（ヒット率が十分に高いか）を確認するために使用します。
+ */
+public final class StatementCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+    StatementCacheStats(long hits, long misses, long evictions) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+    /**
+     * キャッシュ済みのステートメントを再利用した回数を返します。
+     *
+     * @return ヒット数。
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * ステートメントを新たに準備（SQL を解析）した回数を返します。
+     *
+     * @return ミス数。
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * 上限を超えたためにステートメントを破棄した回数を返します。
+     *
+     * @return 破棄した回数。
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * ヒット率を返します。
+     *
+     * @return 0.0〜1.0 のヒット率。まだ一度も使われていない場合は0.0。
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d misses=%d evictions=%d hitRatio=%.3f", hits, misses, evictions, getHitRatio());
+    }
+}
@@ -0,0 +1,252 @@
+package transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import memo.Memo;
+
+/**
+ * メモを CSV 形式（RFC 4180）で読み書きします。
+ * 1行目は見出し行（{@code id,title,body,tags,createdAt,updatedAt}）で、タグはカンマ区切りで1つの項目にまとめます。
+ * カンマ・二重引用符・改行を含む項目は二重引用符で囲むため、本文に改行があっても1件として読み戻せます。
+ *
+ * <p>読み込み時は見出し行の項目名で列を対応付けるため、列の順序は問いません（{@code id} と未知の列は無視します）。</p>
+ */
+final class CsvRecords {
+
+    /** 書き出す列の順序。 */
+    private static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+            MemoRecords.ID, MemoRecords.TITLE, MemoRecords.BODY, MemoRecords.TAGS,
+            MemoRecords.CREATED_AT, MemoRecords.UPDATED_AT));
+
+    private CsvRecords() {
+    }
+
+    /**
+     * 見出し行を書き出します。
+     *
+     * @param out 書き出し先。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    static void writeHeader(Writer out) throws IOException {
+        out.write(String.join(",", COLUMNS));
+        out.write("\r\n");
+    }
+
+    /**
+     * メモを1件（1レコード）書き出します。
+     *
+     * @param out  書き出し先。
+     * @param memo 書き出すメモ。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    static void write(Writer out, Memo memo) throws IOException {
+        out.write(Integer.toString(memo.getId()));
+        out.write(',');
+        writeField(out, memo.getTitle());
+        out.write(',');
+        writeField(out, memo.getBody());
+        out.write(',');
+        writeField(out, String.join(",", memo.getTags()));
+        out.write(',');
+        out.write(MemoRecords.formatInstant(memo.getCreatedEpoch()));
+        out.write(',');
+        out.write(MemoRecords.formatInstant(memo.getUpdatedEpoch()));
+        out.write("\r\n");
+    }
+
+    /**
+     * 入力を1レコードずつ読み込み、メモに変換するイテレータを返します。
+     *
+     * @param in 読み込み元。
+     * @return メモのイテレータ。
+     */
+    static Iterator<Memo> reader(Reader in) {
+        RecordReader records = new RecordReader(in);
+        return new MemoRecordIterator() {
+            private Map<String, Integer> columns;
+
+            @Override
+            protected Memo readNext() throws IOException {
+                if (columns == null) {
+                    List<String> header = records.next();
+                    if (header == null) {
+                        return null;
+                    }
+                    columns = new HashMap<>();
+                    for (int i = 0; i < header.size(); i++) {
+                        columns.put(header.get(i).trim(), i);
+                    }
+                    if (!columns.containsKey(MemoRecords.TITLE) || !columns.containsKey(MemoRecords.BODY)) {
+                        throw new MemoFormatException(1, "見出し行に " + MemoRecords.TITLE + " と " + MemoRecords.BODY
+                                + " の列が必要です");
+                    }
+                }
+                List<String> record = records.next();
+                if (record == null) {
+                    return null;
+                }
+                long line = records.recordStartLine();
+                String tags = field(record, MemoRecords.TAGS);
+                return MemoRecords.toMemo(field(record, MemoRecords.TITLE), field(record, MemoRecords.BODY),
+                        tags == null ? Collections.emptyList() : Collections.singletonList(tags),
+                        field(record, MemoRecords.CREATED_AT), field(record, MemoRecords.UPDATED_AT), line);
+            }
+
+            private String field(List<String> record, String name) {
+                Integer index = columns.get(name);
+                return index != null && index < record.size() ? record.get(index) : null;
+            }
+        };
+    }
+
+    private static void writeField(Writer out, String value) throws IOException {
+        boolean needsQuote = false;
+        for (int i = 0; i < value.length() && !needsQuote; i++) {
+            char c = value.charAt(i);
+            needsQuote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuote) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    /**
+     * CSV を1レコードずつ読み込むリーダーです。
+     * 引用符で囲まれた項目の中の改行はレコードの区切りとして扱いません。空行は読み飛ばします。
+     * 1文字ずつの {@code read()} は遅いため、独自のバッファで読み込みます。
+     */
+    private static final class RecordReader {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private int length;
+        private int pos;
+        private long line = 1;
+        private long recordStartLine;
+        private boolean atStart = true;
+
+        RecordReader(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * @return 直前に読み込んだレコードの開始行（1始まり）。
+         */
+        long recordStartLine() {
+            return recordStartLine;
+        }
+
+        /**
+         * 次のレコードを読み込みます。
+         *
+         * @return 項目のリスト。入力の終わりに達した場合はnull。
+         */
+        List<String> next() throws IOException {
+            int c;
+            // 空行を読み飛ばす
+            while ((c = read()) == '\r' || c == '\n') {
+                consumeNewline(c);
+            }
+            if (c == -1) {
+                return null;
+            }
+            recordStartLine = line;
+
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean afterQuote = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new MemoFormatException(recordStartLine, "引用符で囲まれた項目が閉じられていません");
+                    }
+                    if (c == '"') {
+                        int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            afterQuote = true;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    afterQuote = false;
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    if (c != -1) {
+                        consumeNewline(c);
+                    }
+                    return fields;
+                } else if (afterQuote) {
+                    throw new MemoFormatException(line, "引用符の後には ',' または改行が必要です");
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        /**
+         * 改行文字を読み終えた後に呼び出し、CRLF の LF を読み飛ばして行番号を進めます。
+         */
+        private void consumeNewline(int c) throws IOException {
+            if (c == '\r') {
+                if (peek() == '\n') {
+                    pos++;
+                }
+            }
+            line++;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            if (c != -1) {
+                pos++;
+            }
+            return c;
+        }
+
+        private int peek() throws IOException {
+            if (pos >= length) {
+                length = in.read(buffer);
+                pos = 0;
+                if (length <= 0) {
+                    length = 0;
+                    return -1;
+                }
+                if (atStart) {
+                    atStart = false;
+                    if (buffer[0] == '\uFEFF') {
+                        pos = 1; // 表計算ソフトが付けるバイトオーダーマークを読み飛ばす
+                        return peek();
+                    }
+                }
+            }
+            return buffer[pos];
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import memo.Memo;
+
+/**
+ * メモを JSON Lines 形式（1行に1件の JSON オブジェクト）で読み書きします。
+ *
+ * <pre>
+ * {"id":1,"title":"買い物","body":"牛乳","tags":["家事"],"createdAt":"2025-01-31T09:00:00Z","updatedAt":"2025-01-31T09:00:00Z"}
+ * </pre>
+ *
+ * 読み込み時は {@code id} と未知のキーを無視します。外部のライブラリを使わないよう、
+ * 1行分のオブジェクトだけを解析する最小限のパーサーを持ちます。
+ */
+final class JsonLines {
+
+    private JsonLines() {
+    }
+
+    /**
+     * メモを1行分書き出します。
+     *
+     * @param out  書き出し先。
+     * @param memo 書き出すメモ。
+     * @throws IOException 書き込みに失敗した場合。
+     */
+    static void write(Writer out, Memo memo) throws IOException {
+        out.write("{\"" + MemoRecords.ID + "\":");
+        out.write(Integer.toString(memo.getId()));
+        writeField(out, MemoRecords.TITLE, memo.getTitle());
+        writeField(out, MemoRecords.BODY, memo.getBody());
+        out.write(",\"" + MemoRecords.TAGS + "\":[");
+        List<String> tags = memo.getTags();
+        for (int i = 0; i < tags.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeString(out, tags.get(i));
+        }
+        out.write(']');
+        writeField(out, MemoRecords.CREATED_AT, MemoRecords.formatInstant(memo.getCreatedEpoch()));
+        writeField(out, MemoRecords.UPDATED_AT, MemoRecords.formatInstant(memo.getUpdatedEpoch()));
+        out.write("}\n");
+    }
+
+    /**
+     * 入力を1行ずつ読み込み、メモに変換するイテレータを返します。空行は読み飛ばします。
+     *
+     * @param in 読み込み元。
+     * @return メモのイテレータ。
+     */
+    static Iterator<Memo> reader(BufferedReader in) {
+        return new MemoRecordIterator() {
+            private long lineNumber;
+
+            @Override
+            protected Memo readNext() throws IOException {
+                String line;
+                do {
+                    line = in.readLine();
+                    lineNumber++;
+                    if (line == null) {
+                        return null;
+                    }
+                    if (lineNumber == 1 && line.startsWith("\uFEFF")) {
+                        line = line.substring(1);
+                    }
+                } while (line.trim().isEmpty());
+                return toMemo(new Parser(line, lineNumber).parseObject(), lineNumber);
+            }
+        };
+    }
+
+    private static Memo toMemo(Map<String, Object> fields, long lineNumber) {
+        List<String> tags = new ArrayList<>();
+        Object rawTags = fields.get(MemoRecords.TAGS);
+        if (rawTags instanceof List) {
+            for (Object tag : (List<?>) rawTags) {
+                if (!(tag instanceof String)) {
+                    throw new MemoFormatException(lineNumber, MemoRecords.TAGS + " には文字列を指定してください");
+                }
+                tags.add((String) tag);
+            }
+        } else if (rawTags instanceof String) {
+            tags.add((String) rawTags);
+        } else if (rawTags != null) {
+            throw new MemoFormatException(lineNumber, MemoRecords.TAGS + " には文字列の配列を指定してください");
+        }
+        return MemoRecords.toMemo(string(fields, MemoRecords.TITLE, lineNumber), string(fields, MemoRecords.BODY, lineNumber),
+                tags, string(fields, MemoRecords.CREATED_AT, lineNumber), string(fields, MemoRecords.UPDATED_AT, lineNumber),
+                lineNumber);
+    }
+
+    private static String string(Map<String, Object> fields, String key, long lineNumber) {
+        Object value = fields.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new MemoFormatException(lineNumber, key + " には文字列を指定してください");
+        }
+        return (String) value;
+    }
+
+    private static void writeField(Writer out, String key, String value) throws IOException {
+        out.write(",\"");
+        out.write(key);
+        out.write("\":");
+        writeString(out, value);
+    }
+
+    /**
+     * 文字列を JSON の文字列リテラルとして書き出します。
+     * 1行に1件を保つため、改行を含む制御文字と行区切り文字（U+2028、U+2029）はエスケープします。
+     */
+    private static void writeString(Writer out, String value) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escaped;
+            switch (c) {
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                default:
+                    escaped = c < 0x20 || c == '\u2028' || c == '\u2029' ? String.format("\\u%04x", (int) c) : null;
+                    break;
+            }
+            if (escaped != null) {
+                out.write(value, start, i - start);
+                out.write(escaped);
+                start = i + 1;
+            }
+        }
+        out.write(value, start, value.length() - start);
+        out.write('"');
+    }
+
+    /**
+     * 1行分の JSON を解析するパーサーです。
+     * 値は文字列・配列（List）・オブジェクト（Map）・真偽値・null・数値（文字列のまま）として返します。
+     */
+    private static final class Parser {
+        private final String text;
+        private final long lineNumber;
+        private int pos;
+
+        Parser(String text, long lineNumber) {
+            this.text = text;
+            this.lineNumber = lineNumber;
+        }
+
+        Map<String, Object> parseObject() {
+            skipWhitespace();
+            Map<String, Object> object = readObject();
+            skipWhitespace();
+            if (pos < text.length()) {
+                throw error("オブジェクトの後に余分な文字があります");
+            }
+            return object;
+        }
+
+        private Object readValue() {
+            skipWhitespace();
+            if (pos >= text.length()) {
+                throw error("値がありません");
+            }
+            char c = text.charAt(pos);
+            switch (c) {
+                case '{':
+                    return readObject();
+                case '[':
+                    return readArray();
+                case '"':
+                    return readString();
+                case 't':
+                    return readLiteral("true", Boolean.TRUE);
+                case 'f':
+                    return readLiteral("false", Boolean.FALSE);
+                case 'n':
+                    return readLiteral("null", null);
+                default:
+                    return readNumber();
+            }
+        }
+
+        private Map<String, Object> readObject() {
+            expect('{');
+            Map<String, Object> object = new LinkedHashMap<>();
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return object;
+            }
+            while (true) {
+                skipWhitespace();
+                String key = readString();
+                skipWhitespace();
+                expect(':');
+                object.put(key, readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == '}') {
+                    return object;
+                }
+                if (c != ',') {
+                    throw error("',' または '}' が必要です");
+                }
+            }
+        }
+
+        private List<Object> readArray() {
+            expect('[');
+            List<Object> array = new ArrayList<>();
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return array;
+            }
+            while (true) {
+                array.add(readValue());
+                skipWhitespace();
+                char c = next();
+                if (c == ']') {
+                    return array;
+                }
+                if (c != ',') {
+                    throw error("',' または ']' が必要です");
+                }
+            }
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder sb = null;
+            int start = pos;
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("文字列が閉じられていません");
+                }
+                char c = text.charAt(pos);
+                if (c == '"') {
+                    String value = sb == null ? text.substring(start, pos) : sb.append(text, start, pos).toString();
+                    pos++;
+                    return value;
+                }
+                if (c != '\\') {
+                    pos++;
+                    continue;
+                }
+                if (sb == null) {
+                    sb = new StringBuilder();
+                }
+                sb.append(text, start, pos);
+                pos++;
+                char escape = next();
+                switch (escape) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        sb.append(escape);
+                        break;
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("\\u エスケープが不完全です");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("\\u エスケープが正しくありません");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        throw error("不明なエスケープです: \\" + escape);
+                }
+                start = pos;
+            }
+        }
+
+        private Object readLiteral(String literal, Object value) {
+            if (!text.startsWith(literal, pos)) {
+                throw error("不明な値です");
+            }
+            pos += literal.length();
+            return value;
+        }
+
+        private String readNumber() {
+            int start = pos;
+            while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error("不明な値です");
+            }
+            return text.substring(start, pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            if (pos >= text.length()) {
+                throw error("行の途中で終わっています");
+            }
+            return text.charAt(pos);
+        }
+
+        private char next() {
+            char c = peek();
+            pos++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("'" + expected + "' が必要です");
+            }
+        }
+
+        private MemoFormatException error(String message) {
+            return new MemoFormatException(lineNumber, message + "（" + (pos + 1) + " 文字目）");
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package transfer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import memo.Memo;
+import memo.MemoManager;
+import metrics.Metrics;
+
+/**
+ * すべてのメモを JSONL または CSV のファイルへ書き出します。
+ * メモはデータベースから1件ずつ読み込んでそのまま書き出すため（{@link MemoManager#streamAll()}）、
+ * メモの件数によらずメモリ使用量は一定です。
+ *
+ * <p>実行中のスレッドが割り込まれた場合は、書き出しを中断して {@link InterruptedIOException} をスローします。</p>
+ */
+public class MemoExporter {
+
+    /** 進み具合を通知する間隔（件数）。 */
+    static final int PROGRESS_INTERVAL = 1000;
+
+    private final MemoManager manager;
+
+    /**
+     * @param manager 書き出すメモを取得するMemoManager。
+     */
+    public MemoExporter(MemoManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * すべてのメモを UTF-8 のファイルへ書き出します。既存のファイルは上書きされます。
+     *
+     * @param file     書き出し先のファイル。
+     * @param format   ファイルの形式。
+     * @param progress 進み具合を受け取るコールバック（件数単位）。
+     * @return 書き出した件数。
+     * @throws IOException 書き込みに失敗した場合、または中断された場合。
+     */
+    public long export(Path file, MemoFormat format, TransferProgress progress) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return export(out, format, progress);
+        }
+    }
+
+    /**
+     * すべてのメモを指定した出力先へ書き出します。出力先は閉じません。
+     *
+     * @param out      書き出し先。バッファリングされていることを想定します。
+     * @param format   形式。
+     * @param progress 進み具合を受け取るコールバック（件数単位）。
+     * @return 書き出した件数。
+     * @throws IOException 書き込みに失敗した場合、または中断された場合。
+     */
+    public long export(Writer out, MemoFormat format, TransferProgress progress) throws IOException {
+        long total = manager.count();
+        long written = 0;
+        try (Metrics.Timer timer = Metrics.begin("transfer.export");
+                Stream<Memo> memos = manager.streamAll()) {
+            format.writeHeader(out);
+            Iterator<Memo> it = memos.iterator();
+            while (it.hasNext()) {
+                format.write(out, it.next());
+                written++;
+                if (written % PROGRESS_INTERVAL == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("エクスポートが中断されました");
+                    }
+                    progress.onProgress(written, written, Math.max(total, written));
+                }
+            }
+            out.flush();
+            timer.success(written);
+        }
+        progress.onProgress(written, written, written);
+        return written;
+    }
+}
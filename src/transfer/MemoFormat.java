@@ -0,0 +1,88 @@
+package transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+
+import memo.Memo;
+
+/**
+ * エクスポート・インポートで扱うファイル形式です。
+ */
+public enum MemoFormat {
+
+    /** 1行に1件の JSON オブジェクト（拡張子 {@code .jsonl}）。 */
+    JSONL("jsonl") {
+        @Override
+        void writeHeader(Writer out) {
+            // 見出し行はない
+        }
+
+        @Override
+        void write(Writer out, Memo memo) throws IOException {
+            JsonLines.write(out, memo);
+        }
+
+        @Override
+        Iterator<Memo> reader(BufferedReader in) {
+            return JsonLines.reader(in);
+        }
+    },
+
+    /** 見出し行付きの CSV（拡張子 {@code .csv}）。 */
+    CSV("csv") {
+        @Override
+        void writeHeader(Writer out) throws IOException {
+            CsvRecords.writeHeader(out);
+        }
+
+        @Override
+        void write(Writer out, Memo memo) throws IOException {
+            CsvRecords.write(out, memo);
+        }
+
+        @Override
+        Iterator<Memo> reader(BufferedReader in) {
+            return CsvRecords.reader(in);
+        }
+    };
+
+    private final String extension;
+
+    MemoFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return この形式のファイルの拡張子（ドットを含まない）。
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * ファイル名の拡張子から形式を判定します。
+     *
+     * @param file 対象のファイル。
+     * @return ファイルの形式。
+     * @throws IllegalArgumentException 拡張子が {@code .jsonl} でも {@code .csv} でもない場合。
+     */
+    public static MemoFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (MemoFormat format : values()) {
+            if (name.endsWith("." + format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("ファイルの拡張子は .jsonl または .csv にしてください: " + file);
+    }
+
+    abstract void writeHeader(Writer out) throws IOException;
+
+    abstract void write(Writer out, Memo memo) throws IOException;
+
+    abstract Iterator<Memo> reader(BufferedReader in);
+}
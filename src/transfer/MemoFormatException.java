@@ -0,0 +1,28 @@
+package transfer;
+
+/**
+ * インポートするファイルの内容が、JSONL・CSV の形式として正しくない場合にスローされる例外です。
+ * メッセージには問題のあった行番号が含まれます。
+ */
+public class MemoFormatException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long lineNumber;
+
+    /**
+     * @param lineNumber 問題のあった行番号（1始まり）。
+     * @param message    エラーメッセージ。
+     */
+    public MemoFormatException(long lineNumber, String message) {
+        super(lineNumber + " 行目: " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * @return 問題のあった行番号（1始まり）。
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -0,0 +1,150 @@
+package transfer;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.function.LongConsumer;
+
+import memo.Memo;
+import memo.MemoManager;
+
+/**
+ * JSONL または CSV のファイルからメモを取り込みます。
+ * ファイルは1件ずつ解析し、{@link #getBatchSize()} 件ごとに1トランザクションでコミットするため
+ * （{@link MemoManager#importAll}）、ファイルの大きさによらずメモリ使用量は一定です。
+ * 取り込んだメモには新しいIDが採番され、作成日時・更新日時はファイルの値が保たれます。
+ *
+ * <p>形式の誤りを見つけた場合は {@link MemoFormatException} をスローします。それまでにコミットしたバッチは保存されたままです。
+ * 実行中のスレッドが割り込まれた場合は、次のバッチの前で中断して {@link InterruptedIOException} をスローします。</p>
+ */
+public class MemoImporter {
+
+    /** 1トランザクションにまとめる既定の件数。 */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final MemoManager manager;
+    private final int batchSize;
+
+    /**
+     * @param manager 取り込んだメモを保存するMemoManager。
+     */
+    public MemoImporter(MemoManager manager) {
+        this(manager, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param manager   取り込んだメモを保存するMemoManager。
+     * @param batchSize 1トランザクションにまとめる件数。
+     */
+    public MemoImporter(MemoManager manager, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("1以上の件数を指定してください: " + batchSize);
+        }
+        this.manager = manager;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return 1トランザクションにまとめる件数。
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * UTF-8 のファイルからメモを取り込みます。
+     *
+     * @param file     読み込むファイル。
+     * @param format   ファイルの形式。
+     * @param progress 進み具合を受け取るコールバック（読み込んだバイト数単位）。コミットのたびに呼び出されます。
+     * @return 取り込んだ件数。
+     * @throws IOException 読み込みに失敗した場合、または中断された場合。
+     */
+    public long importFrom(Path file, MemoFormat format, TransferProgress progress) throws IOException {
+        long size = Files.size(file);
+        try (CountingInputStream counter = new CountingInputStream(Files.newInputStream(file));
+                BufferedReader in = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+            return importFrom(in, format, records -> progress.onProgress(records, counter.count, size));
+        }
+    }
+
+    /**
+     * 指定した入力からメモを取り込みます。入力は閉じません。
+     *
+     * @param in       読み込み元。
+     * @param format   形式。
+     * @param progress 進み具合を受け取るコールバック（件数単位、全体の量は不明）。コミットのたびに呼び出されます。
+     * @return 取り込んだ件数。
+     * @throws IOException 読み込みに失敗した場合、または中断された場合。
+     */
+    public long importFrom(BufferedReader in, MemoFormat format, TransferProgress progress) throws IOException {
+        return importFrom(in, format, records -> progress.onProgress(records, records, -1));
+    }
+
+    private long importFrom(BufferedReader in, MemoFormat format, LongConsumer onCommitted) throws IOException {
+        Iterator<Memo> records = format.reader(in);
+        Iterator<Memo> interruptible = new Iterator<Memo>() {
+            @Override
+            public boolean hasNext() {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new UncheckedIOException(new InterruptedIOException("インポートが中断されました"));
+                }
+                return records.hasNext();
+            }
+
+            @Override
+            public Memo next() {
+                return records.next();
+            }
+        };
+        try {
+            return manager.importAll(interruptible, batchSize, onCommitted);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 読み込んだバイト数を数える入力ストリームです。進み具合の表示に使用します。
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package transfer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import memo.Memo;
+
+/**
+ * 入力から1件ずつメモを読み込むイテレータの基底クラスです。
+ * 次のメモは {@link #hasNext()} の時点で初めて読み込むため、読み込み済みのメモを溜め込むことはありません。
+ * 読み込み中の {@link IOException} は {@link UncheckedIOException} で包んでスローします。
+ */
+abstract class MemoRecordIterator implements Iterator<Memo> {
+
+    private Memo next;
+    private boolean finished;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readNext();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Memo next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Memo memo = next;
+        next = null;
+        return memo;
+    }
+
+    /**
+     * 次のメモを読み込みます。
+     *
+     * @return 読み込んだメモ。入力の終わりに達した場合はnull。
+     * @throws IOException 入力の読み込みに失敗した場合。
+     */
+    protected abstract Memo readNext() throws IOException;
+}
@@ -0,0 +1,86 @@
+package transfer;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import memo.Memo;
+
+/**
+ * JSONL・CSV の1レコードとメモの相互変換で共通に使う処理です。
+ * 日時はタイムゾーンに依存しないよう、ISO-8601 形式の UTC 時刻（例: {@code 2025-01-31T09:00:00Z}）で表します。
+ */
+final class MemoRecords {
+
+    /** レコードの項目名（CSV の見出し行と JSONL のキー）。 */
+    static final String ID = "id";
+    static final String TITLE = "title";
+    static final String BODY = "body";
+    static final String TAGS = "tags";
+    static final String CREATED_AT = "createdAt";
+    static final String UPDATED_AT = "updatedAt";
+
+    private MemoRecords() {
+    }
+
+    /**
+     * エポックミリ秒を ISO-8601 形式の文字列にします。
+     */
+    static String formatInstant(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).toString();
+    }
+
+    /**
+     * 読み込んだ項目からメモを生成します。IDは取り込み時に新しく採番されるため使用しません。
+     *
+     * @param title      タイトル（必須）。
+     * @param body       本文（必須）。
+     * @param tags       タグ。要素がカンマを含む場合は分割します。
+     * @param createdAt  作成日時（ISO-8601）。空の場合は取り込み時刻。
+     * @param updatedAt  更新日時（ISO-8601）。空の場合は作成日時と同じ。
+     * @param lineNumber エラーメッセージに使う行番号。
+     * @return 生成したメモ。
+     * @throws MemoFormatException 必須の項目がない場合、または日時の形式が正しくない場合。
+     */
+    static Memo toMemo(String title, String body, Collection<String> tags, String createdAt, String updatedAt,
+            long lineNumber) {
+        if (title == null || title.isEmpty()) {
+            throw new MemoFormatException(lineNumber, TITLE + " がありません");
+        }
+        if (body == null) {
+            throw new MemoFormatException(lineNumber, BODY + " がありません");
+        }
+        long created = parseInstant(createdAt, CREATED_AT, lineNumber);
+        long updated = parseInstant(updatedAt, UPDATED_AT, lineNumber);
+        return new Memo(0, title, body, normalizeTags(tags), null, null, created, updated);
+    }
+
+    /**
+     * タグの前後の空白と空のタグを取り除きます。データベースではカンマ区切りで保持するため、カンマを含むタグは分割します。
+     */
+    static List<String> normalizeTags(Collection<String> tags) {
+        List<String> result = new ArrayList<>();
+        for (String tag : tags) {
+            for (String part : tag.split(",")) {
+                String trimmed = part.trim();
+                if (!trimmed.isEmpty()) {
+                    result.add(trimmed);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long parseInstant(String text, String field, long lineNumber) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        try {
+            return Instant.parse(text).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new MemoFormatException(lineNumber, field + " の日時の形式が正しくありません: " + text);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package transfer;
+
+/**
+ * エクスポート・インポートの進み具合を受け取るコールバックです。
+ * 呼び出しは処理を実行しているスレッドから行われます。GUI に表示する場合は EDT へ処理を移してください。
+ */
+@FunctionalInterface
+public interface TransferProgress {
+
+    /** 進み具合を受け取らない場合に使用します。 */
+    TransferProgress NONE = (records, done, total) -> { };
+
+    /**
+     * 進み具合を通知します。
+     * {@code done} と {@code total} の単位は、エクスポートではメモの件数、ファイルからのインポートでは読み込んだバイト数です。
+     *
+     * @param records これまでに書き出した、またはコミットしたメモの件数。
+     * @param done    処理済みの量。
+     * @param total   全体の量。分からない場合は-1。
+     */
+    void onProgress(long records, long done, long total);
+}
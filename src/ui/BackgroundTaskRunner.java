@@ -0,0 +1,100 @@
+package ui;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.SwingWorker;
+
+/**
+ * データベースへの問い合わせなど時間のかかる処理を、イベントディスパッチスレッド（EDT）の外で実行するクラスです。
+ * 処理は「チャンネル」ごとに管理され、同じチャンネルに新しい処理が投入されると実行中の古い処理は取り消されます。
+ * 古い処理の結果が新しい処理の結果を上書きしないよう、完了時には投入順の番号を確認し、
+ * 最新の処理の結果だけを EDT 上で反映します。
+ * 最新の処理が終わるとチャンネルの記録は取り除くため、使い捨てのチャンネル名を使っても記録は溜まりません。
+ *
+ * <p>このクラスのメソッドはすべて EDT から呼び出してください。</p>
+ */
+class BackgroundTaskRunner {
+
+    private final Map<String, SwingWorker<?, ?>> running = new HashMap<>();
+    private final Map<String, Long> latestSequence = new HashMap<>();
+    private final Consumer<Boolean> busyListener;
+    private final Consumer<Exception> errorHandler;
+
+    private long nextSequence;
+    private int activeCount;
+
+    /**
+     * @param busyListener 実行中の処理の有無が変わったときに EDT 上で呼び出される処理（ビジー表示用）。
+     * @param errorHandler 処理が例外で失敗したときに EDT 上で呼び出される処理。
+     */
+    BackgroundTaskRunner(Consumer<Boolean> busyListener, Consumer<Exception> errorHandler) {
+        this.busyListener = busyListener;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * 指定したチャンネルで処理をバックグラウンド実行します。
+     * 同じチャンネルで実行中の処理があれば取り消します。
+     *
+     * @param channel   処理のチャンネル名。
+     * @param task      バックグラウンドで実行する処理。
+     * @param onSuccess 処理が成功し、かつそれがチャンネルの最新の処理だった場合に EDT 上で呼び出される処理。
+     * @param <T>       処理結果の型。
+     */
+    <T> void submit(String channel, Callable<T> task, Consumer<T> onSuccess) {
+        SwingWorker<?, ?> previous = running.remove(channel);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        long sequence = ++nextSequence;
+        latestSequence.put(channel, sequence);
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                return task.call();
+            }
+
+            @Override
+            protected void done() {
+                taskFinished();
+                // 最新の処理の場合だけ番号を取り除く（新しい処理が投入されていれば、その番号が残る）
+                if (isCancelled() || !latestSequence.remove(channel, sequence)) {
+                    return;
+                }
+                running.remove(channel);
+                try {
+                    onSuccess.accept(get());
+                } catch (CancellationException e) {
+                    // 取り消された処理の結果は反映しない
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    errorHandler.accept(cause instanceof Exception ? (Exception) cause : e);
+                }
+            }
+        };
+        running.put(channel, worker);
+        taskStarted();
+        worker.execute();
+    }
+
+    private void taskStarted() {
+        if (activeCount++ == 0) {
+            busyListener.accept(true);
+        }
+    }
+
+    private void taskFinished() {
+        if (--activeCount == 0) {
+            busyListener.accept(false);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ui;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+
+/**
+ * イベントディスパッチスレッド（EDT）がイベント1件の処理でどれだけブロックされたかを計測するクラスです。
+ * システムイベントキューを差し替え、各イベントの処理時間を記録します。
+ * 一定時間（既定では 50 ミリ秒）以上かかったイベントは画面の固まりとして体感されるため、
+ * その件数・合計時間・最大時間をアプリケーション終了時に標準エラー出力へ表示します。
+ *
+ * <p>システムプロパティ {@code hashmemo.edtMonitor=true} を指定して起動した場合のみ有効になります。</p>
+ * <pre>
+ * java -Dhashmemo.edtMonitor=true -cp ".:../lib/sqlite-jdbc-3.50.3.0.jar" app.MemoApp
+ * </pre>
+ */
+public class EdtMonitor extends EventQueue {
+
+    /** 計測を有効にするシステムプロパティ名。 */
+    public static final String ENABLED_PROPERTY = "hashmemo.edtMonitor";
+
+    /** ブロックとみなす処理時間のしきい値（ミリ秒）を指定するシステムプロパティ名。 */
+    public static final String THRESHOLD_PROPERTY = "hashmemo.edtMonitor.thresholdMs";
+
+    private final long thresholdNanos;
+
+    private long eventCount;
+    private long blockedCount;
+    private long blockedNanos;
+    private long maxNanos;
+
+    private EdtMonitor(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000L;
+    }
+
+    /**
+     * システムプロパティで有効化されている場合に、計測用のイベントキューを組み込みます。
+     * アプリケーションの起動時、GUIを生成する前に一度だけ呼び出してください。
+     */
+    public static void installIfEnabled() {
+        if (!Boolean.getBoolean(ENABLED_PROPERTY)) {
+            return;
+        }
+        EdtMonitor monitor = new EdtMonitor(Long.getLong(THRESHOLD_PROPERTY, 50));
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        Runtime.getRuntime().addShutdownHook(new Thread(monitor::printSummary, "hashmemo-edt-monitor"));
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    private synchronized void record(long elapsedNanos) {
+        eventCount++;
+        maxNanos = Math.max(maxNanos, elapsedNanos);
+        if (elapsedNanos >= thresholdNanos) {
+            blockedCount++;
+            blockedNanos += elapsedNanos;
+        }
+    }
+
+    private synchronized void printSummary() {
+        System.err.printf("[EDT] イベント数: %d, %dms以上のブロック: %d 回 (合計 %.1f ms), 最大: %.1f ms%n",
+                eventCount, thresholdNanos / 1_000_000L, blockedCount, blockedNanos / 1e6, maxNanos / 1e6);
+    }
+}
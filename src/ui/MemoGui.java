@@ -2,7 +2,6 @@ package ui;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
-import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Font;
@@ -12,50 +11,99 @@ import java.awt.Image;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 
 import javax.swing.BorderFactory;
-import javax.swing.DefaultListCellRenderer;
 import javax.swing.DefaultListModel;
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JDialog;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JList;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
 
 import memo.Memo;
+import memo.MemoEvent;
 import memo.MemoManager;
+import memo.MemoSummary;
+import memo.TextNormalizer;
+import transfer.MemoExporter;
+import transfer.MemoFormat;
+import transfer.MemoImporter;
 
 /**
  * アプリケーションのメインGUIウィンドウです。
  * `JFrame`を継承し、メモの一覧表示、検索、追加、詳細表示などの機能を提供します。
  * UIの構築とイベント処理を担当します。
+ *
+ * <p>メモの追加・編集・削除の後は、{@link MemoManager} から届く {@link MemoEvent} をもとに
+ * 一覧とタグ選択欄を部分的に更新します。検索条件はそのまま維持され、一覧の全件読み込みは行いません。</p>
  */
 public class MemoGui extends JFrame {
 
     // --- UI Components ---
-    private final DefaultListModel<Memo> memoListModel = new DefaultListModel<>();
-    private JList<Memo> memoList;
+    private final DefaultListModel<MemoSummary> memoListModel = new DefaultListModel<>();
+    private PagedMemoListModel pagedMemoListModel;
+    private JList<MemoSummary> memoList;
+    private JLabel memoLabel;
+    private MemoListCellRenderer cellRenderer;
     private JTextField searchField;
     private JComboBox<String> tagCombo;
     private JButton searchButton;
     private JButton addMemoButton;
+    private JProgressBar busyIndicator;
 
     // --- Business Logic Layer ---
     private final MemoManager manager;
 
+    // --- Background Tasks ---
+    /** メモ一覧の取得（全件表示・検索）を実行するチャンネル。 */
+    private static final String MEMO_CHANNEL = "memos";
+    /** タグ一覧の取得を実行するチャンネル。 */
+    private static final String TAG_CHANNEL = "tags";
+    /** 詳細表示するメモの本文の取得を実行するチャンネル。 */
+    private static final String DETAIL_CHANNEL = "detail";
+    private final BackgroundTaskRunner tasks;
+
+    // --- Live Search ---
+    /** 入力が止まってから検索を開始するまでの待ち時間（ミリ秒）を指定するシステムプロパティ名。 */
+    public static final String DEBOUNCE_PROPERTY = "hashmemo.searchDebounceMs";
+    /** 入力ごとの検索の所要時間を標準エラー出力に表示するシステムプロパティ名。 */
+    public static final String LATENCY_PROPERTY = "hashmemo.searchLatency";
+    private static final boolean REPORT_SEARCH_LATENCY = Boolean.getBoolean(LATENCY_PROPERTY);
+    /** 検索結果として表示する最大件数を指定するシステムプロパティ名。 */
+    public static final String RESULT_LIMIT_PROPERTY = "hashmemo.searchResultLimit";
+    /** 検索結果として表示する最大件数。一致したメモが多い場合は、関連度の高い順にこの件数だけ表示します。 */
+    private static final int SEARCH_RESULT_LIMIT = Math.max(1, Integer.getInteger(RESULT_LIMIT_PROPERTY, 200));
+    private Timer liveSearchTimer;
+    /** 最後に入力された時刻（System.nanoTime）。入力から結果表示までの時間の計測に使用します。 */
+    private long lastKeystrokeNanos;
+    /** 直前に表示した検索結果。より長いキーワードでの再検索時に、絞り込みの起点として使用します。 */
+    private SearchResult lastSearch;
+
     /**
      * MemoGuiのコンストラクタです。
      * 依存性の注入により受け取ったMemoManagerを使い、UIの初期化とセットアップを行います。
@@ -64,11 +112,15 @@ public class MemoGui extends JFrame {
      */
     public MemoGui(MemoManager manager) {
         this.manager = manager;
+        this.tasks = new BackgroundTaskRunner(this::setBusy, this::showLoadError);
 
         initStyle();
         initComponents();
         initLayout();
         initListeners();
+
+        // 書き込みは EDT 以外から行われることもあるため、反映は常に EDT で行う
+        manager.addMemoListener(event -> SwingUtilities.invokeLater(() -> applyMemoEvent(event)));
     }
 
     /**
@@ -97,16 +149,26 @@ public class MemoGui extends JFrame {
         searchField = new JTextField(20);
         searchButton = new JButton("検索");
         addMemoButton = new JButton("メモ追加");
+        busyIndicator = new JProgressBar();
+        busyIndicator.setIndeterminate(true);
+        busyIndicator.setPreferredSize(new Dimension(60, 12));
+        busyIndicator.setVisible(false);
+        liveSearchTimer = new Timer(Integer.getInteger(DEBOUNCE_PROPERTY, 250), e -> runSearch(true));
+        liveSearchTimer.setRepeats(false);
 
         // --- Memo List ---
-        memoList = new JList<>(memoListModel);
-        memoList.setCellRenderer(new MemoListCellRenderer());
+        pagedMemoListModel = new PagedMemoListModel(manager, tasks, this::showLoadError);
+        memoList = new JList<>(pagedMemoListModel);
+        cellRenderer = new MemoListCellRenderer();
+        memoList.setCellRenderer(cellRenderer);
+        // セルの幅・高さを固定し、JList がサイズ計算のために全要素を読み込まないようにする
         memoList.setFixedCellHeight(60);
+        memoList.setFixedCellWidth(400);
         memoList.setSelectionBackground(new Color(100, 100, 100));
         memoList.setSelectionForeground(Color.WHITE);
 
         // --- Initial Data Loading ---
-        refreshMemoList(null, "すべて表示"); // 初回は全件表示
+        showAllMemos(); // 初回は全件表示
         refreshTagComboBox();
     }
 
@@ -119,6 +181,7 @@ public class MemoGui extends JFrame {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
+        setJMenuBar(createMenuBar());
 
         // --- Logo ---
         add(createLogoLabel(), BorderLayout.NORTH);
@@ -130,12 +193,13 @@ public class MemoGui extends JFrame {
         topPanel.add(searchField);
         topPanel.add(searchButton);
         topPanel.add(addMemoButton);
+        topPanel.add(busyIndicator);
 
         // --- Memo List Panel ---
         JScrollPane scrollPane = new JScrollPane(memoList);
         scrollPane.setPreferredSize(new Dimension(500, 0));
         JPanel memoPanel = new JPanel(new BorderLayout());
-        JLabel memoLabel = new JLabel("メモ一覧");
+        memoLabel = new JLabel("メモ一覧");
         setupLabelStyle(memoLabel);
         memoPanel.add(memoLabel, BorderLayout.NORTH);
         memoPanel.add(scrollPane, BorderLayout.CENTER);
@@ -156,12 +220,28 @@ public class MemoGui extends JFrame {
         addMemoButton.addActionListener(e -> openAddMemoDialog());
         searchButton.addActionListener(e -> searchMemos());
         tagCombo.addActionListener(e -> searchMemos());
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleLiveSearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleLiveSearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                // 属性の変更のみで、テキストは変わらない
+            }
+        });
 
         memoList.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
                 if (e.getClickCount() == 2) {
-                    Memo selected = memoList.getSelectedValue();
+                    MemoSummary selected = memoList.getSelectedValue();
                     if (selected != null) {
                         showMemoDetails(selected);
                     }
@@ -170,89 +250,358 @@ public class MemoGui extends JFrame {
         });
     }
 
+    /**
+     * エクスポート・インポートを行う「ファイル」メニューを作成します。
+     */
+    private JMenuBar createMenuBar() {
+        JMenuItem exportItem = new JMenuItem("エクスポート...");
+        exportItem.addActionListener(e -> exportMemos());
+        JMenuItem importItem = new JMenuItem("インポート...");
+        importItem.addActionListener(e -> importMemos());
+
+        JMenu fileMenu = new JMenu("ファイル");
+        fileMenu.add(exportItem);
+        fileMenu.add(importItem);
+        JMenuBar menuBar = new JMenuBar();
+        menuBar.add(fileMenu);
+        return menuBar;
+    }
+
     // --- Event Handler Methods ---
 
+    /**
+     * 「エクスポート」が選ばれたときの処理。
+     * 保存先のファイルを選ばせ、全メモを拡張子に応じた形式（JSONL または CSV）で書き出します。
+     */
+    private void exportMemos() {
+        JFileChooser chooser = createTransferFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        MemoFormat format;
+        try {
+            format = MemoFormat.forFile(file);
+        } catch (IllegalArgumentException e) {
+            // 拡張子が省略された場合は JSONL として保存する
+            format = MemoFormat.JSONL;
+            file = file.resolveSibling(file.getFileName() + "." + format.getExtension());
+        }
+        Path target = file;
+        MemoFormat targetFormat = format;
+        MemoExporter exporter = new MemoExporter(manager);
+        new TransferDialog(this, "エクスポート")
+                .run(progress -> exporter.export(target, targetFormat, progress), "%,d 件のメモをエクスポートしました");
+    }
+
+    /**
+     * 「インポート」が選ばれたときの処理。
+     * JSONL または CSV のファイルを選ばせ、記載されたメモを新しいメモとして追加します。
+     * 取り込んだメモは変更イベント（{@link MemoEvent.Type#RELOADED}）で一覧に反映されます。
+     */
+    private void importMemos() {
+        JFileChooser chooser = createTransferFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+        MemoFormat format;
+        try {
+            format = MemoFormat.forFile(file);
+        } catch (IllegalArgumentException e) {
+            JOptionPane.showMessageDialog(this, e.getMessage(), "インポート", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        MemoImporter importer = new MemoImporter(manager);
+        new TransferDialog(this, "インポート")
+                .run(progress -> importer.importFrom(file, format, progress), "%,d 件のメモをインポートしました");
+    }
+
+    private JFileChooser createTransferFileChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileNameExtensionFilter("JSON Lines / CSV (*.jsonl, *.csv)",
+                MemoFormat.JSONL.getExtension(), MemoFormat.CSV.getExtension()));
+        return chooser;
+    }
+
     /**
      * 「メモ追加」ボタンが押されたときの処理。
-     * メモ追加ダイアログを開き、ダイアログが閉じられた後にリストを更新します。
+     * メモ追加ダイアログを開きます。追加されたメモは変更イベントで一覧に反映されます。
      */
     private void openAddMemoDialog() {
         MemoAdd addDialog = new MemoAdd(this, manager);
         addDialog.setVisible(true); // モーダルなので、ここで処理がブロックされる
-
-        // ダイアログが閉じた後に実行される
-        resetSearchAndRefresh();
     }
 
     /**
      * 「検索」ボタンまたはタグコンボボックスが操作されたときの処理。
      */
     private void searchMemos() {
+        liveSearchTimer.stop();
+        runSearch(false);
+    }
+
+    /**
+     * 検索欄への入力ごとに呼び出され、入力が一定時間止まった時点で検索を開始するよう予約します。
+     */
+    private void scheduleLiveSearch() {
+        lastKeystrokeNanos = System.nanoTime();
+        liveSearchTimer.restart();
+    }
+
+    /**
+     * 現在の検索条件で絞り込みを実行します。
+     * 絞り込みはバックグラウンドで実行し、実行中に新しい検索が始まった場合は古い検索を取り消します。
+     * 結果は関連度の高い順に並べ、{@link #SEARCH_RESULT_LIMIT} 件までを表示します。
+     * 直前の結果と同じタグで、キーワードが直前のキーワードを含む場合は、直前の結果だけをさらに絞り込みます
+     * （直前の結果が上限で打ち切られていた場合は、上限の外に一致するメモがありうるため全件から検索します）。
+     *
+     * @param live 検索欄への入力による検索の場合はtrue。0件でもポップアップは表示しません。
+     */
+    private void runSearch(boolean live) {
+        long requestedAt = live ? lastKeystrokeNanos : System.nanoTime();
         String keyword = searchField.getText();
         String selectedTag = (String) tagCombo.getSelectedItem();
-        List<Memo> filteredMemos = manager.filterMemos(keyword, selectedTag);
-        refreshMemoList(filteredMemos, null);
-
-        // 検索結果が0件だった場合にポップアップを表示
         boolean isSearching = !keyword.trim().isEmpty() || (selectedTag != null && !"すべて表示".equals(selectedTag));
-        if (filteredMemos.isEmpty() && isSearching) {
-            JOptionPane.showMessageDialog(this, "一致するメモが見つかりません", "検索結果", JOptionPane.INFORMATION_MESSAGE);
+        if (!isSearching) {
+            lastSearch = null;
+            showAllMemos();
+            return;
         }
+
+        SearchResult previous = lastSearch;
+        long generation = manager.getCacheGeneration();
+        boolean narrowing = previous != null && previous.canNarrowTo(keyword, selectedTag, generation);
+
+        tasks.submit(MEMO_CHANNEL, () -> {
+            long start = System.nanoTime();
+            // 上限を1件超えて求め、打ち切られたかどうかを判定する
+            List<Memo> memos = narrowing
+                    ? manager.refineRanked(previous.memos, keyword, SEARCH_RESULT_LIMIT + 1)
+                    : manager.searchRanked(keyword, selectedTag, SEARCH_RESULT_LIMIT + 1);
+            boolean truncated = memos.size() > SEARCH_RESULT_LIMIT;
+            if (truncated) {
+                memos = memos.subList(0, SEARCH_RESULT_LIMIT);
+            }
+            return new SearchResult(keyword, selectedTag, generation, memos, truncated, System.nanoTime() - start);
+        }, result -> {
+            lastSearch = result;
+            showMemos(result.memos);
+            memoLabel.setText(result.truncated ? "メモ一覧（関連度の高い上位 " + SEARCH_RESULT_LIMIT + " 件）" : "メモ一覧");
+            if (REPORT_SEARCH_LATENCY) {
+                System.err.printf("[search] keyword=\"%s\" 件数=%d%s 絞り込み=%s 検索=%.1fms 入力から表示まで=%.1fms%n",
+                        keyword, result.memos.size(), result.truncated ? "（上限）" : "",
+                        narrowing ? "前回の結果から" : "全件から",
+                        result.queryNanos / 1e6, (System.nanoTime() - requestedAt) / 1e6);
+            }
+
+            // 検索結果が0件だった場合にポップアップを表示
+            if (!live && result.memos.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "一致するメモが見つかりません", "検索結果", JOptionPane.INFORMATION_MESSAGE);
+            }
+        });
+    }
+
+    // --- UI Update Methods ---
+
+    /**
+     * 絞り込みを行わずに全件を表示します。
+     * 表示位置の付近だけを読み込む {@link PagedMemoListModel} を使用し、件数の取得はバックグラウンドで行います。
+     */
+    private void showAllMemos() {
+        tasks.submit(MEMO_CHANNEL, manager::count, size -> {
+            pagedMemoListModel.reload(size);
+            memoList.setModel(pagedMemoListModel);
+            memoLabel.setText("メモ一覧");
+        });
     }
 
     /**
-     * 検索条件をリセットし、メモリストとタグリストを最新の状態に更新します。
-     * メモの追加・削除・更新後に呼び出されます。
+     * 指定したメモのリストを表示します。
+     * @param memos 表示するメモのリスト。
      */
-    private void resetSearchAndRefresh() {
-        ActionListener[] tagListeners = tagCombo.getActionListeners();
-        for (ActionListener l : tagListeners) {
-            tagCombo.removeActionListener(l);
+    private void showMemos(List<Memo> memos) {
+        memoListModel.clear();
+        memoListModel.addAll(memos);
+        memoList.setModel(memoListModel);
+    }
+
+    /**
+     * メモの変更イベントを、表示中の一覧とタグ選択欄に反映します。
+     */
+    private void applyMemoEvent(MemoEvent event) {
+        if (event.getType() == MemoEvent.Type.TAGS_CHANGED) {
+            applyTagChanges(event.getAddedTags(), event.getRemovedTags());
+        } else if (event.getType() == MemoEvent.Type.RELOADED) {
+            // 取り込みなどでまとめて変更された場合は、個々の差分がないため表示中の条件で読み込み直す
+            lastSearch = null;
+            refreshTagComboBox();
+            runSearch(true);
+        } else {
+            applyToList(event.getType(), event.getMemoId(), event.getMemo());
         }
+    }
 
-        searchField.setText("");
-        refreshTagComboBox(); // 内部で `setSelectedIndex(0)` が呼ばれる可能性があるため、先に更新
-        tagCombo.setSelectedIndex(0);
-        refreshMemoList(null, "すべて表示");
+    /**
+     * 1件のメモの追加・更新・削除を、表示中の一覧に反映します。
+     *
+     * @param type 変更の種類。
+     * @param id   変更されたメモのID。
+     * @param memo 追加・更新後のメモ。削除の場合はnull。
+     */
+    private void applyToList(MemoEvent.Type type, int id, Memo memo) {
+        if (memoList.getModel() == pagedMemoListModel) {
+            int index = pagedMemoListModel.indexOfLoaded(id);
+            if (index >= 0) {
+                cellRenderer.discardLayout(pagedMemoListModel.getElementAt(index));
+            }
+            if (type == MemoEvent.Type.CREATED) {
+                pagedMemoListModel.memoInserted();
+            } else if (type == MemoEvent.Type.UPDATED) {
+                pagedMemoListModel.memoMovedToTop(id);
+            } else {
+                pagedMemoListModel.memoRemoved(id);
+            }
+            return;
+        }
 
-        for (ActionListener l : tagListeners) {
-            tagCombo.addActionListener(l);
+        // 検索結果の表示中は、現在の検索条件に一致するメモだけを入れ直し、関連度の順に並べ直す
+        int index = indexInSearchResult(id);
+        boolean wasSelected = index >= 0 && memoList.isSelectedIndex(index);
+        if (index >= 0) {
+            cellRenderer.discardLayout(memoListModel.get(index));
+            memoListModel.remove(index);
+        }
+        if (memo != null && lastSearch != null && manager.matchesFilter(memo, lastSearch.normalizedKeyword, lastSearch.tag)) {
+            List<Memo> shown = new ArrayList<>(memoListModel.size() + 1);
+            for (int i = 0; i < memoListModel.size(); i++) {
+                shown.add((Memo) memoListModel.get(i)); // 検索結果の一覧には本文を含むメモだけを表示している
+            }
+            shown.add(memo);
+            List<Memo> ranked = manager.refineRanked(shown, lastSearch.normalizedKeyword, SEARCH_RESULT_LIMIT);
+            if (ranked.size() < shown.size()) {
+                // 上限からあふれたメモの表示用のレイアウトを破棄する
+                shown.removeAll(ranked);
+                shown.forEach(cellRenderer::discardLayout);
+            }
+            int insertAt = ranked.indexOf(memo);
+            memoListModel.clear();
+            memoListModel.addAll(ranked);
+            if (wasSelected && insertAt >= 0) {
+                memoList.addSelectionInterval(insertAt, insertAt);
+            }
         }
     }
 
-    // --- UI Update Methods ---
+    private int indexInSearchResult(int id) {
+        for (int i = 0; i < memoListModel.size(); i++) {
+            if (memoListModel.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
     /**
-     * メモリストの表示を更新します。
-     * @param memos 表示するメモのリスト。nullの場合は全件取得し直します。
-     * @param selectedTag タグでの絞り込み条件。memosがnullの場合のみ使用します。
+     * タグの種類の増減をタグ選択欄に反映します。更新中はコンボボックスのイベントを発生させません。
+     * 選択中のタグは、使われなくなっても検索条件を変えないよう残します。
      */
-    private void refreshMemoList(List<Memo> memos, String selectedTag) {
-        memoListModel.clear();
-        List<Memo> memosToDisplay = (memos != null) ? memos : manager.filterMemos("", selectedTag);
-        memosToDisplay.forEach(memoListModel::addElement);
+    private void applyTagChanges(Set<String> added, Set<String> removed) {
+        if (tagCombo.getItemCount() == 0) {
+            return; // 初回のタグ一覧がまだ読み込まれていない（読み込み結果に変更が含まれる）
+        }
+        ActionListener[] tagListeners = tagCombo.getActionListeners();
+        for (ActionListener l : tagListeners) {
+            tagCombo.removeActionListener(l);
+        }
+
+        Object selected = tagCombo.getSelectedItem();
+        for (String tag : removed) {
+            if (!tag.equals(selected)) {
+                tagCombo.removeItem(tag);
+            }
+        }
+        for (String tag : added) {
+            int index = 1; // 先頭は「すべて表示」
+            while (index < tagCombo.getItemCount() && tagCombo.getItemAt(index).compareTo(tag) < 0) {
+                index++;
+            }
+            if (index == tagCombo.getItemCount() || !tagCombo.getItemAt(index).equals(tag)) {
+                tagCombo.insertItemAt(tag, index);
+            }
+        }
+
+        for (ActionListener l : tagListeners) {
+            tagCombo.addActionListener(l);
+        }
     }
 
     /**
      * タグ選択用のコンボボックスの内容を最新の状態に更新します。
+     * タグ一覧の取得はバックグラウンドで行い、更新中はコンボボックスのイベントを発生させません。
      */
     public void refreshTagComboBox() {
-        Set<String> tags = manager.getAllTags();
+        tasks.submit(TAG_CHANNEL, manager::getAllTags, this::populateTagComboBox);
+    }
+
+    private void populateTagComboBox(Set<String> tags) {
         List<String> tagList = new ArrayList<>(tags);
         tagList.add(0, "すべて表示");
 
+        ActionListener[] tagListeners = tagCombo.getActionListeners();
+        for (ActionListener l : tagListeners) {
+            tagCombo.removeActionListener(l);
+        }
+
+        Object selected = tagCombo.getSelectedItem();
         tagCombo.removeAllItems();
         tagList.forEach(tagCombo::addItem);
+        tagCombo.setSelectedItem(selected != null && tagList.contains(selected) ? selected : tagList.get(0));
+
+        for (ActionListener l : tagListeners) {
+            tagCombo.addActionListener(l);
+        }
+    }
+
+    /**
+     * バックグラウンド処理の実行状況に応じてビジー表示を切り替えます。
+     */
+    private void setBusy(boolean busy) {
+        busyIndicator.setVisible(busy);
+    }
+
+    /**
+     * バックグラウンドでのデータ取得に失敗したことを通知します。
+     */
+    private void showLoadError(Exception e) {
+        JOptionPane.showMessageDialog(this, "データの取得に失敗しました: " + e.getMessage(), "エラー", JOptionPane.ERROR_MESSAGE);
     }
 
     // --- Dialogs and Sub-windows ---
 
     /**
      * 選択されたメモの詳細情報を表示するダイアログを開きます。
+     * 一覧のメモは本文を含まないため、本文をバックグラウンドで読み込んでからダイアログを開きます。
+     *
+     * @param summary 表示するメモ（要約または本文を含むMemoオブジェクト）。
+     */
+    public void showMemoDetails(MemoSummary summary) {
+        tasks.submit(DETAIL_CHANNEL, () -> manager.loadMemo(summary), memo -> {
+            if (memo == null) {
+                JOptionPane.showMessageDialog(this, "このメモは削除されています", "エラー", JOptionPane.ERROR_MESSAGE);
+                applyToList(MemoEvent.Type.DELETED, summary.getId(), null);
+                return;
+            }
+            openMemoDetails(memo);
+        });
+    }
+
+    /**
+     * 本文を含むメモの詳細ダイアログを開きます。
      *
      * @param memo 表示するMemoオブジェクト。
      */
-    public void showMemoDetails(Memo memo) {
+    private void openMemoDetails(Memo memo) {
         JDialog dialog = new JDialog(this, "メモの詳細", true);
         dialog.setSize(400, 300);
         dialog.setLocationRelativeTo(this);
@@ -360,7 +709,7 @@ public class MemoGui extends JFrame {
             dialog.dispose();
             MemoAdd editDialog = new MemoAdd(this, manager, memo);
             editDialog.setVisible(true);
-            resetSearchAndRefresh();
+            // 保存された場合は、変更イベントで一覧の該当行が置き換わる
         });
 
         deleteButton.addActionListener(e -> {
@@ -368,7 +717,6 @@ public class MemoGui extends JFrame {
             if (confirm == JOptionPane.YES_OPTION) {
                 manager.delete(memo);
                 dialog.dispose();
-                resetSearchAndRefresh();
             }
         });
 
@@ -386,30 +734,39 @@ public class MemoGui extends JFrame {
         label.setBorder(new EmptyBorder(10, 0, 10, 0));
         label.setHorizontalAlignment(SwingConstants.CENTER);
     }
-}
 
-/**
- * JListのセル表示をカスタマイズするためのレンダラークラスです。
- * メモのタイトル、タグ、日付を整形して表示します。
- */
-class MemoListCellRenderer extends DefaultListCellRenderer {
-    @Override
-    public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
-            boolean cellHasFocus) {
-        JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-        if (value instanceof Memo) {
-            Memo memo = (Memo) value;
-
-            String dateLabel = memo.getUpdatedAt() != null && !memo.getUpdatedAt().equals(memo.getCreatedAt())
-                    ? "最終更新日: " + memo.getUpdatedAt()
-                    : "作成日: " + memo.getCreatedAt();
-
-            label.setText("<html><b>" + memo.getTitle() + " </b><br><span style='color:gray'> "
-                    + String.join(", ", memo.getTags())
-                    + "  " + dateLabel + "</span></html>");
-
-            label.setBorder(new EmptyBorder(12, 10, 20, 8));
+    /**
+     * 表示中の検索結果と、その検索条件を保持するクラスです。
+     */
+    private static final class SearchResult {
+        private final String normalizedKeyword;
+        private final String tag;
+        private final long generation;
+        private final List<Memo> memos;
+        /** 一致したメモが表示の上限を超え、関連度の低いものを除いた場合はtrue。 */
+        private final boolean truncated;
+        private final long queryNanos;
+
+        SearchResult(String keyword, String tag, long generation, List<Memo> memos, boolean truncated,
+                long queryNanos) {
+            this.normalizedKeyword = TextNormalizer.normalize(keyword.trim());
+            this.tag = tag;
+            this.generation = generation;
+            this.memos = memos;
+            this.truncated = truncated;
+            this.queryNanos = queryNanos;
+        }
+
+        /**
+         * この結果をもとに、新しい条件の結果を絞り込みで求められるかを判定します。
+         * 新しいキーワードがこの結果のキーワードを含めば、一致するメモは必ずこの結果に含まれます。
+         * メモが追加・更新・削除された後（キャッシュの世代が変わった後）と、上限で打ち切った結果は使用できません。
+         */
+        boolean canNarrowTo(String keyword, String newTag, long currentGeneration) {
+            return !truncated
+                    && generation == currentGeneration
+                    && Objects.equals(tag, newTag)
+                    && TextNormalizer.normalize(keyword.trim()).contains(normalizedKeyword);
         }
-        return label;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,240 @@
+package ui;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.JComponent;
+import javax.swing.JList;
+import javax.swing.ListCellRenderer;
+
+import memo.MemoSummary;
+
+/**
+ * メモ一覧のセルを描画するレンダラーです。タイトルを太字で、その下にタグと日付を灰色で表示します。
+ *
+ * <p>HTML のラベルを使うと、描画のたびに文字列の組み立てと HTML の解析が発生するため、
+ * このクラスでは文字列を直接描画します。各メモの表示内容（省略記号で切り詰めた文字列と、その字形）は
+ * 最初の描画時に一度だけ計算して保持し、以降のスクロールでは保持した字形を描くだけにしています。
+ * 保持する内容はメモのオブジェクトごとに管理するため、一覧を読み込み直すと自然に作り直されます。
+ * 同じオブジェクトのまま内容を書き換えた場合は {@link #discardLayout(MemoSummary)} を呼び出してください。</p>
+ */
+public class MemoListCellRenderer extends JComponent implements ListCellRenderer<MemoSummary> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 保持する表示内容の上限件数。一覧の数画面分あれば十分です。 */
+    private static final int MAX_CACHED_LAYOUTS = 1024;
+
+    private static final int PADDING_TOP = 12;
+    private static final int PADDING_LEFT = 10;
+    private static final int PADDING_RIGHT = 8;
+    private static final int CELL_HEIGHT = 60;
+    private static final String ELLIPSIS = "…";
+
+    private static final Color DETAIL_COLOR = Color.GRAY;
+    private static final Color SELECTED_DETAIL_COLOR = new Color(210, 210, 210);
+
+    /** メモ → 表示内容。メモはIDではなくオブジェクトの同一性で区別します。最近使った順に並びます。 */
+    private final transient Map<MemoSummary, CellLayout> layouts = new LinkedHashMap<MemoSummary, CellLayout>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MemoSummary, CellLayout> eldest) {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
+
+    /** OS の設定に合わせた文字のアンチエイリアス設定。 */
+    private final transient Map<?, ?> desktopHints =
+            (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+
+    private Font baseFont;
+    private Font titleFont;
+
+    // 描画中のセルの状態（getListCellRendererComponent で設定し、paintComponent で使用する）
+    private transient CellLayout current;
+    private Color cellBackground;
+    private Color cellForeground;
+    private Color detailForeground;
+
+    /**
+     * レンダラーを生成します。
+     */
+    public MemoListCellRenderer() {
+        setOpaque(true);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends MemoSummary> list, MemoSummary value, int index,
+            boolean isSelected, boolean cellHasFocus) {
+        if (list.getFont() != baseFont) {
+            baseFont = list.getFont();
+            titleFont = baseFont.deriveFont(Font.BOLD);
+            layouts.clear();
+        }
+        int width = list.getWidth() > 0 ? list.getWidth() : list.getFixedCellWidth();
+        current = value != null ? layoutFor(list, value, width) : null;
+
+        cellBackground = isSelected ? list.getSelectionBackground() : list.getBackground();
+        cellForeground = isSelected ? list.getSelectionForeground() : list.getForeground();
+        detailForeground = isSelected ? SELECTED_DETAIL_COLOR : DETAIL_COLOR;
+        return this;
+    }
+
+    /**
+     * 指定したメモの表示内容を破棄し、次の描画時に作り直すようにします。
+     * メモのオブジェクトを書き換えた（編集した）場合に呼び出します。
+     *
+     * @param memo 内容が変わったメモ。
+     */
+    public void discardLayout(MemoSummary memo) {
+        layouts.remove(memo);
+    }
+
+    /**
+     * 保持しているすべての表示内容を破棄します。
+     */
+    public void discardAllLayouts() {
+        layouts.clear();
+    }
+
+    /**
+     * 現在保持している表示内容の件数を返します。
+     *
+     * @return 表示内容の件数。
+     */
+    public int cachedLayoutCount() {
+        return layouts.size();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(0, CELL_HEIGHT);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(cellBackground);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (current == null) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g;
+        if (desktopHints != null) {
+            g2.addRenderingHints(desktopHints);
+        }
+        g2.setColor(cellForeground);
+        g2.drawGlyphVector(current.title, PADDING_LEFT, current.titleBaseline);
+        g2.setColor(detailForeground);
+        g2.drawGlyphVector(current.detail, PADDING_LEFT, current.detailBaseline);
+    }
+
+    /**
+     * メモの表示内容を返します。保持していない場合や、セルの幅が変わった場合は計算し直します。
+     */
+    private CellLayout layoutFor(JList<?> list, MemoSummary memo, int width) {
+        CellLayout layout = layouts.get(memo);
+        if (layout == null || layout.width != width) {
+            layout = createLayout(list, memo, width);
+            layouts.put(memo, layout);
+        }
+        return layout;
+    }
+
+    private CellLayout createLayout(JList<?> list, MemoSummary memo, int width) {
+        String dateLabel = memo.getUpdatedAt() != null && !memo.getUpdatedAt().equals(memo.getCreatedAt())
+                ? "最終更新日: " + memo.getUpdatedAt()
+                : "作成日: " + memo.getCreatedAt();
+        String detailText = String.join(", ", memo.getTags()) + "  " + dateLabel;
+
+        FontMetrics titleMetrics = list.getFontMetrics(titleFont);
+        FontMetrics detailMetrics = list.getFontMetrics(baseFont);
+        int available = Math.max(0, width - PADDING_LEFT - PADDING_RIGHT);
+
+        int titleBaseline = PADDING_TOP + titleMetrics.getAscent();
+        int detailBaseline = titleBaseline + titleMetrics.getDescent() + detailMetrics.getLeading() + detailMetrics.getAscent();
+        return new CellLayout(width,
+                glyphs(titleFont, titleMetrics, memo.getTitle(), available), titleBaseline,
+                glyphs(baseFont, detailMetrics, detailText, available), detailBaseline);
+    }
+
+    /**
+     * 文字列を幅に収まるよう切り詰め、描画用の字形に変換します。
+     */
+    private static GlyphVector glyphs(Font font, FontMetrics metrics, String text, int available) {
+        String fitted = text == null ? "" : text;
+        if (metrics.stringWidth(fitted) > available) {
+            int end = fitted.length();
+            int ellipsisWidth = metrics.stringWidth(ELLIPSIS);
+            while (end > 0 && metrics.stringWidth(fitted.substring(0, end)) + ellipsisWidth > available) {
+                end--;
+            }
+            if (end > 0 && Character.isHighSurrogate(fitted.charAt(end - 1))) {
+                end--;
+            }
+            fitted = fitted.substring(0, end) + ELLIPSIS;
+        }
+        FontRenderContext frc = metrics.getFontRenderContext();
+        return font.createGlyphVector(frc, fitted);
+    }
+
+    // --- JList のセル描画では不要な処理を省略する（DefaultListCellRenderer と同様） ---
+
+    @Override
+    public void invalidate() {
+    }
+
+    @Override
+    public void validate() {
+    }
+
+    @Override
+    public void revalidate() {
+    }
+
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    @Override
+    public void repaint() {
+    }
+
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+    }
+
+    /**
+     * 1件のメモについて、事前に計算した表示内容です。
+     */
+    private static final class CellLayout {
+        private final int width;
+        private final GlyphVector title;
+        private final int titleBaseline;
+        private final GlyphVector detail;
+        private final int detailBaseline;
+
+        CellLayout(int width, GlyphVector title, int titleBaseline, GlyphVector detail, int detailBaseline) {
+            this.width = width;
+            this.title = title;
+            this.titleBaseline = titleBaseline;
+            this.detail = detail;
+            this.detailBaseline = detailBaseline;
+        }
+    }
+}
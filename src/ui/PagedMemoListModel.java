@@ -0,0 +1,343 @@
+package ui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.swing.AbstractListModel;
+
+import memo.MemoSummary;
+import memo.MemoManager;
+import storage.MemoPage;
+import storage.PageCursor;
+
+/**
+ * メモ一覧を必要な分だけ読み込む `JList` 用のリストモデルです。
+ * 全件を一度に読み込む代わりに、表示されている位置の付近のページだけをデータベースから取得し、
+ * 表示位置から離れたページはメモリから破棄します。
+ * 一覧には本文を表示しないため、各ページは本文を含まない {@link MemoSummary} で読み込みます。
+ * そのため、メモの件数が増えてもメモリ使用量と初回表示までの時間はほぼ一定です。
+ *
+ * <p>このモデルはイベントディスパッチスレッド（EDT）からのみ操作してください。
+ * 1ページの取得は索引を使った {@code LIMIT} 付きの問い合わせのため、EDT 上で同期的に行います。
+ * ただし、ライトビハインドで保存先へ反映していない書き込みがある場合は、取得が反映を待つため
+ * {@link BackgroundTaskRunner} で読み込み、読み込み終えるまでそのページの行は空（null）で表示します。
+ * バックグラウンドでの読み込みに失敗したページは、次に一覧が変わるまで空のまま表示し、読み込み直しません。</p>
+ */
+class PagedMemoListModel extends AbstractListModel<MemoSummary> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** 1ページあたりの件数。 */
+    static final int PAGE_SIZE = 100;
+
+    /** メモリ上に保持するページ数の上限。 */
+    private static final int MAX_RESIDENT_PAGES = 8;
+
+    /**
+     * バックグラウンドでのページの読み込みに使うチャンネル名の接頭辞（ページごとに別のチャンネルにします）。
+     * チャンネルは読み込みを終えると {@link BackgroundTaskRunner} から取り除かれるため、読んだページの数だけ残ることはありません。
+     */
+    private static final String PAGE_CHANNEL_PREFIX = "page-";
+
+    private final transient MemoManager manager;
+    private final transient BackgroundTaskRunner tasks;
+    private final transient Consumer<Exception> errorHandler;
+
+    /** 読み込み済みのページ（ページ番号 → メモ）。最近使った順に並びます。 */
+    private final transient Map<Integer, List<MemoSummary>> pages = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** 各ページの読み込み開始位置（ページ番号 → 直前のページの末尾）。先頭ページは null から読み込みます。 */
+    private final transient Map<Integer, PageCursor> cursors = new HashMap<>();
+
+    /** バックグラウンドで読み込み中のページ番号。 */
+    private final transient Set<Integer> loading = new HashSet<>();
+
+    /**
+     * バックグラウンドでの読み込みに失敗したページ番号。ページを破棄するまで読み込み直しません
+     * （エラーを表示したダイアログを閉じるたびに再描画で読み込み直し、エラーを繰り返し表示しないため）。
+     */
+    private final transient Set<Integer> failed = new HashSet<>();
+
+    /** ページを破棄するたびに増える番号。破棄する前に始めた読み込みの結果を使わないために使用します。 */
+    private int generation;
+
+    private int size;
+
+    /**
+     * @param manager ページの取得に使用するMemoManager。
+     * @param tasks        反映前の書き込みがある場合に、ページをバックグラウンドで読み込むためのランナー。
+     * @param errorHandler バックグラウンドでのページの読み込みに失敗したときに EDT 上で呼び出される処理。
+     */
+    PagedMemoListModel(MemoManager manager, BackgroundTaskRunner tasks, Consumer<Exception> errorHandler) {
+        this.manager = manager;
+        this.tasks = tasks;
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * 読み込み済みのページを破棄し、一覧の件数を設定し直します。
+     * 全件表示に切り替えた場合など、件数が分からなくなった場合に呼び出します。
+     * 件数の取得は EDT を塞がないよう、呼び出し元がバックグラウンドで行います。
+     *
+     * @param newSize 現在のメモの件数。
+     */
+    void reload(int newSize) {
+        int oldSize = size;
+        discardPages();
+        size = newSize;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (size > 0) {
+            fireIntervalAdded(this, 0, size - 1);
+        }
+    }
+
+    /**
+     * 先頭にメモが1件追加されたことを反映します。
+     * 追加・更新されたメモは更新日時が最も新しいため、常に一覧の先頭に並びます。
+     * 以降のページの境界がずれるため読み込み済みのページは破棄しますが、件数を数え直す問い合わせは行いません。
+     */
+    void memoInserted() {
+        discardPages();
+        size++;
+        fireIntervalAdded(this, 0, 0);
+    }
+
+    /**
+     * メモが更新され、一覧の先頭へ移動したことを反映します。
+     *
+     * @param id 更新されたメモのID。
+     */
+    void memoMovedToTop(int id) {
+        int index = indexOfLoaded(id);
+        discardPages();
+        // 読み込み済みのページにない場合は、移動元の位置が分からないため全体を再描画する
+        fireContentsChanged(this, 0, index >= 0 ? index : size - 1);
+    }
+
+    /**
+     * メモが1件削除されたことを反映します。
+     *
+     * @param id 削除されたメモのID。
+     */
+    void memoRemoved(int id) {
+        int index = indexOfLoaded(id);
+        discardPages();
+        if (size == 0) {
+            return;
+        }
+        size--;
+        if (index >= 0) {
+            fireIntervalRemoved(this, index, index);
+        } else {
+            // 削除位置が分からないため、末尾の1件を取り除いたことにして全体を再描画する
+            fireIntervalRemoved(this, size, size);
+            if (size > 0) {
+                fireContentsChanged(this, 0, size - 1);
+            }
+        }
+    }
+
+    /**
+     * 読み込み済みのページから、指定したIDのメモの位置を探します。
+     * まだ読み込んでいないページは探しません。
+     *
+     * @param id メモのID。
+     * @return 一覧内の位置。読み込み済みのページにない場合は-1。
+     */
+    int indexOfLoaded(int id) {
+        for (Map.Entry<Integer, List<MemoSummary>> entry : pages.entrySet()) {
+            List<MemoSummary> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == id) {
+                    return entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * 指定した位置のメモを返します。該当するページが未読み込みの場合はこの時点で取得します
+     * （反映前の書き込みがある場合はバックグラウンドでの読み込みを開始します）。
+     *
+     * @param index 一覧内の位置。
+     * @return メモ。一覧の件数が取得時から減っている場合と、バックグラウンドで読み込み中の場合はnull。
+     */
+    @Override
+    public MemoSummary getElementAt(int index) {
+        int pageNumber = index / PAGE_SIZE;
+        List<MemoSummary> page = loadPage(pageNumber);
+        int offset = index % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * 現在メモリ上に保持しているページ数を返します。
+     *
+     * @return 読み込み済みのページ数。
+     */
+    int residentPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * 読み込み済みのページと読み込み開始位置をすべて破棄します。次に表示されたときに読み込み直します。
+     */
+    private void discardPages() {
+        pages.clear();
+        cursors.clear();
+        loading.clear();
+        failed.clear();
+        generation++;
+    }
+
+    private List<MemoSummary> loadPage(int pageNumber) {
+        List<MemoSummary> page = pages.get(pageNumber);
+        if (page != null) {
+            return page;
+        }
+
+        int known = knownPage(pageNumber);
+        PageCursor knownCursor = cursors.get(known);
+        if (manager.hasPendingWrites()) {
+            // 保存先からの取得は反映を待つため、EDT を塞がないようバックグラウンドで読み込む
+            loadPageInBackground(pageNumber, known, knownCursor);
+            return Collections.emptyList();
+        }
+        return pageLoaded(pageNumber, fetchPage(manager, pageNumber, known, knownCursor));
+    }
+
+    private void loadPageInBackground(int pageNumber, int known, PageCursor knownCursor) {
+        if (failed.contains(pageNumber) || !loading.add(pageNumber)) {
+            return;
+        }
+        int expectedGeneration = generation;
+        tasks.submit(PAGE_CHANNEL_PREFIX + pageNumber, () -> {
+            // 失敗も結果として EDT へ返し、読み込み中の印を必ず外す
+            try {
+                return fetchPage(manager, pageNumber, known, knownCursor);
+            } catch (RuntimeException e) {
+                return new LoadedPage(e);
+            }
+        }, loaded -> pageLoadedInBackground(pageNumber, expectedGeneration, loaded));
+    }
+
+    /**
+     * バックグラウンドで読み込んだページを反映し、そのページの行を再描画します。EDT から呼び出します。
+     */
+    private void pageLoadedInBackground(int pageNumber, int expectedGeneration, LoadedPage loaded) {
+        if (expectedGeneration != generation) {
+            return; // 読み込み中にページが破棄された（表示されていれば読み込み直される）
+        }
+        loading.remove(pageNumber);
+        if (loaded.error != null) {
+            failed.add(pageNumber);
+            errorHandler.accept(loaded.error);
+            return;
+        }
+        pageLoaded(pageNumber, loaded);
+        int first = pageNumber * PAGE_SIZE;
+        int last = Math.min(size, first + PAGE_SIZE) - 1;
+        if (first <= last) {
+            fireContentsChanged(this, first, last);
+        }
+    }
+
+    /**
+     * 読み込んだページを保持し、次のページの読み込み開始位置を記録します。EDT から呼び出します。
+     */
+    private List<MemoSummary> pageLoaded(int pageNumber, LoadedPage loaded) {
+        if (loaded.page == null) {
+            // 読み込み時点より件数が減っており、このページは存在しない
+            return new ArrayList<>();
+        }
+        if (pageNumber > 0) {
+            cursors.put(pageNumber, loaded.start);
+        }
+        List<MemoSummary> page = loaded.page.getMemos();
+        pages.put(pageNumber, page);
+        if (loaded.page.getNext() != null) {
+            cursors.put(pageNumber + 1, loaded.page.getNext());
+        }
+        evictFarPages(pageNumber);
+        return page;
+    }
+
+    /**
+     * 読み込み開始位置が分かっている、指定したページ以前で最も近いページの番号を返します（先頭ページは常に分かっています）。
+     */
+    private int knownPage(int pageNumber) {
+        int known = pageNumber;
+        while (known > 0 && !cursors.containsKey(known)) {
+            known--;
+        }
+        return known;
+    }
+
+    /**
+     * 指定したページを取得します。位置が分かっているページから、メモ本体を読まずに必要な件数だけ進めてから読み込みます。
+     * モデルの状態を参照しないため、バックグラウンドのスレッドからも呼び出せます。
+     */
+    private static LoadedPage fetchPage(MemoManager manager, int pageNumber, int known, PageCursor knownCursor) {
+        PageCursor start = knownCursor;
+        if (known < pageNumber) {
+            start = manager.skip(knownCursor, (pageNumber - known) * PAGE_SIZE);
+            if (start == null) {
+                return new LoadedPage(null, null);
+            }
+        }
+        return new LoadedPage(start, manager.getSummaryPage(start, PAGE_SIZE));
+    }
+
+    /**
+     * 表示位置から離れたページを、最後に使われた時期が古いものから破棄します。
+     * ページの読み込み開始位置は小さいため、破棄せずに保持し続けます。
+     */
+    private void evictFarPages(int currentPage) {
+        Iterator<Map.Entry<Integer, List<MemoSummary>>> it = pages.entrySet().iterator();
+        while (pages.size() > MAX_RESIDENT_PAGES && it.hasNext()) {
+            int pageNumber = it.next().getKey();
+            if (Math.abs(pageNumber - currentPage) > 1) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 取得したページと、その読み込み開始位置です。
+     */
+    private static final class LoadedPage {
+        final PageCursor start;
+        /** 取得したページ。ページが存在しない場合と、取得に失敗した場合はnull。 */
+        final MemoPage<MemoSummary> page;
+        /** 取得に失敗した場合の例外。成功した場合はnull。 */
+        final Exception error;
+
+        LoadedPage(PageCursor start, MemoPage<MemoSummary> page) {
+            this.start = start;
+            this.page = page;
+            this.error = null;
+        }
+
+        LoadedPage(Exception error) {
+            this.start = null;
+            this.page = null;
+            this.error = error;
+        }
+    }
+}
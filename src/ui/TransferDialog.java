@@ -0,0 +1,125 @@
+package ui;
+
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.border.EmptyBorder;
+
+import transfer.TransferProgress;
+
+/**
+ * エクスポート・インポートの進み具合を表示するダイアログです。
+ * 処理は EDT の外（SwingWorker）で実行し、「中止」ボタンで処理中のスレッドに割り込みます。
+ * 完了・失敗・中止の結果はダイアログを閉じた後にメッセージで表示します。
+ */
+class TransferDialog extends JDialog {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * ダイアログで実行する処理です。
+     */
+    @FunctionalInterface
+    interface Task {
+        /**
+         * @param progress 進み具合を通知するコールバック。
+         * @return 処理した件数。
+         * @throws Exception 処理に失敗した場合。
+         */
+        long run(TransferProgress progress) throws Exception;
+    }
+
+    private final JProgressBar progressBar = new JProgressBar(0, 1000);
+    private final JLabel statusLabel = new JLabel("準備しています...");
+    private final JButton cancelButton = new JButton("中止");
+
+    /**
+     * @param owner 親ウィンドウ。
+     * @param title ダイアログのタイトル。
+     */
+    TransferDialog(JFrame owner, String title) {
+        super(owner, title, true);
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+        JPanel content = new JPanel(new BorderLayout(0, 8));
+        content.setBorder(new EmptyBorder(12, 12, 12, 12));
+        progressBar.setIndeterminate(true);
+        content.add(statusLabel, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelButton);
+        content.add(buttons, BorderLayout.SOUTH);
+
+        setContentPane(content);
+        setSize(360, 140);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * 処理を開始し、完了するまでダイアログを表示します（モーダル）。
+     *
+     * @param task             実行する処理。
+     * @param completedMessage 完了時のメッセージ。{@code %d} に処理した件数が入ります。
+     */
+    void run(Task task, String completedMessage) {
+        SwingWorker<Long, long[]> worker = new SwingWorker<Long, long[]>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return task.run((records, done, total) -> publish(new long[] { records, done, total }));
+            }
+
+            @Override
+            protected void process(List<long[]> chunks) {
+                long[] latest = chunks.get(chunks.size() - 1);
+                showProgress(latest[0], latest[1], latest[2]);
+            }
+
+            @Override
+            protected void done() {
+                dispose();
+                try {
+                    long count = get();
+                    JOptionPane.showMessageDialog(getOwner(), String.format(completedMessage, count), getTitle(),
+                            JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException e) {
+                    JOptionPane.showMessageDialog(getOwner(), "中止しました", getTitle(), JOptionPane.WARNING_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(getOwner(), "失敗しました: " + cause.getMessage(), getTitle(),
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        cancelButton.addActionListener(e -> {
+            cancelButton.setEnabled(false);
+            statusLabel.setText("中止しています...");
+            worker.cancel(true);
+        });
+        worker.execute();
+        setVisible(true); // モーダルのため、done() で閉じられるまでここで待つ
+    }
+
+    private void showProgress(long records, long done, long total) {
+        if (!cancelButton.isEnabled()) {
+            return;
+        }
+        statusLabel.setText(String.format("%,d 件", records));
+        if (total > 0) {
+            progressBar.setIndeterminate(false);
+            progressBar.setValue((int) (done * progressBar.getMaximum() / total));
+        }
+    }
+}